@@ -14,6 +14,9 @@ import java.util.logging.Logger;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.core.database.DatabaseType;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 
 
 /**
@@ -432,6 +435,30 @@ public class DatabaseContext implements AutoCloseable {
         }
     }
 
+    /**
+     * Begins a COPY FROM STDIN operation. This is only supported by PostgreSQL.
+     * No other statements can be executed by this context until the copy has
+     * been ended or cancelled.
+     * 
+     * @param copyStatement The COPY statement to execute.
+     * @return The copy operation to write data to.
+     */
+    public CopyIn beginCopy(String copyStatement) {
+        if (loginCredentials.getDbType() != DatabaseType.POSTGRESQL) {
+            throw new OsmosisRuntimeException("COPY is not supported by database type "
+                    + loginCredentials.getDbType() + ".");
+        }
+
+        try {
+            LOG.finest("Beginning copy {" + copyStatement + "}");
+
+            return new CopyManager(getConnection().unwrap(BaseConnection.class)).copyIn(copyStatement);
+
+        } catch (SQLException e) {
+            throw new OsmosisRuntimeException("Unable to begin copy.", e);
+        }
+    }
+
     /**
      * Commits any outstanding transaction.
      */
@@ -74,16 +74,13 @@ public class ApidbChangeReader implements RunnableChangeSource {
 	 */
     protected void runImpl(DatabaseContext2 dbCtx) {
     	try {
-    		AllEntityDao entityDao;
-
     		changeSink.initialize(Collections.<String, Object>emptyMap());
 
 	        new SchemaVersionValidator(loginCredentials, preferences)
 	                .validateVersion(ApidbVersionConstants.SCHEMA_MIGRATIONS);
 
-	        entityDao = new AllEntityDao(dbCtx.getJdbcTemplate());
-
-	        try (ReleasableIterator<ChangeContainer> reader = entityDao.getHistory(intervalBegin, intervalEnd)) {
+	        try (AllEntityDao entityDao = new AllEntityDao(dbCtx);
+	        		ReleasableIterator<ChangeContainer> reader = entityDao.getHistory(intervalBegin, intervalEnd)) {
 	        	ReleasableIterator<ChangeContainer> i;
 	        	
 	        	if (fullHistory) {
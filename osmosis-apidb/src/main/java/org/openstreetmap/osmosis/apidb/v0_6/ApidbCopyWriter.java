@@ -0,0 +1,392 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.apidb.common.DatabaseContext;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BinaryCopyEncoder;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BinaryCopyLoader;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.ChangesetManager;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.IndexRebuilder;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.MemberTypeRenderer;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.SchemaVersionValidator;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.UserManager;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityProcessor;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.openstreetmap.osmosis.core.database.DatabasePreferences;
+import org.openstreetmap.osmosis.core.database.DatabaseType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+import org.openstreetmap.osmosis.core.util.TileCalculator;
+
+
+/**
+ * An OSM data sink for bulk loading all data into an empty PostgreSQL database.
+ * Unlike {@link ApidbWriter} the history tables are loaded using the binary
+ * COPY format, each table on its own connection and thread. Indexes and
+ * constraints are dropped during the load and rebuilt concurrently afterwards.
+ */
+public class ApidbCopyWriter implements Sink, EntityProcessor {
+
+	private static final Logger LOG = Logger.getLogger(ApidbCopyWriter.class.getName());
+
+	private static final List<String> HISTORY_TABLES = Arrays.asList("nodes", "node_tags", "ways", "way_tags",
+			"way_nodes", "relations", "relation_tags", "relation_members");
+
+	private static final List<String> CURRENT_TABLES = Arrays.asList("current_nodes", "current_node_tags",
+			"current_ways", "current_way_tags", "current_way_nodes", "current_relations", "current_relation_tags",
+			"current_relation_members");
+
+	// These statements populate the current tables from the history tables
+	// once loading is complete, they are run concurrently.
+	private static final List<String> LOAD_CURRENT_TABLES = Arrays.asList(
+			"INSERT INTO current_nodes (id, latitude, longitude, changeset_id, visible, timestamp, tile, version)"
+			+ " SELECT node_id, latitude, longitude, changeset_id, visible, timestamp, tile, version FROM nodes",
+			"INSERT INTO current_node_tags (node_id, k, v) SELECT node_id, k, v FROM node_tags",
+			"INSERT INTO current_ways (id, changeset_id, timestamp, visible, version)"
+			+ " SELECT way_id, changeset_id, timestamp, visible, version FROM ways",
+			"INSERT INTO current_way_tags (way_id, k, v) SELECT way_id, k, v FROM way_tags",
+			"INSERT INTO current_way_nodes (way_id, node_id, sequence_id)"
+			+ " SELECT way_id, node_id, sequence_id FROM way_nodes",
+			"INSERT INTO current_relations (id, changeset_id, timestamp, visible, version)"
+			+ " SELECT relation_id, changeset_id, timestamp, visible, version FROM relations",
+			"INSERT INTO current_relation_tags (relation_id, k, v) SELECT relation_id, k, v FROM relation_tags",
+			"INSERT INTO current_relation_members (relation_id, member_id, member_role, member_type, sequence_id)"
+			+ " SELECT relation_id, member_id, member_role, member_type, sequence_id FROM relation_members");
+
+	private final DatabaseLoginCredentials loginCredentials;
+	private final DatabaseContext dbCtx;
+	private final UserManager userManager;
+	private final ChangesetManager changesetManager;
+	private final SchemaVersionValidator schemaVersionValidator;
+	private final boolean populateCurrentTables;
+	private final TileCalculator tileCalculator;
+	private final MemberTypeRenderer memberTypeRenderer;
+	private final List<BinaryCopyLoader> loaders;
+	private ExecutorService executor;
+	private IndexRebuilder indexRebuilder;
+	private BinaryCopyLoader nodeLoader;
+	private BinaryCopyLoader nodeTagLoader;
+	private BinaryCopyLoader wayLoader;
+	private BinaryCopyLoader wayTagLoader;
+	private BinaryCopyLoader wayNodeLoader;
+	private BinaryCopyLoader relationLoader;
+	private BinaryCopyLoader relationTagLoader;
+	private BinaryCopyLoader relationMemberLoader;
+	private boolean initialized;
+	private boolean loadComplete;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param preferences
+	 *            Contains preferences configuring database behaviour.
+	 * @param populateCurrentTables
+	 *            If true, the current tables will be populated as well as
+	 *            history tables.
+	 */
+	public ApidbCopyWriter(DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences,
+			boolean populateCurrentTables) {
+		if (loginCredentials.getDbType() != DatabaseType.POSTGRESQL) {
+			throw new OsmosisRuntimeException("COPY based loading is only supported for PostgreSQL databases.");
+		}
+
+		this.loginCredentials = loginCredentials;
+		this.populateCurrentTables = populateCurrentTables;
+
+		dbCtx = new DatabaseContext(loginCredentials);
+		userManager = new UserManager(dbCtx);
+		changesetManager = new ChangesetManager(dbCtx);
+		schemaVersionValidator = new SchemaVersionValidator(loginCredentials, preferences);
+
+		tileCalculator = new TileCalculator();
+		memberTypeRenderer = new MemberTypeRenderer();
+		loaders = new ArrayList<BinaryCopyLoader>();
+
+		initialized = false;
+		loadComplete = false;
+	}
+
+
+	private BinaryCopyLoader createLoader(String table, String... columns) {
+		BinaryCopyLoader loader = new BinaryCopyLoader(loginCredentials, table, columns);
+
+		loaders.add(loader);
+		loader.start(executor);
+
+		return loader;
+	}
+
+
+	/**
+	 * Drops indexes and starts a COPY operation for each history table. Can be
+	 * called multiple times.
+	 */
+	private void initialize() {
+		if (!initialized) {
+			List<String> indexedTables;
+
+			schemaVersionValidator.validateVersion(ApidbVersionConstants.SCHEMA_MIGRATIONS);
+
+			executor = Executors.newFixedThreadPool(HISTORY_TABLES.size());
+
+			indexedTables = new ArrayList<String>(HISTORY_TABLES);
+			if (populateCurrentTables) {
+				indexedTables.addAll(CURRENT_TABLES);
+			}
+			// The rebuilder is only retained once the drop has been committed so
+			// that close doesn't attempt to restore indexes that still exist.
+			IndexRebuilder rebuilder = new IndexRebuilder(loginCredentials, indexedTables);
+			rebuilder.dropIndexes();
+			indexRebuilder = rebuilder;
+
+			nodeLoader = createLoader("nodes",
+					"node_id", "timestamp", "version", "visible", "changeset_id", "latitude", "longitude", "tile");
+			nodeTagLoader = createLoader("node_tags", "node_id", "k", "v", "version");
+			wayLoader = createLoader("ways", "way_id", "timestamp", "version", "visible", "changeset_id");
+			wayTagLoader = createLoader("way_tags", "way_id", "k", "v", "version");
+			wayNodeLoader = createLoader("way_nodes", "way_id", "node_id", "sequence_id", "version");
+			relationLoader = createLoader("relations",
+					"relation_id", "timestamp", "version", "visible", "changeset_id");
+			relationTagLoader = createLoader("relation_tags", "relation_id", "k", "v", "version");
+			relationMemberLoader = createLoader("relation_members",
+					"relation_id", "member_type", "member_id", "sequence_id", "member_role", "version");
+
+			initialized = true;
+		}
+	}
+
+
+	private void assertEntityHasTimestamp(Entity entity) {
+		if (entity.getTimestamp() == null) {
+			throw new OsmosisRuntimeException(
+					entity.getType().toString() + " " + entity.getId() + " does not have a timestamp set.");
+		}
+	}
+
+
+	private void writeEntity(BinaryCopyLoader loader, Entity entity) {
+		BinaryCopyEncoder row;
+
+		assertEntityHasTimestamp(entity);
+
+		row = loader.startRow();
+		row.writeLong(entity.getId());
+		row.writeTimestamp(entity.getTimestamp());
+		row.writeLong(entity.getVersion());
+		row.writeBoolean(true);
+		row.writeLong(entity.getChangesetId());
+		loader.endRow();
+	}
+
+
+	private void writeTags(BinaryCopyLoader loader, Entity entity) {
+		for (Tag tag : entity.getTags()) {
+			BinaryCopyEncoder row = loader.startRow();
+
+			row.writeLong(entity.getId());
+			row.writeString(tag.getKey());
+			row.writeString(tag.getValue());
+			row.writeLong(entity.getVersion());
+			loader.endRow();
+		}
+	}
+
+
+	private void executeConcurrently(List<String> statements) {
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		for (final String sql : statements) {
+			futures.add(executor.submit(() -> {
+				try (DatabaseContext statementCtx = new DatabaseContext(loginCredentials)) {
+					statementCtx.executeStatement(sql);
+					statementCtx.commit();
+				}
+			}));
+		}
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OsmosisRuntimeException("Interrupted while populating the current tables.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("Unable to populate the current tables.", e.getCause());
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void initialize(Map<String, Object> metaData) {
+		// Do nothing.
+	}
+
+
+	/**
+	 * Completes the load of all tables, populates the current tables and
+	 * rebuilds indexes.
+	 */
+	@Override
+	public void complete() {
+		initialize();
+
+		// Users and changesets must be visible before foreign keys are rebuilt.
+		dbCtx.commit();
+
+		for (BinaryCopyLoader loader : loaders) {
+			loader.complete();
+		}
+		LOG.fine("History tables loaded.");
+
+		if (populateCurrentTables) {
+			executeConcurrently(LOAD_CURRENT_TABLES);
+			LOG.fine("Current tables populated.");
+		}
+
+		indexRebuilder.rebuildIndexes(executor);
+		LOG.fine("Indexes rebuilt.");
+
+		loadComplete = true;
+	}
+
+
+	/**
+	 * Releases all database resources. If the load did not complete, the
+	 * dropped indexes and constraints are restored.
+	 */
+	public void close() {
+		for (BinaryCopyLoader loader : loaders) {
+			loader.close();
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+
+		if (indexRebuilder != null && !loadComplete) {
+			LOG.warning("The load did not complete, restoring dropped indexes and constraints.");
+			indexRebuilder.restoreIndexes();
+		}
+
+		changesetManager.close();
+		userManager.close();
+		dbCtx.close();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(EntityContainer entityContainer) {
+		Entity entity;
+
+		initialize();
+
+		entity = entityContainer.getEntity();
+		userManager.addOrUpdateUser(entity.getUser());
+		changesetManager.addChangesetIfRequired(entity.getChangesetId(), entity.getUser());
+
+		entityContainer.process(this);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(BoundContainer boundContainer) {
+		// Do nothing.
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(NodeContainer nodeContainer) {
+		Node node = nodeContainer.getEntity();
+		BinaryCopyEncoder row;
+
+		assertEntityHasTimestamp(node);
+
+		row = nodeLoader.startRow();
+		row.writeLong(node.getId());
+		row.writeTimestamp(node.getTimestamp());
+		row.writeLong(node.getVersion());
+		row.writeBoolean(true);
+		row.writeLong(node.getChangesetId());
+		row.writeLong(FixedPrecisionCoordinateConvertor.convertToFixed(node.getLatitude()));
+		row.writeLong(FixedPrecisionCoordinateConvertor.convertToFixed(node.getLongitude()));
+		row.writeLong(tileCalculator.calculateTile(node.getLatitude(), node.getLongitude()));
+		nodeLoader.endRow();
+
+		writeTags(nodeTagLoader, node);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(WayContainer wayContainer) {
+		Way way = wayContainer.getEntity();
+
+		writeEntity(wayLoader, way);
+		writeTags(wayTagLoader, way);
+
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
+			BinaryCopyEncoder row = wayNodeLoader.startRow();
+
+			row.writeLong(way.getId());
+			row.writeLong(way.getWayNodeId(i));
+			row.writeLong(i + 1);
+			row.writeLong(way.getVersion());
+			wayNodeLoader.endRow();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(RelationContainer relationContainer) {
+		Relation relation = relationContainer.getEntity();
+
+		writeEntity(relationLoader, relation);
+		writeTags(relationTagLoader, relation);
+
+		for (int i = 0; i < relation.getMemberCount(); i++) {
+			BinaryCopyEncoder row = relationMemberLoader.startRow();
+
+			row.writeLong(relation.getId());
+			row.writeString(memberTypeRenderer.render(relation.getMemberType(i)));
+			row.writeLong(relation.getMemberId(i));
+			row.writeLong(i + 1);
+			row.writeString(relation.getMemberRole(i));
+			row.writeLong(relation.getVersion());
+			relationMemberLoader.endRow();
+		}
+	}
+}
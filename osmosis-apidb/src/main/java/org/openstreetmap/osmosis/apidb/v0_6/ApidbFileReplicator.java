@@ -3,7 +3,6 @@ package org.openstreetmap.osmosis.apidb.v0_6;
 
 import org.openstreetmap.osmosis.apidb.common.DatabaseContext2;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.AllEntityDao;
-import org.openstreetmap.osmosis.apidb.v0_6.impl.ReplicationSource;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.Replicator;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.SchemaVersionValidator;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.SystemTimeLoader;
@@ -72,21 +71,21 @@ public class ApidbFileReplicator implements RunnableChangeSource {
 	 */
     protected void runImpl(DatabaseContext2 dbCtx) {
 		Replicator replicator;
-		ReplicationSource source;
 		TransactionManager txnSnapshotLoader;
 		SystemTimeLoader systemTimeLoader;
 		
 		new SchemaVersionValidator(loginCredentials, preferences)
 				.validateVersion(ApidbVersionConstants.SCHEMA_MIGRATIONS);
 		
-		source = new AllEntityDao(dbCtx.getJdbcTemplate());
-		txnSnapshotLoader = new TransactionDao(dbCtx);
-		systemTimeLoader = new TimeDao(dbCtx.getJdbcTemplate());
-		
-		replicator = new Replicator(source, changeSink, txnSnapshotLoader, systemTimeLoader, iterations, minInterval,
-				maxInterval);
-		
-		replicator.replicate();
+		try (AllEntityDao source = new AllEntityDao(dbCtx)) {
+			txnSnapshotLoader = new TransactionDao(dbCtx);
+			systemTimeLoader = new TimeDao(dbCtx.getJdbcTemplate());
+			
+			replicator = new Replicator(source, changeSink, txnSnapshotLoader, systemTimeLoader, iterations,
+					minInterval, maxInterval);
+			
+			replicator.replicate();
+		}
     }
 
 
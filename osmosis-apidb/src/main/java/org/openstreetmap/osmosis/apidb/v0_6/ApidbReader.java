@@ -66,18 +66,15 @@ public class ApidbReader implements RunnableSource {
 	 */
     protected void runImpl(DatabaseContext2 dbCtx) {
     	try {
-    		AllEntityDao entityDao;
-    		
     		sink.initialize(Collections.<String, Object>emptyMap());
     		
 	        new SchemaVersionValidator(loginCredentials, preferences)
 	                .validateVersion(ApidbVersionConstants.SCHEMA_MIGRATIONS);
 	        
-	        entityDao = new AllEntityDao(dbCtx.getJdbcTemplate());
-
 	        sink.process(new BoundContainer(new Bound("Osmosis " + OsmosisConstants.VERSION)));
-	        try (ReleasableIterator<EntityContainer> reader =
-                         new EntitySnapshotReader(entityDao.getHistory(), snapshotInstant)) {
+	        try (AllEntityDao entityDao = new AllEntityDao(dbCtx);
+	        		ReleasableIterator<EntityContainer> reader =
+	        				new EntitySnapshotReader(entityDao.getHistory(), snapshotInstant)) {
 	        	while (reader.hasNext()) {
 	        		sink.process(reader.next());
 	        	}
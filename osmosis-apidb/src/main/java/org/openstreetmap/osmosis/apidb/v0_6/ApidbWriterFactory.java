@@ -7,6 +7,7 @@ import org.openstreetmap.osmosis.core.database.DatabaseTaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkManager;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 
 /**
@@ -17,8 +18,10 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkManager;
 public class ApidbWriterFactory extends DatabaseTaskManagerFactory {
 	private static final String ARG_LOCK_TABLES = "lockTables";
 	private static final String ARG_POPULATE_CURRENT_TABLES = "populateCurrentTables";
+	private static final String ARG_USE_COPY = "useCopy";
 	private static final boolean DEFAULT_LOCK_TABLES = true;
 	private static final boolean DEFAULT_POPULATE_CURRENT_TABLES = true;
+	private static final boolean DEFAULT_USE_COPY = false;
 	
 	
 	/**
@@ -30,6 +33,8 @@ public class ApidbWriterFactory extends DatabaseTaskManagerFactory {
 		DatabasePreferences preferences;
 		boolean lockTables;
 		boolean populateCurrentTables;
+		boolean useCopy;
+		Sink sink;
 		
 		// Get the task arguments.
 		loginCredentials = getDatabaseLoginCredentials(taskConfig);
@@ -37,11 +42,14 @@ public class ApidbWriterFactory extends DatabaseTaskManagerFactory {
 		lockTables = getBooleanArgument(taskConfig, ARG_LOCK_TABLES, DEFAULT_LOCK_TABLES);
 		populateCurrentTables = getBooleanArgument(
 				taskConfig, ARG_POPULATE_CURRENT_TABLES, DEFAULT_POPULATE_CURRENT_TABLES);
+		useCopy = getBooleanArgument(taskConfig, ARG_USE_COPY, DEFAULT_USE_COPY);
 		
-		return new SinkManager(
-			taskConfig.getId(),
-			new ApidbWriter(loginCredentials, preferences, lockTables, populateCurrentTables),
-			taskConfig.getPipeArgs()
-		);
+		if (useCopy) {
+			sink = new ApidbCopyWriter(loginCredentials, preferences, populateCurrentTables);
+		} else {
+			sink = new ApidbWriter(loginCredentials, preferences, lockTables, populateCurrentTables);
+		}
+		
+		return new SinkManager(taskConfig.getId(), sink, taskConfig.getPipeArgs());
 	}
 }
@@ -5,8 +5,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.openstreetmap.osmosis.apidb.common.DatabaseContext2;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.database.DatabaseType;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.store.MultipleSourceIterator;
@@ -17,10 +20,17 @@ import org.springframework.jdbc.core.JdbcTemplate;
  * Provides operations that act on on all entity types by combining operations from the underlying
  * DAO implementations.
  */
-public class AllEntityDao implements ReplicationSource {
+public class AllEntityDao implements ReplicationSource, Closeable {
+	/**
+	 * The number of history queries to run at once. The default connection pool size is 8 which
+	 * leaves a connection for the calling transaction.
+	 */
+	private static final int CONCURRENT_QUERY_COUNT = 6;
+	
 	private NodeDao nodeDao;
 	private WayDao wayDao;
 	private RelationDao relationDao;
+	private SnapshotQueryExecutor queryExecutor;
 	
 	
 	/**
@@ -30,9 +40,40 @@ public class AllEntityDao implements ReplicationSource {
 	 *            Used to access the database.
 	 */
 	public AllEntityDao(JdbcTemplate jdbcTemplate) {
-		nodeDao = new NodeDao(jdbcTemplate);
-		wayDao = new WayDao(jdbcTemplate);
-		relationDao = new RelationDao(jdbcTemplate);
+		this(jdbcTemplate, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance. Queries are run concurrently if the database supports it.
+	 * 
+	 * @param dbCtx
+	 *            Used to access the database.
+	 */
+	public AllEntityDao(DatabaseContext2 dbCtx) {
+		this(dbCtx.getJdbcTemplate(), dbCtx.getDatabaseType() == DatabaseType.POSTGRESQL);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param jdbcTemplate
+	 *            Used to access the database.
+	 * @param concurrentQueries
+	 *            If true, the entity, tag and way node or relation member queries of all entity types
+	 *            are run concurrently on separate connections sharing the snapshot of the calling
+	 *            transaction. This is only supported by PostgreSQL and must be used within a
+	 *            transaction.
+	 */
+	public AllEntityDao(JdbcTemplate jdbcTemplate, boolean concurrentQueries) {
+		if (concurrentQueries) {
+			queryExecutor = new SnapshotQueryExecutor(jdbcTemplate, CONCURRENT_QUERY_COUNT);
+		}
+		
+		nodeDao = new NodeDao(jdbcTemplate, queryExecutor);
+		wayDao = new WayDao(jdbcTemplate, queryExecutor);
+		relationDao = new RelationDao(jdbcTemplate, queryExecutor);
 	}
 	
 	
@@ -136,4 +177,15 @@ public class AllEntityDao implements ReplicationSource {
 			return resultIterator;
 		}
 	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (queryExecutor != null) {
+			queryExecutor.close();
+		}
+	}
 }
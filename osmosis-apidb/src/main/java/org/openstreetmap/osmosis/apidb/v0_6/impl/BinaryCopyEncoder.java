@@ -0,0 +1,330 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Encodes rows in the PostgreSQL binary COPY format. Rows are accumulated in
+ * an internal buffer which the caller is responsible for draining.
+ */
+public class BinaryCopyEncoder {
+
+	/**
+	 * The column types supported by the encoder.
+	 */
+	public enum ColumnType {
+		/**
+		 * A 2 byte integer.
+		 */
+		SMALLINT,
+		/**
+		 * A 4 byte integer.
+		 */
+		INTEGER,
+		/**
+		 * An 8 byte integer.
+		 */
+		BIGINT,
+		/**
+		 * A boolean.
+		 */
+		BOOLEAN,
+		/**
+		 * A timestamp without time zone.
+		 */
+		TIMESTAMP,
+		/**
+		 * A timestamp with time zone.
+		 */
+		TIMESTAMPTZ,
+		/**
+		 * Any type receiving its value as text including varchar and enums.
+		 */
+		TEXT;
+
+
+		/**
+		 * Determines the column type for a database type.
+		 *
+		 * @param typeName
+		 *            The type name as returned by the format_type function.
+		 * @param enumType
+		 *            True if the type is an enum.
+		 * @return The column type.
+		 */
+		public static ColumnType fromTypeName(String typeName, boolean enumType) {
+			if (enumType || typeName.startsWith("character varying") || typeName.equals("text")) {
+				return TEXT;
+			}
+			switch (typeName) {
+			case "smallint":
+				return SMALLINT;
+			case "integer":
+				return INTEGER;
+			case "bigint":
+				return BIGINT;
+			case "boolean":
+				return BOOLEAN;
+			case "timestamp without time zone":
+				return TIMESTAMP;
+			case "timestamp with time zone":
+				return TIMESTAMPTZ;
+			default:
+				throw new OsmosisRuntimeException("Column type " + typeName + " is not supported by binary COPY.");
+			}
+		}
+	}
+
+	private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+	private static final long POSTGRES_EPOCH_MILLIS = 946684800000L;
+
+	private final ColumnType[] columnTypes;
+	private final TimeZone timeZone;
+	private byte[] buffer;
+	private int size;
+	private int column;
+
+
+	/**
+	 * Creates a new instance. The COPY header is written immediately.
+	 *
+	 * @param columnTypes
+	 *            The types of the columns in each row.
+	 */
+	public BinaryCopyEncoder(ColumnType... columnTypes) {
+		this.columnTypes = columnTypes;
+
+		// JDBC interprets timestamps without time zone in the JVM default time
+		// zone so the same is done here.
+		timeZone = TimeZone.getDefault();
+		buffer = new byte[65536];
+		column = -1;
+
+		ensureCapacity(SIGNATURE.length);
+		System.arraycopy(SIGNATURE, 0, buffer, 0, SIGNATURE.length);
+		size = SIGNATURE.length;
+		putInt(0);
+		putInt(0);
+	}
+
+
+	private void ensureCapacity(int additional) {
+		if (size + additional > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(size + additional, buffer.length * 2));
+		}
+	}
+
+
+	private void putShort(int value) {
+		ensureCapacity(2);
+		buffer[size++] = (byte) (value >>> 8);
+		buffer[size++] = (byte) value;
+	}
+
+
+	private void putInt(int value) {
+		ensureCapacity(4);
+		buffer[size++] = (byte) (value >>> 24);
+		buffer[size++] = (byte) (value >>> 16);
+		buffer[size++] = (byte) (value >>> 8);
+		buffer[size++] = (byte) value;
+	}
+
+
+	private void putLong(long value) {
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+
+	private ColumnType nextColumn() {
+		if (column < 0) {
+			throw new OsmosisRuntimeException("A row has not been started.");
+		}
+		if (column >= columnTypes.length) {
+			throw new OsmosisRuntimeException("Too many values written, the row has " + columnTypes.length
+					+ " columns.");
+		}
+
+		return columnTypes[column++];
+	}
+
+
+	private OsmosisRuntimeException createTypeException(ColumnType columnType, String valueType) {
+		return new OsmosisRuntimeException("Unable to write a " + valueType + " value to a " + columnType
+				+ " column at position " + column + ".");
+	}
+
+
+	/**
+	 * Begins a new row.
+	 */
+	public void startRow() {
+		if (column >= 0) {
+			throw new OsmosisRuntimeException("The previous row has not been ended.");
+		}
+
+		putShort(columnTypes.length);
+		column = 0;
+	}
+
+
+	/**
+	 * Ends the current row.
+	 */
+	public void endRow() {
+		if (column != columnTypes.length) {
+			throw new OsmosisRuntimeException("Only " + column + " of " + columnTypes.length
+					+ " values were written.");
+		}
+
+		column = -1;
+	}
+
+
+	/**
+	 * Writes an integer value to the next column. The value is encoded
+	 * according to the size of the integer column.
+	 *
+	 * @param value
+	 *            The value to write.
+	 */
+	public void writeLong(long value) {
+		ColumnType columnType = nextColumn();
+
+		switch (columnType) {
+		case SMALLINT:
+			if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+				throw new OsmosisRuntimeException("Value " + value + " is too large for a smallint column.");
+			}
+			putInt(2);
+			putShort((int) value);
+			break;
+		case INTEGER:
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new OsmosisRuntimeException("Value " + value + " is too large for an integer column.");
+			}
+			putInt(4);
+			putInt((int) value);
+			break;
+		case BIGINT:
+			putInt(8);
+			putLong(value);
+			break;
+		default:
+			throw createTypeException(columnType, "integer");
+		}
+	}
+
+
+	/**
+	 * Writes a boolean value to the next column.
+	 *
+	 * @param value
+	 *            The value to write.
+	 */
+	public void writeBoolean(boolean value) {
+		ColumnType columnType = nextColumn();
+
+		if (columnType != ColumnType.BOOLEAN) {
+			throw createTypeException(columnType, "boolean");
+		}
+
+		putInt(1);
+		ensureCapacity(1);
+		if (value) {
+			buffer[size++] = 1;
+		} else {
+			buffer[size++] = 0;
+		}
+	}
+
+
+	/**
+	 * Writes a timestamp value to the next column.
+	 *
+	 * @param value
+	 *            The value to write.
+	 */
+	public void writeTimestamp(Date value) {
+		ColumnType columnType = nextColumn();
+		long millis = value.getTime();
+
+		switch (columnType) {
+		case TIMESTAMP:
+			millis += timeZone.getOffset(millis);
+			break;
+		case TIMESTAMPTZ:
+			break;
+		default:
+			throw createTypeException(columnType, "timestamp");
+		}
+
+		putInt(8);
+		putLong((millis - POSTGRES_EPOCH_MILLIS) * 1000);
+	}
+
+
+	/**
+	 * Writes a string value to the next column.
+	 *
+	 * @param value
+	 *            The value to write.
+	 */
+	public void writeString(String value) {
+		ColumnType columnType = nextColumn();
+		byte[] bytes;
+
+		if (columnType != ColumnType.TEXT) {
+			throw createTypeException(columnType, "string");
+		}
+
+		bytes = value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+
+	/**
+	 * Writes the COPY trailer marking the end of the data.
+	 */
+	public void writeTrailer() {
+		if (column >= 0) {
+			throw new OsmosisRuntimeException("The last row has not been ended.");
+		}
+
+		putShort(-1);
+	}
+
+
+	/**
+	 * Returns the number of bytes currently buffered.
+	 *
+	 * @return The buffered byte count.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * Returns the buffered data and clears the buffer.
+	 *
+	 * @return The encoded data.
+	 */
+	public byte[] drain() {
+		byte[] data = Arrays.copyOf(buffer, size);
+
+		size = 0;
+
+		return data;
+	}
+}
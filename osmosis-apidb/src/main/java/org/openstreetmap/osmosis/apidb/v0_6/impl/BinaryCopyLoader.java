@@ -0,0 +1,230 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.apidb.common.DatabaseContext;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BinaryCopyEncoder.ColumnType;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.postgresql.copy.CopyIn;
+
+
+/**
+ * Streams rows into a single table using the PostgreSQL binary COPY format.
+ * Each loader uses its own database connection and the COPY data is sent to
+ * the database by a background thread so that several tables can be loaded in
+ * parallel while the calling thread encodes rows.
+ */
+public class BinaryCopyLoader implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(BinaryCopyLoader.class.getName());
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int QUEUE_SIZE = 8;
+	private static final byte[] END_OF_DATA = new byte[0];
+
+	private final DatabaseContext dbCtx;
+	private final String table;
+	private final String copyStatement;
+	private final BinaryCopyEncoder encoder;
+	private final BlockingQueue<byte[]> queue;
+	private Future<Long> copyFuture;
+	private long rowCount;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param table
+	 *            The table to be loaded.
+	 * @param columns
+	 *            The columns to be loaded in the order their values will be
+	 *            written.
+	 */
+	public BinaryCopyLoader(DatabaseLoginCredentials loginCredentials, String table, String... columns) {
+		this.table = table;
+
+		dbCtx = new DatabaseContext(loginCredentials);
+		encoder = new BinaryCopyEncoder(getColumnTypes(table, columns));
+		queue = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+		copyStatement = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH BINARY";
+	}
+
+
+	private ColumnType[] getColumnTypes(String tableName, String[] columns) {
+		Map<String, ColumnType> tableColumnTypes;
+		ColumnType[] columnTypes;
+
+		// The binary format requires values to exactly match the column types,
+		// these have changed over schema versions so are queried directly.
+		tableColumnTypes = new HashMap<String, ColumnType>();
+		try (ResultSet resultSet = dbCtx.executeQuery(
+				"SELECT a.attname, format_type(a.atttypid, a.atttypmod), t.typtype"
+				+ " FROM pg_attribute a INNER JOIN pg_type t ON t.oid = a.atttypid"
+				+ " WHERE a.attrelid = '" + tableName + "'::regclass AND a.attnum > 0 AND NOT a.attisdropped")) {
+			while (resultSet.next()) {
+				tableColumnTypes.put(resultSet.getString(1),
+						ColumnType.fromTypeName(resultSet.getString(2), "e".equals(resultSet.getString(3))));
+			}
+		} catch (SQLException e) {
+			throw new OsmosisRuntimeException("Unable to read the column types of table " + tableName + ".", e);
+		}
+		dbCtx.commit();
+
+		columnTypes = new ColumnType[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			columnTypes[i] = tableColumnTypes.get(columns[i]);
+			if (columnTypes[i] == null) {
+				throw new OsmosisRuntimeException("Column " + columns[i] + " does not exist in table " + tableName
+						+ ".");
+			}
+		}
+
+		return columnTypes;
+	}
+
+
+	/**
+	 * Starts the background thread sending data to the database. This must be
+	 * called before any rows are written.
+	 *
+	 * @param executor
+	 *            The executor providing the background thread.
+	 */
+	public void start(ExecutorService executor) {
+		copyFuture = executor.submit(this::copy);
+	}
+
+
+	private long copy() throws InterruptedException, SQLException {
+		CopyIn copyIn = dbCtx.beginCopy(copyStatement);
+		long loadedRowCount;
+
+		try {
+			for (byte[] data = queue.take(); data != END_OF_DATA; data = queue.take()) {
+				copyIn.writeToCopy(data, 0, data.length);
+			}
+			loadedRowCount = copyIn.endCopy();
+		} finally {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		}
+
+		dbCtx.commit();
+
+		return loadedRowCount;
+	}
+
+
+	private void checkCopyFailure() {
+		if (copyFuture.isDone()) {
+			try {
+				copyFuture.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OsmosisRuntimeException("Interrupted while loading table " + table + ".", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("Unable to load table " + table + ".", e.getCause());
+			}
+			throw new OsmosisRuntimeException("The load of table " + table + " ended unexpectedly.");
+		}
+	}
+
+
+	private void send(byte[] data) {
+		try {
+			// Check for failures periodically so that a failed copy doesn't
+			// leave this thread blocked on a full queue.
+			while (!queue.offer(data, 1, TimeUnit.SECONDS)) {
+				checkCopyFailure();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OsmosisRuntimeException("Interrupted while loading table " + table + ".", e);
+		}
+	}
+
+
+	/**
+	 * Begins a new row. The values of the row are written to the returned
+	 * encoder and the row is completed by calling {@link #endRow()}.
+	 *
+	 * @return The encoder to write the row values to.
+	 */
+	public BinaryCopyEncoder startRow() {
+		encoder.startRow();
+
+		return encoder;
+	}
+
+
+	/**
+	 * Completes the current row.
+	 */
+	public void endRow() {
+		encoder.endRow();
+		rowCount++;
+
+		if (encoder.size() >= BUFFER_SIZE) {
+			checkCopyFailure();
+			send(encoder.drain());
+		}
+	}
+
+
+	/**
+	 * Sends all remaining rows, waits for the database to process them and
+	 * commits.
+	 */
+	public void complete() {
+		long loadedRowCount;
+
+		encoder.writeTrailer();
+		send(encoder.drain());
+		send(END_OF_DATA);
+
+		try {
+			loadedRowCount = copyFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OsmosisRuntimeException("Interrupted while loading table " + table + ".", e);
+		} catch (ExecutionException e) {
+			throw new OsmosisRuntimeException("Unable to load table " + table + ".", e.getCause());
+		}
+
+		if (loadedRowCount != rowCount) {
+			throw new OsmosisRuntimeException("Loaded " + loadedRowCount + " rows into table " + table
+					+ " but " + rowCount + " were written.");
+		}
+
+		LOG.fine("Loaded " + loadedRowCount + " rows into table " + table + ".");
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (copyFuture != null && !copyFuture.isDone()) {
+			copyFuture.cancel(true);
+		}
+
+		dbCtx.close();
+	}
+}
@@ -5,6 +5,7 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +27,7 @@ import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.store.StoreReleasingIterator;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -43,6 +45,7 @@ public abstract class EntityDao<T extends Entity> {
 	private JdbcTemplate jdbcTemplate;
 	private NamedParameterJdbcTemplate namedParamJdbcTemplate;
 	private String entityName;
+	private SnapshotQueryExecutor queryExecutor;
 
 
 	/**
@@ -54,9 +57,26 @@ public abstract class EntityDao<T extends Entity> {
 	 *            The name of the entity. Used for building dynamic sql queries.
 	 */
 	protected EntityDao(JdbcTemplate jdbcTemplate, String entityName) {
+		this(jdbcTemplate, entityName, null);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param jdbcTemplate
+	 *            Used to access the database.
+	 * @param entityName
+	 *            The name of the entity. Used for building dynamic sql queries.
+	 * @param queryExecutor
+	 *            If not null, history queries are run concurrently on separate connections using this
+	 *            executor.
+	 */
+	protected EntityDao(JdbcTemplate jdbcTemplate, String entityName, SnapshotQueryExecutor queryExecutor) {
 		this.jdbcTemplate = jdbcTemplate;
 		this.namedParamJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
 		this.entityName = entityName;
+		this.queryExecutor = queryExecutor;
 	}
 	
 	
@@ -105,10 +125,12 @@ public abstract class EntityDao<T extends Entity> {
 	 *            The statement for obtaining the id and version pairs of entity records selected.
 	 * @param parameterSource
 	 *            The parameters required to execute the selected entity statement.
+	 * @param queryRunner
+	 *            Runs the feature queries.
 	 * @return The history feature populators.
 	 */
 	protected abstract List<FeatureHistoryPopulator<T, ?, ?>> getFeatureHistoryPopulators(
-			String selectedEntityStatement, MapSqlParameterSource parameterSource);
+			String selectedEntityStatement, MapSqlParameterSource parameterSource, HistoryQueryRunner queryRunner);
 	
 	
 	private String buildFeaturelessEntityHistoryQuery(String selectedEntityStatement) {
@@ -144,7 +166,8 @@ public abstract class EntityDao<T extends Entity> {
 
 
 	private ReleasableIterator<EntityHistory<T>> getFeaturelessEntityHistory(
-			String selectedEntityStatement, MapSqlParameterSource parameterSource) {
+			NamedParameterJdbcTemplate queryJdbcTemplate, String selectedEntityStatement,
+			MapSqlParameterSource parameterSource) {
 		
 		FileBasedSort<EntityHistory<T>> sortingStore =
 			new FileBasedSort<EntityHistory<T>>(
@@ -172,7 +195,7 @@ public abstract class EntityDao<T extends Entity> {
 			entityDataRowMapper = new EntityDataRowMapper(entityRowMapper, false);
 			
 			// Perform the query passing the row mapper chain to process rows in a streamy fashion.
-			namedParamJdbcTemplate.query(sql, parameterSource, entityDataRowMapper);
+			queryJdbcTemplate.query(sql, parameterSource, entityDataRowMapper);
 			
 			// Open a iterator on the store that will release the store upon completion.
 			resultIterator = new StoreReleasingIterator<EntityHistory<T>>(sortingStore.iterate(), sortingStore);
@@ -190,7 +213,8 @@ public abstract class EntityDao<T extends Entity> {
 	}
 	
 	
-	private ReleasableIterator<DbFeatureHistory<DbFeature<Tag>>> getTagHistory(String selectedEntityStatement,
+	private ReleasableIterator<DbFeatureHistory<DbFeature<Tag>>> getTagHistory(
+			NamedParameterJdbcTemplate queryJdbcTemplate, String selectedEntityStatement,
 			MapSqlParameterSource parameterSource) {
 		
 		FileBasedSort<DbFeatureHistory<DbFeature<Tag>>> sortingStore =
@@ -233,7 +257,7 @@ public abstract class EntityDao<T extends Entity> {
 			tagRowMapper = new TagRowMapper(dbFeatureRowMapper);
 			
 			// Perform the query passing the row mapper chain to process rows in a streamy fashion.
-			namedParamJdbcTemplate.query(sql, parameterSource, tagRowMapper);
+			queryJdbcTemplate.query(sql, parameterSource, tagRowMapper);
 			
 			// Open a iterator on the store that will release the store upon completion.
 			resultIterator = new StoreReleasingIterator<DbFeatureHistory<DbFeature<Tag>>>(sortingStore.iterate(),
@@ -253,7 +277,8 @@ public abstract class EntityDao<T extends Entity> {
 	
 	
 	private ReleasableIterator<EntityHistory<T>> getEntityHistory(
-			String selectedEntityStatement, MapSqlParameterSource parameterSource) {
+			final String selectedEntityStatement, final MapSqlParameterSource parameterSource,
+			HistoryQueryRunner queryRunner) {
 		ReleasableContainer releasableContainer;
 		
 		releasableContainer = new ReleasableContainer();
@@ -263,12 +288,13 @@ public abstract class EntityDao<T extends Entity> {
 			List<FeatureHistoryPopulator<T, ?, ?>> featurePopulators;
 			EntityHistoryReader<T> entityHistoryReader;
 			
-			entityIterator = releasableContainer.add(
-					getFeaturelessEntityHistory(selectedEntityStatement, parameterSource));
-			tagIterator = releasableContainer.add(
-					getTagHistory(selectedEntityStatement, parameterSource));
+			entityIterator = releasableContainer.add(queryRunner.run(
+					queryJdbcTemplate -> getFeaturelessEntityHistory(
+							queryJdbcTemplate, selectedEntityStatement, parameterSource)));
+			tagIterator = releasableContainer.add(queryRunner.run(
+					queryJdbcTemplate -> getTagHistory(queryJdbcTemplate, selectedEntityStatement, parameterSource)));
 			
-			featurePopulators = getFeatureHistoryPopulators(selectedEntityStatement, parameterSource);
+			featurePopulators = getFeatureHistoryPopulators(selectedEntityStatement, parameterSource, queryRunner);
 			for (FeatureHistoryPopulator<T, ?, ?> featurePopulator : featurePopulators) {
 				releasableContainer.add(featurePopulator);
 			}
@@ -288,9 +314,43 @@ public abstract class EntityDao<T extends Entity> {
 	
 	
 	private ReleasableIterator<ChangeContainer> getChangeHistory(
-			String selectedEntityStatement, MapSqlParameterSource parameterSource) {
+			String selectedEntityStatement, MapSqlParameterSource parameterSource, HistoryQueryRunner queryRunner) {
 		
-		return new ChangeReader<T>(getEntityHistory(selectedEntityStatement, parameterSource), getContainerFactory());
+		return new ChangeReader<T>(
+				getEntityHistory(selectedEntityStatement, parameterSource, queryRunner), getContainerFactory());
+	}
+	
+	
+	/**
+	 * Creates the runner for the queries of a single history operation. If queries are run
+	 * concurrently, each one creates its own copy of the entity selection within a snapshot shared
+	 * with the current transaction. Otherwise the selection is created immediately on the current
+	 * connection.
+	 * 
+	 * @param selectionBuilder
+	 *            Creates the selection of entities to be queried.
+	 * @return The query runner.
+	 */
+	private HistoryQueryRunner createQueryRunner(Consumer<NamedParameterJdbcTemplate> selectionBuilder) {
+		if (queryExecutor != null) {
+			return new HistoryQueryRunner(queryExecutor, queryExecutor.exportSnapshot(), selectionBuilder);
+		}
+		
+		selectionBuilder.accept(namedParamJdbcTemplate);
+		
+		return new HistoryQueryRunner(namedParamJdbcTemplate);
+	}
+	
+	
+	private void disablePoorQueryPlans(JdbcOperations jdbcOperations) {
+		// PostgreSQL sometimes incorrectly chooses to perform full table scans, these options
+		// prevent this. Note that this is not recommended practice according to documentation
+		// but fixing this would require modifying the table statistics gathering
+		// configuration on the production database to produce better plans.
+		jdbcOperations.execute(
+				"set local enable_seqscan = false;"
+				+ "set local enable_mergejoin = false;"
+				+ "set local enable_hashjoin = false");
 	}
 	
 	
@@ -394,31 +454,17 @@ public abstract class EntityDao<T extends Entity> {
 	}
 
 
-	/**
-	 * Retrieves the changes that have were made by a set of transactions.
-	 * 
-	 * @param predicates
-	 *            Contains the predicates defining the transactions to be queried.
-	 * @return An iterator pointing at the identified records.
-	 */
-	public ReleasableIterator<ChangeContainer> getHistory(ReplicationQueryPredicates predicates) {
-		String selectedEntityTableName;
+	private void createTransactionSelection(NamedParameterJdbcTemplate queryJdbcTemplate,
+			ReplicationQueryPredicates predicates, String selectedEntityTableName) {
+		JdbcOperations jdbcOperations;
 		StringBuilder sql;
 		MapSqlParameterSource parameterSource;
-		ReleasableIterator<ChangeContainer> historyIterator;
 		
-		// PostgreSQL sometimes incorrectly chooses to perform full table scans, these options
-		// prevent this. Note that this is not recommended practice according to documentation
-		// but fixing this would require modifying the table statistics gathering
-		// configuration on the production database to produce better plans.
-		jdbcTemplate.execute(
-				"set local enable_seqscan = false;"
-				+ "set local enable_mergejoin = false;"
-				+ "set local enable_hashjoin = false");
+		jdbcOperations = queryJdbcTemplate.getJdbcOperations();
 		
-		parameterSource = new MapSqlParameterSource();
+		disablePoorQueryPlans(jdbcOperations);
 		
-		selectedEntityTableName = "tmp_" + entityName + "s";
+		parameterSource = new MapSqlParameterSource();
 		
 		sql = new StringBuilder();
 		sql.append("CREATE TEMPORARY TABLE ");
@@ -451,54 +497,27 @@ public abstract class EntityDao<T extends Entity> {
 		
 		LOG.log(Level.FINER, "Entity identification query: " + sql);
 		
-		namedParamJdbcTemplate.update(sql.toString(), parameterSource);
+		queryJdbcTemplate.update(sql.toString(), parameterSource);
 		
-		jdbcTemplate.update("ALTER TABLE ONLY " + selectedEntityTableName
+		jdbcOperations.update("ALTER TABLE ONLY " + selectedEntityTableName
 				+ " ADD CONSTRAINT pk_" + selectedEntityTableName
 				+ " PRIMARY KEY (" + entityName + "_id, version)");
-		jdbcTemplate.update("ANALYZE " + selectedEntityTableName);
+		jdbcOperations.update("ANALYZE " + selectedEntityTableName);
 		
 		if (LOG.isLoggable(Level.FINER)) {
 			LOG.log(Level.FINER,
-					jdbcTemplate.queryForObject("SELECT Count(" + entityName + "_id) FROM " + selectedEntityTableName,
-							Integer.class) + " " + entityName + " records located.");
+					jdbcOperations.queryForObject("SELECT Count(" + entityName + "_id) FROM "
+							+ selectedEntityTableName, Integer.class) + " " + entityName + " records located.");
 		}
-		
-		// Extract the data and obtain an iterator for the results.
-		historyIterator = getChangeHistory(selectedEntityTableName, new MapSqlParameterSource());
-		
-		// The temp table is no longer required and can be deleted.
-		jdbcTemplate.execute("DROP TABLE " + selectedEntityTableName);
-		
-		return historyIterator;
 	}
-
-
-	/**
-	 * Retrieves the changes that have were made between two points in time.
-	 * 
-	 * @param intervalBegin
-	 *            Marks the beginning (inclusive) of the time interval to be checked.
-	 * @param intervalEnd
-	 *            Marks the end (exclusive) of the time interval to be checked.
-	 * @return An iterator pointing at the identified records.
-	 */
-	public ReleasableIterator<ChangeContainer> getHistory(Date intervalBegin, Date intervalEnd) {
-		String selectedEntityTableName;
+	
+	
+	private void createIntervalSelection(NamedParameterJdbcTemplate queryJdbcTemplate, Date intervalBegin,
+			Date intervalEnd, String selectedEntityTableName) {
 		StringBuilder sql;
 		MapSqlParameterSource parameterSource;
-		ReleasableIterator<ChangeContainer> historyIterator;
 		
-		// PostgreSQL sometimes incorrectly chooses to perform full table scans, these options
-		// prevent this. Note that this is not recommended practice according to documentation
-		// but fixing this would require modifying the table statistics gathering
-		// configuration on the production database to produce better plans.
-		jdbcTemplate.execute(
-				"set local enable_seqscan = false;"
-				+ "set local enable_mergejoin = false;"
-				+ "set local enable_hashjoin = false");
-		
-		selectedEntityTableName = "tmp_" + entityName + "s";
+		disablePoorQueryPlans(queryJdbcTemplate.getJdbcOperations());
 		
 		sql = new StringBuilder();
 		sql.append("CREATE TEMPORARY TABLE ");
@@ -516,15 +535,69 @@ public abstract class EntityDao<T extends Entity> {
 		parameterSource.addValue("intervalBegin", intervalBegin, Types.TIMESTAMP);
 		parameterSource.addValue("intervalEnd", intervalEnd, Types.TIMESTAMP);
 		
-		namedParamJdbcTemplate.update(sql.toString(), parameterSource);
+		queryJdbcTemplate.update(sql.toString(), parameterSource);
 		
-		jdbcTemplate.update("ANALYZE " + selectedEntityTableName);
+		queryJdbcTemplate.getJdbcOperations().update("ANALYZE " + selectedEntityTableName);
+	}
+
+
+	/**
+	 * Retrieves the changes that have were made by a set of transactions.
+	 * 
+	 * @param predicates
+	 *            Contains the predicates defining the transactions to be queried.
+	 * @return An iterator pointing at the identified records.
+	 */
+	public ReleasableIterator<ChangeContainer> getHistory(final ReplicationQueryPredicates predicates) {
+		final String selectedEntityTableName;
+		HistoryQueryRunner queryRunner;
+		ReleasableIterator<ChangeContainer> historyIterator;
+		
+		selectedEntityTableName = "tmp_" + entityName + "s";
+		
+		queryRunner = createQueryRunner(queryJdbcTemplate -> createTransactionSelection(
+				queryJdbcTemplate, predicates, selectedEntityTableName));
+		
+		// Extract the data and obtain an iterator for the results.
+		historyIterator = getChangeHistory(selectedEntityTableName, new MapSqlParameterSource(), queryRunner);
+		
+		// The temp table is no longer required and can be deleted. Concurrent queries create their
+		// own temp tables which are discarded with their transactions.
+		if (!queryRunner.isConcurrent()) {
+			jdbcTemplate.execute("DROP TABLE " + selectedEntityTableName);
+		}
+		
+		return historyIterator;
+	}
+
+
+	/**
+	 * Retrieves the changes that have were made between two points in time.
+	 * 
+	 * @param intervalBegin
+	 *            Marks the beginning (inclusive) of the time interval to be checked.
+	 * @param intervalEnd
+	 *            Marks the end (exclusive) of the time interval to be checked.
+	 * @return An iterator pointing at the identified records.
+	 */
+	public ReleasableIterator<ChangeContainer> getHistory(final Date intervalBegin, final Date intervalEnd) {
+		final String selectedEntityTableName;
+		HistoryQueryRunner queryRunner;
+		ReleasableIterator<ChangeContainer> historyIterator;
+		
+		selectedEntityTableName = "tmp_" + entityName + "s";
+		
+		queryRunner = createQueryRunner(queryJdbcTemplate -> createIntervalSelection(
+				queryJdbcTemplate, intervalBegin, intervalEnd, selectedEntityTableName));
 		
 		// Extract the data and obtain an iterator for the results.
-		historyIterator = getChangeHistory(selectedEntityTableName, new MapSqlParameterSource());
+		historyIterator = getChangeHistory(selectedEntityTableName, new MapSqlParameterSource(), queryRunner);
 		
-		// The temp table is no longer required and can be deleted.
-		jdbcTemplate.execute("DROP TABLE " + selectedEntityTableName);
+		// The temp table is no longer required and can be deleted. Concurrent queries create their
+		// own temp tables which are discarded with their transactions.
+		if (!queryRunner.isConcurrent()) {
+			jdbcTemplate.execute("DROP TABLE " + selectedEntityTableName);
+		}
 		
 		return historyIterator;
 	}
@@ -537,7 +610,8 @@ public abstract class EntityDao<T extends Entity> {
 	 */
 	public ReleasableIterator<ChangeContainer> getHistory() {
 		// Join the entity table to itself which will return all records.
-		return getChangeHistory(entityName + "s", new MapSqlParameterSource());
+		return getChangeHistory(entityName + "s", new MapSqlParameterSource(),
+				createQueryRunner(queryJdbcTemplate -> { }));
 	}
 	
 	
@@ -552,6 +626,7 @@ public abstract class EntityDao<T extends Entity> {
 		return new EntityContainerReader<T>(
 				getEntityHistory("(SELECT id AS " + entityName + "_id, version FROM current_"
 							+ entityName + "s WHERE visible = TRUE)",
-						new MapSqlParameterSource()), getContainerFactory());
+						new MapSqlParameterSource(), createQueryRunner(queryJdbcTemplate -> { })),
+				getContainerFactory());
 	}
 }
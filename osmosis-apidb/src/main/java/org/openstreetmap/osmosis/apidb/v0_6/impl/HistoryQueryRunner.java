@@ -0,0 +1,84 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+
+/**
+ * Runs the queries retrieving the history of a selection of entities. The
+ * queries either run one after another on the calling connection, or
+ * concurrently on separate connections sharing a single snapshot. In the
+ * concurrent case the selection of entities is created on each connection
+ * before its query runs.
+ */
+public class HistoryQueryRunner {
+	private NamedParameterJdbcTemplate namedParamJdbcTemplate;
+	private SnapshotQueryExecutor queryExecutor;
+	private String snapshotId;
+	private Consumer<NamedParameterJdbcTemplate> selectionBuilder;
+
+
+	/**
+	 * Creates a new instance running queries on the calling connection. The
+	 * selection of entities must already exist on this connection.
+	 *
+	 * @param namedParamJdbcTemplate
+	 *            Used to access the database.
+	 */
+	public HistoryQueryRunner(NamedParameterJdbcTemplate namedParamJdbcTemplate) {
+		this.namedParamJdbcTemplate = namedParamJdbcTemplate;
+	}
+
+
+	/**
+	 * Creates a new instance running queries concurrently.
+	 *
+	 * @param queryExecutor
+	 *            Executes the queries.
+	 * @param snapshotId
+	 *            The snapshot to be shared by all queries.
+	 * @param selectionBuilder
+	 *            Creates the selection of entities on a query connection.
+	 */
+	public HistoryQueryRunner(SnapshotQueryExecutor queryExecutor, String snapshotId,
+			Consumer<NamedParameterJdbcTemplate> selectionBuilder) {
+		this.queryExecutor = queryExecutor;
+		this.snapshotId = snapshotId;
+		this.selectionBuilder = selectionBuilder;
+	}
+
+
+	/**
+	 * Indicates if queries are run concurrently on separate connections.
+	 *
+	 * @return True if queries are run concurrently.
+	 */
+	public boolean isConcurrent() {
+		return queryExecutor != null;
+	}
+
+
+	/**
+	 * Runs a query.
+	 *
+	 * @param query
+	 *            The query to be run.
+	 * @param <T>
+	 *            The type of data returned by the query.
+	 * @return The query results.
+	 */
+	public <T> ReleasableIterator<T> run(final Function<NamedParameterJdbcTemplate, ReleasableIterator<T>> query) {
+		if (queryExecutor == null) {
+			return query.apply(namedParamJdbcTemplate);
+		}
+
+		return queryExecutor.submit(snapshotId, jdbcTemplate -> {
+			selectionBuilder.accept(jdbcTemplate);
+			return query.apply(jdbcTemplate);
+		});
+	}
+}
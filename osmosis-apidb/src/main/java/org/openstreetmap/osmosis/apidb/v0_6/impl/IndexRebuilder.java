@@ -0,0 +1,234 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.apidb.common.DatabaseContext;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+
+
+/**
+ * Drops the indexes and constraints of a set of PostgreSQL tables prior to a
+ * bulk load and rebuilds them afterwards. The definitions are read from the
+ * database catalog so they always match the installed schema. Tables are
+ * rebuilt concurrently on separate connections, foreign keys are added once
+ * all other indexes and constraints exist.
+ */
+public class IndexRebuilder {
+
+	private static final Logger LOG = Logger.getLogger(IndexRebuilder.class.getName());
+
+	private final DatabaseLoginCredentials loginCredentials;
+	private final List<String> tables;
+	private final Set<String> knownConstraints;
+	private final List<String> foreignKeyDrops;
+	private final List<String> constraintDrops;
+	private final List<String> indexDrops;
+	private final Map<String, List<String>> createStatements;
+	private final Map<String, List<String>> foreignKeyStatements;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param tables
+	 *            The tables to be managed.
+	 */
+	public IndexRebuilder(DatabaseLoginCredentials loginCredentials, List<String> tables) {
+		this.loginCredentials = loginCredentials;
+		this.tables = tables;
+
+		knownConstraints = new HashSet<String>();
+		foreignKeyDrops = new ArrayList<String>();
+		constraintDrops = new ArrayList<String>();
+		indexDrops = new ArrayList<String>();
+		createStatements = new LinkedHashMap<String, List<String>>();
+		foreignKeyStatements = new LinkedHashMap<String, List<String>>();
+	}
+
+
+	private static void addStatement(Map<String, List<String>> statements, String table, String sql) {
+		List<String> tableStatements = statements.get(table);
+
+		if (tableStatements == null) {
+			tableStatements = new ArrayList<String>();
+			statements.put(table, tableStatements);
+		}
+
+		tableStatements.add(sql);
+	}
+
+
+	private static String quote(String identifier) {
+		return "\"" + identifier.replace("\"", "\"\"") + "\"";
+	}
+
+
+	private void readDefinitions(DatabaseContext dbCtx, String table) throws SQLException {
+		// Foreign keys referencing the table from other tables must also be
+		// removed, they are recorded against their owning table.
+		try (ResultSet resultSet = dbCtx.executeQuery(
+				"SELECT conrelid::regclass::text, conname, contype, pg_get_constraintdef(oid) FROM pg_constraint"
+				+ " WHERE contype IN ('p', 'u', 'x', 'f')"
+				+ " AND (conrelid = '" + table + "'::regclass OR confrelid = '" + table + "'::regclass)")) {
+			while (resultSet.next()) {
+				String owner = resultSet.getString(1);
+				String name = quote(resultSet.getString(2));
+				String create = "ALTER TABLE " + owner + " ADD CONSTRAINT " + name + " " + resultSet.getString(4);
+				String drop = "ALTER TABLE " + owner + " DROP CONSTRAINT " + name;
+
+				if (!knownConstraints.add(drop)) {
+					continue;
+				}
+				if ("f".equals(resultSet.getString(3))) {
+					foreignKeyDrops.add(drop);
+					addStatement(foreignKeyStatements, owner, create);
+				} else {
+					constraintDrops.add(drop);
+					addStatement(createStatements, owner, create);
+				}
+			}
+		}
+
+		try (ResultSet resultSet = dbCtx.executeQuery(
+				"SELECT indexrelid::regclass::text, pg_get_indexdef(indexrelid) FROM pg_index"
+				+ " WHERE indrelid = '" + table + "'::regclass"
+				+ " AND NOT EXISTS (SELECT 1 FROM pg_constraint"
+				+ " WHERE conindid = indexrelid AND contype IN ('p', 'u', 'x'))")) {
+			while (resultSet.next()) {
+				indexDrops.add("DROP INDEX " + resultSet.getString(1));
+				addStatement(createStatements, table, resultSet.getString(2));
+			}
+		}
+	}
+
+
+	private static void log(Map<String, List<String>> statements) {
+		for (List<String> tableStatements : statements.values()) {
+			for (String sql : tableStatements) {
+				LOG.info("Dropping for bulk load, to be restored with: " + sql);
+			}
+		}
+	}
+
+
+	/**
+	 * Drops all indexes and constraints on the tables. The statements required
+	 * to recreate them are logged so that they can be restored manually if
+	 * {@link #restoreIndexes()} is unable to restore them after a failed load.
+	 */
+	public void dropIndexes() {
+		try (DatabaseContext dbCtx = new DatabaseContext(loginCredentials)) {
+			for (String table : tables) {
+				readDefinitions(dbCtx, table);
+			}
+			dbCtx.commit();
+
+			log(createStatements);
+			log(foreignKeyStatements);
+
+			// Foreign keys must be dropped before the keys they depend on.
+			for (String sql : foreignKeyDrops) {
+				dbCtx.executeStatement(sql);
+			}
+			for (String sql : constraintDrops) {
+				dbCtx.executeStatement(sql);
+			}
+			for (String sql : indexDrops) {
+				dbCtx.executeStatement(sql);
+			}
+			dbCtx.commit();
+
+		} catch (SQLException e) {
+			throw new OsmosisRuntimeException("Unable to read the index definitions.", e);
+		}
+	}
+
+
+	private void execute(List<String> statements) {
+		try (DatabaseContext dbCtx = new DatabaseContext(loginCredentials)) {
+			for (String sql : statements) {
+				LOG.fine("Executing: " + sql);
+				dbCtx.executeStatement(sql);
+			}
+			dbCtx.commit();
+		}
+	}
+
+
+	private void executeConcurrently(ExecutorService executor, Map<String, List<String>> statements) {
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		for (final List<String> tableStatements : statements.values()) {
+			futures.add(executor.submit(() -> execute(tableStatements)));
+		}
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OsmosisRuntimeException("Interrupted while rebuilding indexes.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("Unable to rebuild indexes.", e.getCause());
+			}
+		}
+	}
+
+
+	/**
+	 * Recreates all indexes and constraints dropped by {@link #dropIndexes()}.
+	 * Each table is rebuilt on its own connection.
+	 *
+	 * @param executor
+	 *            The executor providing the threads to rebuild tables with.
+	 */
+	public void rebuildIndexes(ExecutorService executor) {
+		executeConcurrently(executor, createStatements);
+		executeConcurrently(executor, foreignKeyStatements);
+	}
+
+
+	/**
+	 * Recreates the indexes and constraints dropped by {@link #dropIndexes()}
+	 * after a failed load. Each statement is run in its own transaction so that
+	 * a failure, such as an index already restored by a partial rebuild, doesn't
+	 * prevent the remaining statements running. This method doesn't throw
+	 * exceptions, statements that fail are logged.
+	 */
+	public void restoreIndexes() {
+		List<String> statements = new ArrayList<String>();
+
+		for (List<String> tableStatements : createStatements.values()) {
+			statements.addAll(tableStatements);
+		}
+		for (List<String> tableStatements : foreignKeyStatements.values()) {
+			statements.addAll(tableStatements);
+		}
+
+		for (String sql : statements) {
+			try (DatabaseContext dbCtx = new DatabaseContext(loginCredentials)) {
+				LOG.fine("Executing: " + sql);
+				dbCtx.executeStatement(sql);
+				dbCtx.commit();
+			} catch (RuntimeException e) {
+				LOG.log(Level.SEVERE, "Unable to restore index or constraint, it must be restored with: " + sql, e);
+			}
+		}
+	}
+}
@@ -32,6 +32,20 @@ public class NodeDao extends EntityDao<Node> {
 	}
 	
 	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param jdbcTemplate
+	 *            Used to access the database.
+	 * @param queryExecutor
+	 *            If not null, history queries are run concurrently on separate connections using this
+	 *            executor.
+	 */
+	public NodeDao(JdbcTemplate jdbcTemplate, SnapshotQueryExecutor queryExecutor) {
+		super(jdbcTemplate, "node", queryExecutor);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -64,7 +78,8 @@ public class NodeDao extends EntityDao<Node> {
 	 */
 	@Override
 	protected List<FeatureHistoryPopulator<Node, ?, ?>> getFeatureHistoryPopulators(
-			String selectedEntityTableName, MapSqlParameterSource parameterSource) {
+			String selectedEntityTableName, MapSqlParameterSource parameterSource,
+			HistoryQueryRunner queryRunner) {
 		return Collections.emptyList();
 	}
 }
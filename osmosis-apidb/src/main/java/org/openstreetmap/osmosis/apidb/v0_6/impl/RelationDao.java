@@ -26,6 +26,7 @@ import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactor
 import org.openstreetmap.osmosis.core.store.StoreReleasingIterator;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 
@@ -49,6 +50,20 @@ public class RelationDao extends EntityDao<Relation> {
 	}
 	
 	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param jdbcTemplate
+	 *            Used to access the database.
+	 * @param queryExecutor
+	 *            If not null, history queries are run concurrently on separate connections using this
+	 *            executor.
+	 */
+	public RelationDao(JdbcTemplate jdbcTemplate, SnapshotQueryExecutor queryExecutor) {
+		super(jdbcTemplate, "relation", queryExecutor);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -77,7 +92,8 @@ public class RelationDao extends EntityDao<Relation> {
 	
 	
 	private ReleasableIterator<DbFeatureHistory<DbOrderedFeature<RelationMember>>> getRelationMemberHistory(
-			String selectedEntityStatement, SqlParameterSource parameterSource) {
+			NamedParameterJdbcTemplate queryJdbcTemplate, String selectedEntityStatement,
+			SqlParameterSource parameterSource) {
 		
 		FileBasedSort<DbFeatureHistory<DbOrderedFeature<RelationMember>>> sortingStore =
 			new FileBasedSort<DbFeatureHistory<DbOrderedFeature<RelationMember>>>(
@@ -116,7 +132,7 @@ public class RelationDao extends EntityDao<Relation> {
 			relationNodeRowMapper = new RelationMemberRowMapper(dbFeatureRowMapper);
 			
 			// Perform the query passing the row mapper chain to process rows in a streamy fashion.
-			getNamedParamJdbcTemplate().query(sql, parameterSource, relationNodeRowMapper);
+			queryJdbcTemplate.query(sql, parameterSource, relationNodeRowMapper);
 			
 			// Open a iterator on the store that will release the store upon completion.
 			resultIterator = new StoreReleasingIterator<DbFeatureHistory<DbOrderedFeature<RelationMember>>>(
@@ -141,14 +157,16 @@ public class RelationDao extends EntityDao<Relation> {
 	 */
 	@Override
 	protected List<FeatureHistoryPopulator<Relation, ?, ?>> getFeatureHistoryPopulators(
-			String selectedEntityTableName, MapSqlParameterSource parameterSource) {
+			String selectedEntityTableName, MapSqlParameterSource parameterSource,
+			HistoryQueryRunner queryRunner) {
 		ReleasableIterator<DbFeatureHistory<DbOrderedFeature<RelationMember>>> relationNodeIterator;
 		List<FeatureHistoryPopulator<Relation, ?, ?>> featurePopulators;
 		
 		featurePopulators = new ArrayList<FeatureHistoryPopulator<Relation, ?, ?>>();
 		
 		// Get the relation nodes for the selected entities.
-		relationNodeIterator = getRelationMemberHistory(selectedEntityTableName, parameterSource);
+		relationNodeIterator = queryRunner.run(queryJdbcTemplate -> getRelationMemberHistory(
+				queryJdbcTemplate, selectedEntityTableName, parameterSource));
 		
 		// Wrap the relation node source into a feature history populator that can attach them to their
 		// owning relations.
@@ -0,0 +1,217 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+
+/**
+ * Executes read-only queries concurrently on separate PostgreSQL connections.
+ * Each query runs in its own transaction which imports a snapshot exported by
+ * the calling transaction, so all queries see exactly the same data as the
+ * caller regardless of concurrent updates.
+ */
+public class SnapshotQueryExecutor implements Closeable {
+	private static final Logger LOG = Logger.getLogger(SnapshotQueryExecutor.class.getName());
+
+	private JdbcTemplate jdbcTemplate;
+	private ExecutorService executor;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param jdbcTemplate
+	 *            Used to access the database within the calling transaction.
+	 *            Query connections are obtained from its data source.
+	 * @param threadCount
+	 *            The maximum number of queries to run at once. The data source
+	 *            must allow this many connections in addition to the calling
+	 *            connection.
+	 */
+	public SnapshotQueryExecutor(JdbcTemplate jdbcTemplate, int threadCount) {
+		this.jdbcTemplate = jdbcTemplate;
+
+		executor = Executors.newFixedThreadPool(threadCount);
+	}
+
+
+	/**
+	 * Exports the snapshot of the current transaction. The snapshot may only be
+	 * used while the current transaction remains open.
+	 *
+	 * @return The snapshot identifier.
+	 */
+	public String exportSnapshot() {
+		return jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+	}
+
+
+	private <T> ReleasableIterator<T> execute(String snapshotId,
+			Function<NamedParameterJdbcTemplate, ReleasableIterator<T>> query) throws SQLException {
+		Connection connection = jdbcTemplate.getDataSource().getConnection();
+
+		try {
+			int isolationLevel = connection.getTransactionIsolation();
+
+			connection.setAutoCommit(false);
+			connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			try {
+				JdbcTemplate queryJdbcTemplate;
+
+				queryJdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+				queryJdbcTemplate.setFetchSize(jdbcTemplate.getFetchSize());
+
+				// This must be the first statement within the transaction.
+				queryJdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+
+				return query.apply(new NamedParameterJdbcTemplate(queryJdbcTemplate));
+
+			} finally {
+				// Nothing is written so rolling back discards temporary tables
+				// and any other transaction state.
+				connection.rollback();
+				connection.setTransactionIsolation(isolationLevel);
+				connection.setAutoCommit(true);
+			}
+
+		} finally {
+			connection.close();
+		}
+	}
+
+
+	/**
+	 * Submits a query for execution within the specified snapshot. The query
+	 * is expected to read all of its results before returning, typically into a
+	 * sorted store, so that its connection can be released immediately.
+	 *
+	 * @param snapshotId
+	 *            The snapshot obtained from {@link #exportSnapshot()}.
+	 * @param query
+	 *            The query to be executed on a separate connection.
+	 * @param <T>
+	 *            The type of data returned by the query.
+	 * @return An iterator which waits for the query to complete before
+	 *         returning the first result.
+	 */
+	public <T> ReleasableIterator<T> submit(final String snapshotId,
+			final Function<NamedParameterJdbcTemplate, ReleasableIterator<T>> query) {
+		return new FutureIterator<T>(executor.submit(() -> execute(snapshotId, query)));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Queries that haven't started are cancelled so that nothing waits on
+		// them indefinitely.
+		for (Runnable pendingQuery : executor.shutdownNow()) {
+			((Future<?>) pendingQuery).cancel(false);
+		}
+	}
+
+
+	/**
+	 * Provides access to the results of a query which may still be running.
+	 *
+	 * @param <T>
+	 *            The type of data being iterated.
+	 */
+	private static class FutureIterator<T> implements ReleasableIterator<T> {
+		private Future<ReleasableIterator<T>> future;
+		private ReleasableIterator<T> source;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param future
+		 *            The query providing the results.
+		 */
+		FutureIterator(Future<ReleasableIterator<T>> future) {
+			this.future = future;
+		}
+
+
+		private ReleasableIterator<T> getSource() {
+			if (source == null) {
+				try {
+					source = future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OsmosisRuntimeException("Interrupted while waiting for a query to complete.", e);
+				} catch (ExecutionException e) {
+					throw new OsmosisRuntimeException("Unable to execute a concurrent query.", e.getCause());
+				} catch (CancellationException e) {
+					throw new OsmosisRuntimeException("A concurrent query was cancelled.", e);
+				}
+			}
+
+			return source;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return getSource().hasNext();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public T next() {
+			return getSource().next();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			getSource().remove();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			// A running query can't be abandoned because its results hold
+			// temporary files which must be released.
+			try {
+				getSource();
+			} catch (OsmosisRuntimeException e) {
+				LOG.log(Level.FINE, "Ignoring a failed query during release.", e);
+			}
+
+			if (source != null) {
+				source.close();
+			}
+		}
+	}
+}
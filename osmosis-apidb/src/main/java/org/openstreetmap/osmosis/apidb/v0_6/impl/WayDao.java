@@ -26,6 +26,7 @@ import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactor
 import org.openstreetmap.osmosis.core.store.StoreReleasingIterator;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 
@@ -49,6 +50,20 @@ public class WayDao extends EntityDao<Way> {
 	}
 	
 	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param jdbcTemplate
+	 *            Used to access the database.
+	 * @param queryExecutor
+	 *            If not null, history queries are run concurrently on separate connections using this
+	 *            executor.
+	 */
+	public WayDao(JdbcTemplate jdbcTemplate, SnapshotQueryExecutor queryExecutor) {
+		super(jdbcTemplate, "way", queryExecutor);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -77,7 +92,8 @@ public class WayDao extends EntityDao<Way> {
 	
 	
 	private ReleasableIterator<DbFeatureHistory<DbOrderedFeature<WayNode>>> getWayNodeHistory(
-			String selectedEntityStatement, SqlParameterSource parameterSource) {
+			NamedParameterJdbcTemplate queryJdbcTemplate, String selectedEntityStatement,
+			SqlParameterSource parameterSource) {
 		
 		FileBasedSort<DbFeatureHistory<DbOrderedFeature<WayNode>>> sortingStore =
 			new FileBasedSort<DbFeatureHistory<DbOrderedFeature<WayNode>>>(
@@ -115,7 +131,7 @@ public class WayDao extends EntityDao<Way> {
 			// Retrieves the basic feature information.
 			wayNodeRowMapper = new WayNodeRowMapper(dbFeatureRowMapper);
 			// Perform the query passing the row mapper chain to process rows in a streamy fashion.
-			getNamedParamJdbcTemplate().query(sql, parameterSource, wayNodeRowMapper);
+			queryJdbcTemplate.query(sql, parameterSource, wayNodeRowMapper);
 			
 			// Open a iterator on the store that will release the store upon completion.
 			resultIterator =
@@ -141,7 +157,8 @@ public class WayDao extends EntityDao<Way> {
 	 */
 	@Override
 	protected List<FeatureHistoryPopulator<Way, ?, ?>> getFeatureHistoryPopulators(
-			String selectedEntityStatement, MapSqlParameterSource parameterSource) {
+			String selectedEntityStatement, MapSqlParameterSource parameterSource,
+			HistoryQueryRunner queryRunner) {
 		
 		ReleasableIterator<DbFeatureHistory<DbOrderedFeature<WayNode>>> wayNodeIterator;
 		List<FeatureHistoryPopulator<Way, ?, ?>> featurePopulators;
@@ -149,7 +166,8 @@ public class WayDao extends EntityDao<Way> {
 		featurePopulators = new ArrayList<FeatureHistoryPopulator<Way, ?, ?>>();
 		
 		// Get the way nodes for the selected entities.
-		wayNodeIterator = getWayNodeHistory(selectedEntityStatement, parameterSource);
+		wayNodeIterator = queryRunner.run(queryJdbcTemplate -> getWayNodeHistory(
+				queryJdbcTemplate, selectedEntityStatement, parameterSource));
 		
 		// Wrap the way node source into a feature history populator that can attach them to their
 		// owning ways.
@@ -0,0 +1,99 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BinaryCopyEncoder.ColumnType;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Tests the binary COPY encoder.
+ */
+public class BinaryCopyEncoderTest {
+
+	private static final int HEADER_SIZE = 19;
+
+
+	/**
+	 * Verifies that the header, a row and the trailer are encoded correctly.
+	 */
+	@Test
+	public void testEncoding() {
+		BinaryCopyEncoder encoder = new BinaryCopyEncoder(
+				ColumnType.BIGINT, ColumnType.INTEGER, ColumnType.BOOLEAN, ColumnType.TEXT, ColumnType.TIMESTAMPTZ);
+		ByteBuffer data;
+
+		encoder.startRow();
+		encoder.writeLong(5000000000L);
+		encoder.writeLong(-7);
+		encoder.writeBoolean(true);
+		encoder.writeString("é");
+		encoder.writeTimestamp(new Date(946684800001L));
+		encoder.endRow();
+		encoder.writeTrailer();
+
+		data = ByteBuffer.wrap(encoder.drain());
+		Assert.assertEquals("Buffer should be empty after draining.", 0, encoder.size());
+
+		Assert.assertEquals("Incorrect signature.", 'P', data.get());
+		data.position(11);
+		Assert.assertEquals("Incorrect flags.", 0, data.getInt());
+		Assert.assertEquals("Incorrect header extension.", 0, data.getInt());
+		Assert.assertEquals("Incorrect header size.", HEADER_SIZE, data.position());
+
+		Assert.assertEquals("Incorrect column count.", 5, data.getShort());
+		Assert.assertEquals("Incorrect bigint size.", 8, data.getInt());
+		Assert.assertEquals("Incorrect bigint.", 5000000000L, data.getLong());
+		Assert.assertEquals("Incorrect integer size.", 4, data.getInt());
+		Assert.assertEquals("Incorrect integer.", -7, data.getInt());
+		Assert.assertEquals("Incorrect boolean size.", 1, data.getInt());
+		Assert.assertEquals("Incorrect boolean.", 1, data.get());
+		Assert.assertEquals("Incorrect text size.", 2, data.getInt());
+		data.position(data.position() + 2);
+		Assert.assertEquals("Incorrect timestamp size.", 8, data.getInt());
+		Assert.assertEquals("Incorrect timestamp.", 1000, data.getLong());
+		Assert.assertEquals("Incorrect trailer.", -1, data.getShort());
+		Assert.assertFalse("Unexpected trailing data.", data.hasRemaining());
+	}
+
+
+	/**
+	 * Verifies that values too large for a column are rejected.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testIntegerRange() {
+		BinaryCopyEncoder encoder = new BinaryCopyEncoder(ColumnType.INTEGER);
+
+		encoder.startRow();
+		encoder.writeLong(Integer.MAX_VALUE + 1L);
+	}
+
+
+	/**
+	 * Verifies that incomplete rows are rejected.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testIncompleteRow() {
+		BinaryCopyEncoder encoder = new BinaryCopyEncoder(ColumnType.BIGINT, ColumnType.TEXT);
+
+		encoder.startRow();
+		encoder.writeLong(1);
+		encoder.endRow();
+	}
+
+
+	/**
+	 * Verifies that database type names map to the expected column types.
+	 */
+	@Test
+	public void testColumnTypes() {
+		Assert.assertEquals(ColumnType.TEXT, ColumnType.fromTypeName("character varying(255)", false));
+		Assert.assertEquals(ColumnType.TEXT, ColumnType.fromTypeName("nwr_enum", true));
+		Assert.assertEquals(ColumnType.BIGINT, ColumnType.fromTypeName("bigint", false));
+		Assert.assertEquals(ColumnType.TIMESTAMP, ColumnType.fromTypeName("timestamp without time zone", false));
+	}
+}
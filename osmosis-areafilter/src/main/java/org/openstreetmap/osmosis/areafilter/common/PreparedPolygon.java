@@ -0,0 +1,354 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Area;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+
+/**
+ * A read-only representation of a polygon optimised for repeated point in
+ * polygon tests. The polygon edges are indexed by a regular grid covering the
+ * polygon bounding box. Grid cells that no edge passes through are classified
+ * as entirely inside or entirely outside the polygon when the index is built,
+ * so most points are resolved by a bounding box check and a single array
+ * lookup. Points falling in a cell containing an edge are resolved by casting
+ * a ray against the edges overlapping the cell's row only.
+ * <p>
+ * Points lying exactly on the polygon boundary are treated in the same way as
+ * {@link Area#contains(double, double)}. Instances are immutable and may be
+ * shared between threads.
+ * </p>
+ */
+public class PreparedPolygon {
+
+	/**
+	 * The maximum number of grid cells along each axis.
+	 */
+	private static final int MAX_GRID_SIZE = 1024;
+
+	/**
+	 * The number of grid cells along each axis per square root of the edge
+	 * count. Larger values create more cells that can be resolved without
+	 * examining edges.
+	 */
+	private static final int GRID_DENSITY = 2;
+
+	/**
+	 * The curve flattening tolerance, curves aren't created by polygon files
+	 * so this only exists for completeness.
+	 */
+	private static final double FLATNESS = 1E-9;
+
+	/**
+	 * Edges are added to neighbouring cells if they lie within this fraction
+	 * of a cell of the cell border. This guards against rounding errors
+	 * leaving an edge out of a cell it touches.
+	 */
+	private static final double CELL_MARGIN = 0.01;
+
+	private static final byte CELL_OUTSIDE = 0;
+	private static final byte CELL_INSIDE = 1;
+	private static final byte CELL_BOUNDARY = 2;
+
+	private double minX;
+	private double minY;
+	private double maxX;
+	private double maxY;
+	private int columns;
+	private int rows;
+	private double columnScale;
+	private double rowScale;
+	private byte[] cells;
+	private double[] edgeCoordinates;
+	private int[][] rowEdges;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param area
+	 *            The area to be prepared. The area is not modified or
+	 *            referenced after construction.
+	 */
+	public PreparedPolygon(Area area) {
+		Rectangle2D bounds;
+		int edgeCount;
+		int gridSize;
+
+		edgeCoordinates = extractEdges(area);
+		edgeCount = edgeCoordinates.length / 4;
+
+		bounds = area.getBounds2D();
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		maxX = bounds.getMaxX();
+		maxY = bounds.getMaxY();
+
+		gridSize = (int) Math.ceil(Math.sqrt(edgeCount) * GRID_DENSITY);
+		gridSize = Math.max(1, Math.min(MAX_GRID_SIZE, gridSize));
+		columns = gridSize;
+		rows = gridSize;
+		columnScale = getScale(minX, maxX, columns);
+		rowScale = getScale(minY, maxY, rows);
+
+		cells = new byte[columns * rows];
+		buildIndex(edgeCount);
+	}
+
+
+	private static double getScale(double min, double max, int cellCount) {
+		if (max > min) {
+			return cellCount / (max - min);
+		} else {
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Converts the area outline into a flat array of edges. Each edge occupies
+	 * four consecutive values: x1, y1, x2, y2.
+	 */
+	private static double[] extractEdges(Area area) {
+		PathIterator iterator;
+		double[] segment;
+		double[] edges;
+		int edgeValueCount;
+		double startX;
+		double startY;
+		double lastX;
+		double lastY;
+
+		iterator = new FlatteningPathIterator(area.getPathIterator(null), FLATNESS);
+		segment = new double[6];
+		edges = new double[64];
+		edgeValueCount = 0;
+		startX = 0;
+		startY = 0;
+		lastX = 0;
+		lastY = 0;
+
+		for (; !iterator.isDone(); iterator.next()) {
+			double x;
+			double y;
+
+			switch (iterator.currentSegment(segment)) {
+			case PathIterator.SEG_MOVETO:
+				startX = segment[0];
+				startY = segment[1];
+				lastX = startX;
+				lastY = startY;
+				continue;
+			case PathIterator.SEG_CLOSE:
+				x = startX;
+				y = startY;
+				break;
+			default:
+				x = segment[0];
+				y = segment[1];
+				break;
+			}
+
+			// Zero length edges can never be crossed.
+			if (x != lastX || y != lastY) {
+				if (edgeValueCount + 4 > edges.length) {
+					edges = Arrays.copyOf(edges, edges.length * 2);
+				}
+				edges[edgeValueCount++] = lastX;
+				edges[edgeValueCount++] = lastY;
+				edges[edgeValueCount++] = x;
+				edges[edgeValueCount++] = y;
+			}
+			lastX = x;
+			lastY = y;
+		}
+
+		return Arrays.copyOf(edges, edgeValueCount);
+	}
+
+
+	private int getColumn(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) ((x - minX) * columnScale)));
+	}
+
+
+	private int getRow(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) ((y - minY) * rowScale)));
+	}
+
+
+	/**
+	 * Assigns edges to the rows they overlap, marks the cells they pass
+	 * through as boundary cells, and classifies the remaining cells.
+	 */
+	private void buildIndex(int edgeCount) {
+		int[] rowEdgeCounts;
+		double rowHeight;
+		double columnMargin;
+
+		rowHeight = (maxY - minY) / rows;
+		columnMargin = 0;
+		if (columnScale > 0) {
+			columnMargin = CELL_MARGIN / columnScale;
+		}
+
+		// Count the edges in each row so the row arrays can be sized exactly.
+		rowEdgeCounts = new int[rows];
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int firstRow = getFirstRow(edge, rowHeight);
+			int lastRow = getLastRow(edge, rowHeight);
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				rowEdgeCounts[row]++;
+			}
+		}
+		rowEdges = new int[rows][];
+		for (int row = 0; row < rows; row++) {
+			rowEdges[row] = new int[rowEdgeCounts[row]];
+			rowEdgeCounts[row] = 0;
+		}
+
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int firstRow = getFirstRow(edge, rowHeight);
+			int lastRow = getLastRow(edge, rowHeight);
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				double bandMinY = minY + (row - CELL_MARGIN) * rowHeight;
+				double bandMaxY = minY + (row + 1 + CELL_MARGIN) * rowHeight;
+				double[] range = clipToBand(edge, bandMinY, bandMaxY);
+				int firstColumn = getColumn(range[0] - columnMargin);
+				int lastColumn = getColumn(range[1] + columnMargin);
+
+				rowEdges[row][rowEdgeCounts[row]++] = edge;
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					cells[row * columns + column] = CELL_BOUNDARY;
+				}
+			}
+		}
+
+		// No edge passes through the remaining cells so the centre of each
+		// cell determines the state of the whole cell.
+		for (int row = 0; row < rows; row++) {
+			double centreY = minY + (row + 0.5) * rowHeight;
+
+			for (int column = 0; column < columns; column++) {
+				int cellIndex = row * columns + column;
+
+				if (cells[cellIndex] != CELL_BOUNDARY) {
+					double centreX = minX + (column + 0.5) * (maxX - minX) / columns;
+
+					if (isInsideRow(row, centreX, centreY)) {
+						cells[cellIndex] = CELL_INSIDE;
+					} else {
+						cells[cellIndex] = CELL_OUTSIDE;
+					}
+				}
+			}
+		}
+	}
+
+
+	private int getFirstRow(int edge, double rowHeight) {
+		double y = Math.min(edgeCoordinates[edge * 4 + 1], edgeCoordinates[edge * 4 + 3]);
+
+		return getRow(y - CELL_MARGIN * rowHeight);
+	}
+
+
+	private int getLastRow(int edge, double rowHeight) {
+		double y = Math.max(edgeCoordinates[edge * 4 + 1], edgeCoordinates[edge * 4 + 3]);
+
+		return getRow(y + CELL_MARGIN * rowHeight);
+	}
+
+
+	/**
+	 * Calculates the horizontal extent of the part of an edge lying within a
+	 * horizontal band.
+	 *
+	 * @return The minimum and maximum x values.
+	 */
+	private double[] clipToBand(int edge, double bandMinY, double bandMaxY) {
+		double x1 = edgeCoordinates[edge * 4];
+		double y1 = edgeCoordinates[edge * 4 + 1];
+		double x2 = edgeCoordinates[edge * 4 + 2];
+		double y2 = edgeCoordinates[edge * 4 + 3];
+		double clippedX1;
+		double clippedX2;
+
+		if (y1 == y2) {
+			clippedX1 = x1;
+			clippedX2 = x2;
+		} else {
+			double t1 = (bandMinY - y1) / (y2 - y1);
+			double t2 = (bandMaxY - y1) / (y2 - y1);
+			double tMin = Math.max(0, Math.min(t1, t2));
+			double tMax = Math.min(1, Math.max(t1, t2));
+
+			clippedX1 = x1 + tMin * (x2 - x1);
+			clippedX2 = x1 + tMax * (x2 - x1);
+		}
+
+		return new double[] {Math.min(clippedX1, clippedX2), Math.max(clippedX1, clippedX2)};
+	}
+
+
+	/**
+	 * Casts a ray in the increasing x direction from the point and counts the
+	 * edges it crosses. Only edges overlapping the point's row can cross the
+	 * ray. The half-open comparisons match the insideness rules of
+	 * {@link java.awt.Shape} for points on the boundary.
+	 */
+	private boolean isInsideRow(int row, double x, double y) {
+		boolean inside = false;
+
+		for (int edge : rowEdges[row]) {
+			int offset = edge * 4;
+			double x1 = edgeCoordinates[offset];
+			double y1 = edgeCoordinates[offset + 1];
+			double x2 = edgeCoordinates[offset + 2];
+			double y2 = edgeCoordinates[offset + 3];
+
+			if ((y1 > y) != (y2 > y)) {
+				double crossingX = x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+
+				if (crossingX > x) {
+					inside = !inside;
+				}
+			}
+		}
+
+		return inside;
+	}
+
+
+	/**
+	 * Indicates if the point lies within the polygon.
+	 *
+	 * @param x
+	 *            The x coordinate (longitude) of the point.
+	 * @param y
+	 *            The y coordinate (latitude) of the point.
+	 * @return True if the point is inside the polygon.
+	 */
+	public boolean contains(double x, double y) {
+		int row;
+		byte cell;
+
+		// Comparisons are written so that NaN coordinates are outside.
+		if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+			return false;
+		}
+
+		row = getRow(y);
+		cell = cells[row * columns + getColumn(x)];
+		if (cell == CELL_BOUNDARY) {
+			return isInsideRow(row, x, y);
+		}
+
+		return cell == CELL_INSIDE;
+	}
+}
@@ -185,8 +185,8 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		
 		// First look through all the nodes to see if any are within the filtered area
 		inArea = false;
-		for (WayNode nodeReference : way.getWayNodes()) {
-			if (availableNodes.get(nodeReference.getNodeId())) {
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
+			if (availableNodes.get(way.getWayNodeId(i))) {
 				inArea = true;
 				break;
 			}
@@ -198,8 +198,8 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 			
 			// If complete ways are desired, mark any unavailable nodes as required.
 			if (completeWays) {
-				for (WayNode nodeReference : way.getWayNodes()) {
-					long nodeId = nodeReference.getNodeId();
+				for (int i = 0; i < way.getWayNodeCount(); i++) {
+					long nodeId = way.getWayNodeId(i);
 					
 					if (!availableNodes.get(nodeId)) {
 						requiredNodes.set(nodeId);
@@ -229,16 +229,16 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		inArea = false;
         holdBackRelation = false;
 
-		for (RelationMember member : relation.getMembers()) {
-			switch (member.getMemberType()) {
+		for (int i = 0; i < relation.getMemberCount(); i++) {
+			switch (relation.getMemberType(i)) {
 			case Node:
-				inArea = availableNodes.get(member.getMemberId());
+				inArea = availableNodes.get(relation.getMemberId(i));
 				break;
 			case Way:
-				inArea = availableWays.get(member.getMemberId());
+				inArea = availableWays.get(relation.getMemberId(i));
 				break;
 			case Relation:
-				inArea = availableRelations.get(member.getMemberId());
+				inArea = availableRelations.get(relation.getMemberId(i));
 				break;
 			default:
 				break;
@@ -388,9 +388,9 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 					
 					// This relation becomes an available relation if one of its member
 					// relations is also available.
-					for (RelationMember member : relation.getMembers()) {
-						if (member.getMemberType().equals(EntityType.Relation)) {
-							if (availableRelations.get(member.getMemberId())) {
+					for (int j = 0; j < relation.getMemberCount(); j++) {
+						if (relation.getMemberType(j).equals(EntityType.Relation)) {
+							if (availableRelations.get(relation.getMemberId(j))) {
 								availableRelations.set(relationId);
 								selectionCount++;
 							}
@@ -438,9 +438,9 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 				// Only examine available relations.
 				if (availableRelations.get(relationId)) {
 					// Select the child if it hasn't already been selected.
-					for (RelationMember member : relation.getMembers()) {
-						if (member.getMemberType().equals(EntityType.Relation)) {
-							long memberId = member.getMemberId();
+					for (int j = 0; j < relation.getMemberCount(); j++) {
+						if (relation.getMemberType(j).equals(EntityType.Relation)) {
+							long memberId = relation.getMemberId(j);
 							
 							if (!availableRelations.get(memberId)) {
 								availableRelations.set(memberId);
@@ -468,13 +468,13 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 				// Only examine available relations.
 				if (availableRelations.get(relationId)) {
 					// Select the member if it hasn't already been selected.
-					for (RelationMember member : relation.getMembers()) {
-						switch (member.getMemberType()) {
+					for (int j = 0; j < relation.getMemberCount(); j++) {
+						switch (relation.getMemberType(j)) {
 						case Node:
-							availableNodes.set(member.getMemberId());
+							availableNodes.set(relation.getMemberId(j));
 							break;
 						case Way:
-							availableWays.set(member.getMemberId());
+							availableWays.set(relation.getMemberId(j));
 							break;
 						default:
 							break;
@@ -498,8 +498,8 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 				// Only examine available relations.
 				if (availableWays.get(wayId)) {
 					// Select all nodes within the way.
-					for (WayNode wayNode : way.getWayNodes()) {
-						availableNodes.set(wayNode.getNodeId());
+					for (int j = 0; j < way.getWayNodeCount(); j++) {
+						availableNodes.set(way.getWayNodeId(j));
 					}
 				}
 			}
@@ -6,6 +6,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.File;
 
 import org.openstreetmap.osmosis.areafilter.common.PolygonFileReader;
+import org.openstreetmap.osmosis.areafilter.common.PreparedPolygon;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
@@ -22,6 +23,7 @@ public class PolygonFilter extends AreaFilter {
 	
 	private File polygonFile;
 	private Area area;
+	private PreparedPolygon preparedPolygon;
 	
 	
 	/**
@@ -51,6 +53,19 @@ public class PolygonFilter extends AreaFilter {
 		this.polygonFile = polygonFile;
 		
 		area = null;
+		preparedPolygon = null;
+	}
+	
+	
+	/**
+	 * Loads the polygon file if it hasn't been loaded yet. The area is used
+	 * for bound calculations, and an indexed copy is used for node tests.
+	 */
+	private void loadPolygon() {
+		if (area == null) {
+			area = new PolygonFileReader(polygonFile).loadPolygon();
+			preparedPolygon = new PreparedPolygon(area);
+		}
 	}
 	
 	
@@ -62,9 +77,7 @@ public class PolygonFilter extends AreaFilter {
 		Bound newBound = null;
 
 		// Configure the area if it hasn't been created yet. (Should this be in an "initialize" method?)
-		if (area == null) {
-			area = new PolygonFileReader(polygonFile).loadPolygon();
-		}
+		loadPolygon();
 		
 		for (Bound b : boundContainer.getEntity().toSimpleBound()) {
 			if (newBound == null) {
@@ -135,13 +148,11 @@ public class PolygonFilter extends AreaFilter {
 		double longitude;
 		
 		// Configure the area if it hasn't been created yet.
-		if (area == null) {
-			area = new PolygonFileReader(polygonFile).loadPolygon();
-		}
+		loadPolygon();
 		
 		latitude = node.getLatitude();
 		longitude = node.getLongitude();
 		
-		return area.contains(longitude, latitude);
+		return preparedPolygon.contains(longitude, latitude);
 	}
 }
@@ -0,0 +1,113 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PreparedPolygon} class.
+ */
+public class PreparedPolygonTest {
+
+	private static Area createPolygon(double[] coordinates) {
+		Path2D.Double path = new Path2D.Double();
+
+		path.moveTo(coordinates[0], coordinates[1]);
+		for (int i = 2; i < coordinates.length; i += 2) {
+			path.lineTo(coordinates[i], coordinates[i + 1]);
+		}
+		path.closePath();
+
+		return new Area(path);
+	}
+
+
+	/**
+	 * Creates an irregular star shaped polygon with many vertices and a hole
+	 * cut out of it.
+	 */
+	private static Area createComplexArea(Random random) {
+		int vertexCount = 5000;
+		double[] coordinates = new double[vertexCount * 2];
+		Area area;
+
+		for (int i = 0; i < vertexCount; i++) {
+			double angle = 2 * Math.PI * i / vertexCount;
+			double radius = 5 + random.nextDouble() * 5;
+
+			coordinates[i * 2] = 140 + radius * Math.cos(angle);
+			coordinates[i * 2 + 1] = -30 + radius * Math.sin(angle);
+		}
+
+		area = createPolygon(coordinates);
+		area.subtract(createPolygon(new double[] {139, -31, 141, -31, 141, -29, 139, -29}));
+
+		return area;
+	}
+
+
+	/**
+	 * Verifies that random points are classified identically to the area.
+	 */
+	@Test
+	public void testRandomPoints() {
+		Random random = new Random(1);
+		Area area = createComplexArea(random);
+		PreparedPolygon polygon = new PreparedPolygon(area);
+		int insideCount = 0;
+
+		for (int i = 0; i < 50000; i++) {
+			double x = 128 + random.nextDouble() * 24;
+			double y = -42 + random.nextDouble() * 24;
+			boolean expected = area.contains(x, y);
+
+			Assert.assertEquals("Incorrect result for point " + x + "," + y + ".", expected, polygon.contains(x, y));
+			if (expected) {
+				insideCount++;
+			}
+		}
+
+		// Make sure the test covers both inside and outside points.
+		Assert.assertTrue("Too few inside points.", insideCount > 2500);
+		Assert.assertTrue("Too few outside points.", insideCount < 47500);
+	}
+
+
+	/**
+	 * Verifies that points on vertices and edges are classified identically
+	 * to the area.
+	 */
+	@Test
+	public void testBoundaryPoints() {
+		// A square with a notch out of the north east corner and a hole.
+		Area area = createPolygon(new double[] {-20, 20, 10, 20, 10, 10, 20, 10, 20, -20, -20, -20});
+		PreparedPolygon polygon;
+
+		area.subtract(createPolygon(new double[] {-5, -5, 5, -5, 5, 5, -5, 5}));
+		polygon = new PreparedPolygon(area);
+
+		for (int x = -25; x <= 25; x++) {
+			for (int y = -25; y <= 25; y++) {
+				Assert.assertEquals(
+						"Incorrect result for point " + x + "," + y + ".", area.contains(x, y), polygon.contains(x, y));
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that an empty area contains no points.
+	 */
+	@Test
+	public void testEmptyArea() {
+		PreparedPolygon polygon = new PreparedPolygon(new Area());
+
+		Assert.assertFalse("An empty area should contain no points.", polygon.contains(0, 0));
+		Assert.assertFalse("An empty area should contain no points.", polygon.contains(Double.NaN, 0));
+	}
+}
@@ -0,0 +1,65 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.util.Map;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * A sink passing all received entities to a JMH blackhole so that producing
+ * them can't be optimised away.
+ */
+public class BlackholeSink implements Sink {
+
+	private Blackhole blackhole;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param blackhole
+	 *            The blackhole to receive the entities.
+	 */
+	public BlackholeSink(Blackhole blackhole) {
+		this.blackhole = blackhole;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		// Nothing to do.
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		blackhole.consume(entityContainer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		// Nothing to do.
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Nothing to do.
+	}
+}
@@ -0,0 +1,82 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.xml.v0_6.impl.FastXmlParser;
+
+
+/**
+ * Measures the time taken by {@link FastXmlParser} to parse the synthetic XML
+ * file. The file is held in memory so no disk or decompression time is
+ * included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FastXmlParserBenchmark {
+
+	/**
+	 * If true, timestamps are parsed from the XML.
+	 */
+	@Param({"true", "false"})
+	private boolean enableDateParsing;
+
+	private byte[] data;
+	private XMLInputFactory factory;
+
+
+	/**
+	 * Loads the synthetic XML file into memory.
+	 */
+	@Setup
+	public void setup() {
+		data = SyntheticData.loadResource(SyntheticData.XML_RESOURCE);
+
+		// Use the same configuration as the fast XML reader task.
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+	}
+
+
+	/**
+	 * Parses the file.
+	 *
+	 * @param blackhole
+	 *            Receives the parsed entities.
+	 * @throws XMLStreamException
+	 *             if the XML can't be parsed.
+	 */
+	@Benchmark
+	public void parse(Blackhole blackhole) throws XMLStreamException {
+		XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(data));
+
+		try {
+			new FastXmlParser(new BlackholeSink(blackhole), reader, enableDateParsing).readOsm();
+		} finally {
+			reader.close();
+		}
+	}
+}
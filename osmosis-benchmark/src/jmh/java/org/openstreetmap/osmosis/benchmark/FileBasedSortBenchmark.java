@@ -0,0 +1,122 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ObjectSorter;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntitySizeEstimator;
+import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
+
+
+/**
+ * Measures the time taken to sort several shuffled copies of the synthetic
+ * dataset with {@link FileBasedSort}, and with {@link ParallelFileBasedSort}
+ * for comparison. The data is larger than the in-memory run size of both sorts
+ * so it is written to and merged from temporary files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FileBasedSortBenchmark {
+
+	/**
+	 * The number of copies of the dataset to be sorted.
+	 */
+	private static final int DATASET_COPIES = 4;
+
+	/**
+	 * The memory budget for the parallel sort. This is small enough to force
+	 * several runs.
+	 */
+	private static final long PARALLEL_MEMORY_BUDGET = 1024 * 1024;
+
+	/**
+	 * The number of threads used by the parallel sort, zero uses the original
+	 * single threaded sort.
+	 */
+	@Param({"0", "2"})
+	private int workers;
+
+	/**
+	 * If true, temporary files are compressed.
+	 */
+	@Param({"true", "false"})
+	private boolean useCompression;
+
+	private List<EntityContainer> entities;
+
+
+	/**
+	 * Generates the data to be sorted.
+	 */
+	@Setup
+	public void setup() {
+		entities = new ArrayList<EntityContainer>();
+		for (int i = 0; i < DATASET_COPIES; i++) {
+			entities.addAll(SyntheticData.generate());
+		}
+
+		Collections.shuffle(entities, new Random(1));
+	}
+
+
+	private ObjectSorter<EntityContainer> createSorter() {
+		EntityContainerComparator comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+
+		if (workers > 0) {
+			return new ParallelFileBasedSort<EntityContainer>(new GenericObjectSerializationFactory(), comparator,
+					useCompression, PARALLEL_MEMORY_BUDGET, container -> EntitySizeEstimator.estimate(
+							container.getEntity()), workers);
+		} else {
+			return new FileBasedSort<EntityContainer>(new GenericObjectSerializationFactory(), comparator,
+					useCompression);
+		}
+	}
+
+
+	/**
+	 * Sorts the dataset.
+	 *
+	 * @param blackhole
+	 *            Receives the sorted entities.
+	 */
+	@Benchmark
+	public void sort(Blackhole blackhole) {
+		try (ObjectSorter<EntityContainer> sorter = createSorter()) {
+			for (EntityContainer entity : entities) {
+				sorter.add(entity);
+			}
+
+			try (ReleasableIterator<EntityContainer> iterator = sorter.iterate()) {
+				while (iterator.hasNext()) {
+					blackhole.consume(iterator.next());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.osmosis.core.filter.common.IdTracker;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerFactory;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
+
+
+/**
+ * Measures the time taken to set, get and iterate ids for each
+ * {@link IdTrackerType}. Ids are added in ascending order with clustered gaps,
+ * as they are when filtering a sorted file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=1g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class IdTrackerBenchmark {
+
+	private static final int ID_COUNT = 500000;
+	private static final int PROBE_COUNT = 1000000;
+
+	/**
+	 * The id tracker implementation.
+	 */
+	@Param({"BitSet", "IdList", "Dynamic", "Roaring"})
+	private IdTrackerType idTrackerType;
+
+	private long[] ids;
+	private long[] probeIds;
+	private IdTracker populatedTracker;
+
+
+	/**
+	 * Generates the ids and populates a tracker for the get and iterate
+	 * benchmarks.
+	 */
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		long id;
+
+		ids = new long[ID_COUNT];
+		id = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (random.nextInt(100) == 0) {
+				id += random.nextInt(100000);
+			}
+			id += 1 + random.nextInt(20);
+			ids[i] = id;
+		}
+
+		// Half of the probes are ids that have been set.
+		probeIds = new long[PROBE_COUNT];
+		for (int i = 0; i < probeIds.length; i++) {
+			if ((i & 1) == 0) {
+				probeIds[i] = ids[random.nextInt(ID_COUNT)];
+			} else {
+				probeIds[i] = (long) (random.nextDouble() * id);
+			}
+		}
+
+		populatedTracker = set();
+	}
+
+
+	/**
+	 * Creates a tracker and sets all ids.
+	 *
+	 * @return The populated tracker.
+	 */
+	@Benchmark
+	public IdTracker set() {
+		IdTracker tracker = IdTrackerFactory.createInstance(idTrackerType);
+
+		for (int i = 0; i < ids.length; i++) {
+			tracker.set(ids[i]);
+		}
+
+		return tracker;
+	}
+
+
+	/**
+	 * Checks whether each probe id is set.
+	 *
+	 * @return The number of probe ids that were set.
+	 */
+	@Benchmark
+	public int get() {
+		int matchCount = 0;
+
+		for (int i = 0; i < probeIds.length; i++) {
+			if (populatedTracker.get(probeIds[i])) {
+				matchCount++;
+			}
+		}
+
+		return matchCount;
+	}
+
+
+	/**
+	 * Iterates over all ids.
+	 *
+	 * @return The sum of all ids.
+	 */
+	@Benchmark
+	public long iterate() {
+		PrimitiveIterator.OfLong iterator = populatedTracker.iterator();
+		long sum = 0;
+
+		while (iterator.hasNext()) {
+			sum += iterator.nextLong();
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,100 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+
+import crosby.binary.osmosis.OsmosisSerializer;
+
+
+/**
+ * Measures the time taken by {@link OsmosisSerializer} to build and encode the
+ * PBF blocks for the synthetic dataset. The output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class OsmosisSerializerBenchmark {
+
+	/**
+	 * The number of worker threads used to build blocks, zero builds blocks on
+	 * the calling thread.
+	 */
+	@Param({"0", "2"})
+	private int workers;
+
+	private List<EntityContainer> entities;
+
+
+	/**
+	 * Counts and discards all data written to it.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		private long count;
+
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+
+	/**
+	 * Generates the dataset.
+	 */
+	@Setup
+	public void setup() {
+		entities = SyntheticData.generate();
+	}
+
+
+	/**
+	 * Serializes the dataset.
+	 *
+	 * @return The number of bytes written.
+	 */
+	@Benchmark
+	public long serialize() {
+		CountingOutputStream outputStream = new CountingOutputStream();
+		OsmosisSerializer serializer = new OsmosisSerializer(new BlockOutputStream(outputStream));
+
+		try {
+			serializer.configWorkers(workers);
+			serializer.initialize(Collections.<String, Object>emptyMap());
+			for (EntityContainer entity : entities) {
+				serializer.process(entity);
+			}
+			serializer.complete();
+		} finally {
+			serializer.close();
+		}
+
+		return outputStream.count;
+	}
+}
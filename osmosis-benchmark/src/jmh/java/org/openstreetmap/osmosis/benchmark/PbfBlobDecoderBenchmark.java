@@ -0,0 +1,164 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobDecoder;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobDecoderListener;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.RawBlob;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.StreamSplitter;
+
+
+/**
+ * Measures the time taken by {@link PbfBlobDecoder} to decode all data blobs
+ * of a single entity type from the synthetic PBF file. Nodes are stored in
+ * dense format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PbfBlobDecoderBenchmark {
+
+	/**
+	 * The type of entity contained in the blobs to be decoded.
+	 */
+	@Param({"Node", "Way", "Relation"})
+	private EntityType entityType;
+
+	private List<RawBlob> blobs;
+
+
+	/**
+	 * Receives decoded entities and passes them to a blackhole.
+	 */
+	private static class BlackholeListener implements PbfBlobDecoderListener {
+		private Blackhole blackhole;
+
+
+		BlackholeListener(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+
+		@Override
+		public void process(List<EntityContainer> decodedEntities) {
+			blackhole.consume(decodedEntities);
+		}
+
+
+		@Override
+		public void complete() {
+			// Nothing to do.
+		}
+
+
+		@Override
+		public void error(RuntimeException cause) {
+			throw new OsmosisRuntimeException("Unable to decode blob.", cause);
+		}
+	}
+
+
+	/**
+	 * Records the types of all entities decoded from a blob.
+	 */
+	private static class TypeListener implements PbfBlobDecoderListener {
+		private Set<EntityType> entityTypes = EnumSet.noneOf(EntityType.class);
+
+
+		@Override
+		public void process(List<EntityContainer> decodedEntities) {
+			for (EntityContainer entityContainer : decodedEntities) {
+				entityTypes.add(entityContainer.getEntity().getType());
+			}
+		}
+
+
+		@Override
+		public void complete() {
+			// Nothing to do.
+		}
+
+
+		@Override
+		public void error(RuntimeException cause) {
+			throw new OsmosisRuntimeException("Unable to decode blob.", cause);
+		}
+	}
+
+
+	/**
+	 * Splits the synthetic PBF file into blobs and keeps those containing the
+	 * requested entity type. The file is written so that no blob contains more
+	 * than one entity type.
+	 */
+	@Setup
+	public void setup() {
+		byte[] data = SyntheticData.loadResource(SyntheticData.PBF_RESOURCE);
+
+		blobs = new ArrayList<RawBlob>();
+
+		try (StreamSplitter splitter = new StreamSplitter(new DataInputStream(new ByteArrayInputStream(data)))) {
+			while (splitter.hasNext()) {
+				RawBlob blob = splitter.next();
+
+				if ("OSMData".equals(blob.getType())) {
+					TypeListener listener = new TypeListener();
+
+					new PbfBlobDecoder(blob, listener).run();
+					if (listener.entityTypes.size() > 1) {
+						throw new OsmosisRuntimeException("A blob contains entities of types " + listener.entityTypes
+								+ ", the " + SyntheticData.PBF_RESOURCE + " resource must be regenerated.");
+					}
+					if (listener.entityTypes.contains(entityType)) {
+						blobs.add(blob);
+					}
+				}
+			}
+		}
+
+		if (blobs.isEmpty()) {
+			throw new OsmosisRuntimeException("No blobs contain entities of type " + entityType + ".");
+		}
+	}
+
+
+	/**
+	 * Decodes the blobs.
+	 *
+	 * @param blackhole
+	 *            Receives the decoded entities.
+	 */
+	@Benchmark
+	public void decode(Blackhole blackhole) {
+		BlackholeListener listener = new BlackholeListener(blackhole);
+
+		for (RawBlob blob : blobs) {
+			new PbfBlobDecoder(blob, listener).run();
+		}
+	}
+}
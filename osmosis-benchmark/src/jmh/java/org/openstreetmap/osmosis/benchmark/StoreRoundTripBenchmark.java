@@ -0,0 +1,180 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.TagCollectionImpl;
+import org.openstreetmap.osmosis.core.store.CompactStoreReader;
+import org.openstreetmap.osmosis.core.store.CompactStoreWriter;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+
+
+/**
+ * Measures the time taken to store and load the tag collections and common
+ * entity data of the synthetic dataset through {@link StoreWriter} and
+ * {@link StoreReader}. This is the serialisation used by all file based
+ * stores and sorts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class StoreRoundTripBenchmark {
+
+	/**
+	 * If true, the compact encoding used by the temporary object stores is
+	 * measured, otherwise the fixed width encoding is measured.
+	 */
+	@Param({"true", "false"})
+	private boolean compact;
+
+	private List<TagCollectionImpl> tagCollections;
+	private List<CommonEntityData> entityData;
+	private byte[] storedTagCollections;
+	private byte[] storedEntityData;
+	private ByteArrayOutputStream outputBuffer;
+
+
+	/**
+	 * Generates the dataset and stores it ready for the load benchmarks.
+	 */
+	@Setup
+	public void setup() {
+		tagCollections = new ArrayList<TagCollectionImpl>();
+		entityData = new ArrayList<CommonEntityData>();
+
+		for (EntityContainer entityContainer : SyntheticData.generate()) {
+			Entity entity = entityContainer.getEntity();
+
+			tagCollections.add(new TagCollectionImpl(entity.getTags()));
+			entityData.add(new CommonEntityData(entity.getId(), entity.getVersion(), entity.getTimestamp(),
+					entity.getUser(), entity.getChangesetId(), entity.getTags()));
+		}
+
+		outputBuffer = new ByteArrayOutputStream();
+
+		storeTagCollections();
+		storedTagCollections = outputBuffer.toByteArray();
+
+		storeEntityData();
+		storedEntityData = outputBuffer.toByteArray();
+	}
+
+
+	private StoreWriter createWriter() {
+		outputBuffer.reset();
+
+		if (compact) {
+			return new CompactStoreWriter(new DataOutputStream(outputBuffer));
+		}
+
+		return new DataOutputStoreWriter(new DataOutputStream(outputBuffer));
+	}
+
+
+	private StoreReader createReader(byte[] data) {
+		if (compact) {
+			return new CompactStoreReader(new DataInputStream(new ByteArrayInputStream(data)));
+		}
+
+		return new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(data)));
+	}
+
+
+	/**
+	 * Stores all tag collections.
+	 *
+	 * @return The number of bytes written.
+	 */
+	@Benchmark
+	public int storeTagCollections() {
+		StoreWriter writer = createWriter();
+		StoreClassRegister register = new DynamicStoreClassRegister();
+
+		for (TagCollectionImpl tags : tagCollections) {
+			tags.store(writer, register);
+		}
+
+		return outputBuffer.size();
+	}
+
+
+	/**
+	 * Loads all tag collections.
+	 *
+	 * @param blackhole
+	 *            Receives the loaded tag collections.
+	 */
+	@Benchmark
+	public void loadTagCollections(Blackhole blackhole) {
+		StoreReader reader = createReader(storedTagCollections);
+		StoreClassRegister register = new DynamicStoreClassRegister();
+
+		for (int i = 0; i < tagCollections.size(); i++) {
+			blackhole.consume(new TagCollectionImpl(reader, register));
+		}
+	}
+
+
+	/**
+	 * Stores all common entity data.
+	 *
+	 * @return The number of bytes written.
+	 */
+	@Benchmark
+	public int storeEntityData() {
+		StoreWriter writer = createWriter();
+		StoreClassRegister register = new DynamicStoreClassRegister();
+
+		for (CommonEntityData data : entityData) {
+			data.store(writer, register);
+		}
+
+		return outputBuffer.size();
+	}
+
+
+	/**
+	 * Loads all common entity data.
+	 *
+	 * @param blackhole
+	 *            Receives the loaded entity data.
+	 */
+	@Benchmark
+	public void loadEntityData(Blackhole blackhole) {
+		StoreReader reader = createReader(storedEntityData);
+		StoreClassRegister register = new DynamicStoreClassRegister();
+
+		for (int i = 0; i < entityData.size(); i++) {
+			blackhole.consume(new CommonEntityData(reader, register));
+		}
+	}
+}
@@ -0,0 +1,285 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.XmlWriter;
+
+import crosby.binary.osmosis.OsmosisSerializer;
+
+
+/**
+ * Generates the synthetic dataset used by the benchmarks. The data is
+ * generated from a fixed seed so every run uses identical data. The dataset is
+ * also written in XML and PBF formats as resources of this module, these files
+ * are checked in so that decoding benchmarks use identical input across
+ * versions even if the writers change. The resources can be regenerated by
+ * running the main method of this class.
+ */
+public final class SyntheticData {
+
+	/**
+	 * The name of the classpath resource containing the dataset in gzipped
+	 * XML format.
+	 */
+	public static final String XML_RESOURCE = "synthetic.osm.gz";
+
+	/**
+	 * The name of the classpath resource containing the dataset in PBF format.
+	 */
+	public static final String PBF_RESOURCE = "synthetic.osm.pbf";
+
+	private static final long SEED = 20181018;
+	private static final int NODE_COUNT = 6000;
+	private static final int WAY_COUNT = 1000;
+	private static final int RELATION_COUNT = 100;
+	private static final int USER_COUNT = 50;
+	private static final long BASE_TIMESTAMP = 1262304000000L;
+
+	/**
+	 * The number of entities in each PBF block. This divides the node and way
+	 * counts so that no block contains more than one entity type.
+	 */
+	private static final int PBF_BATCH_LIMIT = 1000;
+
+	private static final String[][] NODE_TAGS = {
+		{"amenity", "bench"}, {"amenity", "restaurant"}, {"highway", "bus_stop"}, {"natural", "tree"},
+		{"shop", "bakery"}, {"barrier", "gate"}, {"entrance", "yes"}, {"power", "tower"}};
+	private static final String[][] WAY_TAGS = {
+		{"highway", "residential"}, {"highway", "service"}, {"highway", "footway"}, {"building", "yes"},
+		{"building", "house"}, {"landuse", "grass"}, {"waterway", "stream"}, {"surface", "asphalt"},
+		{"oneway", "yes"}, {"lanes", "2"}};
+	private static final String[][] RELATION_TAGS = {
+		{"type", "multipolygon"}, {"type", "route"}, {"route", "bus"}, {"network", "local"},
+		{"boundary", "administrative"}, {"admin_level", "8"}};
+	private static final String[] ROLES = {"outer", "inner", "", "stop", "platform"};
+
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private SyntheticData() {
+	}
+
+
+	/**
+	 * Returns a random number from a small range most of the time, and from a
+	 * large range occasionally. This produces the long tail of way and
+	 * relation sizes seen in real data.
+	 */
+	private static int nextSkewed(Random random, int commonRange, int rareRange, int rareFrequency) {
+		if (random.nextInt(rareFrequency) == 0) {
+			return random.nextInt(rareRange);
+		} else {
+			return random.nextInt(commonRange);
+		}
+	}
+
+
+	private static void addTags(Random random, List<Tag> tags, String[][] commonTags, int maxCommonTags,
+			String nameKey, long id) {
+		int tagCount = random.nextInt(maxCommonTags + 1);
+
+		for (int i = 0; i < tagCount; i++) {
+			String[] tag = commonTags[random.nextInt(commonTags.length)];
+			tags.add(new Tag(tag[0], tag[1]));
+		}
+
+		// Unique values exercise string handling that can't be shared.
+		if (random.nextInt(4) == 0) {
+			tags.add(new Tag(nameKey, "Synthetic " + Long.toString(id, 36) + " " + random.nextInt(100000)));
+		}
+	}
+
+
+	/**
+	 * Generates the dataset. Nodes, ways and relations are returned in that
+	 * order, each sorted by id.
+	 *
+	 * @return The entities in the dataset.
+	 */
+	public static List<EntityContainer> generate() {
+		Random random = new Random(SEED);
+		List<OsmUser> users = new ArrayList<OsmUser>(USER_COUNT);
+		List<EntityContainer> entities = new ArrayList<EntityContainer>();
+		long[] nodeIds = new long[NODE_COUNT];
+		long[] wayIds = new long[WAY_COUNT];
+		long id;
+
+		for (int i = 0; i < USER_COUNT; i++) {
+			users.add(new OsmUser(i + 1, "user" + (i + 1)));
+		}
+
+		// Node ids are clustered with random gaps similar to a real extract.
+		id = 1000;
+		for (int i = 0; i < NODE_COUNT; i++) {
+			List<Tag> tags = new ArrayList<Tag>();
+
+			id += 1 + nextSkewed(random, 20, 5000, 10);
+			nodeIds[i] = id;
+			if (random.nextInt(10) == 0) {
+				addTags(random, tags, NODE_TAGS, 3, "name", id);
+			}
+
+			entities.add(new NodeContainer(new Node(new CommonEntityData(id, 1 + random.nextInt(5),
+					new Date(BASE_TIMESTAMP + random.nextInt(Integer.MAX_VALUE) * 100L),
+					users.get(random.nextInt(USER_COUNT)), 1 + random.nextInt(100000), tags),
+					-33.9 + random.nextInt(100000) / 1E6, 151.1 + random.nextInt(100000) / 1E6)));
+		}
+
+		id = 500;
+		for (int i = 0; i < WAY_COUNT; i++) {
+			List<Tag> tags = new ArrayList<Tag>();
+			List<WayNode> wayNodes = new ArrayList<WayNode>();
+			int nodeIndex = random.nextInt(NODE_COUNT);
+			int wayNodeCount = 2 + nextSkewed(random, 15, 100, 5);
+
+			id += 1 + random.nextInt(10);
+			wayIds[i] = id;
+			addTags(random, tags, WAY_TAGS, 4, "name", id);
+			for (int j = 0; j < wayNodeCount; j++) {
+				wayNodes.add(new WayNode(nodeIds[nodeIndex]));
+				nodeIndex = (nodeIndex + 1 + random.nextInt(3)) % NODE_COUNT;
+			}
+
+			entities.add(new WayContainer(new Way(new CommonEntityData(id, 1 + random.nextInt(10),
+					new Date(BASE_TIMESTAMP + random.nextInt(Integer.MAX_VALUE) * 100L),
+					users.get(random.nextInt(USER_COUNT)), 1 + random.nextInt(100000), tags), wayNodes)));
+		}
+
+		id = 10;
+		for (int i = 0; i < RELATION_COUNT; i++) {
+			List<Tag> tags = new ArrayList<Tag>();
+			List<RelationMember> members = new ArrayList<RelationMember>();
+			int memberCount = 1 + nextSkewed(random, 10, 200, 10);
+
+			id += 1 + random.nextInt(5);
+			addTags(random, tags, RELATION_TAGS, 3, "name", id);
+			for (int j = 0; j < memberCount; j++) {
+				String role = ROLES[random.nextInt(ROLES.length)];
+
+				if (random.nextInt(3) == 0) {
+					members.add(new RelationMember(nodeIds[random.nextInt(NODE_COUNT)], EntityType.Node, role));
+				} else {
+					members.add(new RelationMember(wayIds[random.nextInt(WAY_COUNT)], EntityType.Way, role));
+				}
+			}
+
+			entities.add(new RelationContainer(new Relation(new CommonEntityData(id, 1 + random.nextInt(20),
+					new Date(BASE_TIMESTAMP + random.nextInt(Integer.MAX_VALUE) * 100L),
+					users.get(random.nextInt(USER_COUNT)), 1 + random.nextInt(100000), tags), members)));
+		}
+
+		return entities;
+	}
+
+
+	/**
+	 * Loads one of the checked in resources into memory, decompressing it if
+	 * it is gzipped.
+	 *
+	 * @param resourceName
+	 *            The name of the resource relative to this class.
+	 * @return The uncompressed resource data.
+	 */
+	public static byte[] loadResource(String resourceName) {
+		try (InputStream resourceStream = SyntheticData.class.getResourceAsStream(resourceName)) {
+			InputStream inputStream;
+			ByteArrayOutputStream outputStream;
+			byte[] buffer;
+			int bytesRead;
+
+			if (resourceStream == null) {
+				throw new OsmosisRuntimeException("Unable to find the " + resourceName + " resource.");
+			}
+
+			inputStream = resourceStream;
+			if (resourceName.endsWith(".gz")) {
+				inputStream = new GZIPInputStream(resourceStream);
+			}
+
+			outputStream = new ByteArrayOutputStream();
+			buffer = new byte[65536];
+			while ((bytesRead = inputStream.read(buffer)) >= 0) {
+				outputStream.write(buffer, 0, bytesRead);
+			}
+
+			return outputStream.toByteArray();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read the " + resourceName + " resource.", e);
+		}
+	}
+
+
+	private static void write(Sink sink, List<EntityContainer> entities) {
+		try {
+			sink.initialize(Collections.<String, Object>emptyMap());
+			for (EntityContainer entity : entities) {
+				sink.process(entity);
+			}
+			sink.complete();
+		} finally {
+			sink.close();
+		}
+	}
+
+
+	/**
+	 * Regenerates the resource files. This should only be required if the
+	 * generated dataset is changed, doing so makes results incomparable with
+	 * those of previous runs.
+	 *
+	 * @param args
+	 *            The directory to write the resources to.
+	 * @throws IOException
+	 *             if the files can't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		File directory;
+		List<EntityContainer> entities;
+
+		if (args.length != 1) {
+			throw new OsmosisRuntimeException("The output directory must be specified.");
+		}
+		directory = new File(args[0]);
+		entities = generate();
+
+		write(new XmlWriter(new File(directory, XML_RESOURCE), CompressionMethod.GZip), entities);
+
+		try (OutputStream outputStream = new FileOutputStream(new File(directory, PBF_RESOURCE))) {
+			OsmosisSerializer serializer = new OsmosisSerializer(new BlockOutputStream(outputStream));
+
+			serializer.configBatchLimit(PBF_BATCH_LIMIT);
+			write(serializer, entities);
+		}
+	}
+}
@@ -1,12 +1,14 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core; 
 
+import java.io.File;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.cli.CommandLineParser;
+import org.openstreetmap.osmosis.core.metrics.common.PipelineMetrics;
 import org.openstreetmap.osmosis.core.pipeline.common.Pipeline;
 
 
@@ -61,6 +63,7 @@ public final class Osmosis {
 		CommandLineParser commandLineParser;
 		TaskRegistrar taskRegistrar;
 		Pipeline pipeline;
+		PipelineMetrics metrics;
 		long startTime;
 		long finishTime;
 		
@@ -80,18 +83,30 @@ public final class Osmosis {
 		taskRegistrar = new TaskRegistrar();
 		taskRegistrar.initialize(commandLineParser.getPlugins());
 		
-		pipeline = new Pipeline(taskRegistrar.getFactoryRegister());
-		
-		LOG.info("Preparing pipeline.");
-		pipeline.prepare(commandLineParser.getTaskInfoList());
-		
-		LOG.info("Launching pipeline execution.");
-		pipeline.execute();
-		
-		LOG.info("Pipeline executing, waiting for completion.");
-		pipeline.waitForCompletion();
+		metrics = null;
+		if (commandLineParser.isMetricsEnabled()) {
+			metrics = new PipelineMetrics();
+		}
 		
-		LOG.info("Pipeline complete.");
+		try {
+			pipeline = new Pipeline(taskRegistrar.getFactoryRegister(), metrics);
+			
+			LOG.info("Preparing pipeline.");
+			pipeline.prepare(commandLineParser.getTaskInfoList());
+			
+			LOG.info("Launching pipeline execution.");
+			pipeline.execute();
+			
+			LOG.info("Pipeline executing, waiting for completion.");
+			pipeline.waitForCompletion();
+			
+			LOG.info("Pipeline complete.");
+			
+		} finally {
+			if (metrics != null) {
+				reportMetrics(metrics, commandLineParser.getMetricsFile());
+			}
+		}
 		
 		finishTime = System.currentTimeMillis();
 		
@@ -99,6 +114,28 @@ public final class Osmosis {
 	}
 	
 	
+	/**
+	 * Writes the pipeline metrics to the specified file, or to the log if no
+	 * file is specified, and unregisters them from the MBean server.
+	 * 
+	 * @param metrics
+	 *            The pipeline metrics.
+	 * @param metricsFile
+	 *            The name of the file to write, or null to log the metrics.
+	 */
+	private static void reportMetrics(PipelineMetrics metrics, String metricsFile) {
+		try {
+			if (metricsFile != null) {
+				metrics.writeJson(new File(metricsFile));
+			} else {
+				LOG.info("Pipeline metrics: " + metrics.toJson());
+			}
+		} finally {
+			metrics.close();
+		}
+	}
+	
+	
 	/**
 	 * Configures logging to write all output to the console.
 	 */
@@ -1,10 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.buffer.v0_6;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxWaitStrategy;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkRunnableChangeSource;
 
@@ -17,7 +22,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkRunnableChangeSource;
  * 
  * @author Brett Henderson
  */
-public class ChangeBuffer implements ChangeSinkRunnableChangeSource {
+public class ChangeBuffer implements ChangeSinkRunnableChangeSource, QueueMetricsSource {
 	private ChangeSink changeSink;
 	private DataPostbox<ChangeContainer> buffer;
 	
@@ -29,7 +34,20 @@ public class ChangeBuffer implements ChangeSinkRunnableChangeSource {
 	 *            The size of the buffer to use.
 	 */
 	public ChangeBuffer(int bufferCapacity) {
-		buffer = new DataPostbox<ChangeContainer>(bufferCapacity);
+		this(bufferCapacity, DataPostboxWaitStrategy.Park);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param bufferCapacity
+	 *            The size of the buffer to use.
+	 * @param waitStrategy
+	 *            The method used to wait when the buffer is full or empty.
+	 */
+	public ChangeBuffer(int bufferCapacity, DataPostboxWaitStrategy waitStrategy) {
+		buffer = new DataPostbox<ChangeContainer>(bufferCapacity, waitStrategy);
 	}
 
 
@@ -92,4 +110,13 @@ public class ChangeBuffer implements ChangeSinkRunnableChangeSource {
 			buffer.outputRelease();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return Collections.<QueueMetrics>singletonList(buffer);
+	}
 }
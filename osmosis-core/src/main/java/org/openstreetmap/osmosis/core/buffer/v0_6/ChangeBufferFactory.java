@@ -1,10 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.buffer.v0_6;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkRunnableChangeSourceManager;
+import org.openstreetmap.osmosis.core.store.DataPostboxWaitStrategy;
 
 
 /**
@@ -15,6 +17,8 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkRunnableChangeSour
 public class ChangeBufferFactory extends TaskManagerFactory {
 	private static final String ARG_BUFFER_CAPACITY = "bufferCapacity";
 	private static final int DEFAULT_BUFFER_CAPACITY = 20;
+	private static final String ARG_WAIT_STRATEGY = "waitStrategy";
+	private static final String DEFAULT_WAIT_STRATEGY = "Park";
 	
 	
 	/**
@@ -23,6 +27,7 @@ public class ChangeBufferFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		int bufferCapacity;
+		DataPostboxWaitStrategy waitStrategy;
 		
 		// Get the task arguments.
 		bufferCapacity = getIntegerArgument(
@@ -30,10 +35,19 @@ public class ChangeBufferFactory extends TaskManagerFactory {
 			ARG_BUFFER_CAPACITY,
 			getDefaultIntegerArgument(taskConfig, DEFAULT_BUFFER_CAPACITY)
 		);
+		try {
+			waitStrategy = Enum.valueOf(
+					DataPostboxWaitStrategy.class,
+					getStringArgument(taskConfig, ARG_WAIT_STRATEGY, DEFAULT_WAIT_STRATEGY));
+		} catch (IllegalArgumentException e) {
+			throw new OsmosisRuntimeException(
+				"Argument " + ARG_WAIT_STRATEGY + " for task " + taskConfig.getId()
+				+ " must be one of Spin, Yield or Park.", e);
+		}
 		
 		return new ChangeSinkRunnableChangeSourceManager(
 			taskConfig.getId(),
-			new ChangeBuffer(bufferCapacity),
+			new ChangeBuffer(bufferCapacity, waitStrategy),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -1,10 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.buffer.v0_6;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxWaitStrategy;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkRunnableSource;
 
@@ -17,7 +22,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.SinkRunnableSource;
  * 
  * @author Brett Henderson
  */
-public class EntityBuffer implements SinkRunnableSource {
+public class EntityBuffer implements SinkRunnableSource, QueueMetricsSource {
 	private Sink sink;
 	private DataPostbox<EntityContainer> buffer;
 	
@@ -29,7 +34,20 @@ public class EntityBuffer implements SinkRunnableSource {
 	 *            The size of the buffer to use.
 	 */
 	public EntityBuffer(int bufferCapacity) {
-		buffer = new DataPostbox<EntityContainer>(bufferCapacity);
+		this(bufferCapacity, DataPostboxWaitStrategy.Park);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param bufferCapacity
+	 *            The size of the buffer to use.
+	 * @param waitStrategy
+	 *            The method used to wait when the buffer is full or empty.
+	 */
+	public EntityBuffer(int bufferCapacity, DataPostboxWaitStrategy waitStrategy) {
+		buffer = new DataPostbox<EntityContainer>(bufferCapacity, waitStrategy);
 	}
 
 
@@ -92,4 +110,13 @@ public class EntityBuffer implements SinkRunnableSource {
 			buffer.outputRelease();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return Collections.<QueueMetrics>singletonList(buffer);
+	}
 }
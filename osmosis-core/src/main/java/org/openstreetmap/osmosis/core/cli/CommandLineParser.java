@@ -27,6 +27,8 @@ public class CommandLineParser {
 	private static final String OPTION_VERBOSE_LONG = "verbose";
 	private static final String OPTION_PLUGIN_SHORT = "p";
 	private static final String OPTION_PLUGIN_LONG = "plugin";
+	private static final String OPTION_METRICS_SHORT = "m";
+	private static final String OPTION_METRICS_LONG = "metrics";
 	
 	
 	/**
@@ -39,6 +41,8 @@ public class CommandLineParser {
 	private int quietValue;
 	private int verboseValue;
 	private List<String> plugins;
+	private boolean metricsEnabled;
+	private String metricsFile;
 	
 	
 	/**
@@ -50,6 +54,7 @@ public class CommandLineParser {
 		quietValue = 0;
 		verboseValue = 0;
 		plugins = new ArrayList<String>();
+		metricsEnabled = false;
 	}
 	
 	
@@ -88,6 +93,9 @@ public class CommandLineParser {
 				verboseValue = parseOptionIntegerWithDefault(globalOption, 0) + 1;
 			} else if (isArgumentForOption(OPTION_PLUGIN_SHORT, OPTION_PLUGIN_LONG, globalOption.name)) {
 				plugins.add(parseOptionString(globalOption));
+			} else if (isArgumentForOption(OPTION_METRICS_SHORT, OPTION_METRICS_LONG, globalOption.name)) {
+				metricsEnabled = true;
+				metricsFile = parseOptionStringWithDefault(globalOption, null);
 			} else {
 				throw new OsmosisRuntimeException("Argument " + (globalOption.offset + 1)
 						+ " specifies an unrecognised option \"" + GLOBAL_ARGUMENT_PREFIX + globalOption.name
@@ -190,6 +198,25 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Parses a command line option into a string. If none is specified, the
+	 * default value will be returned.
+	 * 
+	 * @param globalOption
+	 *            The global option to be parsed.
+	 * @param defaultValue
+	 *            The value to be returned if no parameter is specified.
+	 * @return The string value.
+	 */
+	private String parseOptionStringWithDefault(GlobalOptionConfiguration globalOption, String defaultValue) {
+		if (globalOption.parameters.size() <= 0) {
+			return defaultValue;
+		}
+		
+		return parseOptionString(globalOption);
+	}
+	
+	
 	/**
 	 * Parses the details of a single option.
 	 * 
@@ -355,6 +382,26 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Indicates if pipeline metrics are to be collected.
+	 * 
+	 * @return True if metrics are enabled.
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+	
+	
+	/**
+	 * Returns the file the pipeline metrics are to be written to.
+	 * 
+	 * @return The file name, or null if the metrics are to be logged.
+	 */
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+	
+	
 	/**
 	 * A data storage class holding information relating to a global option
 	 * during parsing.
@@ -1,6 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.container.v0_6;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 
@@ -24,6 +27,30 @@ public interface EntityManager<T extends Entity> {
 	T getEntity(long id);
 	
 	
+	/**
+	 * Retrieves multiple entities by their identifiers. Implementations should
+	 * override this to retrieve all entities in as few operations as possible
+	 * making this preferable to repeated calls to {@link #getEntity(long)}.
+	 * The default implementation retrieves each entity individually.
+	 * 
+	 * @param ids
+	 *            The ids of the entities. Ids of entities that don't exist are
+	 *            ignored.
+	 * @return The entities in the order of the requested ids.
+	 */
+	default List<T> getEntities(long[] ids) {
+		List<T> entities = new ArrayList<T>(ids.length);
+		
+		for (long id : ids) {
+			if (exists(id)) {
+				entities.add(getEntity(id));
+			}
+		}
+		
+		return entities;
+	}
+	
+	
 	/**
 	 * Returns an iterator providing access to all entities in the database.
 	 * 
@@ -0,0 +1,387 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.util.IntAsChar;
+import org.openstreetmap.osmosis.core.util.StringPool;
+
+
+/**
+ * Maintains a collection of tags in a single array of alternating keys and
+ * values. Tag objects are not retained, they are created as the collection is
+ * iterated. All keys and values are passed through the {@link StringPool} so
+ * that entities held in memory share common strings.
+ * <p>
+ * Tags have no equality defined so the contains and remove methods consider
+ * tags with the same key and value to be equal.
+ * </p>
+ */
+public class ArrayTagCollection extends AbstractCollection<Tag> implements TagCollection {
+
+	private static final String[] EMPTY = new String[0];
+
+	private String[] data;
+	private int size;
+	private int modificationCount;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public ArrayTagCollection() {
+		data = EMPTY;
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param tags
+	 *            The initial tags.
+	 */
+	public ArrayTagCollection(Collection<? extends Tag> tags) {
+		if (tags instanceof ArrayTagCollection) {
+			ArrayTagCollection source = (ArrayTagCollection) tags;
+
+			data = Arrays.copyOf(source.data, source.size * 2);
+			size = source.size;
+		} else {
+			data = new String[tags.size() * 2];
+			for (Tag tag : tags) {
+				add(tag.getKey(), tag.getValue());
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 * @param scr
+	 *            Maintains the mapping between classes and their identifiers
+	 *            within the store.
+	 */
+	public ArrayTagCollection(StoreReader sr, StoreClassRegister scr) {
+		int tagCount;
+
+		tagCount = sr.readCharacter();
+		data = new String[tagCount * 2];
+		for (int i = 0; i < tagCount; i++) {
+			add(sr.readString(), sr.readString());
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(StoreWriter sw, StoreClassRegister scr) {
+		sw.writeCharacter(IntAsChar.intToChar(size));
+		for (int i = 0; i < size * 2; i++) {
+			sw.writeString(data[i]);
+		}
+	}
+
+
+	private void add(String key, String value) {
+		if (size * 2 == data.length) {
+			data = Arrays.copyOf(data, Math.max(8, data.length * 2));
+		}
+
+		data[size * 2] = StringPool.intern(key);
+		data[size * 2 + 1] = StringPool.intern(value);
+		size++;
+		modificationCount++;
+	}
+
+
+	private void removeTag(int index) {
+		int remaining = (size - index - 1) * 2;
+
+		if (remaining > 0) {
+			System.arraycopy(data, index * 2 + 2, data, index * 2, remaining);
+		}
+		size--;
+		data[size * 2] = null;
+		data[size * 2 + 1] = null;
+		modificationCount++;
+	}
+
+
+	private int indexOf(Object o) {
+		if (o instanceof Tag) {
+			Tag tag = (Tag) o;
+
+			for (int i = 0; i < size; i++) {
+				if (Objects.equals(tag.getKey(), data[i * 2]) && Objects.equals(tag.getValue(), data[i * 2 + 1])) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+
+	private int indexOfKey(Object key) {
+		// Search backwards so that the last of any duplicate keys is found.
+		for (int i = size - 1; i >= 0; i--) {
+			if (Objects.equals(data[i * 2], key)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(Tag tag) {
+		add(tag.getKey(), tag.getValue());
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+
+		if (index < 0) {
+			return false;
+		}
+
+		removeTag(index);
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(data, 0, size * 2, null);
+		size = 0;
+		modificationCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Tag> iterator() {
+		return new TagIterator();
+	}
+
+
+	/**
+	 * Returns a read-only map view of the tags. No copy of the tags is made,
+	 * lookups search the tag array directly which is efficient for the small
+	 * number of tags held by typical entities. Where keys are duplicated the
+	 * last tag wins. The view reflects subsequent changes to this collection.
+	 *
+	 * @return The tags represented as a map.
+	 */
+	@Override
+	public Map<String, String> buildMap() {
+		return new TagMap();
+	}
+
+
+	/**
+	 * Finds the tags providing map entries, which are the tags not overridden
+	 * by a later tag with the same key.
+	 *
+	 * @return The indexes of the tags in ascending order.
+	 */
+	private int[] findMapEntries() {
+		Set<String> keys = new HashSet<String>(size * 2);
+		int[] indexes = new int[size];
+		int firstIndex = size;
+
+		for (int i = size - 1; i >= 0; i--) {
+			if (keys.add(data[i * 2])) {
+				indexes[--firstIndex] = i;
+			}
+		}
+
+		return Arrays.copyOfRange(indexes, firstIndex, size);
+	}
+
+
+	/**
+	 * Iterates over the tags, creating a tag object for each.
+	 */
+	private class TagIterator implements Iterator<Tag> {
+		private int nextIndex;
+		private int lastIndex = -1;
+		private int expectedModificationCount = modificationCount;
+
+
+		private void checkModification() {
+			if (modificationCount != expectedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < size;
+		}
+
+
+		@Override
+		public Tag next() {
+			checkModification();
+			if (nextIndex >= size) {
+				throw new NoSuchElementException();
+			}
+
+			lastIndex = nextIndex++;
+
+			return new Tag(data[lastIndex * 2], data[lastIndex * 2 + 1]);
+		}
+
+
+		@Override
+		public void remove() {
+			checkModification();
+			if (lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+
+			removeTag(lastIndex);
+			nextIndex = lastIndex;
+			lastIndex = -1;
+			expectedModificationCount = modificationCount;
+		}
+	}
+
+
+	/**
+	 * A read-only map view of the tag array.
+	 */
+	private class TagMap extends AbstractMap<String, String> {
+
+		@Override
+		public String get(Object key) {
+			int index = indexOfKey(key);
+
+			if (index < 0) {
+				return null;
+			}
+
+			return data[index * 2 + 1];
+		}
+
+
+		@Override
+		public boolean containsKey(Object key) {
+			return indexOfKey(key) >= 0;
+		}
+
+
+		@Override
+		public int size() {
+			return findMapEntries().length;
+		}
+
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new EntryIterator();
+				}
+
+
+				@Override
+				public int size() {
+					return TagMap.this.size();
+				}
+			};
+		}
+	}
+
+
+	/**
+	 * Iterates over the tags that provide map entries, skipping tags whose key
+	 * is repeated later in the array.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+		private int[] entryIndexes = findMapEntries();
+		private int nextEntry;
+		private int expectedModificationCount = modificationCount;
+
+
+		@Override
+		public boolean hasNext() {
+			return nextEntry < entryIndexes.length;
+		}
+
+
+		@Override
+		public Map.Entry<String, String> next() {
+			Map.Entry<String, String> entry;
+
+			if (modificationCount != expectedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (nextEntry >= entryIndexes.length) {
+				throw new NoSuchElementException();
+			}
+
+			int index = entryIndexes[nextEntry++];
+			entry = new AbstractMap.SimpleImmutableEntry<String, String>(data[index * 2], data[index * 2 + 1]);
+
+			return entry;
+		}
+	}
+}
@@ -75,7 +75,7 @@ public class CommonEntityData implements Storeable {
 	public CommonEntityData(
 			long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId) {
 		init(id, timestampContainer, user, version, changesetId);
-		tags = new TagCollectionImpl();
+		tags = new ArrayTagCollection();
 		metaTags = new LazyHashMap<String, Object>();
 	}
 	
@@ -123,7 +123,7 @@ public class CommonEntityData implements Storeable {
 	public CommonEntityData(long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId,
 			Collection<Tag> tags) {
 		init(id, timestampContainer, user, version, changesetId);
-		this.tags = new TagCollectionImpl(tags);
+		this.tags = new ArrayTagCollection(tags);
 		metaTags = new LazyHashMap<String, Object>();
 	}
 
@@ -154,7 +154,7 @@ public class CommonEntityData implements Storeable {
 	
 	private static TimestampContainer readTimestampContainer(StoreReader sr, StoreClassRegister scr) {
 		if (sr.readBoolean()) {
-			return new SimpleTimestampContainer(new Date(sr.readLong()));
+			return new SimpleTimestampContainer(new Date(sr.readDeltaLong(StoreChannel.TIMESTAMP)));
 		} else {
 			return null;
 		}
@@ -190,12 +190,12 @@ public class CommonEntityData implements Storeable {
 	 */
 	public CommonEntityData(StoreReader sr, StoreClassRegister scr) {
 		this(
-			sr.readLong(),
+			sr.readDeltaLong(StoreChannel.ENTITY_ID),
 			sr.readInteger(),
 			readTimestampContainer(sr, scr),
 			readOsmUser(sr, scr),
 			sr.readInteger(),
-			new TagCollectionImpl(sr, scr)
+			new ArrayTagCollection(sr, scr)
 		);
 		
 		int metaTagCount;
@@ -212,13 +212,13 @@ public class CommonEntityData implements Storeable {
 	 * {@inheritDoc}
 	 */
 	public void store(StoreWriter sw, StoreClassRegister scr) {
-		sw.writeLong(id);
+		sw.writeDeltaLong(StoreChannel.ENTITY_ID, id);
 		
 		sw.writeInteger(version);
 		
 		if (getTimestamp() != null) {
 			sw.writeBoolean(true);
-			sw.writeLong(timestampContainer.getTimestamp().getTime());
+			sw.writeDeltaLong(StoreChannel.TIMESTAMP, timestampContainer.getTimestamp().getTime());
 		} else {
 			sw.writeBoolean(false);
 		}
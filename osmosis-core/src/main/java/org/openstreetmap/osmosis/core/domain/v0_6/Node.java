@@ -188,8 +188,10 @@ public class Node extends Entity implements Comparable<Node> {
 	public Node(StoreReader sr, StoreClassRegister scr) {
 		super(sr, scr);
 
-		this.latitude = FixedPrecisionCoordinateConvertor.convertToDouble(sr.readInteger());
-		this.longitude = FixedPrecisionCoordinateConvertor.convertToDouble(sr.readInteger());
+		this.latitude = FixedPrecisionCoordinateConvertor.convertToDouble(
+				sr.readDeltaInteger(StoreChannel.LATITUDE));
+		this.longitude = FixedPrecisionCoordinateConvertor.convertToDouble(
+				sr.readDeltaInteger(StoreChannel.LONGITUDE));
 	}
 
 
@@ -200,8 +202,8 @@ public class Node extends Entity implements Comparable<Node> {
 	public void store(StoreWriter sw, StoreClassRegister scr) {
 		super.store(sw, scr);
 
-		sw.writeInteger(FixedPrecisionCoordinateConvertor.convertToFixed(latitude));
-		sw.writeInteger(FixedPrecisionCoordinateConvertor.convertToFixed(longitude));
+		sw.writeDeltaInteger(StoreChannel.LATITUDE, FixedPrecisionCoordinateConvertor.convertToFixed(latitude));
+		sw.writeDeltaInteger(StoreChannel.LONGITUDE, FixedPrecisionCoordinateConvertor.convertToFixed(longitude));
 	}
 
 
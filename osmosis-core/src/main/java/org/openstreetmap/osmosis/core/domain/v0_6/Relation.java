@@ -1,9 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -21,7 +19,7 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  * @author Brett Henderson
  */
 public class Relation extends Entity implements Comparable<Relation> {
-	private List<RelationMember> members;
+	private RelationMemberList members;
 	
 	
 	/**
@@ -64,7 +62,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId) {
 		super(id, version, timestampContainer, user, changesetId);
 		
-		this.members = new ArrayList<RelationMember>();
+		this.members = new RelationMemberList();
 	}
 	
 	
@@ -77,7 +75,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(CommonEntityData entityData) {
 		super(entityData);
 		
-		this.members = new ArrayList<RelationMember>();
+		this.members = new RelationMemberList();
 	}
 	
 	
@@ -133,7 +131,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 			Collection<Tag> tags, List<RelationMember> members) {
 		super(id, version, timestampContainer, user, changesetId, tags);
 		
-		this.members = new ArrayList<RelationMember>(members);
+		this.members = new RelationMemberList(members);
 	}
 	
 	
@@ -149,7 +147,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 			CommonEntityData entityData, List<RelationMember> members) {
 		super(entityData);
 		
-		this.members = new ArrayList<RelationMember>(members);
+		this.members = new RelationMemberList(members);
 	}
 	
 	
@@ -162,7 +160,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	private Relation(Relation originalRelation) {
 		super(originalRelation);
 		
-		this.members = new ArrayList<RelationMember>(originalRelation.members);
+		this.members = new RelationMemberList(originalRelation.members);
 	}
 	
 	
@@ -178,14 +176,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(StoreReader sr, StoreClassRegister scr) {
 		super(sr, scr);
 		
-		int featureCount;
-		
-		featureCount = sr.readInteger();
-		
-		members = new ArrayList<RelationMember>();
-		for (int i = 0; i < featureCount; i++) {
-			members.add(new RelationMember(sr, scr));
-		}
+		members = new RelationMemberList(sr, scr);
 	}
 	
 	
@@ -196,10 +187,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public void store(StoreWriter sw, StoreClassRegister scr) {
 		super.store(sw, scr);
 		
-		sw.writeInteger(members.size());
-		for (RelationMember relationMember : members) {
-			relationMember.store(sw, scr);
-		}
+		members.store(sw, scr);
 	}
 	
 	
@@ -336,7 +324,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	@Override
 	public void makeReadOnly() {
 		if (!isReadOnly()) {
-			members = Collections.unmodifiableList(members);
+			members.makeReadOnly();
 		}
 		
 		super.makeReadOnly();
@@ -366,6 +354,54 @@ public class Relation extends Entity implements Comparable<Relation> {
 		return members;
 	}
 
+
+	/**
+	 * Returns the number of members. Along with the other member accessors
+	 * this allows the members to be processed without creating RelationMember
+	 * objects.
+	 * 
+	 * @return The number of members.
+	 */
+	public int getMemberCount() {
+		return members.size();
+	}
+
+
+	/**
+	 * Returns the id of the member at the specified position.
+	 * 
+	 * @param index
+	 *            The position of the member.
+	 * @return The member id.
+	 */
+	public long getMemberId(int index) {
+		return members.getMemberId(index);
+	}
+
+
+	/**
+	 * Returns the type of the member at the specified position.
+	 * 
+	 * @param index
+	 *            The position of the member.
+	 * @return The member type.
+	 */
+	public EntityType getMemberType(int index) {
+		return members.getMemberType(index);
+	}
+
+
+	/**
+	 * Returns the role of the member at the specified position.
+	 * 
+	 * @param index
+	 *            The position of the member.
+	 * @return The member role.
+	 */
+	public String getMemberRole(int index) {
+		return members.getMemberRole(index);
+	}
+
     /** 
      * ${@inheritDoc}.
      */
@@ -53,7 +53,7 @@ public class RelationMember implements Comparable<RelationMember>, Storeable {
 	 */
 	public RelationMember(StoreReader sr, StoreClassRegister scr) {
 		this(
-			sr.readLong(),
+			sr.readDeltaLong(StoreChannel.MEMBER_ID),
 			EntityType.valueOf(sr.readString()),
 			sr.readString()
 		);
@@ -64,7 +64,7 @@ public class RelationMember implements Comparable<RelationMember>, Storeable {
 	 * {@inheritDoc}
 	 */
 	public void store(StoreWriter sw, StoreClassRegister scr) {
-		sw.writeLong(memberId);
+		sw.writeDeltaLong(StoreChannel.MEMBER_ID, memberId);
 		sw.writeString(memberType.toString());
 		sw.writeString(memberRole);
 	}
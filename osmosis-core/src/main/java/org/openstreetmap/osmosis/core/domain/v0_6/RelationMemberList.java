@@ -0,0 +1,352 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.Storeable;
+import org.openstreetmap.osmosis.core.util.StringPool;
+
+
+/**
+ * Maintains the members of a relation in packed arrays. Member ids, types and
+ * roles are held in parallel arrays with each role stored as an index into a
+ * table of the distinct roles used by the relation. RelationMember objects are
+ * not retained, they are created as the list is accessed. Code processing large
+ * numbers of relations should use the {@link #getMemberId(int)},
+ * {@link #getMemberType(int)} and {@link #getMemberRole(int)} methods to avoid
+ * creating them at all.
+ */
+public class RelationMemberList extends AbstractList<RelationMember> implements RandomAccess, Storeable {
+
+	private static final EntityType[] ENTITY_TYPES = EntityType.values();
+	private static final long[] EMPTY_IDS = new long[0];
+	private static final byte[] EMPTY_TYPES = new byte[0];
+	private static final int[] EMPTY_ROLE_INDEXES = new int[0];
+	private static final String[] EMPTY_ROLES = new String[0];
+
+	private long[] memberIds;
+	private byte[] memberTypes;
+	private int[] roleIndexes;
+	private String[] roles;
+	private int roleCount;
+	private int size;
+	private boolean readOnly;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public RelationMemberList() {
+		memberIds = EMPTY_IDS;
+		memberTypes = EMPTY_TYPES;
+		roleIndexes = EMPTY_ROLE_INDEXES;
+		roles = EMPTY_ROLES;
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param members
+	 *            The initial members.
+	 */
+	public RelationMemberList(Collection<RelationMember> members) {
+		if (members instanceof RelationMemberList) {
+			RelationMemberList source = (RelationMemberList) members;
+
+			memberIds = Arrays.copyOf(source.memberIds, source.size);
+			memberTypes = Arrays.copyOf(source.memberTypes, source.size);
+			roleIndexes = Arrays.copyOf(source.roleIndexes, source.size);
+			roles = Arrays.copyOf(source.roles, source.roleCount);
+			roleCount = source.roleCount;
+			size = source.size;
+		} else {
+			int count = members.size();
+
+			memberIds = new long[count];
+			memberTypes = new byte[count];
+			roleIndexes = new int[count];
+			roles = EMPTY_ROLES;
+			for (RelationMember member : members) {
+				add(member.getMemberId(), member.getMemberType(), member.getMemberRole());
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 * @param scr
+	 *            Maintains the mapping between classes and their identifiers
+	 *            within the store.
+	 */
+	public RelationMemberList(StoreReader sr, StoreClassRegister scr) {
+		int featureCount;
+
+		featureCount = sr.readInteger();
+
+		memberIds = new long[featureCount];
+		memberTypes = new byte[featureCount];
+		roleIndexes = new int[featureCount];
+		roles = EMPTY_ROLES;
+		for (int i = 0; i < featureCount; i++) {
+			long memberId = sr.readDeltaLong(StoreChannel.MEMBER_ID);
+			EntityType memberType = EntityType.valueOf(sr.readString());
+			String memberRole = sr.readString();
+
+			add(memberId, memberType, memberRole);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(StoreWriter sw, StoreClassRegister scr) {
+		// This must remain consistent with the RelationMember store format.
+		sw.writeInteger(size);
+		for (int i = 0; i < size; i++) {
+			sw.writeDeltaLong(StoreChannel.MEMBER_ID, memberIds[i]);
+			sw.writeString(ENTITY_TYPES[memberTypes[i]].toString());
+			sw.writeString(roles[roleIndexes[i]]);
+		}
+	}
+
+
+	private void checkWriteable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("The relation member list is read-only.");
+		}
+	}
+
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+
+	private int getRoleIndex(String memberRole) {
+		if (memberRole == null) {
+			throw new IllegalArgumentException("null role given for relation-member");
+		}
+
+		// Relations typically use only a handful of distinct roles.
+		for (int i = 0; i < roleCount; i++) {
+			if (roles[i].equals(memberRole)) {
+				return i;
+			}
+		}
+
+		if (roleCount == roles.length) {
+			roles = Arrays.copyOf(roles, Math.max(4, roleCount * 2));
+		}
+		roles[roleCount] = StringPool.intern(memberRole);
+
+		return roleCount++;
+	}
+
+
+	private void add(long memberId, EntityType memberType, String memberRole) {
+		if (memberType == null) {
+			throw new IllegalArgumentException("null type given for relation-member");
+		}
+
+		if (size == memberIds.length) {
+			int capacity = Math.max(8, size * 2);
+
+			memberIds = Arrays.copyOf(memberIds, capacity);
+			memberTypes = Arrays.copyOf(memberTypes, capacity);
+			roleIndexes = Arrays.copyOf(roleIndexes, capacity);
+		}
+
+		memberIds[size] = memberId;
+		memberTypes[size] = (byte) memberType.ordinal();
+		roleIndexes[size] = getRoleIndex(memberRole);
+		size++;
+		modCount++;
+	}
+
+
+	/**
+	 * Adds a member to the end of the list.
+	 *
+	 * @param memberId
+	 *            The id of the entity that this member consists of.
+	 * @param memberType
+	 *            The type of the entity that this member consists of.
+	 * @param memberRole
+	 *            The role that this member forms within the relation.
+	 */
+	public void addMember(long memberId, EntityType memberType, String memberRole) {
+		checkWriteable();
+		add(memberId, memberType, memberRole);
+	}
+
+
+	/**
+	 * Returns the id of the member at the specified position without creating
+	 * a relation member.
+	 *
+	 * @param index
+	 *            The position of the member.
+	 * @return The member id.
+	 */
+	public long getMemberId(int index) {
+		checkIndex(index);
+
+		return memberIds[index];
+	}
+
+
+	/**
+	 * Returns the type of the member at the specified position without
+	 * creating a relation member.
+	 *
+	 * @param index
+	 *            The position of the member.
+	 * @return The member type.
+	 */
+	public EntityType getMemberType(int index) {
+		checkIndex(index);
+
+		return ENTITY_TYPES[memberTypes[index]];
+	}
+
+
+	/**
+	 * Returns the role of the member at the specified position without
+	 * creating a relation member.
+	 *
+	 * @param index
+	 *            The position of the member.
+	 * @return The member role.
+	 */
+	public String getMemberRole(int index) {
+		checkIndex(index);
+
+		return roles[roleIndexes[index]];
+	}
+
+
+	/**
+	 * Prevents any further changes to the list.
+	 */
+	public void makeReadOnly() {
+		readOnly = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember get(int index) {
+		checkIndex(index);
+
+		return new RelationMember(memberIds[index], ENTITY_TYPES[memberTypes[index]], roles[roleIndexes[index]]);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember set(int index, RelationMember member) {
+		RelationMember previous;
+
+		checkWriteable();
+		previous = get(index);
+
+		memberIds[index] = member.getMemberId();
+		memberTypes[index] = (byte) member.getMemberType().ordinal();
+		roleIndexes[index] = getRoleIndex(member.getMemberRole());
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, RelationMember member) {
+		checkWriteable();
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		add(member.getMemberId(), member.getMemberType(), member.getMemberRole());
+
+		if (index < size - 1) {
+			int last = size - 1;
+			long memberId = memberIds[last];
+			byte memberType = memberTypes[last];
+			int roleIndex = roleIndexes[last];
+
+			System.arraycopy(memberIds, index, memberIds, index + 1, last - index);
+			System.arraycopy(memberTypes, index, memberTypes, index + 1, last - index);
+			System.arraycopy(roleIndexes, index, roleIndexes, index + 1, last - index);
+			memberIds[index] = memberId;
+			memberTypes[index] = memberType;
+			roleIndexes[index] = roleIndex;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember remove(int index) {
+		RelationMember previous;
+		int remaining;
+
+		checkWriteable();
+		previous = get(index);
+
+		// Any role no longer used is left in the role table, there are rarely
+		// more than a few.
+		remaining = size - index - 1;
+		System.arraycopy(memberIds, index + 1, memberIds, index, remaining);
+		System.arraycopy(memberTypes, index + 1, memberTypes, index, remaining);
+		System.arraycopy(roleIndexes, index + 1, roleIndexes, index, remaining);
+		size--;
+		modCount++;
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		checkWriteable();
+		size = 0;
+		Arrays.fill(roles, 0, roleCount, null);
+		roleCount = 0;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,48 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+
+/**
+ * Defines the store delta channels used by the domain classes. Values written
+ * to the same channel are typically close together in sorted data allowing
+ * them to be stored as small differences.
+ */
+final class StoreChannel {
+	
+	/**
+	 * The entity identifier.
+	 */
+	static final int ENTITY_ID = 0;
+	
+	/**
+	 * The entity timestamp in milliseconds.
+	 */
+	static final int TIMESTAMP = 1;
+	
+	/**
+	 * The fixed precision node latitude.
+	 */
+	static final int LATITUDE = 2;
+	
+	/**
+	 * The fixed precision node longitude.
+	 */
+	static final int LONGITUDE = 3;
+	
+	/**
+	 * The node identifier referenced by a way node.
+	 */
+	static final int WAY_NODE_ID = 4;
+	
+	/**
+	 * The entity identifier referenced by a relation member.
+	 */
+	static final int MEMBER_ID = 5;
+	
+	
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private StoreChannel() {
+	}
+}
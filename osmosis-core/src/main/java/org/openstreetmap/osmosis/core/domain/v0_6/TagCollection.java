@@ -14,7 +14,9 @@ import org.openstreetmap.osmosis.core.store.Storeable;
  */
 public interface TagCollection extends Collection<Tag>, Storeable {
 	/**
-	 * Creates a map representation of the tags.
+	 * Creates a map representation of the tags. Where keys are duplicated the
+	 * last tag wins. The map may be a read-only view of the tags and must not
+	 * be modified, callers requiring a modifiable map must copy it.
 	 * 
 	 * @return The tags represented as a map.
 	 */
@@ -1,9 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -22,7 +20,7 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  */
 public class Way extends Entity implements Comparable<Way> {
 
-	private List<WayNode> wayNodes;
+	private WayNodeList wayNodes;
 	
 	
 	/**
@@ -65,7 +63,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId) {
 		super(id, version, timestampContainer, user, changesetId);
 		
-		this.wayNodes = new ArrayList<WayNode>();
+		this.wayNodes = new WayNodeList();
 	}
 	
 	
@@ -78,7 +76,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(CommonEntityData entityData) {
 		super(entityData);
 		
-		this.wayNodes = new ArrayList<WayNode>();
+		this.wayNodes = new WayNodeList();
 	}
 	
 	
@@ -133,7 +131,7 @@ public class Way extends Entity implements Comparable<Way> {
 			Collection<Tag> tags, List<WayNode> wayNodes) {
 		super(id, version, timestampContainer, user, changesetId, tags);
 		
-		this.wayNodes = new ArrayList<WayNode>(wayNodes);
+		this.wayNodes = new WayNodeList(wayNodes);
 	}
 	
 	
@@ -149,7 +147,22 @@ public class Way extends Entity implements Comparable<Way> {
 			CommonEntityData entityData, List<WayNode> wayNodes) {
 		super(entityData);
 		
-		this.wayNodes = new ArrayList<WayNode>(wayNodes);
+		this.wayNodes = new WayNodeList(wayNodes);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param entityData
+	 *            The common entity data.
+	 * @param wayNodeIds
+	 *            The ids of the nodes making up the way.
+	 */
+	public Way(CommonEntityData entityData, long[] wayNodeIds) {
+		super(entityData);
+		
+		this.wayNodes = new WayNodeList(wayNodeIds);
 	}
 	
 	
@@ -162,7 +175,7 @@ public class Way extends Entity implements Comparable<Way> {
 	private Way(Way originalWay) {
 		super(originalWay);
 		
-		this.wayNodes = new ArrayList<WayNode>(originalWay.wayNodes);
+		this.wayNodes = new WayNodeList(originalWay.wayNodes);
 	}
 	
 	
@@ -178,14 +191,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(StoreReader sr, StoreClassRegister scr) {
 		super(sr, scr);
 		
-		int featureCount;
-		
-		featureCount = sr.readInteger();
-		
-		wayNodes = new ArrayList<WayNode>();
-		for (int i = 0; i < featureCount; i++) {
-			wayNodes.add(new WayNode(sr, scr));
-		}
+		wayNodes = new WayNodeList(sr, scr);
 	}
 	
 	
@@ -196,10 +202,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public void store(StoreWriter sw, StoreClassRegister scr) {
 		super.store(sw, scr);
 		
-		sw.writeInteger(wayNodes.size());
-		for (WayNode wayNode : wayNodes) {
-			wayNode.store(sw, scr);
-		}
+		wayNodes.store(sw, scr);
 	}
 	
 	
@@ -258,6 +261,21 @@ public class Way extends Entity implements Comparable<Way> {
 			return wayNodes.size() - comparisonWayNodes.size();
 		}
 		
+		// Compare the packed node ids directly where possible.
+		if (comparisonWayNodes instanceof WayNodeList) {
+			WayNodeList comparisonList = (WayNodeList) comparisonWayNodes;
+			
+			for (int index = 0; index < wayNodes.size(); index++) {
+				int result = Long.compare(wayNodes.getNodeId(index), comparisonList.getNodeId(index));
+				
+				if (result != 0) {
+					return result;
+				}
+			}
+			
+			return 0;
+		}
+		
 		// Check the individual way nodes.
 		i = wayNodes.iterator();
 		j = comparisonWayNodes.iterator();
@@ -334,7 +352,7 @@ public class Way extends Entity implements Comparable<Way> {
 	@Override
 	public void makeReadOnly() {
 		if (!isReadOnly()) {
-			wayNodes = Collections.unmodifiableList(wayNodes);
+			wayNodes.makeReadOnly();
 		}
 		
 		super.makeReadOnly();
@@ -351,6 +369,30 @@ public class Way extends Entity implements Comparable<Way> {
 	}
 
 
+	/**
+	 * Returns the number of way nodes. Along with {@link #getWayNodeId(int)}
+	 * this allows the way nodes to be processed without creating WayNode
+	 * objects.
+	 * 
+	 * @return The number of way nodes.
+	 */
+	public int getWayNodeCount() {
+		return wayNodes.size();
+	}
+
+
+	/**
+	 * Returns the id of the node at the specified position in the way.
+	 * 
+	 * @param index
+	 *            The position of the way node.
+	 * @return The node id.
+	 */
+	public long getWayNodeId(int index) {
+		return wayNodes.getNodeId(index);
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -370,7 +412,7 @@ public class Way extends Entity implements Comparable<Way> {
      * @return True or false
      */
     public boolean isClosed() {
-        return wayNodes.get(0).getNodeId() == wayNodes.get(wayNodes.size() - 1).getNodeId();
+        return wayNodes.getNodeId(0) == wayNodes.getNodeId(wayNodes.size() - 1);
     }
 
     /** 
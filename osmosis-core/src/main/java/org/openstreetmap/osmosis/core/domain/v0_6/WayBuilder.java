@@ -1,7 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -20,7 +19,7 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  */
 @Deprecated
 public class WayBuilder extends EntityBuilder<Way> {
-	private List<WayNode> wayNodes;
+	private WayNodeList wayNodes;
 	
 	
 	/**
@@ -29,7 +28,7 @@ public class WayBuilder extends EntityBuilder<Way> {
 	public WayBuilder() {
 		super();
 		
-		wayNodes = new ArrayList<WayNode>();
+		wayNodes = new WayNodeList();
 	}
 	
 	
@@ -239,6 +238,37 @@ public class WayBuilder extends EntityBuilder<Way> {
 	}
 	
 	
+	/**
+	 * Sets new way nodes from their node ids.
+	 * 
+	 * @param newWayNodeIds
+	 *            The ids of the nodes making up the way.
+	 * @return This object allowing method chaining.
+	 */
+	public WayBuilder setWayNodeIds(long[] newWayNodeIds) {
+		wayNodes.clear();
+		for (long wayNodeId : newWayNodeIds) {
+			wayNodes.addNodeId(wayNodeId);
+		}
+		
+		return this;
+	}
+	
+	
+	/**
+	 * Adds a new way node without creating a WayNode object.
+	 * 
+	 * @param wayNodeId
+	 *            The id of the node being referred to.
+	 * @return This object allowing method chaining.
+	 */
+	public WayBuilder addWayNode(long wayNodeId) {
+		wayNodes.addNodeId(wayNodeId);
+		
+		return this;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -60,7 +60,7 @@ public class WayNode implements Comparable<WayNode>, Storeable {
 	 *            within the store.
 	 */
 	public WayNode(StoreReader sr, StoreClassRegister scr) {
-		this(sr.readLong(), sr.readDouble(), sr.readDouble());
+		this(sr.readDeltaLong(StoreChannel.WAY_NODE_ID), sr.readDouble(), sr.readDouble());
 	}
 	
 	
@@ -68,7 +68,7 @@ public class WayNode implements Comparable<WayNode>, Storeable {
 	 * {@inheritDoc}
 	 */
 	public void store(StoreWriter sw, StoreClassRegister scr) {
-		sw.writeLong(nodeId);
+		sw.writeDeltaLong(StoreChannel.WAY_NODE_ID, nodeId);
 		sw.writeDouble(latitude);
 		sw.writeDouble(longitude);
 	}
@@ -0,0 +1,339 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.Storeable;
+
+
+/**
+ * Maintains the way nodes of a way in packed arrays. Node ids are held in a
+ * single long array and node locations are only allocated once a way node
+ * with a location is added. WayNode objects are not retained, they are created
+ * as the list is accessed. Code processing large numbers of ways should use the
+ * {@link #getNodeId(int)} method to avoid creating them at all.
+ */
+public class WayNodeList extends AbstractList<WayNode> implements RandomAccess, Storeable {
+
+	private static final long[] EMPTY = new long[0];
+
+	private long[] nodeIds;
+	private double[] locations;
+	private int size;
+	private boolean readOnly;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public WayNodeList() {
+		nodeIds = EMPTY;
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param wayNodes
+	 *            The initial way nodes.
+	 */
+	public WayNodeList(Collection<WayNode> wayNodes) {
+		if (wayNodes instanceof WayNodeList) {
+			WayNodeList source = (WayNodeList) wayNodes;
+
+			nodeIds = Arrays.copyOf(source.nodeIds, source.size);
+			if (source.locations != null) {
+				locations = Arrays.copyOf(source.locations, source.size * 2);
+			}
+			size = source.size;
+		} else {
+			nodeIds = new long[wayNodes.size()];
+			for (WayNode wayNode : wayNodes) {
+				add(size, wayNode);
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param nodeIds
+	 *            The ids of the nodes making up the way. The array is copied.
+	 */
+	public WayNodeList(long[] nodeIds) {
+		this.nodeIds = Arrays.copyOf(nodeIds, nodeIds.length);
+		size = nodeIds.length;
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 * @param scr
+	 *            Maintains the mapping between classes and their identifiers
+	 *            within the store.
+	 */
+	public WayNodeList(StoreReader sr, StoreClassRegister scr) {
+		int featureCount;
+
+		featureCount = sr.readInteger();
+
+		nodeIds = new long[featureCount];
+		for (int i = 0; i < featureCount; i++) {
+			long nodeId = sr.readDeltaLong(StoreChannel.WAY_NODE_ID);
+			double latitude = sr.readDouble();
+			double longitude = sr.readDouble();
+
+			add(nodeId, latitude, longitude);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(StoreWriter sw, StoreClassRegister scr) {
+		// This must remain consistent with the WayNode store format.
+		sw.writeInteger(size);
+		for (int i = 0; i < size; i++) {
+			sw.writeDeltaLong(StoreChannel.WAY_NODE_ID, nodeIds[i]);
+			sw.writeDouble(getLatitude(i));
+			sw.writeDouble(getLongitude(i));
+		}
+	}
+
+
+	private void checkWriteable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("The way node list is read-only.");
+		}
+	}
+
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+
+	private void add(long nodeId, double latitude, double longitude) {
+		if (size == nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, Math.max(8, size * 2));
+		}
+		if (locations == null && (latitude != 0 || longitude != 0)) {
+			locations = new double[nodeIds.length * 2];
+		}
+		if (locations != null && locations.length < nodeIds.length * 2) {
+			locations = Arrays.copyOf(locations, nodeIds.length * 2);
+		}
+
+		nodeIds[size] = nodeId;
+		if (locations != null) {
+			locations[size * 2] = latitude;
+			locations[size * 2 + 1] = longitude;
+		}
+		size++;
+		modCount++;
+	}
+
+
+	/**
+	 * Adds a way node without a location to the end of the list.
+	 *
+	 * @param nodeId
+	 *            The id of the node being referred to.
+	 */
+	public void addNodeId(long nodeId) {
+		checkWriteable();
+		add(nodeId, 0, 0);
+	}
+
+
+	/**
+	 * Returns the id of the node at the specified position without creating a
+	 * way node.
+	 *
+	 * @param index
+	 *            The position of the way node.
+	 * @return The node id.
+	 */
+	public long getNodeId(int index) {
+		checkIndex(index);
+
+		return nodeIds[index];
+	}
+
+
+	/**
+	 * Returns the latitude of the node at the specified position.
+	 *
+	 * @param index
+	 *            The position of the way node.
+	 * @return The latitude, or 0 if no location is available.
+	 */
+	public double getLatitude(int index) {
+		checkIndex(index);
+
+		if (locations == null) {
+			return 0;
+		}
+
+		return locations[index * 2];
+	}
+
+
+	/**
+	 * Returns the longitude of the node at the specified position.
+	 *
+	 * @param index
+	 *            The position of the way node.
+	 * @return The longitude, or 0 if no location is available.
+	 */
+	public double getLongitude(int index) {
+		checkIndex(index);
+
+		if (locations == null) {
+			return 0;
+		}
+
+		return locations[index * 2 + 1];
+	}
+
+
+	/**
+	 * Returns a copy of the node ids in this list.
+	 *
+	 * @return The node ids.
+	 */
+	public long[] toNodeIdArray() {
+		return Arrays.copyOf(nodeIds, size);
+	}
+
+
+	/**
+	 * Prevents any further changes to the list.
+	 */
+	public void makeReadOnly() {
+		readOnly = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode get(int index) {
+		checkIndex(index);
+
+		if (locations == null) {
+			return new WayNode(nodeIds[index]);
+		}
+
+		return new WayNode(nodeIds[index], locations[index * 2], locations[index * 2 + 1]);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode set(int index, WayNode wayNode) {
+		WayNode previous;
+
+		checkWriteable();
+		previous = get(index);
+
+		nodeIds[index] = wayNode.getNodeId();
+		if (locations == null && (wayNode.getLatitude() != 0 || wayNode.getLongitude() != 0)) {
+			locations = new double[nodeIds.length * 2];
+		}
+		if (locations != null) {
+			locations[index * 2] = wayNode.getLatitude();
+			locations[index * 2 + 1] = wayNode.getLongitude();
+		}
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, WayNode wayNode) {
+		checkWriteable();
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		add(wayNode.getNodeId(), wayNode.getLatitude(), wayNode.getLongitude());
+
+		if (index < size - 1) {
+			long nodeId = nodeIds[size - 1];
+
+			System.arraycopy(nodeIds, index, nodeIds, index + 1, size - 1 - index);
+			nodeIds[index] = nodeId;
+			if (locations != null) {
+				double latitude = locations[(size - 1) * 2];
+				double longitude = locations[(size - 1) * 2 + 1];
+
+				System.arraycopy(locations, index * 2, locations, index * 2 + 2, (size - 1 - index) * 2);
+				locations[index * 2] = latitude;
+				locations[index * 2 + 1] = longitude;
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode remove(int index) {
+		WayNode previous;
+
+		checkWriteable();
+		previous = get(index);
+
+		System.arraycopy(nodeIds, index + 1, nodeIds, index, size - index - 1);
+		if (locations != null) {
+			System.arraycopy(locations, index * 2 + 2, locations, index * 2, (size - index - 1) * 2);
+		}
+		size--;
+		modCount++;
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		checkWriteable();
+		size = 0;
+		locations = null;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+}
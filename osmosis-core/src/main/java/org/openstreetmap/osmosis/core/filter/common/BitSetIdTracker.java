@@ -2,8 +2,8 @@
 package org.openstreetmap.osmosis.core.filter.common;
 
 import java.util.BitSet;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import org.openstreetmap.osmosis.core.util.LongAsInt;
 
@@ -79,7 +79,7 @@ public class BitSetIdTracker implements IdTracker {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<Long> iterator() {
+	public PrimitiveIterator.OfLong iterator() {
 		return new IdIterator();
 	}
 	
@@ -89,8 +89,8 @@ public class BitSetIdTracker implements IdTracker {
 	 */
 	@Override
 	public void setAll(IdTracker idTracker) {
-		for (Long id : idTracker) {
-			set(id);
+		for (PrimitiveIterator.OfLong i = idTracker.iterator(); i.hasNext();) {
+			set(i.nextLong());
 		}
 	}
 	
@@ -100,7 +100,7 @@ public class BitSetIdTracker implements IdTracker {
 	 * 
 	 * @author Brett Henderson
 	 */
-	private class IdIterator implements Iterator<Long> {
+	private class IdIterator implements PrimitiveIterator.OfLong {
 		
 		/**
 		 * Tracks whether we're currently reading positive or negative bitsets.
@@ -108,7 +108,7 @@ public class BitSetIdTracker implements IdTracker {
 		private boolean readingPositive;
 		private long nextId;
 		private boolean nextIdAvailable;
-		private Iterator<Long> negativeIterator;
+		private PrimitiveIterator.OfLong negativeIterator;
 		/**
 		 * The current bit offset in the positive bitset.
 		 */
@@ -141,7 +141,7 @@ public class BitSetIdTracker implements IdTracker {
 					// Get data from the negative iterator if available, if not
 					// available switch to positive reading.
 					if (negativeIterator.hasNext()) {
-						nextId = negativeIterator.next();
+						nextId = negativeIterator.nextLong();
 						nextIdAvailable = true;
 					} else {
 						negativeIterator = null;
@@ -170,7 +170,7 @@ public class BitSetIdTracker implements IdTracker {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public Long next() {
+		public long nextLong() {
 			if (!hasNext()) {
 				throw new NoSuchElementException();
 			}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 
 /**
@@ -175,8 +176,8 @@ public class DynamicIdTracker implements IdTracker {
 	 */
 	@Override
 	public void setAll(IdTracker idTracker) {
-		for (Long id : idTracker) {
-			set(id);
+		for (PrimitiveIterator.OfLong i = idTracker.iterator(); i.hasNext();) {
+			set(i.nextLong());
 		}
 	}
 
@@ -185,14 +186,14 @@ public class DynamicIdTracker implements IdTracker {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<Long> iterator() {
+	public PrimitiveIterator.OfLong iterator() {
 		return new SegmentIdIterator(segments.iterator());
 	}
 	
 	
-	private static class SegmentIdIterator implements Iterator<Long> {
+	private static class SegmentIdIterator implements PrimitiveIterator.OfLong {
 		private Iterator<DynamicIdTrackerSegment> segments;
-		private Iterator<Long> currentSegmentIds;
+		private PrimitiveIterator.OfLong currentSegmentIds;
 		private long currentSegmentBase;
 		
 		
@@ -237,9 +238,9 @@ public class DynamicIdTracker implements IdTracker {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public Long next() {
+		public long nextLong() {
 			if (hasNext()) {
-				return currentSegmentIds.next() + currentSegmentBase;
+				return currentSegmentIds.nextLong() + currentSegmentBase;
 				
 			} else {
 				throw new NoSuchElementException();
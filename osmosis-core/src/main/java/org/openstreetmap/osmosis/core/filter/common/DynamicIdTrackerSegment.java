@@ -1,7 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.filter.common;
 
-import java.util.Iterator;
+import java.util.PrimitiveIterator;
 
 
 /**
@@ -113,7 +113,7 @@ public class DynamicIdTrackerSegment implements Comparable<DynamicIdTrackerSegme
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<Long> iterator() {
+	public PrimitiveIterator.OfLong iterator() {
 		return idTracker.iterator();
 	}
 }
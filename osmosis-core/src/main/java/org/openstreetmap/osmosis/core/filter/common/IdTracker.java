@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.filter.common;
 
+import java.util.PrimitiveIterator;
 
 /**
  * Defines the interface for all class implementations allowing a set of ids to
@@ -36,4 +37,14 @@ public interface IdTracker extends Iterable<Long> {
 	 *            The id tracker containing the ids to set.
 	 */
 	void setAll(IdTracker idTracker);
+	
+	
+	/**
+	 * Returns an iterator over all active ids. The iterator supports retrieving
+	 * ids without boxing them via its nextLong method.
+	 * 
+	 * @return The id iterator.
+	 */
+	@Override
+	PrimitiveIterator.OfLong iterator();
 }
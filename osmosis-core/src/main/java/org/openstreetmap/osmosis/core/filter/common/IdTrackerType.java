@@ -28,5 +28,14 @@ public enum IdTrackerType {
 	 * either one of the two other id list implementations depending on the number of ids to be
 	 * managed.
 	 */
-	Dynamic
+	Dynamic,
+	/**
+	 * The roaring implementation maintains a compressed bitmap outside the Java heap. Ids are
+	 * grouped into containers of 65536 ids, each of which holds either a sorted list of ids or a
+	 * bitmap depending on which is smaller. It supports the full 64 bit id range and is the most
+	 * efficient choice when tracking very large numbers of ids because the memory used is not
+	 * managed by the garbage collector. The direct memory limit of the JVM
+	 * (-XX:MaxDirectMemorySize) may need to be increased to use it.
+	 */
+	Roaring
 }
@@ -3,9 +3,9 @@ package org.openstreetmap.osmosis.core.filter.common;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import org.openstreetmap.osmosis.core.util.LongAsInt;
 
@@ -207,7 +207,7 @@ public class ListIdTracker implements IdTracker {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<Long> iterator() {
+	public PrimitiveIterator.OfLong iterator() {
 		// If the list is not sorted, it must be sorted prior to data being
 		// returned.
 		ensureListIsSorted();
@@ -221,8 +221,8 @@ public class ListIdTracker implements IdTracker {
 	 */
 	@Override
 	public void setAll(IdTracker idTracker) {
-		for (Long id : idTracker) {
-			set(id);
+		for (PrimitiveIterator.OfLong i = idTracker.iterator(); i.hasNext();) {
+			set(i.nextLong());
 		}
 	}
 	
@@ -232,7 +232,7 @@ public class ListIdTracker implements IdTracker {
 	 * 
 	 * @author Brett Henderson
 	 */
-	private class IdIterator implements Iterator<Long> {
+	private class IdIterator implements PrimitiveIterator.OfLong {
 		
 		private int iteratorOffset;
 		
@@ -258,12 +258,12 @@ public class ListIdTracker implements IdTracker {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public Long next() {
+		public long nextLong() {
 			if (!hasNext()) {
 				throw new NoSuchElementException();
 			}
 			
-			return (long) idList[iteratorOffset++];
+			return idList[iteratorOffset++];
 		}
 		
 		
@@ -0,0 +1,224 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Allocates blocks of memory outside the Java heap. Blocks are carved out of
+ * large direct buffer pages so that the garbage collector only sees a handful
+ * of objects regardless of how many blocks are allocated. Block sizes are
+ * powers of two which allows freed blocks to be kept in a free list per size
+ * and reused by later allocations of the same size.
+ * <p>
+ * Blocks are identified by an address encoding the page index and the offset
+ * within the page. The memory is released when the store is garbage
+ * collected.
+ * </p>
+ */
+class OffHeapBlockStore {
+	private static final int PAGE_SHIFT = 20;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int MIN_BLOCK_SHIFT = 4;
+
+	/**
+	 * The largest block size supported expressed as a power of two.
+	 */
+	static final int MAX_BLOCK_SHIFT = 13;
+
+	private ByteBuffer[] pages;
+	private int pageCount;
+	private int pageOffset;
+	private long[][] freeBlocks;
+	private int[] freeBlockCounts;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	OffHeapBlockStore() {
+		pages = new ByteBuffer[8];
+		pageCount = 0;
+		// Force a page to be allocated on the first allocation.
+		pageOffset = PAGE_SIZE;
+
+		freeBlocks = new long[MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1][];
+		freeBlockCounts = new int[freeBlocks.length];
+		for (int i = 0; i < freeBlocks.length; i++) {
+			freeBlocks[i] = new long[16];
+		}
+	}
+
+
+	/**
+	 * Allocates a block of memory. The block contents are undefined.
+	 *
+	 * @param blockShift
+	 *            The size of the block expressed as a power of two.
+	 * @return The address of the block.
+	 */
+	long allocate(int blockShift) {
+		int freeIndex;
+		int blockSize;
+		long address;
+
+		if (blockShift < MIN_BLOCK_SHIFT || blockShift > MAX_BLOCK_SHIFT) {
+			throw new OsmosisRuntimeException("Block size 2^" + blockShift + " is not supported.");
+		}
+
+		// Re-use a previously freed block if one is available.
+		freeIndex = blockShift - MIN_BLOCK_SHIFT;
+		if (freeBlockCounts[freeIndex] > 0) {
+			return freeBlocks[freeIndex][--freeBlockCounts[freeIndex]];
+		}
+
+		// Allocate a new page if the current one is full. Any space remaining
+		// in the current page is wasted but is always smaller than a block.
+		blockSize = 1 << blockShift;
+		if (pageOffset + blockSize > PAGE_SIZE) {
+			if (pageCount == pages.length) {
+				pages = Arrays.copyOf(pages, pages.length * 2);
+			}
+			pages[pageCount++] = ByteBuffer.allocateDirect(PAGE_SIZE).order(ByteOrder.nativeOrder());
+			pageOffset = 0;
+		}
+
+		address = ((long) (pageCount - 1) << PAGE_SHIFT) | pageOffset;
+		pageOffset += blockSize;
+
+		return address;
+	}
+
+
+	/**
+	 * Returns a block to the store for re-use.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param blockShift
+	 *            The size of the block expressed as a power of two.
+	 */
+	void free(long address, int blockShift) {
+		int freeIndex;
+
+		freeIndex = blockShift - MIN_BLOCK_SHIFT;
+		if (freeBlockCounts[freeIndex] == freeBlocks[freeIndex].length) {
+			freeBlocks[freeIndex] = Arrays.copyOf(freeBlocks[freeIndex], freeBlocks[freeIndex].length * 2);
+		}
+		freeBlocks[freeIndex][freeBlockCounts[freeIndex]++] = address;
+	}
+
+
+	private ByteBuffer getPage(long address) {
+		return pages[(int) (address >>> PAGE_SHIFT)];
+	}
+
+
+	private static int getPageOffset(long address) {
+		return (int) address & (PAGE_SIZE - 1);
+	}
+
+
+	/**
+	 * Gets a 16-bit unsigned value from a block.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param index
+	 *            The index of the value within the block.
+	 * @return The value.
+	 */
+	char getChar(long address, int index) {
+		return getPage(address).getChar(getPageOffset(address) + (index << 1));
+	}
+
+
+	/**
+	 * Stores a 16-bit unsigned value in a block.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param index
+	 *            The index of the value within the block.
+	 * @param value
+	 *            The value.
+	 */
+	void putChar(long address, int index, char value) {
+		getPage(address).putChar(getPageOffset(address) + (index << 1), value);
+	}
+
+
+	/**
+	 * Gets a 64-bit value from a block.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param index
+	 *            The index of the value within the block.
+	 * @return The value.
+	 */
+	long getLong(long address, int index) {
+		return getPage(address).getLong(getPageOffset(address) + (index << 3));
+	}
+
+
+	/**
+	 * Stores a 64-bit value in a block.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param index
+	 *            The index of the value within the block.
+	 * @param value
+	 *            The value.
+	 */
+	void putLong(long address, int index, long value) {
+		getPage(address).putLong(getPageOffset(address) + (index << 3), value);
+	}
+
+
+	/**
+	 * Sets the start of a block to zero.
+	 *
+	 * @param address
+	 *            The address of the block.
+	 * @param length
+	 *            The number of bytes to clear, must be a multiple of 8.
+	 */
+	void clear(long address, int length) {
+		for (int i = 0; i < (length >>> 3); i++) {
+			putLong(address, i, 0);
+		}
+	}
+
+
+	/**
+	 * Copies data from a block in this or another store into a block in this
+	 * store.
+	 *
+	 * @param source
+	 *            The store containing the source block.
+	 * @param sourceAddress
+	 *            The address of the source block.
+	 * @param address
+	 *            The address of the destination block.
+	 * @param length
+	 *            The number of bytes to copy.
+	 */
+	void copy(OffHeapBlockStore source, long sourceAddress, long address, int length) {
+		ByteBuffer sourceBuffer;
+		ByteBuffer buffer;
+
+		sourceBuffer = source.getPage(sourceAddress).duplicate();
+		sourceBuffer.position(getPageOffset(sourceAddress));
+		sourceBuffer.limit(getPageOffset(sourceAddress) + length);
+
+		buffer = getPage(address).duplicate();
+		buffer.position(getPageOffset(address));
+		buffer.put(sourceBuffer);
+	}
+}
@@ -0,0 +1,571 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * Implements the IdTracker interface using a compressed bitmap in the style of
+ * a roaring bitmap. The id space is broken into containers of 65536 ids. Each
+ * container holds its ids either as a sorted list of 16-bit offsets while it
+ * is sparse, or as a bitmap once the list would become larger than the bitmap.
+ * The containers live outside the Java heap so that very large sets of ids
+ * don't burden the garbage collector, only the sorted container index is held
+ * on the heap.
+ * <p>
+ * The full 64 bit id range is supported including negative ids.
+ * </p>
+ */
+public class RoaringIdTracker implements IdTracker {
+	/**
+	 * The number of low order id bits stored within a container.
+	 */
+	private static final int CONTAINER_BITS = 16;
+	private static final int CONTAINER_MASK = (1 << CONTAINER_BITS) - 1;
+	/**
+	 * The number of ids at which a list container occupies the same space as a
+	 * bitmap container. Containers holding more ids than this are bitmaps.
+	 */
+	private static final int MAX_LIST_CARDINALITY = 4096;
+	private static final int MIN_LIST_CAPACITY = 8;
+	private static final int BITMAP_WORDS = (1 << CONTAINER_BITS) / 64;
+	private static final int BITMAP_BLOCK_SHIFT = OffHeapBlockStore.MAX_BLOCK_SHIFT;
+	private static final int BITMAP_BLOCK_SIZE = 1 << BITMAP_BLOCK_SHIFT;
+
+	private OffHeapBlockStore store;
+	private long[] keys;
+	private long[] addresses;
+	private int[] cardinalities;
+	private int containerCount;
+	private int lastContainerIndex;
+	private char[] mergeBuffer;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public RoaringIdTracker() {
+		store = new OffHeapBlockStore();
+		keys = new long[16];
+		addresses = new long[keys.length];
+		cardinalities = new int[keys.length];
+		containerCount = 0;
+		lastContainerIndex = 0;
+	}
+
+
+	/**
+	 * Gets the container key for an id. The sign bit is flipped so that
+	 * negative ids sort before positive ids.
+	 */
+	private static long getKey(long id) {
+		return (id ^ Long.MIN_VALUE) >>> CONTAINER_BITS;
+	}
+
+
+	private static long getId(long key, int offset) {
+		return ((key << CONTAINER_BITS) | offset) ^ Long.MIN_VALUE;
+	}
+
+
+	private static boolean isBitmap(int cardinality) {
+		return cardinality > MAX_LIST_CARDINALITY;
+	}
+
+
+	/**
+	 * Gets the block size used to store a container with the specified number
+	 * of ids. List capacity grows in powers of two.
+	 */
+	private static int getBlockShift(int cardinality) {
+		int capacity;
+
+		if (isBitmap(cardinality)) {
+			return BITMAP_BLOCK_SHIFT;
+		}
+
+		if (cardinality <= MIN_LIST_CAPACITY) {
+			capacity = MIN_LIST_CAPACITY;
+		} else {
+			capacity = Integer.highestOneBit(cardinality - 1) << 1;
+		}
+
+		// Each list entry occupies two bytes.
+		return Integer.numberOfTrailingZeros(capacity) + 1;
+	}
+
+
+	/**
+	 * Finds the index of the container with the specified key.
+	 *
+	 * @return The container index, or (-(insertion point) - 1) if the
+	 *         container doesn't exist.
+	 */
+	private int findContainer(long key) {
+		int index;
+
+		// Ids tend to arrive in order so check the most recently used container
+		// before searching.
+		if (lastContainerIndex < containerCount && keys[lastContainerIndex] == key) {
+			return lastContainerIndex;
+		}
+
+		index = Arrays.binarySearch(keys, 0, containerCount, key);
+		if (index >= 0) {
+			lastContainerIndex = index;
+		}
+
+		return index;
+	}
+
+
+	private int insertContainer(int index, long key) {
+		if (containerCount == keys.length) {
+			int newLength = keys.length * 2;
+
+			keys = Arrays.copyOf(keys, newLength);
+			addresses = Arrays.copyOf(addresses, newLength);
+			cardinalities = Arrays.copyOf(cardinalities, newLength);
+		}
+
+		System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+		System.arraycopy(addresses, index, addresses, index + 1, containerCount - index);
+		System.arraycopy(cardinalities, index, cardinalities, index + 1, containerCount - index);
+		containerCount++;
+
+		keys[index] = key;
+		addresses[index] = store.allocate(getBlockShift(0));
+		cardinalities[index] = 0;
+		lastContainerIndex = index;
+
+		return index;
+	}
+
+
+	/**
+	 * Searches a list container for an offset.
+	 *
+	 * @return The list index of the offset, or (-(insertion point) - 1) if the
+	 *         offset doesn't exist.
+	 */
+	private int searchList(long address, int cardinality, int offset) {
+		int low;
+		int high;
+
+		// Appending to the end of the list is the most common case.
+		if (cardinality == 0 || store.getChar(address, cardinality - 1) < offset) {
+			return -cardinality - 1;
+		}
+
+		low = 0;
+		high = cardinality - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midOffset = store.getChar(address, mid);
+
+			if (midOffset < offset) {
+				low = mid + 1;
+			} else if (midOffset > offset) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -low - 1;
+	}
+
+
+	private static boolean setBit(OffHeapBlockStore blockStore, long address, int offset) {
+		int wordIndex = offset >>> 6;
+		long word = blockStore.getLong(address, wordIndex);
+		long bit = 1L << offset;
+
+		if ((word & bit) != 0) {
+			return false;
+		}
+
+		blockStore.putLong(address, wordIndex, word | bit);
+
+		return true;
+	}
+
+
+	private void convertToBitmap(int index) {
+		long listAddress = addresses[index];
+		int cardinality = cardinalities[index];
+		long bitmapAddress = store.allocate(BITMAP_BLOCK_SHIFT);
+
+		store.clear(bitmapAddress, BITMAP_BLOCK_SIZE);
+		for (int i = 0; i < cardinality; i++) {
+			setBit(store, bitmapAddress, store.getChar(listAddress, i));
+		}
+		store.free(listAddress, getBlockShift(cardinality));
+
+		addresses[index] = bitmapAddress;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void set(long id) {
+		long key = getKey(id);
+		int offset = (int) id & CONTAINER_MASK;
+		int index;
+		int cardinality;
+		long address;
+		int listIndex;
+
+		index = findContainer(key);
+		if (index < 0) {
+			index = insertContainer(-index - 1, key);
+		}
+
+		cardinality = cardinalities[index];
+		address = addresses[index];
+
+		if (isBitmap(cardinality)) {
+			if (setBit(store, address, offset)) {
+				cardinalities[index]++;
+			}
+			return;
+		}
+
+		listIndex = searchList(address, cardinality, offset);
+		if (listIndex >= 0) {
+			return;
+		}
+		listIndex = -listIndex - 1;
+
+		// A full list is either converted to a bitmap, or moved to a larger block.
+		if (cardinality == MAX_LIST_CARDINALITY) {
+			convertToBitmap(index);
+			setBit(store, addresses[index], offset);
+			cardinalities[index]++;
+			return;
+		}
+		if (getBlockShift(cardinality + 1) != getBlockShift(cardinality)) {
+			long newAddress = store.allocate(getBlockShift(cardinality + 1));
+
+			store.copy(store, address, newAddress, cardinality << 1);
+			store.free(address, getBlockShift(cardinality));
+			address = newAddress;
+			addresses[index] = address;
+		}
+
+		for (int i = cardinality; i > listIndex; i--) {
+			store.putChar(address, i, store.getChar(address, i - 1));
+		}
+		store.putChar(address, listIndex, (char) offset);
+		cardinalities[index]++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean get(long id) {
+		int index;
+		int cardinality;
+		int offset;
+
+		index = findContainer(getKey(id));
+		if (index < 0) {
+			return false;
+		}
+
+		cardinality = cardinalities[index];
+		offset = (int) id & CONTAINER_MASK;
+
+		if (isBitmap(cardinality)) {
+			return (store.getLong(addresses[index], offset >>> 6) & (1L << offset)) != 0;
+		} else {
+			return searchList(addresses[index], cardinality, offset) >= 0;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the other tracker is also a RoaringIdTracker the trackers are merged
+	 * a container at a time without visiting individual ids.
+	 * </p>
+	 */
+	@Override
+	public void setAll(IdTracker idTracker) {
+		if (idTracker instanceof RoaringIdTracker) {
+			if (idTracker != this) {
+				setAllContainers((RoaringIdTracker) idTracker);
+			}
+		} else {
+			for (PrimitiveIterator.OfLong i = idTracker.iterator(); i.hasNext();) {
+				set(i.nextLong());
+			}
+		}
+	}
+
+
+	private void setAllContainers(RoaringIdTracker other) {
+		int newLength = Math.max(containerCount + other.containerCount, 1);
+		long[] newKeys = new long[newLength];
+		long[] newAddresses = new long[newLength];
+		int[] newCardinalities = new int[newLength];
+		int thisIndex = 0;
+		int otherIndex = 0;
+		int newIndex = 0;
+
+		// Both container lists are sorted so a single merge pass produces the
+		// new container list.
+		while (thisIndex < containerCount || otherIndex < other.containerCount) {
+			if (otherIndex >= other.containerCount
+					|| (thisIndex < containerCount && keys[thisIndex] < other.keys[otherIndex])) {
+				newKeys[newIndex] = keys[thisIndex];
+				newAddresses[newIndex] = addresses[thisIndex];
+				newCardinalities[newIndex] = cardinalities[thisIndex];
+				thisIndex++;
+
+			} else if (thisIndex >= containerCount || keys[thisIndex] > other.keys[otherIndex]) {
+				int otherCardinality = other.cardinalities[otherIndex];
+				long address = store.allocate(getBlockShift(otherCardinality));
+
+				if (isBitmap(otherCardinality)) {
+					store.copy(other.store, other.addresses[otherIndex], address, BITMAP_BLOCK_SIZE);
+				} else {
+					store.copy(other.store, other.addresses[otherIndex], address, otherCardinality << 1);
+				}
+
+				newKeys[newIndex] = other.keys[otherIndex];
+				newAddresses[newIndex] = address;
+				newCardinalities[newIndex] = otherCardinality;
+				otherIndex++;
+
+			} else {
+				mergeContainer(thisIndex, other, otherIndex);
+
+				newKeys[newIndex] = keys[thisIndex];
+				newAddresses[newIndex] = addresses[thisIndex];
+				newCardinalities[newIndex] = cardinalities[thisIndex];
+				thisIndex++;
+				otherIndex++;
+			}
+
+			newIndex++;
+		}
+
+		keys = newKeys;
+		addresses = newAddresses;
+		cardinalities = newCardinalities;
+		containerCount = newIndex;
+		lastContainerIndex = 0;
+	}
+
+
+	/**
+	 * Merges a container from another tracker into a container with the same
+	 * key in this tracker.
+	 */
+	private void mergeContainer(int index, RoaringIdTracker other, int otherIndex) {
+		int cardinality = cardinalities[index];
+		long address = addresses[index];
+		int otherCardinality = other.cardinalities[otherIndex];
+		long otherAddress = other.addresses[otherIndex];
+
+		if (isBitmap(cardinality) || isBitmap(otherCardinality)) {
+			long bitmapAddress;
+			int newCardinality;
+
+			// Start with whichever container is a bitmap and add the other to it.
+			if (isBitmap(cardinality)) {
+				bitmapAddress = address;
+			} else {
+				bitmapAddress = store.allocate(BITMAP_BLOCK_SHIFT);
+				store.copy(other.store, otherAddress, bitmapAddress, BITMAP_BLOCK_SIZE);
+				for (int i = 0; i < cardinality; i++) {
+					setBit(store, bitmapAddress, store.getChar(address, i));
+				}
+				store.free(address, getBlockShift(cardinality));
+			}
+
+			if (isBitmap(otherCardinality)) {
+				if (bitmapAddress == address) {
+					for (int i = 0; i < BITMAP_WORDS; i++) {
+						store.putLong(bitmapAddress, i,
+								store.getLong(bitmapAddress, i) | other.store.getLong(otherAddress, i));
+					}
+				}
+			} else {
+				for (int i = 0; i < otherCardinality; i++) {
+					setBit(store, bitmapAddress, other.store.getChar(otherAddress, i));
+				}
+			}
+
+			newCardinality = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				newCardinality += Long.bitCount(store.getLong(bitmapAddress, i));
+			}
+
+			addresses[index] = bitmapAddress;
+			cardinalities[index] = newCardinality;
+
+		} else {
+			int thisListIndex = 0;
+			int otherListIndex = 0;
+			int newCardinality = 0;
+
+			if (mergeBuffer == null) {
+				mergeBuffer = new char[MAX_LIST_CARDINALITY * 2];
+			}
+
+			// Merge the two sorted lists removing duplicates.
+			while (thisListIndex < cardinality || otherListIndex < otherCardinality) {
+				char value;
+
+				if (otherListIndex >= otherCardinality) {
+					value = store.getChar(address, thisListIndex++);
+				} else if (thisListIndex >= cardinality) {
+					value = other.store.getChar(otherAddress, otherListIndex++);
+				} else {
+					char thisValue = store.getChar(address, thisListIndex);
+					char otherValue = other.store.getChar(otherAddress, otherListIndex);
+
+					if (thisValue <= otherValue) {
+						value = thisValue;
+						thisListIndex++;
+						if (thisValue == otherValue) {
+							otherListIndex++;
+						}
+					} else {
+						value = otherValue;
+						otherListIndex++;
+					}
+				}
+
+				mergeBuffer[newCardinality++] = value;
+			}
+
+			if (getBlockShift(newCardinality) != getBlockShift(cardinality)) {
+				store.free(address, getBlockShift(cardinality));
+				address = store.allocate(getBlockShift(newCardinality));
+			}
+
+			if (isBitmap(newCardinality)) {
+				store.clear(address, BITMAP_BLOCK_SIZE);
+				for (int i = 0; i < newCardinality; i++) {
+					setBit(store, address, mergeBuffer[i]);
+				}
+			} else {
+				for (int i = 0; i < newCardinality; i++) {
+					store.putChar(address, i, mergeBuffer[i]);
+				}
+			}
+
+			addresses[index] = address;
+			cardinalities[index] = newCardinality;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Ids are returned in ascending order. The tracker must not be modified
+	 * while iterating.
+	 * </p>
+	 */
+	@Override
+	public PrimitiveIterator.OfLong iterator() {
+		return new IdIterator();
+	}
+
+
+	/**
+	 * The iterator implementation for providing access to the list of ids.
+	 */
+	private class IdIterator implements PrimitiveIterator.OfLong {
+		private int containerIndex;
+		/**
+		 * The current list index, or bitmap word index for bitmap containers.
+		 */
+		private int containerOffset;
+		private long currentWord;
+		private long nextId;
+		private boolean nextIdAvailable;
+
+
+		/**
+		 * Creates a new instance.
+		 */
+		IdIterator() {
+			containerIndex = 0;
+			containerOffset = 0;
+			currentWord = 0;
+			nextIdAvailable = false;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			while (!nextIdAvailable && containerIndex < containerCount) {
+				int cardinality = cardinalities[containerIndex];
+				long address = addresses[containerIndex];
+
+				if (isBitmap(cardinality)) {
+					while (currentWord == 0 && containerOffset < BITMAP_WORDS) {
+						currentWord = store.getLong(address, containerOffset++);
+					}
+
+					if (currentWord != 0) {
+						int bit = Long.numberOfTrailingZeros(currentWord);
+
+						currentWord &= currentWord - 1;
+						nextId = getId(keys[containerIndex], ((containerOffset - 1) << 6) | bit);
+						nextIdAvailable = true;
+					}
+				} else if (containerOffset < cardinality) {
+					nextId = getId(keys[containerIndex], store.getChar(address, containerOffset++));
+					nextIdAvailable = true;
+				}
+
+				if (!nextIdAvailable) {
+					containerIndex++;
+					containerOffset = 0;
+				}
+			}
+
+			return nextIdAvailable;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long nextLong() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			nextIdAvailable = false;
+
+			return nextId;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
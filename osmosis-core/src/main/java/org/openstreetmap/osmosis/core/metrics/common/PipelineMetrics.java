@@ -0,0 +1,245 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Collects the metrics of all tasks within a pipeline. The metrics of each
+ * task are registered as an MXBean with the platform MBean server so that
+ * they may be monitored while the pipeline is running, and may be written in
+ * JSON format once the pipeline has completed.
+ */
+public class PipelineMetrics {
+
+	private static final Logger LOG = Logger.getLogger(PipelineMetrics.class.getName());
+
+	/**
+	 * The domain of the names the task MXBeans are registered with.
+	 */
+	public static final String MBEAN_DOMAIN = "org.openstreetmap.osmosis";
+
+	private List<TaskMetrics> tasks;
+	private List<ObjectName> registeredNames;
+	private long startNanos;
+	private long finishNanos;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public PipelineMetrics() {
+		tasks = new ArrayList<TaskMetrics>();
+		registeredNames = new ArrayList<ObjectName>();
+	}
+
+
+	/**
+	 * Creates the metrics for a new task and registers them with the platform
+	 * MBean server.
+	 *
+	 * @param taskId
+	 *            The unique identifier of the task within the pipeline.
+	 * @param taskType
+	 *            The type of the task.
+	 * @return The task metrics.
+	 */
+	public TaskMetrics createTaskMetrics(String taskId, String taskType) {
+		TaskMetrics taskMetrics;
+
+		taskMetrics = new TaskMetrics(taskId, taskType);
+		tasks.add(taskMetrics);
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=PipelineTask,name=" + ObjectName.quote(taskId));
+
+			server.registerMBean(taskMetrics, name);
+			registeredNames.add(name);
+
+		} catch (JMException e) {
+			// Metrics are still collected for the final report.
+			LOG.log(Level.WARNING, "Unable to register metrics for task " + taskId + " with the MBean server.", e);
+		}
+
+		return taskMetrics;
+	}
+
+
+	/**
+	 * Gets the metrics of all tasks in the pipeline.
+	 *
+	 * @return The task metrics in pipeline order.
+	 */
+	public List<TaskMetrics> getTaskMetrics() {
+		return tasks;
+	}
+
+
+	/**
+	 * Marks the start of pipeline execution.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		for (TaskMetrics task : tasks) {
+			task.start();
+		}
+	}
+
+
+	/**
+	 * Marks the end of pipeline execution.
+	 */
+	public void finish() {
+		finishNanos = System.nanoTime();
+		for (TaskMetrics task : tasks) {
+			task.finish();
+		}
+	}
+
+
+	private long getElapsedMillis() {
+		if (startNanos == 0) {
+			return 0;
+		}
+		if (finishNanos == 0) {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(finishNanos - startNanos);
+	}
+
+
+	private static void appendString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+
+
+	private static void appendField(StringBuilder builder, String name, String value) {
+		appendString(builder, name);
+		builder.append(':');
+		appendString(builder, value);
+	}
+
+
+	private static void appendField(StringBuilder builder, String name, long value) {
+		appendString(builder, name);
+		builder.append(':').append(value);
+	}
+
+
+	private static void appendField(StringBuilder builder, String name, double value) {
+		appendString(builder, name);
+		builder.append(':').append(String.format(Locale.ROOT, "%.1f", value));
+	}
+
+
+	/**
+	 * Formats the current metrics of all tasks as a JSON document.
+	 *
+	 * @return The JSON document.
+	 */
+	public String toJson() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append('{');
+		appendField(builder, "elapsedMillis", getElapsedMillis());
+		builder.append(",\"tasks\":[");
+		for (int i = 0; i < tasks.size(); i++) {
+			TaskMetrics task = tasks.get(i);
+
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("\n{");
+			appendField(builder, "taskId", task.getTaskId());
+			builder.append(',');
+			appendField(builder, "taskType", task.getTaskType());
+			builder.append(',');
+			appendField(builder, "entitiesIn", task.getEntitiesIn());
+			builder.append(',');
+			appendField(builder, "entitiesOut", task.getEntitiesOut());
+			builder.append(',');
+			appendField(builder, "entitiesInPerSecond", task.getEntitiesInPerSecond());
+			builder.append(',');
+			appendField(builder, "entitiesOutPerSecond", task.getEntitiesOutPerSecond());
+			builder.append(',');
+			appendField(builder, "putBlockedMillis", task.getPutBlockedMillis());
+			builder.append(',');
+			appendField(builder, "getBlockedMillis", task.getGetBlockedMillis());
+			builder.append(',');
+			appendField(builder, "queueDepth", task.getQueueDepth());
+			builder.append(',');
+			appendField(builder, "threadWallMillis", task.getThreadWallMillis());
+			builder.append(',');
+			appendField(builder, "threadCpuMillis", task.getThreadCpuMillis());
+			builder.append('}');
+		}
+		builder.append("\n]}\n");
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Writes the current metrics of all tasks to a file in JSON format.
+	 *
+	 * @param file
+	 *            The file to be written.
+	 */
+	public void writeJson(File file) {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write(toJson());
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write pipeline metrics to file " + file + ".", e);
+		}
+	}
+
+
+	/**
+	 * Unregisters all task MXBeans from the platform MBean server.
+	 */
+	public void close() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		for (ObjectName name : registeredNames) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				// We cannot throw an exception within a release method.
+				LOG.log(Level.WARNING, "Unable to unregister MBean " + name + ".", e);
+			}
+		}
+		registeredNames.clear();
+	}
+}
@@ -0,0 +1,35 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+
+/**
+ * Provides statistics for a queue passing data between two threads. All
+ * methods may be called from any thread while the queue is in use.
+ */
+public interface QueueMetrics {
+
+	/**
+	 * Gets the total time the writing thread has spent waiting for space in
+	 * the queue.
+	 * 
+	 * @return The blocked time in nanoseconds.
+	 */
+	long getPutBlockedNanos();
+
+
+	/**
+	 * Gets the total time the reading thread has spent waiting for data to
+	 * become available in the queue.
+	 * 
+	 * @return The blocked time in nanoseconds.
+	 */
+	long getGetBlockedNanos();
+
+
+	/**
+	 * Gets the approximate number of objects currently held in the queue.
+	 * 
+	 * @return The number of objects.
+	 */
+	long getQueueDepth();
+}
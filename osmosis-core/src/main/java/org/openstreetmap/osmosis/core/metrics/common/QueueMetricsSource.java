@@ -0,0 +1,19 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+import java.util.List;
+
+
+/**
+ * Implemented by tasks that pass data between threads using internal queues.
+ * The pipeline reports the statistics of these queues against the task.
+ */
+public interface QueueMetricsSource {
+
+	/**
+	 * Gets the queues owned by the task.
+	 *
+	 * @return The queue statistics.
+	 */
+	List<QueueMetrics> getQueueMetrics();
+}
@@ -0,0 +1,303 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Collects the metrics of a single pipeline task. Entity counts are provided
+ * by the connections between tasks, queue statistics by the queues owned by
+ * the task, and thread times by the thread running the task.
+ */
+public class TaskMetrics implements TaskMetricsMXBean {
+
+	private static final double NANOS_PER_SECOND = 1E9;
+
+	private String taskId;
+	private String taskType;
+	private List<LongSupplier> inputCounters;
+	private List<LongSupplier> outputCounters;
+	private List<QueueMetrics> queues;
+	private volatile long startNanos;
+	private volatile long finishNanos;
+	private volatile Thread thread;
+	private volatile long threadStartNanos;
+	private volatile long threadWallNanos;
+	private volatile long threadCpuNanos;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param taskId
+	 *            The unique identifier of the task within the pipeline.
+	 * @param taskType
+	 *            The type of the task.
+	 */
+	public TaskMetrics(String taskId, String taskType) {
+		this.taskId = taskId;
+		this.taskType = taskType;
+
+		inputCounters = new CopyOnWriteArrayList<LongSupplier>();
+		outputCounters = new CopyOnWriteArrayList<LongSupplier>();
+		queues = new CopyOnWriteArrayList<QueueMetrics>();
+	}
+
+
+	/**
+	 * Adds a counter of entities received by the task.
+	 *
+	 * @param counter
+	 *            The counter.
+	 */
+	public void addInputCounter(LongSupplier counter) {
+		inputCounters.add(counter);
+	}
+
+
+	/**
+	 * Adds a counter of entities sent by the task.
+	 *
+	 * @param counter
+	 *            The counter.
+	 */
+	public void addOutputCounter(LongSupplier counter) {
+		outputCounters.add(counter);
+	}
+
+
+	/**
+	 * Adds a queue owned by the task.
+	 *
+	 * @param queue
+	 *            The queue.
+	 */
+	public void addQueue(QueueMetrics queue) {
+		queues.add(queue);
+	}
+
+
+	/**
+	 * Marks the start of pipeline execution.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		finishNanos = 0;
+	}
+
+
+	/**
+	 * Marks the end of pipeline execution. Rates are no longer updated once
+	 * the task has finished.
+	 */
+	public void finish() {
+		if (finishNanos == 0) {
+			finishNanos = System.nanoTime();
+		}
+	}
+
+
+	/**
+	 * Notifies that the current thread has begun running the task.
+	 */
+	public void threadStarted() {
+		thread = Thread.currentThread();
+		threadStartNanos = System.nanoTime();
+		threadWallNanos = 0;
+		threadCpuNanos = 0;
+	}
+
+
+	/**
+	 * Notifies that the current thread has finished running the task. This
+	 * also marks the end of the task.
+	 */
+	public void threadFinished() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if (threadBean.isCurrentThreadCpuTimeSupported()) {
+			threadCpuNanos = threadBean.getCurrentThreadCpuTime();
+		} else {
+			threadCpuNanos = -1;
+		}
+		threadWallNanos = System.nanoTime() - threadStartNanos;
+		thread = null;
+
+		finish();
+	}
+
+
+	private static long sum(List<LongSupplier> counters) {
+		long total = 0;
+
+		for (LongSupplier counter : counters) {
+			total += counter.getAsLong();
+		}
+
+		return total;
+	}
+
+
+	private double getRate(long count) {
+		long elapsedNanos;
+
+		if (startNanos == 0) {
+			return 0;
+		}
+
+		if (finishNanos != 0) {
+			elapsedNanos = finishNanos - startNanos;
+		} else {
+			elapsedNanos = System.nanoTime() - startNanos;
+		}
+		if (elapsedNanos <= 0) {
+			return 0;
+		}
+
+		return count * NANOS_PER_SECOND / elapsedNanos;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getTaskId() {
+		return taskId;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getTaskType() {
+		return taskType;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntitiesIn() {
+		return sum(inputCounters);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntitiesOut() {
+		return sum(outputCounters);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEntitiesInPerSecond() {
+		return getRate(getEntitiesIn());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEntitiesOutPerSecond() {
+		return getRate(getEntitiesOut());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getPutBlockedMillis() {
+		long total = 0;
+
+		for (QueueMetrics queue : queues) {
+			total += queue.getPutBlockedNanos();
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(total);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getGetBlockedMillis() {
+		long total = 0;
+
+		for (QueueMetrics queue : queues) {
+			total += queue.getGetBlockedNanos();
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(total);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getQueueDepth() {
+		long total = 0;
+
+		for (QueueMetrics queue : queues) {
+			total += queue.getQueueDepth();
+		}
+
+		return total;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getThreadWallMillis() {
+		if (thread != null) {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - threadStartNanos);
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(threadWallNanos);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getThreadCpuMillis() {
+		Thread runningThread = thread;
+		long cpuNanos;
+
+		if (runningThread != null) {
+			ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+			if (!threadBean.isThreadCpuTimeSupported()) {
+				return -1;
+			}
+			cpuNanos = threadBean.getThreadCpuTime(runningThread.getId());
+		} else {
+			cpuNanos = threadCpuNanos;
+		}
+
+		if (cpuNanos < 0) {
+			return -1;
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(cpuNanos);
+	}
+}
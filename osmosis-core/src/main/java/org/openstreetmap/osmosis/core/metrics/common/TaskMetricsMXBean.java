@@ -0,0 +1,108 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+
+/**
+ * The JMX management interface exposing the metrics of a single pipeline task.
+ */
+public interface TaskMetricsMXBean {
+
+	/**
+	 * Gets the unique identifier of the task within the pipeline.
+	 * 
+	 * @return The task identifier.
+	 */
+	String getTaskId();
+
+
+	/**
+	 * Gets the type of the task, this is the task name used on the command
+	 * line.
+	 * 
+	 * @return The task type.
+	 */
+	String getTaskType();
+
+
+	/**
+	 * Gets the number of entities or changes received by the task.
+	 * 
+	 * @return The number of entities.
+	 */
+	long getEntitiesIn();
+
+
+	/**
+	 * Gets the number of entities or changes sent by the task to downstream
+	 * tasks.
+	 * 
+	 * @return The number of entities.
+	 */
+	long getEntitiesOut();
+
+
+	/**
+	 * Gets the average rate at which the task has received entities since the
+	 * pipeline started.
+	 * 
+	 * @return The number of entities per second.
+	 */
+	double getEntitiesInPerSecond();
+
+
+	/**
+	 * Gets the average rate at which the task has sent entities since the
+	 * pipeline started.
+	 * 
+	 * @return The number of entities per second.
+	 */
+	double getEntitiesOutPerSecond();
+
+
+	/**
+	 * Gets the total time spent waiting to put data into the queues owned by
+	 * the task. A high value indicates that the stage downstream of the queue
+	 * is the bottleneck.
+	 * 
+	 * @return The blocked time in milliseconds.
+	 */
+	long getPutBlockedMillis();
+
+
+	/**
+	 * Gets the total time spent waiting to get data from the queues owned by
+	 * the task. A high value indicates that the stage upstream of the queue is
+	 * the bottleneck.
+	 * 
+	 * @return The blocked time in milliseconds.
+	 */
+	long getGetBlockedMillis();
+
+
+	/**
+	 * Gets the number of objects currently held in the queues owned by the
+	 * task.
+	 * 
+	 * @return The number of objects.
+	 */
+	long getQueueDepth();
+
+
+	/**
+	 * Gets the elapsed time of the thread running the task. This is zero for
+	 * passive tasks which run within the threads of other tasks.
+	 * 
+	 * @return The wall time in milliseconds.
+	 */
+	long getThreadWallMillis();
+
+
+	/**
+	 * Gets the CPU time consumed by the thread running the task. This is zero
+	 * for passive tasks, and -1 if the JVM doesn't support measuring thread
+	 * CPU time.
+	 * 
+	 * @return The CPU time in milliseconds.
+	 */
+	long getThreadCpuMillis();
+}
@@ -0,0 +1,95 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.v0_6;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
+
+
+/**
+ * Counts the changes passing between a change source and a change sink. The count is
+ * reported as output of the producing task and as input of the consuming
+ * task.
+ */
+public final class MeteredChangeSink implements ChangeSink {
+	private ChangeSink sink;
+	private LongAdder count;
+	
+	
+	private MeteredChangeSink(ChangeSink sink) {
+		this.sink = sink;
+		
+		count = new LongAdder();
+	}
+	
+	
+	/**
+	 * Wraps a sink so that the changes it receives are counted. The sink is
+	 * returned unchanged if no metrics are being collected.
+	 * 
+	 * @param sink
+	 *            The sink receiving the data.
+	 * @param producerMetrics
+	 *            The metrics of the task sending the data, may be null.
+	 * @param consumerMetrics
+	 *            The metrics of the task receiving the data, may be null.
+	 * @return The sink to connect to the source.
+	 */
+	public static ChangeSink wrap(ChangeSink sink, TaskMetrics producerMetrics, TaskMetrics consumerMetrics) {
+		MeteredChangeSink meteredSink;
+		
+		if (producerMetrics == null && consumerMetrics == null) {
+			return sink;
+		}
+		
+		meteredSink = new MeteredChangeSink(sink);
+		if (producerMetrics != null) {
+			producerMetrics.addOutputCounter(meteredSink.count::sum);
+		}
+		if (consumerMetrics != null) {
+			consumerMetrics.addInputCounter(meteredSink.count::sum);
+		}
+		
+		return meteredSink;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		sink.initialize(metaData);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(ChangeContainer change) {
+		count.increment();
+		sink.process(change);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		sink.complete();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		sink.close();
+	}
+}
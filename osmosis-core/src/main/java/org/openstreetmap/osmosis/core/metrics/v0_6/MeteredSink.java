@@ -0,0 +1,95 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.v0_6;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Counts the entities passing between a source and a sink. The count is
+ * reported as output of the producing task and as input of the consuming
+ * task.
+ */
+public final class MeteredSink implements Sink {
+	private Sink sink;
+	private LongAdder count;
+	
+	
+	private MeteredSink(Sink sink) {
+		this.sink = sink;
+		
+		count = new LongAdder();
+	}
+	
+	
+	/**
+	 * Wraps a sink so that the entities it receives are counted. The sink is
+	 * returned unchanged if no metrics are being collected.
+	 * 
+	 * @param sink
+	 *            The sink receiving the data.
+	 * @param producerMetrics
+	 *            The metrics of the task sending the data, may be null.
+	 * @param consumerMetrics
+	 *            The metrics of the task receiving the data, may be null.
+	 * @return The sink to connect to the source.
+	 */
+	public static Sink wrap(Sink sink, TaskMetrics producerMetrics, TaskMetrics consumerMetrics) {
+		MeteredSink meteredSink;
+		
+		if (producerMetrics == null && consumerMetrics == null) {
+			return sink;
+		}
+		
+		meteredSink = new MeteredSink(sink);
+		if (producerMetrics != null) {
+			producerMetrics.addOutputCounter(meteredSink.count::sum);
+		}
+		if (consumerMetrics != null) {
+			consumerMetrics.addInputCounter(meteredSink.count::sum);
+		}
+		
+		return meteredSink;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		sink.initialize(metaData);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		count.increment();
+		sink.process(entityContainer);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		sink.complete();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		sink.close();
+	}
+}
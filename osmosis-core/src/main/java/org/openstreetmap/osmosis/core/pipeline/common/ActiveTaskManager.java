@@ -6,6 +6,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
 
 
 /**
@@ -43,6 +46,25 @@ public abstract class ActiveTaskManager extends TaskManager {
 	 */
 	protected abstract Runnable getTask();
 	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setMetrics(TaskMetrics metrics) {
+		Runnable task;
+		
+		super.setMetrics(metrics);
+		
+		// Report the statistics of any queues owned by the task against it.
+		task = getTask();
+		if (metrics != null && task instanceof QueueMetricsSource) {
+			for (QueueMetrics queue : ((QueueMetricsSource) task).getQueueMetrics()) {
+				metrics.addQueue(queue);
+			}
+		}
+	}
+	
 		
 	/**
 	 * {@inheritDoc}
@@ -56,7 +78,7 @@ public abstract class ActiveTaskManager extends TaskManager {
 					+ " is already running.");
 		}
 		
-		thread = new TaskRunner(getTask(), "Thread-" + getTaskId());
+		thread = new TaskRunner(getTask(), "Thread-" + getTaskId(), getMetrics());
 		
 		thread.start();
 	}
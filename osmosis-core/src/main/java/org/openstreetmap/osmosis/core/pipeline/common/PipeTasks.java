@@ -4,12 +4,14 @@ package org.openstreetmap.osmosis.core.pipeline.common;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
 import org.openstreetmap.osmosis.core.task.common.Task;
 
 
@@ -24,6 +26,7 @@ public class PipeTasks {
 	
 	private Map<String, Task> namedTasks;
 	private Deque<Task> defaultTasks;
+	private Map<Task, TaskMetrics> taskMetrics;
 	
 	
 	/**
@@ -32,6 +35,7 @@ public class PipeTasks {
 	public PipeTasks() {
 		namedTasks = new HashMap<String, Task>();
 		defaultTasks = new ArrayDeque<Task>();
+		taskMetrics = new IdentityHashMap<Task, TaskMetrics>();
 	}
 	
 	
@@ -197,4 +201,31 @@ public class PipeTasks {
 	public Set<String> getPipeNames() {
 		return namedTasks.keySet();
 	}
+	
+	
+	/**
+	 * Records the metrics of the task producing the specified output. This
+	 * allows consuming tasks to attribute the data they receive to the
+	 * producing task.
+	 * 
+	 * @param task
+	 *            The output task.
+	 * @param metrics
+	 *            The metrics of the task producing the output.
+	 */
+	public void putTaskMetrics(Task task, TaskMetrics metrics) {
+		taskMetrics.put(task, metrics);
+	}
+	
+	
+	/**
+	 * Returns the metrics of the task producing the specified output.
+	 * 
+	 * @param task
+	 *            The output task.
+	 * @return The task metrics, or null if metrics are not being collected.
+	 */
+	public TaskMetrics getTaskMetrics(Task task) {
+		return taskMetrics.get(task);
+	}
 }
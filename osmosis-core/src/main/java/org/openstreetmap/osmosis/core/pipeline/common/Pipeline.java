@@ -7,6 +7,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.metrics.common.PipelineMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
 
 
 /**
@@ -21,6 +23,7 @@ public class Pipeline {
 	
 	private TaskManagerFactoryRegister factoryRegister;
 	private List<TaskManager> taskManagers;
+	private PipelineMetrics metrics;
 	
 	
 	/**
@@ -30,7 +33,22 @@ public class Pipeline {
 	 *            The register containing all known task manager factories.
 	 */
 	public Pipeline(TaskManagerFactoryRegister factoryRegister) {
+		this(factoryRegister, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance which collects metrics for all tasks.
+	 * 
+	 * @param factoryRegister
+	 *            The register containing all known task manager factories.
+	 * @param metrics
+	 *            Receives the metrics of all tasks, or null if metrics are not
+	 *            to be collected.
+	 */
+	public Pipeline(TaskManagerFactoryRegister factoryRegister, PipelineMetrics metrics) {
 		this.factoryRegister = factoryRegister;
+		this.metrics = metrics;
 		
 		taskManagers = new ArrayList<TaskManager>();
 	}
@@ -46,10 +64,18 @@ public class Pipeline {
 	 */
 	private void buildTasks(List<TaskConfiguration> taskInfoList) {
 		for (TaskConfiguration taskConfig : taskInfoList) {
+			TaskManager taskManager;
+			TaskMetrics taskMetrics;
+			
+			taskMetrics = null;
+			if (metrics != null) {
+				taskMetrics = metrics.createTaskMetrics(taskConfig.getId(), taskConfig.getType());
+			}
+			
 			// Create the new task manager and add to the pipeline.
-			taskManagers.add(
-				factoryRegister.getInstance(taskConfig.getType()).createTaskManager(taskConfig)
-			);
+			taskManager = factoryRegister.getInstance(taskConfig.getType()).createTaskManager(taskConfig);
+			taskManager.setMetrics(taskMetrics);
+			taskManagers.add(taskManager);
 			
 			if (LOG.isLoggable(Level.FINE)) {
 				LOG.fine("Created task \"" + taskConfig.getId() + "\"");
@@ -121,6 +147,10 @@ public class Pipeline {
 	 * Launches the execution of the tasks within the pipeline.
 	 */
 	public void execute() {
+		if (metrics != null) {
+			metrics.start();
+		}
+		
 		// Initiate execution of all nodes.
 		for (TaskManager taskManager : taskManagers) {
 			taskManager.execute();
@@ -142,6 +172,10 @@ public class Pipeline {
 			}
 		}
 		
+		if (metrics != null) {
+			metrics.finish();
+		}
+		
 		if (!successful) {
 			throw new OsmosisRuntimeException("One or more tasks failed.");
 		}
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
 import org.openstreetmap.osmosis.core.task.common.Task;
 
 
@@ -20,6 +21,7 @@ public abstract class TaskManager {
 	private String taskId;
 	private Map<Integer, String> inputPipeNames;
 	private Map<Integer, String> outputPipeNames;
+	private TaskMetrics metrics;
 	
 	
 	/**
@@ -189,6 +191,10 @@ public abstract class TaskManager {
 		} else {
 			pipeTasks.putTask(taskId, outputTask);
 		}
+		
+		if (metrics != null) {
+			pipeTasks.putTaskMetrics(outputTask, metrics);
+		}
 	}
 	
 	
@@ -200,6 +206,28 @@ public abstract class TaskManager {
 	}
 	
 	
+	/**
+	 * Sets the metrics to be collected for the task. This must be called
+	 * before the task is connected.
+	 * 
+	 * @param metrics
+	 *            The task metrics.
+	 */
+	public void setMetrics(TaskMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	
+	/**
+	 * Returns the metrics collected for the task.
+	 * 
+	 * @return The task metrics, or null if metrics are not being collected.
+	 */
+	protected TaskMetrics getMetrics() {
+		return metrics;
+	}
+	
+	
 	/**
 	 * Connects the task to any input tasks based upon the pipes created by
 	 * source tasks, and makes any output pipes available to be used by
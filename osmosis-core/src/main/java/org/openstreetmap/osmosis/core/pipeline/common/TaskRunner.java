@@ -1,6 +1,8 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.pipeline.common;
 
+import org.openstreetmap.osmosis.core.metrics.common.TaskMetrics;
+
 
 /**
  * A thread implementation for launching a runnable task.
@@ -18,6 +20,10 @@ public class TaskRunner extends Thread {
 	 * task implementation.
 	 */
 	private Throwable exception;
+	/**
+	 * Receives the thread times of the task, may be null.
+	 */
+	private TaskMetrics metrics;
 	
 	
 	/**
@@ -29,8 +35,25 @@ public class TaskRunner extends Thread {
 	 *            The name of the thread.
 	 */
 	public TaskRunner(Runnable task, String name) {
+		this(task, name, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance which records thread times in the task metrics.
+	 * 
+	 * @param task
+	 *            The task to be executed.
+	 * @param name
+	 *            The name of the thread.
+	 * @param metrics
+	 *            The metrics of the task, or null if metrics are not being
+	 *            collected.
+	 */
+	public TaskRunner(Runnable task, String name, TaskMetrics metrics) {
 		super(task, name);
 		
+		this.metrics = metrics;
 		successful = true;
 		
 		// Set an exception handler to capture the details of any failure.
@@ -46,6 +69,25 @@ public class TaskRunner extends Thread {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+		if (metrics == null) {
+			super.run();
+			return;
+		}
+		
+		metrics.threadStarted();
+		try {
+			super.run();
+		} finally {
+			metrics.threadFinished();
+		}
+	}
+	
+	
 	/**
 	 * This can be called after the thread has completed to determine if the
 	 * thread terminated normally.
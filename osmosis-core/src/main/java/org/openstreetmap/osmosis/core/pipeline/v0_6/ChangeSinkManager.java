@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.core.pipeline.v0_6;
 
 import java.util.Map;
 
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredChangeSink;
 import org.openstreetmap.osmosis.core.pipeline.common.PassiveTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
@@ -51,6 +52,6 @@ public class ChangeSinkManager extends PassiveTaskManager {
 		
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setChangeSink(task);
+		source.setChangeSink(MeteredChangeSink.wrap(task, pipeTasks.getTaskMetrics(source), getMetrics()));
 	}
 }
@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.core.pipeline.v0_6;
 
 import java.util.Map;
 
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredChangeSink;
 import org.openstreetmap.osmosis.core.pipeline.common.PassiveTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkSource;
@@ -51,7 +52,7 @@ public class ChangeSinkSourceManager extends PassiveTaskManager {
 
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setChangeSink(task);
+		source.setChangeSink(MeteredChangeSink.wrap(task, pipeTasks.getTaskMetrics(source), getMetrics()));
 
 		// Register the task as an output. A source only has one output, this
 		// corresponds to pipe index 0.
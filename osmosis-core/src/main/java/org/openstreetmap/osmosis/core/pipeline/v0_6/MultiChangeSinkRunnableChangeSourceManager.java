@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.core.pipeline.v0_6;
 
 import java.util.Map;
 
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredChangeSink;
 import org.openstreetmap.osmosis.core.pipeline.common.ActiveTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
@@ -58,7 +59,7 @@ public class MultiChangeSinkRunnableChangeSourceManager extends ActiveTaskManage
 			source = (ChangeSource) getInputTask(pipeTasks, i, ChangeSource.class);
 			
 			// Connect the tasks.
-			source.setChangeSink(sink);
+			source.setChangeSink(MeteredChangeSink.wrap(sink, pipeTasks.getTaskMetrics(source), getMetrics()));
 		}
 		
 		// Register the source as an output task.
@@ -3,6 +3,8 @@ package org.openstreetmap.osmosis.core.pipeline.v0_6;
 
 import java.util.Map;
 
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredChangeSink;
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredSink;
 import org.openstreetmap.osmosis.core.pipeline.common.ActiveTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
@@ -61,7 +63,7 @@ public class MultiSinkMultiChangeSinkRunnableSourceManager extends ActiveTaskMan
 			source = (Source) getInputTask(pipeTasks, i, Source.class);
 			
 			// Connect the tasks.
-			source.setSink(sink);
+			source.setSink(MeteredSink.wrap(sink, pipeTasks.getTaskMetrics(source), getMetrics()));
 		}
 		for (int i = 0; i < task.getChangeSinkCount(); i++) {
 			ChangeSink changeSink;
@@ -78,7 +80,8 @@ public class MultiSinkMultiChangeSinkRunnableSourceManager extends ActiveTaskMan
 			);
 			
 			// Connect the tasks.
-			changeSource.setChangeSink(changeSink);
+			changeSource.setChangeSink(
+					MeteredChangeSink.wrap(changeSink, pipeTasks.getTaskMetrics(changeSource), getMetrics()));
 		}
 		
 		// Register the change source as an output task.
@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.core.pipeline.v0_6;
 
 import java.util.Map;
 
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredSink;
 import org.openstreetmap.osmosis.core.pipeline.common.ActiveTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkRunnableChangeSource;
@@ -58,7 +59,7 @@ public class MultiSinkRunnableChangeSourceManager extends ActiveTaskManager {
 			source = (Source) getInputTask(pipeTasks, i, Source.class);
 			
 			// Connect the tasks.
-			source.setSink(sink);
+			source.setSink(MeteredSink.wrap(sink, pipeTasks.getTaskMetrics(source), getMetrics()));
 		}
 		
 		// Register the change source as an output task.
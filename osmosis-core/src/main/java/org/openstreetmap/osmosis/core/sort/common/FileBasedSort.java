@@ -6,23 +6,24 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.store.ChunkedObjectStore;
 import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.store.PersistentIterator;
+import org.openstreetmap.osmosis.core.store.ReleasableAdaptorForIterator;
 import org.openstreetmap.osmosis.core.store.Storeable;
 
 
 /**
  * Allows a large number of objects to be sorted by writing them all to disk
- * then sorting using a merge sort algorithm.
+ * then sorting using a merge sort algorithm. Small data sets which fit within
+ * a single in-memory chunk are sorted without using the disk.
  * 
  * @param <T>
  *            The object type to be sorted.
  * @author Brett Henderson
  */
-public class FileBasedSort<T extends Storeable> implements Closeable {
+public class FileBasedSort<T extends Storeable> implements ObjectSorter<T> {
 	/**
 	 * The maximum number of entities to perform memory-based sorting on,
 	 * amounts larger than this will be split into chunks of this size, the
@@ -103,11 +104,9 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	
 	
 	/**
-	 * Adds a new object to be sorted.
-	 * 
-	 * @param value
-	 *            The data object.
+	 * {@inheritDoc}
 	 */
+	@Override
 	public void add(T value) {
 		// Add the new data entity to the add buffer.
 		addBuffer.add(value);
@@ -271,11 +270,19 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	
 	
 	/**
-	 * Sorts and returns the contents of the sorter.
-	 * 
-	 * @return An iterator providing access to the sorted entities.
+	 * {@inheritDoc}
 	 */
+	@Override
 	public ReleasableIterator<T> iterate() {
+		// If nothing has been written to file yet, the data is sorted in memory
+		// and no files are created at all. The data remains in the buffer so
+		// that it is included in any later iterations.
+		if (chunkedEntityStore.getChunkCount() == 0) {
+			Collections.sort(addBuffer, comparator);
+			
+			return new ReleasableAdaptorForIterator<T>(new ArrayList<T>(addBuffer).iterator());
+		}
+		
 		flushAddBuffer();
 		
 		return iterate(0, 0, chunkedEntityStore.getChunkCount());
@@ -0,0 +1,168 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+
+
+/**
+ * This iterator examines a list of sorted input sources and merges them into a
+ * single sorted list. Unlike {@link MergingIterator} it keeps the head of each
+ * source in a binary heap so it remains efficient with a large number of
+ * sources. Where objects compare as equal, the object from the earliest source
+ * is returned first which makes the merge stable.
+ *
+ * @param <DataType>
+ *            The object type to be sorted.
+ */
+public class HeapMergingIterator<DataType> implements ReleasableIterator<DataType> {
+	private List<ReleasableIterator<DataType>> sources;
+	private Comparator<DataType> comparator;
+	/**
+	 * The heap of source indexes ordered by the current head of each source.
+	 */
+	private int[] heap;
+	private int heapSize;
+	private List<DataType> heads;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sources
+	 *            The list of data sources.
+	 * @param comparator
+	 *            The comparator to be used for sorting.
+	 */
+	public HeapMergingIterator(List<ReleasableIterator<DataType>> sources, Comparator<DataType> comparator) {
+		this.sources = new ArrayList<ReleasableIterator<DataType>>(sources);
+		this.comparator = comparator;
+	}
+
+
+	/**
+	 * Primes the heap with the first object from each source.
+	 */
+	private void initialize() {
+		if (heap == null) {
+			heap = new int[sources.size()];
+			heads = new ArrayList<DataType>(sources.size());
+			heapSize = 0;
+
+			for (int sourceIndex = 0; sourceIndex < sources.size(); sourceIndex++) {
+				ReleasableIterator<DataType> source = sources.get(sourceIndex);
+
+				if (source.hasNext()) {
+					heads.add(source.next());
+					heap[heapSize++] = sourceIndex;
+				} else {
+					heads.add(null);
+				}
+			}
+
+			for (int i = heapSize / 2 - 1; i >= 0; i--) {
+				siftDown(i);
+			}
+		}
+	}
+
+
+	private boolean isLess(int sourceIndex1, int sourceIndex2) {
+		int result = comparator.compare(heads.get(sourceIndex1), heads.get(sourceIndex2));
+
+		// Break ties using the source order to keep the merge stable.
+		return result < 0 || (result == 0 && sourceIndex1 < sourceIndex2);
+	}
+
+
+	private void siftDown(int heapIndex) {
+		int sourceIndex = heap[heapIndex];
+
+		for (;;) {
+			int childIndex = heapIndex * 2 + 1;
+
+			if (childIndex >= heapSize) {
+				break;
+			}
+			if (childIndex + 1 < heapSize && isLess(heap[childIndex + 1], heap[childIndex])) {
+				childIndex++;
+			}
+			if (!isLess(heap[childIndex], sourceIndex)) {
+				break;
+			}
+
+			heap[heapIndex] = heap[childIndex];
+			heapIndex = childIndex;
+		}
+
+		heap[heapIndex] = sourceIndex;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		initialize();
+
+		return heapSize > 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DataType next() {
+		int sourceIndex;
+		DataType dataMinimum;
+		ReleasableIterator<DataType> source;
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		sourceIndex = heap[0];
+		dataMinimum = heads.get(sourceIndex);
+
+		// Replace the minimum with the next object from the same source, or
+		// remove the source from the heap if it is exhausted.
+		source = sources.get(sourceIndex);
+		if (source.hasNext()) {
+			heads.set(sourceIndex, source.next());
+		} else {
+			heads.set(sourceIndex, null);
+			heap[0] = heap[--heapSize];
+		}
+		if (heapSize > 0) {
+			siftDown(0);
+		}
+
+		return dataMinimum;
+	}
+
+
+	/**
+	 * Not supported. An UnsupportedOperationException is always thrown.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		for (ReleasableIterator<DataType> source : sources) {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.Storeable;
+
+
+/**
+ * Defines the interface for sorters which accept an arbitrary number of objects
+ * and return them in sorted order.
+ * 
+ * @param <T>
+ *            The object type to be sorted.
+ */
+public interface ObjectSorter<T extends Storeable> extends Closeable {
+	/**
+	 * Adds a new object to be sorted.
+	 * 
+	 * @param value
+	 *            The data object.
+	 */
+	void add(T value);
+	
+	
+	/**
+	 * Sorts and returns the contents of the sorter.
+	 * 
+	 * @return An iterator providing access to the sorted objects.
+	 */
+	ReleasableIterator<T> iterate();
+}
@@ -0,0 +1,318 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.EmptyIterator;
+import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.store.SimpleObjectStore;
+import org.openstreetmap.osmosis.core.store.Storeable;
+
+
+/**
+ * Allows a large number of objects to be sorted by writing them all to disk
+ * then sorting using a merge sort algorithm. Unlike {@link FileBasedSort}, the
+ * size of each in-memory sorted run is limited by an estimate of the memory it
+ * consumes rather than by object count, and runs are sorted and written on a
+ * fork-join pool while the next run is being filled. All runs are combined by
+ * a single k-way merge where possible.
+ * <p>
+ * The sort is stable, objects comparing as equal are returned in the order
+ * they were added.
+ * </p>
+ *
+ * @param <T>
+ *            The object type to be sorted.
+ */
+public class ParallelFileBasedSort<T extends Storeable> implements ObjectSorter<T> {
+	/**
+	 * The maximum number of runs to merge at once. If there are more runs than
+	 * this, groups of runs are merged into larger runs first. This limits the
+	 * number of open files and the memory consumed by their buffers.
+	 */
+	private static final int MAX_MERGE_SOURCE_COUNT = 128;
+
+	/**
+	 * The number of objects to read ahead from each run during the final
+	 * merge.
+	 */
+	private static final int READ_AHEAD_BATCH_SIZE = 1024;
+
+	private ObjectSerializationFactory serializationFactory;
+	private Comparator<T> comparator;
+	private boolean useCompression;
+	private ToLongFunction<T> sizeEstimator;
+	private long maxRunSize;
+	private int maxMergeSourceCount;
+	private ForkJoinPool pool;
+	private List<T> addBuffer;
+	private long addBufferSize;
+	private Future<?> pendingRun;
+	private List<SimpleObjectStore<T>> runs;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param memoryBudget
+	 *            The approximate number of bytes of memory that may be used for
+	 *            holding objects in memory. One run is filled while the
+	 *            previous run is sorted and written, so each run is limited to
+	 *            half of this.
+	 * @param sizeEstimator
+	 *            Estimates the number of bytes of memory used by an object.
+	 * @param workers
+	 *            The number of threads used to sort and merge runs.
+	 */
+	public ParallelFileBasedSort(ObjectSerializationFactory serializationFactory, Comparator<T> comparator,
+			boolean useCompression, long memoryBudget, ToLongFunction<T> sizeEstimator, int workers) {
+		this(serializationFactory, comparator, useCompression, memoryBudget, sizeEstimator, workers,
+				MAX_MERGE_SOURCE_COUNT);
+	}
+
+
+	/**
+	 * Creates a new instance. This constructor allows the merge width to be
+	 * reduced for testing.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param memoryBudget
+	 *            The approximate number of bytes of memory that may be used for
+	 *            holding objects in memory.
+	 * @param sizeEstimator
+	 *            Estimates the number of bytes of memory used by an object.
+	 * @param workers
+	 *            The number of threads used to sort and merge runs.
+	 * @param maxMergeSourceCount
+	 *            The maximum number of runs to merge at once.
+	 */
+	/* package */ ParallelFileBasedSort(ObjectSerializationFactory serializationFactory, Comparator<T> comparator,
+			boolean useCompression, long memoryBudget, ToLongFunction<T> sizeEstimator, int workers,
+			int maxMergeSourceCount) {
+		if (workers < 1) {
+			throw new OsmosisRuntimeException("At least one worker thread is required for sorting.");
+		}
+		if (maxMergeSourceCount < 2) {
+			throw new OsmosisRuntimeException("At least two sources must be merged at a time.");
+		}
+
+		this.serializationFactory = serializationFactory;
+		this.comparator = comparator;
+		this.useCompression = useCompression;
+		this.sizeEstimator = sizeEstimator;
+		this.maxMergeSourceCount = maxMergeSourceCount;
+
+		maxRunSize = Math.max(1, memoryBudget / 2);
+		pool = new ForkJoinPool(workers);
+		addBuffer = new ArrayList<T>();
+		addBufferSize = 0;
+		runs = new ArrayList<SimpleObjectStore<T>>();
+	}
+
+
+	private <R> R waitFor(Future<R> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new OsmosisRuntimeException("Unable to sort objects.", e.getCause());
+		}
+	}
+
+
+	private void waitForPendingRun() {
+		if (pendingRun != null) {
+			try {
+				waitFor(pendingRun);
+			} finally {
+				pendingRun = null;
+			}
+		}
+	}
+
+
+	/**
+	 * Passes the data currently in the add buffer to the pool to be sorted and
+	 * written as a new run, and clears the buffer.
+	 */
+	private void flushAddBuffer() {
+		if (addBuffer.size() > 0) {
+			final SimpleObjectStore<T> run;
+			final T[] runData;
+
+			// Only one run may be sorted at a time to limit memory usage.
+			waitForPendingRun();
+
+			run = new SimpleObjectStore<T>(serializationFactory, "emtr", useCompression);
+			runs.add(run);
+
+			@SuppressWarnings("unchecked")
+			T[] data = (T[]) addBuffer.toArray(new Storeable[addBuffer.size()]);
+			runData = data;
+
+			// The parallel sort will fork its tasks within the pool when called
+			// from a pool thread.
+			pendingRun = pool.submit(() -> {
+				Arrays.parallelSort(runData, comparator);
+				for (int i = 0; i < runData.length; i++) {
+					run.add(runData[i]);
+					runData[i] = null;
+				}
+			});
+
+			addBuffer = new ArrayList<T>();
+			addBufferSize = 0;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(T value) {
+		addBuffer.add(value);
+		addBufferSize += sizeEstimator.applyAsLong(value);
+
+		// If the add buffer is full, it must be sorted and written to a run.
+		if (addBufferSize >= maxRunSize) {
+			flushAddBuffer();
+		}
+	}
+
+
+	private ReleasableIterator<T> iterateRuns(List<SimpleObjectStore<T>> mergeRuns, boolean readAhead) {
+		List<ReleasableIterator<T>> sources = new ArrayList<ReleasableIterator<T>>(mergeRuns.size());
+
+		try {
+			HeapMergingIterator<T> mergingIterator;
+
+			for (SimpleObjectStore<T> run : mergeRuns) {
+				if (readAhead) {
+					sources.add(new ReadAheadIterator<T>(run.iterate(), pool, READ_AHEAD_BATCH_SIZE));
+				} else {
+					sources.add(run.iterate());
+				}
+			}
+
+			mergingIterator = new HeapMergingIterator<T>(sources, comparator);
+
+			// The merging iterator owns the sources now, so we clear our copy
+			// of them to prevent them being released on method exit.
+			sources.clear();
+
+			return mergingIterator;
+
+		} finally {
+			for (ReleasableIterator<T> source : sources) {
+				source.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Merges groups of runs into larger runs until few enough remain to be
+	 * merged in a single pass. Each group is merged on the pool.
+	 */
+	private void reduceRuns() {
+		while (runs.size() > maxMergeSourceCount) {
+			List<SimpleObjectStore<T>> mergedRuns = new ArrayList<SimpleObjectStore<T>>();
+			List<Future<?>> merges = new ArrayList<Future<?>>();
+			int groupSize = (runs.size() + maxMergeSourceCount - 1) / maxMergeSourceCount;
+
+			// Split the runs into at most maxMergeSourceCount groups of
+			// adjacent runs, keeping them in order to preserve stability.
+			for (int groupStart = 0; groupStart < runs.size(); groupStart += groupSize) {
+				final List<SimpleObjectStore<T>> group =
+						runs.subList(groupStart, Math.min(groupStart + groupSize, runs.size()));
+				final SimpleObjectStore<T> mergedRun = new SimpleObjectStore<T>(
+						serializationFactory, "emtm", useCompression);
+
+				mergedRuns.add(mergedRun);
+				merges.add(pool.submit(() -> {
+					try (ReleasableIterator<T> iterator = iterateRuns(group, false)) {
+						while (iterator.hasNext()) {
+							mergedRun.add(iterator.next());
+						}
+					}
+				}));
+			}
+
+			try {
+				for (Future<?> merge : merges) {
+					waitFor(merge);
+				}
+			} finally {
+				// Release the source runs, the merged runs replace them.
+				for (SimpleObjectStore<T> run : runs) {
+					run.close();
+				}
+				runs = mergedRuns;
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ReleasableIterator<T> iterate() {
+		flushAddBuffer();
+		waitForPendingRun();
+
+		if (runs.isEmpty()) {
+			return new EmptyIterator<T>();
+		}
+
+		reduceRuns();
+
+		return iterateRuns(runs, true);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Stop the pool and make sure no task is still writing to a run
+		// before the runs are deleted.
+		pool.shutdownNow();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// We cannot throw an exception within a release statement.
+			Thread.currentThread().interrupt();
+		}
+		pendingRun = null;
+
+		for (SimpleObjectStore<T> run : runs) {
+			run.close();
+		}
+		runs.clear();
+	}
+}
@@ -0,0 +1,162 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+
+
+/**
+ * Reads batches of objects from an underlying iterator on a background thread
+ * so that the next batch is ready by the time the current batch has been
+ * consumed. This allows the cost of reading and de-serialising several sources
+ * to be spread across threads while they are being merged.
+ * <p>
+ * The underlying iterator is only accessed by one thread at a time.
+ * </p>
+ *
+ * @param <T>
+ *            The type of data to be returned by the iterator.
+ */
+public class ReadAheadIterator<T> implements ReleasableIterator<T> {
+
+	private static final Logger LOG = Logger.getLogger(ReadAheadIterator.class.getName());
+
+	private ReleasableIterator<T> source;
+	private ExecutorService executor;
+	private int batchSize;
+	private List<T> currentBatch;
+	private int currentIndex;
+	private Future<List<T>> nextBatch;
+	private boolean sourceExhausted;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The underlying iterator. This will be closed along with this
+	 *            iterator.
+	 * @param executor
+	 *            The executor to read batches on.
+	 * @param batchSize
+	 *            The number of objects to read in each batch.
+	 */
+	public ReadAheadIterator(ReleasableIterator<T> source, ExecutorService executor, int batchSize) {
+		this.source = source;
+		this.executor = executor;
+		this.batchSize = batchSize;
+
+		currentBatch = Collections.emptyList();
+		currentIndex = 0;
+		sourceExhausted = false;
+	}
+
+
+	private List<T> readBatch() {
+		List<T> batch = new ArrayList<T>(batchSize);
+
+		while (batch.size() < batchSize && source.hasNext()) {
+			batch.add(source.next());
+		}
+
+		return batch;
+	}
+
+
+	private List<T> waitForNextBatch() {
+		try {
+			return nextBatch.get();
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new OsmosisRuntimeException("Unable to read the next batch of objects.", e.getCause());
+		} finally {
+			nextBatch = null;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		while (currentIndex >= currentBatch.size()) {
+			if (nextBatch == null) {
+				if (sourceExhausted) {
+					return false;
+				}
+				nextBatch = executor.submit(this::readBatch);
+			}
+
+			currentBatch = waitForNextBatch();
+			currentIndex = 0;
+
+			// A short batch means the source has no more data. Otherwise begin
+			// reading the following batch while this one is consumed.
+			if (currentBatch.size() < batchSize) {
+				sourceExhausted = true;
+			} else {
+				nextBatch = executor.submit(this::readBatch);
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public T next() {
+		T result;
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		result = currentBatch.get(currentIndex);
+		currentBatch.set(currentIndex++, null);
+
+		return result;
+	}
+
+
+	/**
+	 * Not supported. An UnsupportedOperationException is always thrown.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// The source can't be closed while a batch is still being read from it.
+		if (nextBatch != null) {
+			try {
+				waitForNextBatch();
+			} catch (OsmosisRuntimeException e) {
+				// We are already releasing so log and continue.
+				LOG.log(Level.WARNING, "Unable to complete read ahead.", e);
+			}
+		}
+
+		source.close();
+	}
+}
@@ -7,6 +7,8 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ObjectSorter;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkChangeSource;
@@ -19,7 +21,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkChangeSource;
  * @author Brett Henderson
  */
 public class ChangeSorter implements ChangeSinkChangeSource {
-	private FileBasedSort<ChangeContainer> fileBasedSort;
+	private ObjectSorter<ChangeContainer> fileBasedSort;
 	private ChangeSink changeSink;
 	
 	
@@ -34,6 +36,27 @@ public class ChangeSorter implements ChangeSinkChangeSource {
 			new FileBasedSort<ChangeContainer>(
 					new SingleClassObjectSerializationFactory(ChangeContainer.class), comparator, true);
 	}
+	
+	
+	/**
+	 * Creates a new instance which sorts using multiple threads.
+	 * 
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param workers
+	 *            The number of threads to sort with.
+	 * @param memoryBudget
+	 *            The approximate number of bytes of memory to hold changes in
+	 *            while sorting.
+	 */
+	public ChangeSorter(Comparator<ChangeContainer> comparator, int workers, long memoryBudget) {
+		fileBasedSort =
+			new ParallelFileBasedSort<ChangeContainer>(
+					new SingleClassObjectSerializationFactory(ChangeContainer.class), comparator, true,
+					memoryBudget,
+					change -> EntitySizeEstimator.estimate(change.getEntityContainer().getEntity()),
+					workers);
+	}
 
 
 	/**
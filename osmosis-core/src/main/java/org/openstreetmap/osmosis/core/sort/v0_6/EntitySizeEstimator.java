@@ -0,0 +1,58 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.v0_6;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+
+
+/**
+ * Provides a rough estimate of the heap memory consumed by an entity. This is
+ * used to size in-memory sort runs by memory rather than by entity count
+ * because way and relation sizes vary enormously.
+ */
+public final class EntitySizeEstimator {
+	/**
+	 * The size of the entity, its container and common data including the
+	 * timestamp and tag collection.
+	 */
+	private static final long ENTITY_SIZE = 200;
+	private static final long TAG_SIZE = 100;
+	private static final long WAY_NODE_SIZE = 32;
+	private static final long RELATION_MEMBER_SIZE = 80;
+
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private EntitySizeEstimator() {
+	}
+
+
+	/**
+	 * Estimates the number of bytes of heap memory used by an entity.
+	 *
+	 * @param entity
+	 *            The entity.
+	 * @return The estimated size in bytes.
+	 */
+	public static long estimate(Entity entity) {
+		long size = ENTITY_SIZE;
+
+		for (Tag tag : entity.getTags()) {
+			size += TAG_SIZE + 2 * (tag.getKey().length() + tag.getValue().length());
+		}
+
+		if (entity instanceof Way) {
+			size += WAY_NODE_SIZE * ((Way) entity).getWayNodes().size();
+		} else if (entity instanceof Relation) {
+			for (RelationMember member : ((Relation) entity).getMembers()) {
+				size += RELATION_MEMBER_SIZE + 2 * member.getMemberRole().length();
+			}
+		}
+
+		return size;
+	}
+}
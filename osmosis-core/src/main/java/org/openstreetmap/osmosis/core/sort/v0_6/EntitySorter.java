@@ -7,6 +7,8 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ObjectSorter;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
 import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
@@ -19,7 +21,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
  * @author Brett Henderson
  */
 public class EntitySorter implements SinkSource {
-	private FileBasedSort<EntityContainer> fileBasedSort;
+	private ObjectSorter<EntityContainer> fileBasedSort;
 	private Sink sink;
 
 
@@ -46,6 +48,26 @@ public class EntitySorter implements SinkSource {
 			new GenericObjectSerializationFactory(), comparator, useCompression);
 	}
 
+	/**
+	 * Creates a new instance which sorts using multiple threads.
+	 *
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param workers
+	 *            The number of threads to sort with.
+	 * @param memoryBudget
+	 *            The approximate number of bytes of memory to hold entities
+	 *            in while sorting.
+	 */
+	public EntitySorter(
+			Comparator<EntityContainer> comparator, boolean useCompression, int workers, long memoryBudget) {
+		fileBasedSort = new ParallelFileBasedSort<EntityContainer>(
+			new GenericObjectSerializationFactory(), comparator, useCompression, memoryBudget,
+			entityContainer -> EntitySizeEstimator.estimate(entityContainer.getEntity()), workers);
+	}
+
 
 	/**
 	 * {@inheritDoc}
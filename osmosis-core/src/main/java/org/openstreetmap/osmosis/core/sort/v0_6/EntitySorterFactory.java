@@ -20,6 +20,11 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  */
 public class EntitySorterFactory extends TaskManagerFactory {
 	private static final String ARG_COMPARATOR_TYPE = "type";
+	private static final String ARG_WORKERS = "workers";
+	private static final String ARG_MEMORY_BUDGET = "memoryBudget";
+	private static final int DEFAULT_WORKERS = 0;
+	private static final int DEFAULT_MEMORY_BUDGET = 256;
+	private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
 	
 	private Map<String, Comparator<EntityContainer>> comparatorMap;
 	private String defaultComparatorType;
@@ -81,6 +86,9 @@ public class EntitySorterFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		Comparator<EntityContainer> comparator;
+		int workers;
+		int memoryBudget;
+		EntitySorter entitySorter;
 		
 		// Get the comparator.
 		comparator = getComparator(
@@ -91,9 +99,19 @@ public class EntitySorterFactory extends TaskManagerFactory {
 			)
 		);
 		
+		// Get the threading arguments.
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		memoryBudget = getIntegerArgument(taskConfig, ARG_MEMORY_BUDGET, DEFAULT_MEMORY_BUDGET);
+		
+		if (workers > 0) {
+			entitySorter = new EntitySorter(comparator, true, workers, memoryBudget * BYTES_PER_MEGABYTE);
+		} else {
+			entitySorter = new EntitySorter(comparator);
+		}
+		
 		return new SinkSourceManager(
 			taskConfig.getId(),
-			new EntitySorter(comparator),
+			entitySorter,
 			taskConfig.getPipeArgs()
 		);
 	}
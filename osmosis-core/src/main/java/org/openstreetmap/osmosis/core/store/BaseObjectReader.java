@@ -1,8 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 
@@ -17,6 +16,8 @@ public abstract class BaseObjectReader implements ObjectReader {
 	private StoreReader storeReader;
 	private StoreClassRegister storeClassRegister;
 	private StoreableConstructorCache constructorCache;
+	private Class<?> lastClass;
+	private MethodHandle lastConstructor;
 	
 	
 	/**
@@ -55,28 +56,23 @@ public abstract class BaseObjectReader implements ObjectReader {
 	 */
 	public Storeable readObject() {
 		Class<?> clazz;
-		Constructor<?> constructor;
 		
 		clazz = readClassFromIdentifier(storeReader, storeClassRegister);
 		
-		constructor = constructorCache.getStoreableConstructor(clazz);
+		// Most stores contain long runs of a single class so avoid the cache
+		// lookup where possible.
+		if (clazz != lastClass) {
+			lastConstructor = constructorCache.getStoreableConstructorHandle(clazz);
+			lastClass = clazz;
+		}
 		
 		try {
-			return (Storeable) constructor.newInstance(new Object[] {storeReader, storeClassRegister});
+			return (Storeable) lastConstructor.invokeExact(storeReader, storeClassRegister);
 			
-		} catch (IllegalAccessException e) {
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
-		} catch (InvocationTargetException e) {
-			Throwable cause = e.getCause();
-			if (cause instanceof EndOfStoreException) {
-				throw (EndOfStoreException) cause; 
-			}
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
-		} catch (InstantiationException e) {
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
+		} catch (EndOfStoreException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new OsmosisRuntimeException("The class " + clazz.getName() + " could not be instantiated.", e);
 		}
 	}
 }
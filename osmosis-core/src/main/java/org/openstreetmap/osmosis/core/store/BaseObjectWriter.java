@@ -12,6 +12,7 @@ public abstract class BaseObjectWriter implements ObjectWriter {
 	private StoreWriter storeWriter;
 	private StoreClassRegister storeClassRegister;
 	private StoreableConstructorCache constructorCache;
+	private Class<?> lastClass;
 	
 	
 	/**
@@ -57,7 +58,10 @@ public abstract class BaseObjectWriter implements ObjectWriter {
 		clazz = value.getClass();
 		
 		// Verify that the class has the appropriate constructor for de-serialization.
-		constructorCache.getStoreableConstructor(clazz);
+		if (clazz != lastClass) {
+			constructorCache.getStoreableConstructor(clazz);
+			lastClass = clazz;
+		}
 		
 		writeClassIdentifier(storeWriter, storeClassRegister, clazz);
 		value.store(storeWriter, storeClassRegister);
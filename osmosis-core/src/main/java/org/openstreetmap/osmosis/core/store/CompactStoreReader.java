@@ -0,0 +1,236 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Reads persisted input written by a {@link CompactStoreWriter} from a
+ * DataInput implementation.
+ */
+public class CompactStoreReader implements StoreReader {
+	private DataInput input;
+	private long[] deltaBases;
+	private List<String> dictionary;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param input
+	 *            The data input to read data from.
+	 */
+	public CompactStoreReader(DataInput input) {
+		this.input = input;
+
+		deltaBases = new long[StoreWriter.DELTA_CHANNEL_COUNT];
+		dictionary = new ArrayList<String>();
+	}
+
+
+	/**
+	 * Discards the delta values and strings read so far. This must be called
+	 * when the input moves to data produced by a different writer, such as the
+	 * start of a new chunk in a segmented store.
+	 */
+	public void reset() {
+		for (int i = 0; i < deltaBases.length; i++) {
+			deltaBases[i] = 0;
+		}
+		dictionary.clear();
+	}
+
+
+	private long readVarint() throws IOException {
+		long result = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = input.readByte();
+
+			result |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+
+		throw new OsmosisRuntimeException("Variable length value is too long, the data stream may be corrupt.");
+	}
+
+
+	private long readSignedVarint() throws IOException {
+		long value = readVarint();
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean readBoolean() {
+		try {
+			return input.readBoolean();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a boolean from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read a boolean from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte readByte() {
+		try {
+			return input.readByte();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a byte from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a byte from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char readCharacter() {
+		try {
+			return (char) readVarint();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a character from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a character from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readInteger() {
+		try {
+			return (int) readSignedVarint();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read an integer from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read an integer from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readLong() {
+		try {
+			return readSignedVarint();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a long from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a long from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readDeltaInteger(int channel) {
+		return (int) readDeltaLong(channel);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readDeltaLong(int channel) {
+		try {
+			long value = deltaBases[channel] + readSignedVarint();
+
+			deltaBases[channel] = value;
+
+			return value;
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a long from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a long from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double readDouble() {
+		try {
+			return input.readDouble();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a double from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a double from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String readString() {
+		try {
+			long reference = readVarint();
+
+			if (reference == 0) {
+				String value = input.readUTF();
+
+				if (dictionary.size() < CompactStoreWriter.MAX_DICTIONARY_SIZE) {
+					dictionary.add(value);
+				}
+
+				return value;
+			}
+
+			if (reference > dictionary.size()) {
+				throw new OsmosisRuntimeException(
+						"String reference " + reference + " is not in the dictionary, the data stream may be corrupt.");
+			}
+
+			return dictionary.get((int) reference - 1);
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a String from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a String from the store.", e);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Writes persisted output to a DataOutput implementation using a compact
+ * variable length encoding. Integers and longs are written as zigzag encoded
+ * varints, delta values are written relative to the previous value in their
+ * channel, and strings are written once and referenced by index from then on.
+ * <p>
+ * The encoding is stateful so the data must be read back in the same order by
+ * a {@link CompactStoreReader}, beginning at the same point that this writer
+ * began writing. Record sizes are not fixed so this writer is not suitable for
+ * stores relying on fixed size elements.
+ */
+public class CompactStoreWriter implements StoreWriter {
+
+	/**
+	 * The maximum number of strings held in the dictionary. Strings written
+	 * after the dictionary is full are always written in full.
+	 */
+	static final int MAX_DICTIONARY_SIZE = 65536;
+
+	private DataOutput output;
+	private byte[] varintBuffer;
+	private long[] deltaBases;
+	private Map<String, Integer> dictionary;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param output
+	 *            The destination to write the data to.
+	 */
+	public CompactStoreWriter(DataOutput output) {
+		this.output = output;
+
+		varintBuffer = new byte[10];
+		deltaBases = new long[DELTA_CHANNEL_COUNT];
+		dictionary = new HashMap<String, Integer>();
+	}
+
+
+	private void writeVarint(long value) throws IOException {
+		long remaining = value;
+		int length = 0;
+
+		while ((remaining & ~0x7FL) != 0) {
+			varintBuffer[length++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		varintBuffer[length++] = (byte) remaining;
+
+		output.write(varintBuffer, 0, length);
+	}
+
+
+	private void writeSignedVarint(long value) throws IOException {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBoolean(boolean value) {
+		try {
+			output.writeBoolean(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write boolean " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeByte(byte value) {
+		try {
+			output.writeByte(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write byte " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeCharacter(char value) {
+		try {
+			writeVarint(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write character " + ((int) value) + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeInteger(int value) {
+		try {
+			writeSignedVarint(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write integer " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeLong(long value) {
+		try {
+			writeSignedVarint(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write long " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDeltaInteger(int channel, int value) {
+		writeDeltaLong(channel, value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDeltaLong(int channel, long value) {
+		try {
+			writeSignedVarint(value - deltaBases[channel]);
+			deltaBases[channel] = value;
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write long " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDouble(double value) {
+		try {
+			output.writeDouble(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write double " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeString(String value) {
+		try {
+			Integer index;
+
+			// A zero marks a string written in full, otherwise the value is
+			// one more than the dictionary index of a previous string.
+			index = dictionary.get(value);
+			if (index != null) {
+				writeVarint(index.intValue() + 1);
+			} else {
+				writeVarint(0);
+				output.writeUTF(value);
+
+				if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+					dictionary.put(value, dictionary.size());
+				}
+			}
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write String (" + value + ") to the store.", e);
+		}
+	}
+}
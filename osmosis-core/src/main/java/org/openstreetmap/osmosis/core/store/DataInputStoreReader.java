@@ -112,6 +112,24 @@ public class DataInputStoreReader implements StoreReader {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readDeltaInteger(int channel) {
+		return readInteger();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readDeltaLong(int channel) {
+		return readLong();
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -88,6 +88,25 @@ public class DataOutputStoreWriter implements StoreWriter {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDeltaInteger(int channel, int value) {
+		// Values are always written in full to keep the record size fixed.
+		writeInteger(value);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDeltaLong(int channel, long value) {
+		writeLong(value);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,16 +1,18 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
 import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
 
 
@@ -70,6 +72,14 @@ import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
  * called.</li>
  * </ul>
  * <p>
+ * Data is passed between the threads in batches through a single-producer
+ * single-consumer ring buffer. The ring is coordinated using sequence counters
+ * only so no lock is taken while data is flowing. A lock is only used for the
+ * initialize, complete and release handshakes which occur once per run. The
+ * way a thread waits on a full or empty ring is controlled by a
+ * {@link DataPostboxWaitStrategy}.
+ * </p>
+ * <p>
  * This class may be re-used multiple times. For this to work, both input and
  * output methods must be called an equal number of times or deadlock will
  * occur. Re-use may occur after input or output threads fail, however in all
@@ -78,40 +88,78 @@ import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
  * @param <T>
  *            The type of data held in the postbox.
  */
-public class DataPostbox<T> implements Initializable {
+public class DataPostbox<T> implements Initializable, QueueMetrics {
+	/**
+	 * The maximum time a parked thread will sleep before re-checking the ring.
+	 * Threads are normally woken explicitly, this is a safety net only.
+	 */
+	private static final long MAX_PARK_NANOS = 1000000;
+
+	/**
+	 * The number of iterations a spinning thread busy-waits before briefly
+	 * yielding. This avoids starving the other thread when the machine has
+	 * fewer cores than runnable threads. Must be a power of two.
+	 */
+	private static final int SPIN_YIELD_INTERVAL = 1024;
+
 	private int bufferCapacity;
 	private int chunkSize;
+	private DataPostboxWaitStrategy waitStrategy;
 	private Lock lock;
 	private Condition dataWaitCondition;
 	private Map<String, Object> processingMetaData;
-	private Collection<T> centralQueue;
-	private Collection<T> inboundQueue;
-	private Queue<T> outboundQueue;
+	private Object[] ring;
+	private AtomicLong publishSequence;
+	private AtomicLong consumeSequence;
+	private List<T> inboundBatch;
+	private List<T> outboundBatch;
+	private int outboundIndex;
+	private volatile Thread waitingInputThread;
+	private volatile Thread waitingOutputThread;
 	private boolean inputInitialized;
 	private boolean outputInitialized;
-	private boolean inputComplete;
+	private volatile boolean inputComplete;
 	private boolean outputComplete;
 	private boolean inputReleased;
 	private boolean outputReleased;
 	private boolean inputExit;
 	private boolean outputExit;
-	private boolean inputOkay;
-	private boolean outputOkay;
+	private volatile boolean inputOkay;
+	private volatile boolean outputOkay;
+	private volatile long putBlockedNanos;
+	private volatile long getBlockedNanos;
 
 
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance using the {@link DataPostboxWaitStrategy#Park}
+	 * wait strategy.
 	 * 
 	 * @param capacity
 	 *            The maximum number of objects to hold in the postbox before
 	 *            blocking.
 	 */
 	public DataPostbox(int capacity) {
+		this(capacity, DataPostboxWaitStrategy.Park);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param capacity
+	 *            The maximum number of objects to hold in the postbox before
+	 *            blocking.
+	 * @param waitStrategy
+	 *            The method used by each thread to wait for the other thread
+	 *            when the buffer is full or empty.
+	 */
+	public DataPostbox(int capacity, DataPostboxWaitStrategy waitStrategy) {
 		if (capacity <= 0) {
 			throw new OsmosisRuntimeException("A capacity of " + capacity + " is invalid, must be greater than 0.");
 		}
 
 		this.bufferCapacity = capacity;
+		this.waitStrategy = waitStrategy;
 
 		// Use a chunk size one quarter of total buffer size. This is a magic
 		// number but performance isn't highly sensitive to this parameter.
@@ -120,7 +168,14 @@ public class DataPostbox<T> implements Initializable {
 			chunkSize = 1;
 		}
 
-		// Create the thread synchronisation primitives.
+		// The ring holds enough chunks to cover the buffer capacity, but at
+		// least two so that one can be filled while the other is drained.
+		ring = new Object[Math.max(2, (bufferCapacity + chunkSize - 1) / chunkSize)];
+		publishSequence = new AtomicLong();
+		consumeSequence = new AtomicLong();
+
+		// Create the thread synchronisation primitives used for the lifecycle
+		// handshakes.
 		lock = new ReentrantLock();
 		dataWaitCondition = lock.newCondition();
 
@@ -145,10 +200,16 @@ public class DataPostbox<T> implements Initializable {
 
 
 	private void initializeQueues() {
-		// Create buffer objects.
-		centralQueue = new ArrayList<T>();
-		inboundQueue = new ArrayList<T>();
-		outboundQueue = new ArrayDeque<T>();
+		// Clear any batches left behind by a failed run and rewind the ring.
+		for (int i = 0; i < ring.length; i++) {
+			ring[i] = null;
+		}
+		publishSequence.set(0);
+		consumeSequence.set(0);
+
+		inboundBatch = new ArrayList<T>(chunkSize);
+		outboundBatch = Collections.emptyList();
+		outboundIndex = 0;
 	}
 
 
@@ -177,8 +238,9 @@ public class DataPostbox<T> implements Initializable {
 
 
 	/**
-	 * Either thread can call this method when they wish to wait until an update
-	 * has been performed by the other thread.
+	 * Either thread can call this method when they wish to wait until a
+	 * lifecycle update has been performed by the other thread. The lock must
+	 * be held.
 	 */
 	private void waitForUpdate() {
 		try {
@@ -192,65 +254,192 @@ public class DataPostbox<T> implements Initializable {
 
 	/**
 	 * Either thread can call this method when they wish to signal the other
-	 * thread that an update has occurred.
+	 * thread that a lifecycle update has occurred. The lock must be held. Any
+	 * thread waiting on the ring is also woken so that it can check for error
+	 * or completion conditions.
 	 */
 	private void signalUpdate() {
 		dataWaitCondition.signal();
+		wakeThread(waitingInputThread);
+		wakeThread(waitingOutputThread);
 	}
 
 
 	/**
-	 * Adds a group of objects to the central queue ready for consumption by the
-	 * receiver.
+	 * Wakes a thread waiting on the ring if the park wait strategy is in use.
 	 * 
-	 * @param o
-	 *            The objects to be added.
+	 * @param thread
+	 *            The waiting thread, or null if no thread is waiting.
 	 */
-	private void populateCentralQueue() {
-		lock.lock();
+	private void wakeThread(Thread thread) {
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
 
-		try {
-			checkForOutputErrors();
 
-			// Wait until the currently posted data is cleared.
-			while (centralQueue.size() >= bufferCapacity) {
-				waitForUpdate();
-				checkForOutputErrors();
+	/**
+	 * Pauses the current thread according to the wait strategy. This is called
+	 * repeatedly while a thread is unable to make progress on the ring.
+	 * 
+	 * @param idleCount
+	 *            The number of times the thread has already paused while
+	 *            waiting for the current update.
+	 */
+	private void pause(int idleCount) {
+		switch (waitStrategy) {
+		case Spin:
+			if ((idleCount & (SPIN_YIELD_INTERVAL - 1)) == SPIN_YIELD_INTERVAL - 1) {
+				Thread.yield();
+			}
+			break;
+		case Yield:
+			Thread.yield();
+			break;
+		case Park:
+			LockSupport.parkNanos(this, MAX_PARK_NANOS);
+			if (Thread.interrupted()) {
+				throw new OsmosisRuntimeException("Thread was interrupted.");
 			}
+			break;
+		default:
+			throw new OsmosisRuntimeException("Wait strategy " + waitStrategy + " is not recognized.");
+		}
+	}
 
-			// Post the new data.
-			centralQueue.addAll(inboundQueue);
-			inboundQueue.clear();
-			signalUpdate();
 
-		} finally {
-			lock.unlock();
+	/**
+	 * Indicates if the ring has no free slot for the input thread to publish
+	 * into.
+	 */
+	private boolean isRingFull(long sequence) {
+		return sequence - consumeSequence.get() >= ring.length;
+	}
+
+
+	/**
+	 * Publishes the current inbound batch into the ring ready for consumption
+	 * by the receiver. This will wait if the ring is full.
+	 */
+	private void publishInboundBatch() {
+		long sequence;
+
+		checkForOutputErrors();
+
+		if (inboundBatch.isEmpty()) {
+			return;
+		}
+
+		// Only the input thread modifies the publish sequence so the current
+		// value can be read without contention.
+		sequence = publishSequence.get();
+
+		// Wait until the output thread has freed a slot.
+		if (isRingFull(sequence)) {
+			long waitStart = System.nanoTime();
+
+			try {
+				for (int idleCount = 0; isRingFull(sequence); idleCount++) {
+					waitingInputThread = Thread.currentThread();
+					try {
+						// Check again after registering to avoid missing a wake up.
+						if (isRingFull(sequence)) {
+							pause(idleCount);
+						}
+					} finally {
+						waitingInputThread = null;
+					}
+					checkForOutputErrors();
+				}
+			} finally {
+				// Only the input thread updates the put statistics.
+				putBlockedNanos += System.nanoTime() - waitStart;
+			}
 		}
+
+		// Post the new data. The volatile write to the publish sequence makes
+		// the slot contents visible to the output thread, and is ordered
+		// before the check for a waiting thread below.
+		ring[(int) (sequence % ring.length)] = inboundBatch;
+		publishSequence.set(sequence + 1);
+		inboundBatch = new ArrayList<T>(chunkSize);
+
+		wakeThread(waitingOutputThread);
 	}
 
 
 	/**
-	 * Empties the contents of the central queue into the outbound queue.
+	 * Adds the time spent waiting for data to the get statistics. Only the
+	 * output thread updates the get statistics.
 	 */
-	private void consumeCentralQueue() {
-		lock.lock();
+	private void recordGetBlocked(boolean waited, long waitStart) {
+		if (waited) {
+			getBlockedNanos += System.nanoTime() - waitStart;
+		}
+	}
 
-		try {
+
+	/**
+	 * Takes the next batch from the ring, waiting until data is available or
+	 * input processing has completed.
+	 * 
+	 * @return True if a batch was retrieved, false if no more data is
+	 *         available.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean consumeBatch() {
+		long sequence;
+		boolean waited;
+		long waitStart;
+
+		// Release the old batch so it can be garbage collected while waiting.
+		outboundBatch = Collections.emptyList();
+		outboundIndex = 0;
+
+		// Only the output thread modifies the consume sequence.
+		sequence = consumeSequence.get();
+		waited = false;
+		waitStart = 0;
+
+		for (int idleCount = 0;; idleCount++) {
 			checkForInputErrors();
 
-			// Wait until data is available.
-			while (!((centralQueue.size() > 0) || inputComplete)) {
-				waitForUpdate();
-				checkForInputErrors();
-			}
+			if (sequence < publishSequence.get()) {
+				int slot = (int) (sequence % ring.length);
 
-			outboundQueue.addAll(centralQueue);
-			centralQueue.clear();
+				outboundBatch = (List<T>) ring[slot];
+				ring[slot] = null;
+				consumeSequence.set(sequence + 1);
 
-			signalUpdate();
+				wakeThread(waitingInputThread);
+				recordGetBlocked(waited, waitStart);
 
-		} finally {
-			lock.unlock();
+				return true;
+			}
+
+			// The complete flag is set after the final batch is published so
+			// the ring must be checked again before reporting no more data.
+			if (inputComplete) {
+				if (sequence < publishSequence.get()) {
+					continue;
+				}
+				recordGetBlocked(waited, waitStart);
+				return false;
+			}
+
+			if (!waited) {
+				waited = true;
+				waitStart = System.nanoTime();
+			}
+			waitingOutputThread = Thread.currentThread();
+			try {
+				// Check again after registering to avoid missing a wake up.
+				if (sequence >= publishSequence.get() && !inputComplete && inputOkay) {
+					pause(idleCount);
+				}
+			} finally {
+				waitingOutputThread = null;
+			}
 		}
 	}
 
@@ -299,10 +488,10 @@ public class DataPostbox<T> implements Initializable {
 			throw new OsmosisRuntimeException("initialize has not been called");
 		}
 
-		inboundQueue.add(o);
+		inboundBatch.add(o);
 
-		if (inboundQueue.size() >= chunkSize) {
-			populateCentralQueue();
+		if (inboundBatch.size() >= chunkSize) {
+			publishInboundBatch();
 		}
 	}
 
@@ -316,10 +505,16 @@ public class DataPostbox<T> implements Initializable {
 			throw new OsmosisRuntimeException("initialize has not been called");
 		}
 
+		// Flush any remaining data before taking the lock, the output thread
+		// may need to drain the ring before the final batch fits.
+		publishInboundBatch();
+
 		lock.lock();
 
 		try {
-			populateCentralQueue();
+			// The output thread may have failed after the final batch was
+			// published, in which case it won't signal again.
+			checkForOutputErrors();
 
 			inputComplete = true;
 
@@ -429,20 +624,15 @@ public class DataPostbox<T> implements Initializable {
 	 * @return True if data is available.
 	 */
 	public boolean hasNext() {
-		int queueSize;
-
 		if (!outputInitialized) {
 			throw new OsmosisRuntimeException("outputInitialize has not been called");
 		}
 
-		queueSize = outboundQueue.size();
-
-		if (queueSize <= 0) {
-			consumeCentralQueue();
-			queueSize = outboundQueue.size();
+		if (outboundIndex < outboundBatch.size()) {
+			return true;
 		}
 
-		return queueSize > 0;
+		return consumeBatch();
 	}
 
 
@@ -454,11 +644,7 @@ public class DataPostbox<T> implements Initializable {
 	 */
 	public T getNext() {
 		if (hasNext()) {
-			T result;
-
-			result = outboundQueue.remove();
-
-			return result;
+			return outboundBatch.get(outboundIndex++);
 
 		} else {
 			throw new OsmosisRuntimeException("No data is available, should call hasNext first.");
@@ -543,4 +729,33 @@ public class DataPostbox<T> implements Initializable {
 			lock.unlock();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getPutBlockedNanos() {
+		return putBlockedNanos;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getGetBlockedNanos() {
+		return getBlockedNanos;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getQueueDepth() {
+		// Published batches are normally full, the partially filled inbound
+		// batch is owned by the input thread and isn't included.
+		return Math.max(0, publishSequence.get() - consumeSequence.get()) * chunkSize;
+	}
 }
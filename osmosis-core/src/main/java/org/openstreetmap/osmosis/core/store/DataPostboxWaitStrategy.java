@@ -0,0 +1,28 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+/**
+ * Defines how a {@link DataPostbox} thread waits when it can't make progress,
+ * either because the buffer is full (input thread) or because it is empty
+ * (output thread). The choice trades CPU usage against hand-off latency.
+ */
+public enum DataPostboxWaitStrategy {
+	/**
+	 * Busy-waits on the buffer, only yielding occasionally. This gives the
+	 * lowest latency but consumes a full core for each waiting thread and
+	 * should only be used when there are more cores available than pipeline
+	 * threads.
+	 */
+	Spin,
+	/**
+	 * Yields the processor to other threads between checks of the buffer. This
+	 * keeps latency low while allowing other runnable threads to make
+	 * progress, but still shows up as CPU usage while waiting.
+	 */
+	Yield,
+	/**
+	 * Parks the waiting thread until the other thread signals that it has
+	 * updated the buffer. This uses no CPU while waiting and is the default.
+	 */
+	Park
+}
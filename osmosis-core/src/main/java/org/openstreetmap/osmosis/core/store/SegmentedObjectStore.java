@@ -10,6 +10,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -50,6 +55,9 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 	private boolean chunkActive; 
 	private boolean useCompression;
 	private long fileSize;
+	private List<Long> chunkOffsets;
+	private List<Long> chunkObjectCounts;
+	private long chunkObjectCount;
 	
 	
 	/**
@@ -72,6 +80,8 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 		
 		stage = StorageStage.NotStarted;
 		fileSize = 0;
+		chunkOffsets = new ArrayList<Long>();
+		chunkObjectCounts = new ArrayList<Long>();
 		
 		chunkActive = false;
 	}
@@ -116,10 +126,14 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 					dataOutStream = new DataOutputStream(new BufferedOutputStream(arrayOutStream, 65536));
 				}
 				
+				// Each chunk uses a new store writer so that it can be read
+				// independently of the chunks preceding it.
 				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+						new CompactStoreWriter(dataOutStream), storeClassRegister);
 				
 				chunkActive = true;
+				chunkOffsets.add(fileSize);
+				chunkObjectCount = 0;
 				
 			} catch (IOException e) {
 				throw new OsmosisRuntimeException("Unable to create object stream.", e);
@@ -128,6 +142,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 		
 		// Write the object to the store.
 		objectWriter.writeObject(data);
+		chunkObjectCount++;
 		
 		// Update the file position based on the buffer size.
 		fileSize += arrayOutStream.size();
@@ -162,6 +177,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 			try {
 				dataOutStream.close();
 				fileSize += arrayOutStream.size();
+				chunkObjectCounts.add(chunkObjectCount);
 				
 				arrayOutStream.writeTo(fileOutStream);
 				arrayOutStream.reset();
@@ -247,7 +263,10 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 		
 		try {
 			DataInputStream dataInStream;
+			CompactStoreReader storeReader;
 			ObjectReader objectReader;
+			ReleasableIterator<T> iterator;
+			int chunkIndex;
 			
 			if (!initializeIteratingStage()) {
 				return new EmptyIterator<T>();
@@ -287,15 +306,25 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 			// the reference now so it isn't closed on method exit.
 			fileStream = null;
 			
-			objectReader = serializationFactory.createObjectReader(
-					new DataInputStoreReader(dataInStream), storeClassRegister);
+			storeReader = new CompactStoreReader(dataInStream);
+			objectReader = serializationFactory.createObjectReader(storeReader, storeClassRegister);
 			
 			if (maxObjectCount >= 0) {
-				return new SubObjectStreamIterator<T>(dataInStream, objectReader, maxObjectCount);
+				iterator = new SubObjectStreamIterator<T>(dataInStream, objectReader, maxObjectCount);
 			} else {
-				return new ObjectStreamIterator<T>(dataInStream, objectReader);
+				iterator = new ObjectStreamIterator<T>(dataInStream, objectReader);
 			}
 			
+			// If the iteration may continue beyond the first chunk, the reader
+			// state must be discarded at the start of each subsequent chunk.
+			chunkIndex = Collections.binarySearch(chunkOffsets, streamOffset);
+			if (chunkIndex >= 0 && chunkIndex < chunkObjectCounts.size() - 1) {
+				iterator = new ChunkBoundaryIterator<T>(
+						iterator, storeReader, chunkObjectCounts.subList(chunkIndex, chunkObjectCounts.size()));
+			}
+			
+			return iterator;
+			
 		} finally {
 			if (fileStream != null) {
 				try {
@@ -341,4 +370,91 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 		
 		stage = StorageStage.Released;
 	}
+	
+	
+	/**
+	 * Resets the store reader at each chunk boundary while iterating over
+	 * multiple chunks.
+	 * 
+	 * @param <T>
+	 *            The object type being iterated.
+	 */
+	private static class ChunkBoundaryIterator<T> implements ReleasableIterator<T> {
+		private ReleasableIterator<T> source;
+		private CompactStoreReader storeReader;
+		private Iterator<Long> chunkObjectCounts;
+		private long remainingChunkObjects;
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param source
+		 *            The iterator reading objects from the store reader.
+		 * @param storeReader
+		 *            The store reader to be reset at each chunk boundary.
+		 * @param chunkObjectCounts
+		 *            The number of objects in each chunk beginning with the
+		 *            first chunk to be read.
+		 */
+		ChunkBoundaryIterator(
+				ReleasableIterator<T> source, CompactStoreReader storeReader, List<Long> chunkObjectCounts) {
+			this.source = source;
+			this.storeReader = storeReader;
+			this.chunkObjectCounts = chunkObjectCounts.iterator();
+			
+			remainingChunkObjects = this.chunkObjectCounts.next();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return source.hasNext();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public T next() {
+			T result;
+			
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			// The source only reads the following object when next asked, so
+			// the reset takes effect before any data from the next chunk is read.
+			result = source.next();
+			remainingChunkObjects--;
+			if (remainingChunkObjects == 0 && chunkObjectCounts.hasNext()) {
+				storeReader.reset();
+				remainingChunkObjects = chunkObjectCounts.next();
+			}
+			
+			return result;
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			source.close();
+		}
+	}
 }
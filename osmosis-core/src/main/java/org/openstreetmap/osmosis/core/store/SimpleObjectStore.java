@@ -92,7 +92,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 				}
 				
 				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+						new CompactStoreWriter(dataOutStream), storeClassRegister);
 				
 				stage = StorageStage.Add;
 				
@@ -190,7 +190,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 			return new ObjectStreamIterator<T>(
 					dataInStream,
 					serializationFactory.createObjectReader(
-							new DataInputStoreReader(dataInStream), storeClassRegister));
+							new CompactStoreReader(dataInStream), storeClassRegister));
 			
 		} finally {
 			if (fileStream != null) {
@@ -51,6 +51,32 @@ public interface StoreReader {
 	long readLong();
 	
 	
+	/**
+	 * Reads an integer from storage that was written to a delta channel. The
+	 * default implementation reads a value written in full.
+	 * 
+	 * @param channel
+	 *            The channel the value was written to.
+	 * @return The loaded value.
+	 */
+	default int readDeltaInteger(int channel) {
+		return readInteger();
+	}
+	
+	
+	/**
+	 * Reads a long from storage that was written to a delta channel. The
+	 * default implementation reads a value written in full.
+	 * 
+	 * @param channel
+	 *            The channel the value was written to.
+	 * @return The loaded value.
+	 */
+	default long readDeltaLong(int channel) {
+		return readLong();
+	}
+	
+	
 	/**
 	 * Reads a double from storage.
 	 * 
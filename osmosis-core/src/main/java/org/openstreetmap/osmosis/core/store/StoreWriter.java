@@ -9,6 +9,12 @@ package org.openstreetmap.osmosis.core.store;
  * @author Brett Henderson
  */
 public interface StoreWriter {
+	/**
+	 * The number of channels available for delta encoded values.
+	 */
+	int DELTA_CHANNEL_COUNT = 8;
+	
+	
 	/**
 	 * Writes a boolean to storage.
 	 * 
@@ -54,6 +60,40 @@ public interface StoreWriter {
 	void writeLong(long value);
 	
 	
+	/**
+	 * Writes an integer to storage that is likely to be close to the previous
+	 * value written to the same channel. Implementations may encode the value
+	 * as the difference from the previous value in the channel. Channels are
+	 * numbered from 0 to {@link #DELTA_CHANNEL_COUNT} - 1. The default
+	 * implementation writes the value in full.
+	 * 
+	 * @param channel
+	 *            The channel identifying the sequence of related values.
+	 * @param value
+	 *            The value to be written.
+	 */
+	default void writeDeltaInteger(int channel, int value) {
+		writeInteger(value);
+	}
+	
+	
+	/**
+	 * Writes a long to storage that is likely to be close to the previous value
+	 * written to the same channel. Implementations may encode the value as the
+	 * difference from the previous value in the channel. Channels are numbered
+	 * from 0 to {@link #DELTA_CHANNEL_COUNT} - 1. The default implementation
+	 * writes the value in full.
+	 * 
+	 * @param channel
+	 *            The channel identifying the sequence of related values.
+	 * @param value
+	 *            The value to be written.
+	 */
+	default void writeDeltaLong(int channel, long value) {
+		writeLong(value);
+	}
+	
+	
 	/**
 	 * Writes a double to storage.
 	 * 
@@ -9,12 +9,26 @@ import java.util.TimeZone;
 
 /**
  * Outputs a date in a format suitable for an OSM XML file.
+ * <p>
+ * Consecutive dates frequently fall within the same day, so the formatted date
+ * portion is cached and only the time of day is calculated for each date. The
+ * result for the most recent second is also cached.
+ * </p>
  * 
  * @author Brett Henderson
  */
 public class DateFormatter {
 	
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+	private static final int SECONDS_PER_HOUR = 60 * 60;
+	private static final int SECONDS_PER_MINUTE = 60;
+	
 	private GregorianCalendar calendar;
+	private long cachedDay;
+	private String cachedDayPrefix;
+	private long cachedSecond;
+	private String cachedResult;
 	
 	
 	/**
@@ -25,6 +39,34 @@ public class DateFormatter {
 	}
 	
 	
+	private static void appendTwoDigits(StringBuilder result, int value) {
+		if (value < 10) {
+			result.append('0');
+		}
+		result.append(value);
+	}
+	
+	
+	/**
+	 * Formats the date portion of the date, including the 'T' separator.
+	 */
+	private String formatDay(Date date) {
+		StringBuilder result;
+		
+		calendar.setTime(date);
+		
+		result = new StringBuilder(11);
+		result.append(calendar.get(Calendar.YEAR));
+		result.append('-');
+		appendTwoDigits(result, calendar.get(Calendar.MONTH) + 1);
+		result.append('-');
+		appendTwoDigits(result, calendar.get(Calendar.DATE));
+		result.append('T');
+		
+		return result.toString();
+	}
+	
+	
 	/**
 	 * Formats a date in XML format.
 	 * 
@@ -34,52 +76,34 @@ public class DateFormatter {
 	 */
 	public String format(Date date) {
 		StringBuilder result;
-		int year;
-		int month;
-		int day;
-		int hour;
-		int minute;
-		int second;
+		long second;
+		long day;
+		int secondOfDay;
 		
-		calendar.setTime(date);
-		
-		result = new StringBuilder(20);
-		
-		year = calendar.get(Calendar.YEAR);
-		month = calendar.get(Calendar.MONTH) + 1;
-		day = calendar.get(Calendar.DATE);
-		hour = calendar.get(Calendar.HOUR_OF_DAY);
-		minute = calendar.get(Calendar.MINUTE);
-		second = calendar.get(Calendar.SECOND);
-		
-		result.append(year);
-		result.append('-');
-		if (month < 10) {
-			result.append('0');
+		second = Math.floorDiv(date.getTime(), MILLIS_PER_SECOND);
+		if (cachedResult != null && second == cachedSecond) {
+			return cachedResult;
 		}
-		result.append(month);
-		result.append('-');
-		if (day < 10) {
-			result.append('0');
-		}
-		result.append(day);
-		result.append('T');
-		if (hour < 10) {
-			result.append('0');
+		
+		day = Math.floorDiv(second, SECONDS_PER_DAY);
+		if (cachedDayPrefix == null || day != cachedDay) {
+			cachedDayPrefix = formatDay(date);
+			cachedDay = day;
 		}
-		result.append(hour);
+		secondOfDay = (int) Math.floorMod(second, SECONDS_PER_DAY);
+		
+		result = new StringBuilder(20);
+		result.append(cachedDayPrefix);
+		appendTwoDigits(result, secondOfDay / SECONDS_PER_HOUR);
 		result.append(':');
-		if (minute < 10) {
-			result.append('0');
-		}
-		result.append(minute);
+		appendTwoDigits(result, (secondOfDay % SECONDS_PER_HOUR) / SECONDS_PER_MINUTE);
 		result.append(':');
-		if (second < 10) {
-			result.append('0');
-		}
-		result.append(second);
+		appendTwoDigits(result, secondOfDay % SECONDS_PER_MINUTE);
 		result.append('Z');
 		
-		return result.toString();
+		cachedSecond = second;
+		cachedResult = result.toString();
+		
+		return cachedResult;
 	}
 }
@@ -0,0 +1,64 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+
+/**
+ * A shared pool used to de-duplicate frequently occurring strings such as tag
+ * keys and common tag values. Each reader produces new string instances for
+ * every entity, passing them through this pool allows entities held in memory
+ * to share a single instance of each string.
+ * <p>
+ * The pool has a fixed size and a string is replaced whenever a different
+ * string with the same hash slot is added. This keeps memory usage bounded
+ * regardless of the number of distinct strings while still retaining the
+ * strings that occur most often. Long strings are rarely repeated and are
+ * never pooled.
+ * </p>
+ * <p>
+ * This class is thread safe without locking. Strings are immutable so a
+ * thread will either see a complete string in a slot or a previous value.
+ * </p>
+ */
+public final class StringPool {
+
+	private static final int POOL_SIZE = 1 << 16;
+	private static final int MAX_STRING_LENGTH = 32;
+	private static final String[] POOL = new String[POOL_SIZE];
+
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private StringPool() {
+	}
+
+
+	/**
+	 * Returns the pooled instance of a string equal to the one provided. If no
+	 * such string is held, the provided string is added to the pool and
+	 * returned.
+	 *
+	 * @param value
+	 *            The string to be pooled, may be null.
+	 * @return The pooled string.
+	 */
+	public static String intern(String value) {
+		if (value == null || value.length() > MAX_STRING_LENGTH) {
+			return value;
+		}
+
+		// Spread the hash bits because string hashes of short strings are
+		// poorly distributed in the low bits.
+		int hash = value.hashCode();
+		int index = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+		String pooled = POOL[index];
+
+		if (value.equals(pooled)) {
+			return pooled;
+		}
+
+		POOL[index] = value;
+
+		return value;
+	}
+}
@@ -127,6 +127,29 @@ public class CommandLineParserTest {
 	}
 	
 	
+	/**
+	 * Validates the metrics option with and without an output file.
+	 */
+	@Test
+	public void testMetricsOption() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {});
+		Assert.assertFalse("Metrics should be disabled by default.", commandLineParser.isMetricsEnabled());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-m"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertNull("No metrics file should be set.", commandLineParser.getMetricsFile());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-metrics", "metrics.json"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertEquals("Incorrect metrics file.", "metrics.json", commandLineParser.getMetricsFile());
+	}
+	
+	
 	/**
 	 * Validates failure when an unknown option is specified.
 	 */
@@ -0,0 +1,151 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+
+
+/**
+ * Tests the array tag collection.
+ */
+public class ArrayTagCollectionTest {
+
+	private static List<String> toStrings(Iterable<Tag> tags) {
+		List<String> result = new ArrayList<String>();
+
+		for (Tag tag : tags) {
+			result.add(tag.getKey() + "=" + tag.getValue());
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Verifies that tags are added, removed and iterated in order.
+	 */
+	@Test
+	public void testModification() {
+		ArrayTagCollection tags = new ArrayTagCollection();
+
+		for (int i = 0; i < 20; i++) {
+			tags.add(new Tag("key" + i, "value" + i));
+		}
+		Assert.assertEquals("Incorrect size.", 20, tags.size());
+		Assert.assertTrue("Tag not found.", tags.contains(new Tag("key5", "value5")));
+		Assert.assertFalse("Unexpected tag found.", tags.contains(new Tag("key5", "value6")));
+
+		Assert.assertTrue("Tag not removed.", tags.remove(new Tag("key0", "value0")));
+		for (Iterator<Tag> iterator = tags.iterator(); iterator.hasNext();) {
+			if (iterator.next().getKey().length() > 4) {
+				iterator.remove();
+			}
+		}
+		Assert.assertEquals("Incorrect tags.",
+				Arrays.asList("key1=value1", "key2=value2", "key3=value3", "key4=value4", "key5=value5",
+						"key6=value6", "key7=value7", "key8=value8", "key9=value9"),
+				toStrings(tags));
+
+		tags.clear();
+		Assert.assertTrue("Collection not cleared.", tags.isEmpty());
+	}
+
+
+	/**
+	 * Verifies that the map view provides access to the tags.
+	 */
+	@Test
+	public void testBuildMap() {
+		ArrayTagCollection tags = new ArrayTagCollection(
+				Arrays.asList(new Tag("highway", "residential"), new Tag("name", "Main Street")));
+		Map<String, String> tagMap = tags.buildMap();
+
+		Assert.assertEquals("Incorrect size.", 2, tagMap.size());
+		Assert.assertEquals("Incorrect value.", "residential", tagMap.get("highway"));
+		Assert.assertNull("Unexpected value.", tagMap.get("building"));
+		Assert.assertTrue("Key not found.", tagMap.containsKey("name"));
+		Assert.assertEquals("Incorrect entries.", tagMap.size(), tagMap.entrySet().size());
+		Assert.assertEquals("Incorrect copy.", tagMap, new ArrayTagCollection(tags).buildMap());
+	}
+
+
+	/**
+	 * Verifies that the map view holds a single entry for duplicated keys
+	 * using the value of the last tag.
+	 */
+	@Test
+	public void testBuildMapDuplicateKeys() {
+		ArrayTagCollection tags = new ArrayTagCollection(
+				Arrays.asList(new Tag("name", "Old"), new Tag("highway", "residential"), new Tag("name", "New")));
+		Map<String, String> tagMap = tags.buildMap();
+		Map<String, String> expected = new HashMap<String, String>();
+
+		expected.put("highway", "residential");
+		expected.put("name", "New");
+
+		Assert.assertEquals("Incorrect size.", 2, tagMap.size());
+		Assert.assertEquals("Incorrect value.", "New", tagMap.get("name"));
+		Assert.assertEquals("Incorrect entries.", 2, tagMap.entrySet().size());
+		Assert.assertEquals("Incorrect map.", expected, tagMap);
+		Assert.assertEquals("Incorrect reverse comparison.", tagMap, expected);
+	}
+
+
+	/**
+	 * Verifies that the map view can't be modified.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testBuildMapReadOnly() {
+		ArrayTagCollection tags = new ArrayTagCollection(Arrays.asList(new Tag("highway", "residential")));
+
+		tags.buildMap().put("name", "Main Street");
+	}
+
+
+	/**
+	 * Verifies that common strings are shared between collections.
+	 */
+	@Test
+	public void testStringPooling() {
+		ArrayTagCollection tags1 = new ArrayTagCollection();
+		ArrayTagCollection tags2 = new ArrayTagCollection();
+
+		tags1.add(new Tag(new String("highway"), new String("residential")));
+		tags2.add(new Tag(new String("highway"), new String("residential")));
+
+		Assert.assertSame("Keys are not shared.", tags1.iterator().next().getKey(), tags2.iterator().next().getKey());
+		Assert.assertSame("Values are not shared.",
+				tags1.iterator().next().getValue(), tags2.iterator().next().getValue());
+	}
+
+
+	/**
+	 * Verifies that the collection can be stored and loaded again.
+	 */
+	@Test
+	public void testStore() {
+		ArrayTagCollection tags = new ArrayTagCollection(
+				Arrays.asList(new Tag("highway", "residential"), new Tag("name", "Main Street")));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DynamicStoreClassRegister scr = new DynamicStoreClassRegister();
+
+		tags.store(new DataOutputStoreWriter(new DataOutputStream(out)), scr);
+
+		Assert.assertEquals("Incorrect tags.", toStrings(tags), toStrings(new ArrayTagCollection(
+				new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray()))), scr)));
+	}
+}
@@ -0,0 +1,118 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+
+
+/**
+ * Tests the packed way node and relation member lists.
+ */
+public class PackedListTest {
+
+	private CommonEntityData createEntityData() {
+		return new CommonEntityData(1, 2, new Date(0), new OsmUser(3, "user"), 4);
+	}
+
+
+	private StoreReader storeAndReload(Entity entity) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DynamicStoreClassRegister scr = new DynamicStoreClassRegister();
+
+		entity.store(new DataOutputStoreWriter(new DataOutputStream(out)), scr);
+
+		return new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+
+	/**
+	 * Verifies that way nodes can be modified through both the list and packed
+	 * representations.
+	 */
+	@Test
+	public void testWayNodes() {
+		Way way = new Way(createEntityData(), new long[] {10, 11, 12});
+
+		way.getWayNodes().add(new WayNode(13, 1.5, 2.5));
+		way.getWayNodes().add(0, new WayNode(9));
+		for (Iterator<WayNode> i = way.getWayNodes().iterator(); i.hasNext();) {
+			if (i.next().getNodeId() == 11) {
+				i.remove();
+			}
+		}
+
+		Assert.assertEquals("Incorrect way node count.", 4, way.getWayNodeCount());
+		Assert.assertArrayEquals("Incorrect way node ids.", new long[] {9, 10, 12, 13},
+				((WayNodeList) way.getWayNodes()).toNodeIdArray());
+		Assert.assertEquals("Incorrect latitude.", 1.5, way.getWayNodes().get(3).getLatitude(), 0);
+		Assert.assertEquals("Incorrect longitude.", 0, way.getWayNodes().get(0).getLongitude(), 0);
+		Assert.assertFalse("Way should not be closed.", way.isClosed());
+	}
+
+
+	/**
+	 * Verifies that way nodes are stored and compared correctly.
+	 */
+	@Test
+	public void testWayStore() {
+		Way way = new Way(createEntityData(), new long[] {10, 11, 10});
+		way.getWayNodes().set(1, new WayNode(11, 3, 4));
+
+		Way reloaded = new Way(storeAndReload(way), new DynamicStoreClassRegister());
+
+		Assert.assertEquals("Reloaded way differs.", 0, way.compareTo(reloaded));
+		Assert.assertEquals("Incorrect latitude.", 3, reloaded.getWayNodes().get(1).getLatitude(), 0);
+		Assert.assertTrue("Way should be closed.", reloaded.isClosed());
+	}
+
+
+	/**
+	 * Verifies that a read-only way cannot be modified.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnlyWay() {
+		Way way = new Way(createEntityData(), new long[] {10, 11});
+		way.makeReadOnly();
+
+		Way copy = way.getWriteableInstance();
+		copy.getWayNodes().add(new WayNode(12));
+		Assert.assertEquals("Copy should be writeable.", 3, copy.getWayNodeCount());
+		way.getWayNodes().remove(0);
+	}
+
+
+	/**
+	 * Verifies that relation members are held and stored correctly.
+	 */
+	@Test
+	public void testRelationMembers() {
+		Relation relation = new Relation(new CommonEntityData(5, 1, new Date(0), OsmUser.NONE, 2), Arrays.asList(
+				new RelationMember(20, EntityType.Way, "outer"),
+				new RelationMember(21, EntityType.Way, "inner"),
+				new RelationMember(22, EntityType.Node, "outer")));
+
+		relation.getMembers().set(1, new RelationMember(23, EntityType.Relation, "subarea"));
+		relation.getMembers().remove(0);
+
+		Assert.assertEquals("Incorrect member count.", 2, relation.getMemberCount());
+		Assert.assertEquals("Incorrect member id.", 23, relation.getMemberId(0));
+		Assert.assertEquals("Incorrect member type.", EntityType.Relation, relation.getMemberType(0));
+		Assert.assertEquals("Incorrect member role.", "subarea", relation.getMemberRole(0));
+		Assert.assertEquals("Incorrect member role.", "outer", relation.getMembers().get(1).getMemberRole());
+
+		Relation reloaded = new Relation(storeAndReload(relation), new DynamicStoreClassRegister());
+		Assert.assertEquals("Reloaded relation differs.", 0, relation.compareTo(reloaded));
+	}
+}
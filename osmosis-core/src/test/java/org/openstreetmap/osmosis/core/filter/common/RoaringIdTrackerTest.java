@@ -0,0 +1,110 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the roaring id tracker implementation.
+ */
+public class RoaringIdTrackerTest extends IdTrackerBase {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IdTracker getImplementation() {
+		return new RoaringIdTracker();
+	}
+
+
+	private void assertContents(TreeSet<Long> expected, IdTracker idTracker) {
+		PrimitiveIterator.OfLong ids = idTracker.iterator();
+
+		for (long expectedId : expected) {
+			Assert.assertTrue("Tracker is missing ids.", ids.hasNext());
+			Assert.assertEquals("Incorrect id returned.", expectedId, ids.nextLong());
+			Assert.assertTrue("Id " + expectedId + " is not set.", idTracker.get(expectedId));
+		}
+		Assert.assertFalse("Tracker has too many ids.", ids.hasNext());
+	}
+
+
+	private void setRandomIds(Random random, TreeSet<Long> expected, IdTracker idTracker, long base, int range,
+			int count) {
+		for (int i = 0; i < count; i++) {
+			long id = base + random.nextInt(range);
+
+			expected.add(id);
+			idTracker.set(id);
+		}
+	}
+
+
+	/**
+	 * Tests sparse and dense ranges of ids across the full id range including
+	 * the points where containers switch from lists to bitmaps.
+	 */
+	@Test
+	public void testSparseAndDense() {
+		Random random = new Random(1);
+		TreeSet<Long> expected = new TreeSet<Long>();
+		IdTracker idTracker = new RoaringIdTracker();
+
+		setRandomIds(random, expected, idTracker, Long.MIN_VALUE, 100000, 100);
+		setRandomIds(random, expected, idTracker, -1000000, 2000000, 20000);
+		setRandomIds(random, expected, idTracker, 5000000000L, 65536, 4095);
+		setRandomIds(random, expected, idTracker, 6000000000L, 65536, 60000);
+		setRandomIds(random, expected, idTracker, Long.MAX_VALUE - 100000, 100000, 100);
+
+		// Fill a container to exactly the list limit then add one more id.
+		for (int i = 0; i <= 4096; i++) {
+			long id = 7000000000L + i * 2;
+
+			expected.add(id);
+			idTracker.set(id);
+		}
+
+		assertContents(expected, idTracker);
+		Assert.assertFalse(idTracker.get(7000000001L));
+		Assert.assertFalse(idTracker.get(-2000000));
+	}
+
+
+	/**
+	 * Tests merging one tracker into another, both between roaring trackers and
+	 * from a different tracker implementation.
+	 */
+	@Test
+	public void testSetAllContainers() {
+		Random random = new Random(2);
+		TreeSet<Long> expected = new TreeSet<Long>();
+		IdTracker idTracker = new RoaringIdTracker();
+		IdTracker otherIdTracker = new RoaringIdTracker();
+		IdTracker listIdTracker = new ListIdTracker();
+
+		// Mix sparse and dense containers in both trackers so that every
+		// combination of container merge occurs.
+		setRandomIds(random, expected, idTracker, 0, 65536 * 8, 20000);
+		setRandomIds(random, expected, idTracker, 65536 * 20, 65536, 3000);
+		setRandomIds(random, expected, otherIdTracker, 65536 * 4, 65536 * 8, 20000);
+		setRandomIds(random, expected, otherIdTracker, 65536 * 20, 65536, 3000);
+		setRandomIds(random, expected, otherIdTracker, -65536 * 4, 65536, 100);
+		setRandomIds(random, expected, listIdTracker, 100, 100000, 1000);
+
+		idTracker.setAll(otherIdTracker);
+		idTracker.setAll(listIdTracker);
+		idTracker.setAll(idTracker);
+
+		assertContents(expected, idTracker);
+
+		// The source tracker must not be affected by the merge.
+		idTracker.set(65536 * 30);
+		Assert.assertFalse(otherIdTracker.get(65536 * 30));
+	}
+}
@@ -0,0 +1,191 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.metrics.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.buffer.v0_6.EntityBuffer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.metrics.v0_6.MeteredSink;
+import org.openstreetmap.osmosis.core.misc.v0_6.NullWriter;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkRunnableSourceManager;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Tests the {@link PipelineMetrics} class.
+ */
+public class PipelineMetricsTest {
+
+	/**
+	 * Verifies that entities passing through a metered sink are counted
+	 * against both the producing and consuming tasks, and that the counts are
+	 * included in the JSON output.
+	 */
+	@Test
+	public void testEntityCounts() {
+		PipelineMetrics metrics = new PipelineMetrics();
+		TaskMetrics producer = metrics.createTaskMetrics("1-read-xml", "read-xml");
+		TaskMetrics consumer = metrics.createTaskMetrics("2-write-null", "write-null");
+		Sink sink;
+		String json;
+
+		try {
+			sink = MeteredSink.wrap(new NullWriter(), producer, consumer);
+
+			metrics.start();
+			sink.initialize(Collections.<String, Object>emptyMap());
+			for (int i = 0; i < 5; i++) {
+				Node node = new Node(new CommonEntityData(i, 1, new Date(), OsmUser.NONE, 1), 0, 0);
+				sink.process(new NodeContainer(node));
+			}
+			sink.complete();
+			sink.close();
+			metrics.finish();
+
+			Assert.assertEquals("Incorrect producer output count.", 5, producer.getEntitiesOut());
+			Assert.assertEquals("Incorrect producer input count.", 0, producer.getEntitiesIn());
+			Assert.assertEquals("Incorrect consumer input count.", 5, consumer.getEntitiesIn());
+
+			json = metrics.toJson();
+			Assert.assertTrue("Missing task in JSON.", json.contains("\"taskId\":\"2-write-null\""));
+			Assert.assertTrue("Missing count in JSON.", json.contains("\"entitiesIn\":5"));
+
+		} finally {
+			metrics.close();
+		}
+	}
+
+
+	/**
+	 * Verifies that a sink is not wrapped if no metrics are being collected.
+	 */
+	@Test
+	public void testNoMetrics() {
+		Sink sink = new NullWriter();
+
+		Assert.assertSame("The sink should not be wrapped.", sink, MeteredSink.wrap(sink, null, null));
+	}
+
+
+	/**
+	 * Verifies that task metrics are registered with the platform MBean server
+	 * until the pipeline metrics are closed.
+	 *
+	 * @throws Exception
+	 *             if the MBean server can't be queried.
+	 */
+	@Test
+	public void testMBeanRegistration() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(
+				PipelineMetrics.MBEAN_DOMAIN + ":type=PipelineTask,name=" + ObjectName.quote("1-tee"));
+		PipelineMetrics metrics = new PipelineMetrics();
+
+		try {
+			metrics.createTaskMetrics("1-tee", "tee");
+			Assert.assertEquals("Incorrect task type attribute.", "tee", server.getAttribute(name, "TaskType"));
+		} finally {
+			metrics.close();
+		}
+
+		Assert.assertFalse("The MBean should be unregistered.", server.isRegistered(name));
+	}
+
+
+	/**
+	 * Verifies that the queue of a buffer task reports its statistics to the
+	 * metrics of the task once the metrics are set on its task manager.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testQueueRegistration() throws InterruptedException {
+		final TaskMetrics taskMetrics = new TaskMetrics("1-buffer", "buffer");
+		final EntityBuffer buffer = new EntityBuffer(100);
+		final CountDownLatch filled = new CountDownLatch(1);
+		final CountDownLatch checked = new CountDownLatch(1);
+		final AtomicInteger count = new AtomicInteger();
+		Thread inputThread;
+
+		new SinkRunnableSourceManager("1-buffer", buffer, Collections.<String, String>emptyMap())
+				.setMetrics(taskMetrics);
+
+		// Two full batches fit in the buffer without blocking the input thread.
+		inputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					buffer.initialize(Collections.<String, Object>emptyMap());
+					for (int i = 0; i < 50; i++) {
+						Node node = new Node(new CommonEntityData(i, 1, new Date(), OsmUser.NONE, 1), 0, 0);
+						buffer.process(new NodeContainer(node));
+					}
+					filled.countDown();
+					checked.await();
+					buffer.complete();
+				} catch (InterruptedException e) {
+					throw new OsmosisRuntimeException("Interrupted.", e);
+				} finally {
+					buffer.close();
+				}
+			}
+		});
+		inputThread.start();
+
+		buffer.setSink(new Sink() {
+			@Override
+			public void initialize(Map<String, Object> metaData) {
+				try {
+					filled.await();
+				} catch (InterruptedException e) {
+					throw new OsmosisRuntimeException("Interrupted.", e);
+				}
+
+				Assert.assertEquals("Incorrect queue depth.", 50, taskMetrics.getQueueDepth());
+				Assert.assertEquals("The input should not have blocked.", 0, taskMetrics.getPutBlockedMillis());
+				checked.countDown();
+			}
+
+			@Override
+			public void process(EntityContainer entityContainer) {
+				count.incrementAndGet();
+			}
+
+			@Override
+			public void complete() {
+				// Nothing to do.
+			}
+
+			@Override
+			public void close() {
+				// Nothing to do.
+			}
+		});
+
+		try {
+			buffer.run();
+		} finally {
+			checked.countDown();
+		}
+		inputThread.join();
+
+		Assert.assertEquals("Incorrect number of items received.", 50, count.get());
+		Assert.assertEquals("The queue should be empty.", 0, taskMetrics.getQueueDepth());
+	}
+}
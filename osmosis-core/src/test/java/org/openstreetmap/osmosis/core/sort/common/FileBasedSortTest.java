@@ -67,4 +67,39 @@ public class FileBasedSortTest {
 			}
 		}
 	}
+
+
+	/**
+	 * Verifies that a small number of items sorted entirely in memory are
+	 * returned in the correct sequence, and that they are included in later
+	 * iterations.
+	 */
+	@Test
+	public void testInMemory() {
+		SingleClassObjectSerializationFactory objectFactory = new SingleClassObjectSerializationFactory(
+				SampleStoreable.class);
+		Comparator<SampleStoreable> comparator = Comparator.comparingInt(SampleStoreable::getValue);
+
+		try (FileBasedSort<SampleStoreable> fileBasedSort =
+				new FileBasedSort<SampleStoreable>(objectFactory, comparator, true)) {
+			for (int value : new int[] {3, 1, 2}) {
+				fileBasedSort.add(new SampleStoreable(value));
+			}
+
+			try (ReleasableIterator<SampleStoreable> resultIterator = fileBasedSort.iterate()) {
+				for (int expected = 1; expected <= 3; expected++) {
+					Assert.assertEquals("Incorrect value.", expected, resultIterator.next().getValue());
+				}
+				Assert.assertFalse("Unexpected extra value.", resultIterator.hasNext());
+			}
+
+			fileBasedSort.add(new SampleStoreable(0));
+			try (ReleasableIterator<SampleStoreable> resultIterator = fileBasedSort.iterate()) {
+				for (int expected = 0; expected <= 3; expected++) {
+					Assert.assertEquals("Incorrect value.", expected, resultIterator.next().getValue());
+				}
+				Assert.assertFalse("Unexpected extra value.", resultIterator.hasNext());
+			}
+		}
+	}
 }
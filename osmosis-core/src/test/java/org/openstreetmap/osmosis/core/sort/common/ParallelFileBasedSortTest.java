@@ -0,0 +1,102 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
+
+
+/**
+ * Tests the {@link ParallelFileBasedSort} class.
+ */
+public class ParallelFileBasedSortTest {
+
+	/**
+	 * The values are made up of a key used for sorting and a sequence number
+	 * used to verify that the sort is stable.
+	 */
+	private static final int SEQUENCE_RANGE = 100000;
+
+
+	private ParallelFileBasedSort<SampleStoreable> createSort(long memoryBudget, int maxMergeSourceCount) {
+		Comparator<SampleStoreable> comparator = new Comparator<SampleStoreable>() {
+			@Override
+			public int compare(SampleStoreable o1, SampleStoreable o2) {
+				return Integer.compare(o1.getValue() / SEQUENCE_RANGE, o2.getValue() / SEQUENCE_RANGE);
+			}
+		};
+
+		// Every object is estimated to use 100 bytes.
+		return new ParallelFileBasedSort<SampleStoreable>(
+				new SingleClassObjectSerializationFactory(SampleStoreable.class), comparator, true, memoryBudget,
+				value -> 100, 2, maxMergeSourceCount);
+	}
+
+
+	private void checkSort(ParallelFileBasedSort<SampleStoreable> sort, int itemCount) {
+		Random random = new Random(1);
+
+		// Add values with random keys and increasing sequence numbers.
+		for (int i = 0; i < itemCount; i++) {
+			sort.add(new SampleStoreable(random.nextInt(1000) * SEQUENCE_RANGE + i));
+		}
+
+		// Values must be returned in key order and in sequence order within
+		// each key.
+		try (ReleasableIterator<SampleStoreable> resultIterator = sort.iterate()) {
+			int lastValue = Integer.MIN_VALUE;
+			int resultCount = 0;
+
+			while (resultIterator.hasNext()) {
+				int currentValue = resultIterator.next().getValue();
+				Assert.assertTrue("Values are not sorted.", currentValue > lastValue);
+				lastValue = currentValue;
+				resultCount++;
+			}
+
+			Assert.assertEquals("Incorrect number of values returned.", itemCount, resultCount);
+		}
+	}
+
+
+	/**
+	 * Tests sorting enough values to create many runs which are merged in a
+	 * single pass.
+	 */
+	@Test
+	public void testSinglePassMerge() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = createSort(100000, 128)) {
+			checkSort(sort, 20000);
+		}
+	}
+
+
+	/**
+	 * Tests sorting with more runs than can be merged at once which requires
+	 * intermediate merges.
+	 */
+	@Test
+	public void testMultiPassMerge() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = createSort(20000, 3)) {
+			checkSort(sort, 10000);
+		}
+	}
+
+
+	/**
+	 * Tests sorting values that fit within a single run, and sorting nothing.
+	 */
+	@Test
+	public void testSmallSorts() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = createSort(100000000, 128)) {
+			checkSort(sort, 1000);
+		}
+		try (ParallelFileBasedSort<SampleStoreable> sort = createSort(100000000, 128)) {
+			checkSort(sort, 0);
+		}
+	}
+}
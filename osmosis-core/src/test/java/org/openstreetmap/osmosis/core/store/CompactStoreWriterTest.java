@@ -0,0 +1,156 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the compact store writer and reader.
+ */
+public class CompactStoreWriterTest {
+
+	private static CompactStoreReader createReader(ByteArrayOutputStream out) {
+		return new CompactStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+
+	/**
+	 * Verifies that all supported types are written and read back correctly
+	 * including their boundary values.
+	 */
+	@Test
+	public void testRoundTrip() {
+		ByteArrayOutputStream out;
+		StoreWriter sw;
+		StoreReader sr;
+		long[] longValues = {0, 1, -1, 63, -64, 64, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE};
+		int[] intValues = {0, 1, -1, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+		out = new ByteArrayOutputStream();
+		sw = new CompactStoreWriter(new DataOutputStream(out));
+
+		sw.writeBoolean(true);
+		sw.writeBoolean(false);
+		sw.writeByte(Byte.MIN_VALUE);
+		sw.writeCharacter(Character.MAX_VALUE);
+		sw.writeCharacter('a');
+		for (int value : intValues) {
+			sw.writeInteger(value);
+			sw.writeDeltaInteger(0, value);
+		}
+		for (long value : longValues) {
+			sw.writeLong(value);
+			sw.writeDeltaLong(1, value);
+		}
+		sw.writeDouble(-12.5);
+		sw.writeDouble(Double.NaN);
+
+		sr = createReader(out);
+
+		Assert.assertTrue("Incorrect boolean.", sr.readBoolean());
+		Assert.assertFalse("Incorrect boolean.", sr.readBoolean());
+		Assert.assertEquals("Incorrect byte.", Byte.MIN_VALUE, sr.readByte());
+		Assert.assertEquals("Incorrect character.", Character.MAX_VALUE, sr.readCharacter());
+		Assert.assertEquals("Incorrect character.", 'a', sr.readCharacter());
+		for (int value : intValues) {
+			Assert.assertEquals("Incorrect integer.", value, sr.readInteger());
+			Assert.assertEquals("Incorrect delta integer.", value, sr.readDeltaInteger(0));
+		}
+		for (long value : longValues) {
+			Assert.assertEquals("Incorrect long.", value, sr.readLong());
+			Assert.assertEquals("Incorrect delta long.", value, sr.readDeltaLong(1));
+		}
+		Assert.assertEquals("Incorrect double.", -12.5, sr.readDouble(), 0);
+		Assert.assertTrue("Incorrect double.", Double.isNaN(sr.readDouble()));
+	}
+
+
+	/**
+	 * Verifies that interleaved delta channels are independent and that close
+	 * values are stored compactly.
+	 */
+	@Test
+	public void testDeltaChannels() {
+		ByteArrayOutputStream out;
+		StoreWriter sw;
+		StoreReader sr;
+
+		out = new ByteArrayOutputStream();
+		sw = new CompactStoreWriter(new DataOutputStream(out));
+
+		for (int i = 0; i < 1000; i++) {
+			sw.writeDeltaLong(0, 4000000000L + i);
+			sw.writeDeltaInteger(1, 515000000 - i);
+		}
+
+		// The first values require several bytes, the remainder one byte each.
+		Assert.assertTrue("Delta values are not stored compactly.", out.size() < 2 * 1000 + 20);
+
+		sr = createReader(out);
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals("Incorrect delta long.", 4000000000L + i, sr.readDeltaLong(0));
+			Assert.assertEquals("Incorrect delta integer.", 515000000 - i, sr.readDeltaInteger(1));
+		}
+	}
+
+
+	/**
+	 * Verifies that repeated strings are read correctly from the dictionary,
+	 * including once the dictionary is full.
+	 */
+	@Test
+	public void testStringDictionary() {
+		ByteArrayOutputStream out;
+		StoreWriter sw;
+		StoreReader sr;
+		Random random;
+		int stringCount = CompactStoreWriter.MAX_DICTIONARY_SIZE + 1000;
+
+		out = new ByteArrayOutputStream();
+		sw = new CompactStoreWriter(new DataOutputStream(out));
+		random = new Random(1);
+
+		sw.writeString("highway");
+		sw.writeString("");
+		for (int i = 0; i < stringCount; i++) {
+			sw.writeString("value" + i);
+			sw.writeString("value" + random.nextInt(stringCount));
+			sw.writeString("highway");
+		}
+
+		sr = createReader(out);
+		random = new Random(1);
+
+		Assert.assertEquals("Incorrect string.", "highway", sr.readString());
+		Assert.assertEquals("Incorrect string.", "", sr.readString());
+		for (int i = 0; i < stringCount; i++) {
+			Assert.assertEquals("Incorrect string.", "value" + i, sr.readString());
+			Assert.assertEquals("Incorrect string.", "value" + random.nextInt(stringCount), sr.readString());
+			Assert.assertEquals("Incorrect string.", "highway", sr.readString());
+		}
+	}
+
+
+	/**
+	 * Verifies that the end of the stream is reported as the end of the store.
+	 */
+	@Test(expected = EndOfStoreException.class)
+	public void testEndOfStore() {
+		ByteArrayOutputStream out;
+		StoreReader sr;
+
+		out = new ByteArrayOutputStream();
+		new CompactStoreWriter(new DataOutputStream(out)).writeLong(1);
+
+		sr = createReader(out);
+		sr.readLong();
+		sr.readLong();
+	}
+}
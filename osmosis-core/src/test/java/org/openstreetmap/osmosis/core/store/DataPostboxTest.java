@@ -0,0 +1,238 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Tests the {@link DataPostbox} class.
+ */
+public class DataPostboxTest {
+
+	private static final int ITEM_COUNT = 100000;
+
+
+	/**
+	 * Passes a sequence of items from an input thread to an output thread and
+	 * verifies that they are received in order.
+	 *
+	 * @param waitStrategy
+	 *            The wait strategy to test.
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	private void checkDataTransfer(DataPostboxWaitStrategy waitStrategy) throws InterruptedException {
+		final DataPostbox<Integer> postbox = new DataPostbox<Integer>(10, waitStrategy);
+		final AtomicReference<Throwable> inputError = new AtomicReference<Throwable>();
+
+		Thread inputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>singletonMap("key", "value"));
+					for (int i = 0; i < ITEM_COUNT; i++) {
+						postbox.put(i);
+					}
+					postbox.complete();
+				} catch (Throwable e) {
+					inputError.set(e);
+				} finally {
+					postbox.close();
+				}
+			}
+		});
+		inputThread.start();
+
+		int expected = 0;
+		try {
+			Map<String, Object> metaData = postbox.outputInitialize();
+			Assert.assertEquals("Incorrect meta data.", "value", metaData.get("key"));
+			while (postbox.hasNext()) {
+				Assert.assertEquals("Incorrect item received.", expected++, postbox.getNext().intValue());
+			}
+			postbox.outputComplete();
+		} finally {
+			postbox.outputRelease();
+		}
+		inputThread.join();
+
+		Assert.assertNull("Input thread failed.", inputError.get());
+		Assert.assertEquals("Incorrect number of items received.", ITEM_COUNT, expected);
+	}
+
+
+	/**
+	 * Tests data transfer using the spin wait strategy.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testSpin() throws InterruptedException {
+		checkDataTransfer(DataPostboxWaitStrategy.Spin);
+	}
+
+
+	/**
+	 * Tests data transfer using the yield wait strategy.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testYield() throws InterruptedException {
+		checkDataTransfer(DataPostboxWaitStrategy.Yield);
+	}
+
+
+	/**
+	 * Tests data transfer using the park wait strategy.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testPark() throws InterruptedException {
+		checkDataTransfer(DataPostboxWaitStrategy.Park);
+	}
+
+
+	/**
+	 * Verifies that the postbox can be re-used for a subsequent run after a
+	 * successful run.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testReuse() throws InterruptedException {
+		final DataPostbox<Integer> postbox = new DataPostbox<Integer>(10);
+
+		for (int run = 0; run < 3; run++) {
+			Thread inputThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						postbox.initialize(Collections.<String, Object>emptyMap());
+						for (int i = 0; i < 25; i++) {
+							postbox.put(i);
+						}
+						postbox.complete();
+					} finally {
+						postbox.close();
+					}
+				}
+			});
+			inputThread.start();
+
+			int count = 0;
+			try {
+				postbox.outputInitialize();
+				while (postbox.hasNext()) {
+					postbox.getNext();
+					count++;
+				}
+				postbox.outputComplete();
+			} finally {
+				postbox.outputRelease();
+			}
+			inputThread.join();
+
+			Assert.assertEquals("Incorrect number of items received.", 25, count);
+		}
+	}
+
+
+	/**
+	 * Verifies that an input thread failure is reported to the output thread.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testInputFailure() throws InterruptedException {
+		final DataPostbox<Integer> postbox = new DataPostbox<Integer>(10);
+
+		Thread inputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					for (int i = 0; i < 5; i++) {
+						postbox.put(i);
+					}
+				} finally {
+					// Release without completing to simulate a failure.
+					postbox.close();
+				}
+			}
+		});
+		inputThread.start();
+
+		boolean errorReceived = false;
+		try {
+			postbox.outputInitialize();
+			while (postbox.hasNext()) {
+				postbox.getNext();
+			}
+		} catch (OsmosisRuntimeException e) {
+			errorReceived = true;
+		} finally {
+			postbox.outputRelease();
+		}
+		inputThread.join();
+
+		Assert.assertTrue("The input failure was not reported.", errorReceived);
+	}
+
+
+	/**
+	 * Verifies that an output thread failure is reported to a blocked input
+	 * thread.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testOutputFailure() throws InterruptedException {
+		final DataPostbox<Integer> postbox = new DataPostbox<Integer>(10);
+		final AtomicReference<Throwable> inputError = new AtomicReference<Throwable>();
+
+		Thread inputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					// Write far more than the buffer can hold.
+					for (int i = 0; i < ITEM_COUNT; i++) {
+						postbox.put(i);
+					}
+					postbox.complete();
+				} catch (Throwable e) {
+					inputError.set(e);
+				} finally {
+					postbox.close();
+				}
+			}
+		});
+		inputThread.start();
+
+		try {
+			postbox.outputInitialize();
+			postbox.getNext();
+		} finally {
+			// Release without completing to simulate a failure.
+			postbox.outputRelease();
+		}
+		inputThread.join();
+
+		Assert.assertTrue("The output failure was not reported.",
+				inputError.get() instanceof OsmosisRuntimeException);
+	}
+}
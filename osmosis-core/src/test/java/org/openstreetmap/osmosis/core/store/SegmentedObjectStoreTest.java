@@ -0,0 +1,109 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * Tests the segmented object store.
+ */
+public class SegmentedObjectStoreTest {
+
+	private static List<Entity> createEntities() {
+		List<Entity> entities;
+		OsmUser user;
+
+		entities = new ArrayList<Entity>();
+		user = new OsmUser(12, "user");
+
+		for (int i = 0; i < 100; i++) {
+			CommonEntityData entityData = new CommonEntityData(
+					1000000000L + i, 1, new Date(1200000000000L + i * 1000), user, 5,
+					Arrays.asList(new Tag("highway", "residential"), new Tag("name", "Street " + i)));
+
+			if (i % 3 == 0) {
+				entities.add(new Way(entityData, Arrays.asList(new WayNode(i), new WayNode(i + 1))));
+			} else {
+				// Use coordinates that are unchanged by the fixed precision storage.
+				entities.add(new Node(entityData,
+						FixedPrecisionCoordinateConvertor.convertToDouble(-338000000 + i * 10000),
+						FixedPrecisionCoordinateConvertor.convertToDouble(1512000000 - i * 10000)));
+			}
+		}
+
+		return entities;
+	}
+
+
+	private static List<Entity> readAll(ReleasableIterator<Entity> iterator) {
+		List<Entity> result = new ArrayList<Entity>();
+
+		try {
+			while (iterator.hasNext()) {
+				result.add(iterator.next());
+			}
+		} finally {
+			iterator.close();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Verifies that objects can be read back from each chunk individually and
+	 * across all chunks at once.
+	 */
+	@Test
+	public void testChunks() {
+		for (boolean useCompression : new boolean[] {false, true}) {
+			SegmentedObjectStore<Entity> store;
+			List<Entity> entities;
+			List<Long> chunkOffsets;
+
+			store = new SegmentedObjectStore<Entity>(new GenericObjectSerializationFactory(), "test", useCompression);
+			entities = createEntities();
+			chunkOffsets = new ArrayList<Long>();
+
+			try {
+				chunkOffsets.add(0L);
+				for (int i = 0; i < entities.size(); i++) {
+					store.add(entities.get(i));
+
+					if (i % 30 == 29) {
+						chunkOffsets.add(store.closeChunk());
+					}
+				}
+
+				Assert.assertEquals("Incorrect entities.", entities, readAll(store.iterate()));
+
+				for (int i = 0; i < chunkOffsets.size(); i++) {
+					int start = i * 30;
+					int end = Math.min(start + 30, entities.size());
+
+					Assert.assertEquals("Incorrect chunk entities.", entities.subList(start, end),
+							readAll(store.iterate(chunkOffsets.get(i), 30)));
+					Assert.assertEquals("Incorrect remaining entities.", entities.subList(start, entities.size()),
+							readAll(store.iterate(chunkOffsets.get(i), -1)));
+				}
+			} finally {
+				store.close();
+			}
+		}
+	}
+}
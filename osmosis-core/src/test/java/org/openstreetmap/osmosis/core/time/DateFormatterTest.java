@@ -0,0 +1,65 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.time;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the date formatter.
+ */
+public class DateFormatterTest {
+
+	/**
+	 * Verifies that dates are formatted correctly when the cached day and
+	 * second are re-used and when they change.
+	 */
+	@Test
+	public void testFormat() {
+		DateFormatter formatter;
+		SimpleDateFormat referenceFormat;
+		Random random;
+		long millis;
+
+		formatter = new DateFormatter();
+		referenceFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		referenceFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		random = new Random(1);
+
+		millis = 1199145600000L;
+		for (int i = 0; i < 10000; i++) {
+			Date date;
+
+			// Mostly advance within a day, occasionally jump a long way.
+			if (i % 100 == 0) {
+				millis = (long) (random.nextDouble() * 2000000000000L);
+			} else {
+				millis += random.nextInt(600000);
+			}
+			date = new Date(millis);
+
+			Assert.assertEquals("Incorrect formatted date.", referenceFormat.format(date), formatter.format(date));
+			Assert.assertEquals("Incorrect repeated date.", referenceFormat.format(date), formatter.format(date));
+		}
+	}
+
+
+	/**
+	 * Verifies that dates before the epoch are formatted correctly.
+	 */
+	@Test
+	public void testFormatBeforeEpoch() {
+		DateFormatter formatter = new DateFormatter();
+
+		Assert.assertEquals("Incorrect formatted date.", "1969-12-31T23:59:59Z", formatter.format(new Date(-1)));
+		Assert.assertEquals("Incorrect formatted date.", "1970-01-01T00:00:00Z", formatter.format(new Date(0)));
+		Assert.assertEquals("Incorrect formatted date.", "1969-12-31T00:00:00Z",
+				formatter.format(new Date(-86400000L)));
+	}
+}
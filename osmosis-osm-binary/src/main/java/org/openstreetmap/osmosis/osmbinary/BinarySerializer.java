@@ -18,11 +18,13 @@
 package org.openstreetmap.osmosis.osmbinary;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.openstreetmap.osmosis.osmbinary.Osmformat.PrimitiveGroup;
 import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.osmbinary.file.EncodedFileBlock;
 import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
 
 /**
@@ -108,21 +110,51 @@ public class BinarySerializer {
         // System.out.format("Batch of %d groups: ",groups.size());
         if (groups.size() == 0)
             return;
+        try {
+            writeBlock(buildBlock(groups, stringtable));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write block.", e);
+        } finally {
+            batch_size = 0;
+            groups.clear();
+        }
+        // System.out.format("\n");
+    }
+
+    /** Write a data fileblock to the output, recording its size. */
+    protected void writeBlock(FileBlock block) throws IOException {
+        debug_bytes += block.getData().size();
+        output.write(block);
+    }
+
+    /** Write a data fileblock encoded by the output, recording its size. */
+    protected void writeEncodedBlock(EncodedFileBlock block) throws IOException {
+        debug_bytes += block.getRawSize();
+        output.writeEncoded(block);
+    }
+
+    /**
+     * Serialize a batch of groups into a data fileblock. The groups must look
+     * up their strings in the given stringtable. Only the groups and the
+     * stringtable are modified so blocks with their own stringtable may be
+     * built concurrently.
+     */
+    protected FileBlock buildBlock(List<PrimGroupWriterInterface> blockGroups, StringTable blockStringtable) {
         Osmformat.PrimitiveBlock.Builder primblock = Osmformat.PrimitiveBlock
                 .newBuilder();
-        stringtable.clear();
+        blockStringtable.clear();
         // Preprocessing: Figure out the stringtable.
-        for (PrimGroupWriterInterface i : groups)
+        for (PrimGroupWriterInterface i : blockGroups)
             i.addStringsToStringtable();
 
-        stringtable.finish();
+        blockStringtable.finish();
         // Now, start serializing.
-        for (PrimGroupWriterInterface i : groups) {
+        for (PrimGroupWriterInterface i : blockGroups) {
          PrimitiveGroup group = i.serialize();
          if (group != null)
            primblock.addPrimitivegroup(group);
         }
-        primblock.setStringtable(stringtable.serialize());
+        primblock.setStringtable(blockStringtable.serialize());
         primblock.setGranularity(this.granularity);
         primblock.setDateGranularity(this.date_granularity);
 
@@ -131,22 +163,10 @@ public class BinarySerializer {
         Osmformat.PrimitiveBlock message = primblock.build();
 
         // System.out.println(message);
-        debug_bytes += message.getSerializedSize();
         // if (message.getSerializedSize() > 1000000)
         // System.out.println(message);
 
-        try {
-            output.write(FileBlock.newInstance("OSMData", message
-                    .toByteString(), null));
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            throw new Error(e);
-        } finally {
-            batch_size = 0;
-            groups.clear();
-        }
-        // System.out.format("\n");
+        return FileBlock.newInstance("OSMData", message.toByteString(), null);
     }
 
     /** Convert from a degrees represented as a double into the serialized offset in nanodegrees.. */
@@ -17,6 +17,7 @@
 
 package org.openstreetmap.osmosis.osmbinary.file;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -59,6 +60,23 @@ public class BlockOutputStream {
         writtenblocks.add(ref);
     }
 
+    /**
+     * Encode a block with the stream's default compression flag without
+     * writing it. This may be called from multiple threads, the encoded block
+     * is later written with writeEncoded.
+     */
+    public EncodedFileBlock encode(FileBlock block) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        FileBlockPosition ref = block.writeTo(buffer, compression);
+        return new EncodedFileBlock(buffer.toByteArray(), ref, block.getData().size());
+    }
+
+    /** Write a block previously encoded by this stream */
+    public void writeEncoded(EncodedFileBlock block) throws IOException {
+        outwrite.write(block.getEncodedData());
+        writtenblocks.add(block.getPosition());
+    }
+
     public void flush() throws IOException {
         outwrite.flush();
     }
@@ -0,0 +1,33 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.osmbinary.file;
+
+/**
+ * A fileblock that has been compressed and encoded ready to be written to a
+ * stream. Blocks may be encoded on other threads and written later in order.
+ */
+public class EncodedFileBlock {
+    private byte[] encodedData;
+    private FileBlockPosition position;
+    private int rawSize;
+
+    EncodedFileBlock(byte[] encodedData, FileBlockPosition position, int rawSize) {
+        this.encodedData = encodedData;
+        this.position = position;
+        this.rawSize = rawSize;
+    }
+
+    /** The encoded header and blob as written to the stream. */
+    byte[] getEncodedData() {
+        return encodedData;
+    }
+
+    /** The position reference of the block to record once written. */
+    FileBlockPosition getPosition() {
+        return position;
+    }
+
+    /** The size of the block data before compression. */
+    public int getRawSize() {
+        return rawSize;
+    }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.Deflater;
 
 import com.google.protobuf.ByteString;
@@ -36,7 +37,7 @@ public class FileBlock extends FileBlockBase {
     ByteString data; // serialized Format.Blob
 
     /** Don't be noisy unless the warning occurs somewhat often */
-    static int warncount = 0;
+    static AtomicInteger warncount = new AtomicInteger();
 
     private FileBlock(String type, ByteString blob, ByteString indexdata) {
         super(type, indexdata);
@@ -70,8 +71,8 @@ public class FileBlock extends FileBlockBase {
         
         if (!deflater.finished()) {
             // Buffer wasn't long enough. Be noisy.
-          ++warncount;
-          if (warncount > 10 && warncount%100 == 0)
+          int count = warncount.incrementAndGet();
+          if (count > 10 && count%100 == 0)
                System.out.println("Compressed buffers are too short, causing extra copy");
             out = Arrays.copyOf(out, size + size / 64 + 16);
             deflater.deflate(out, deflater.getTotalOut(), out.length
@@ -17,10 +17,11 @@ import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
 import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
-import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMemberList;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNodeList;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 import org.openstreetmap.osmosis.osmbinary.BinaryParser;
@@ -149,20 +150,18 @@ public class OsmosisBinaryParser extends BinaryParser {
             long lastId = 0;
             long lastLat = 0;
             long lastLon = 0;
-            List<WayNode> nodes = new ArrayList<WayNode>();
+            WayNodeList nodes = new WayNodeList();
             for (int index = 0; index < i.getRefsCount(); index++) {
             	    long identifier = lastId + i.getRefs(index);
-            		WayNode node;
             		if (index < i.getLatCount() && index < i.getLonCount()) {
 	            	    long lat = lastLat + i.getLat(index);
 	            	    long lon = lastLon + i.getLon(index);
-	            	    node = new WayNode(identifier, parseLat(lat), parseLon(lon));
+	            	    nodes.add(new WayNode(identifier, parseLat(lat), parseLon(lon)));
 	            	    lastLat = lat;
 	            	    lastLon = lon;
             		} else {
-            			node = new WayNode(identifier);
+            			nodes.addNodeId(identifier);
             		}
-                nodes.add(node);
                 lastId = identifier;
             }
 
@@ -195,7 +194,7 @@ public class OsmosisBinaryParser extends BinaryParser {
             long id = i.getId();
 
             long lastMid = 0;
-            List<RelationMember> nodes = new ArrayList<RelationMember>();
+            RelationMemberList nodes = new RelationMemberList();
             for (int j = 0; j < i.getMemidsCount(); j++) {
                 long mid = lastMid + i.getMemids(j);
                 lastMid = mid;
@@ -212,7 +211,7 @@ public class OsmosisBinaryParser extends BinaryParser {
                     assert false; // TODO; Illegal file?
                 }
 
-                nodes.add(new RelationMember(mid, etype, role));
+                nodes.addMember(mid, etype, role);
             }
             // long id, int version, TimestampContainer timestampContainer,
             // OsmUser user,
@@ -2,10 +2,17 @@
 package crosby.binary.osmosis;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,10 +30,8 @@ import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
 import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
-import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 import org.openstreetmap.osmosis.osmbinary.BinarySerializer;
@@ -35,6 +40,7 @@ import org.openstreetmap.osmosis.osmbinary.Osmformat.DenseInfo;
 import org.openstreetmap.osmosis.osmbinary.StringTable;
 import org.openstreetmap.osmosis.osmbinary.Osmformat.Relation.MemberType;
 import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.osmbinary.file.EncodedFileBlock;
 import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
 
 /**
@@ -51,8 +57,27 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
   
   /**
    * Tracks the number of warnings that have occurred during serialisation.
+   * Blocks may be serialised concurrently by worker threads.
    */
-  static int warncount = 0;
+  static AtomicInteger warncount = new AtomicInteger();
+
+  /** The number of blocks that may be queued for each worker thread. */
+  private static final int PENDING_BLOCKS_PER_WORKER = 2;
+
+  /** The number of worker threads building blocks, or 0 to build them on the pipeline thread. */
+  private int workers = 0;
+
+  /** The worker threads, created when the first block is built. */
+  private ExecutorService executor;
+
+  /** Blocks being built by worker threads in the order they must be written. */
+  private Queue<Future<EncodedFileBlock>> pendingBlocks = new ArrayDeque<Future<EncodedFileBlock>>();
+
+  /**
+   * The stringtable for the groups of the batch currently being accumulated.
+   * Each batch gets its own stringtable when worker threads are in use.
+   */
+  private StringTable batchStringTable;
 
 	/**
 	 * Construct a serializer that writes to the target BlockOutputStream.
@@ -62,6 +87,21 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 	 */
   public OsmosisSerializer(BlockOutputStream output) {
 	  super(output);
+	  batchStringTable = getStringTable();
+  }
+
+	/**
+	 * Configure the number of worker threads used to build blocks. Entities
+	 * are still batched on the pipeline thread, but building the stringtable,
+	 * serializing and compressing each block is done by the workers. Blocks
+	 * are written in the same order as without workers.
+	 * 
+	 * @param workerCount
+	 *            The number of worker threads, 0 to build blocks on the
+	 *            pipeline thread.
+	 */
+  public void configWorkers(int workerCount) {
+    this.workers = workerCount;
   }
 
   /**
@@ -79,6 +119,9 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
       /** Queue that tracks the list of all primitives. */
       ArrayList<T> contents = new ArrayList<T>();
 
+      /** The stringtable of the batch this group belongs to. */
+      final StringTable stable = batchStringTable;
+
       /** Add to the queue.
        * @param item The entity to add */
         public void add(T item) {
@@ -87,7 +130,6 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 
         /** Add all of the tags of all entities in the queue to the stringtable. */
         public void addStringsToStringtable() {
-            StringTable stable = getStringTable();
             for (T i : contents) {
                 Collection<Tag> tags = i.getTags();
                 for (Tag tag : tags) {
@@ -100,6 +142,13 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             }
         }
         private static final int MAXWARN = 100;
+
+        private void warnMissingMetadata() {
+            if (warncount.get() < MAXWARN && warncount.incrementAndGet() <= MAXWARN) {
+                LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
+            }
+        }
+
         public void serializeMetadataDense(DenseInfo.Builder b, List<? extends Entity> entities) {
 			if (omit_metadata) {
 				return;
@@ -107,12 +156,10 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 
 			long lasttimestamp = 0, lastchangeset = 0;
 			int lastuserSid = 0, lastuid = 0;
-			StringTable stable = getStringTable();
 			for (Entity e : entities) {
 
-            if (e.getUser() == OsmUser.NONE && warncount  < MAXWARN) {
-              LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
-              warncount++;
+            if (e.getUser() == OsmUser.NONE) {
+              warnMissingMetadata();
             }
 				int uid = e.getUser().getId();
 				int userSid = stable.getIndex(e.getUser().getName());
@@ -133,12 +180,10 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         }
          
         public Osmformat.Info.Builder serializeMetadata(Entity e) {
-            StringTable stable = getStringTable();
             Osmformat.Info.Builder b = Osmformat.Info.newBuilder();
             if (!omit_metadata) {
-                if (e.getUser() == OsmUser.NONE && warncount  < MAXWARN) {
-                  LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
-                  warncount++;
+                if (e.getUser() == OsmUser.NONE) {
+                  warnMissingMetadata();
                 }
                 if (e.getUser() != OsmUser.NONE) {
                     b.setUid(e.getUser().getId());
@@ -172,7 +217,6 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             // System.out.format("%d Dense   ",nodes.size());
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
-            StringTable stable = getStringTable();
 
             long lastlat = 0, lastlon = 0, lastid = 0;
             Osmformat.DenseNodes.Builder bi = Osmformat.DenseNodes.newBuilder();
@@ -221,7 +265,6 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             return null;
           }
           // System.out.format("%d Nodes   ",nodes.size());
-          StringTable stable = getStringTable();
           Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
           .newBuilder();
           for (Node i : contents) {
@@ -255,15 +298,14 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         }
 
             // System.out.format("%d Ways  ",contents.size());
-            StringTable stable = getStringTable();
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
             for (Way i : contents) {
                 Osmformat.Way.Builder bi = Osmformat.Way.newBuilder();
                 bi.setId(i.getId());
                 long lastid = 0;
-                for (WayNode j : i.getWayNodes()) {
-                    long id = j.getNodeId();
+                for (int j = 0; j < i.getWayNodeCount(); j++) {
+                    long id = i.getWayNodeId(j);
                     bi.addRefs(id - lastid);
                     lastid = id;
                 }
@@ -283,11 +325,10 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
     private class RelationGroup extends Prim<Relation> implements
             PrimGroupWriterInterface {
         public void addStringsToStringtable() {
-            StringTable stable = getStringTable();
             super.addStringsToStringtable();
             for (Relation i : contents) {
-                for (RelationMember j : i.getMembers()) {
-                    stable.incr(j.getMemberRole());
+                for (int j = 0; j < i.getMemberCount(); j++) {
+                    stable.incr(i.getMemberRole(j));
                 }
             }
         }
@@ -298,29 +339,27 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
           }
 
           // System.out.format("%d Relations  ",contents.size());
-            StringTable stable = getStringTable();
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
             for (Relation i : contents) {
                 Osmformat.Relation.Builder bi = Osmformat.Relation.newBuilder();
                 bi.setId(i.getId());
-                RelationMember[] arr = new RelationMember[i.getMembers().size()];
-                i.getMembers().toArray(arr);
                 long lastid = 0;
-                for (RelationMember j : i.getMembers()) {
-                    long id = j.getMemberId();
+                for (int j = 0; j < i.getMemberCount(); j++) {
+                    long id = i.getMemberId(j);
+                    EntityType memberType = i.getMemberType(j);
                     bi.addMemids(id - lastid);
                     lastid = id;
-                    if (j.getMemberType() == EntityType.Node) {
+                    if (memberType == EntityType.Node) {
                         bi.addTypes(MemberType.NODE);
-                    } else if (j.getMemberType() == EntityType.Way) {
+                    } else if (memberType == EntityType.Way) {
                         bi.addTypes(MemberType.WAY);
-                    } else if (j.getMemberType() == EntityType.Relation) {
+                    } else if (memberType == EntityType.Relation) {
                         bi.addTypes(MemberType.RELATION);
                     } else {
                         assert (false); // Software bug: Unknown entity.
                     }
-                    bi.addRolesSid(stable.getIndex(j.getMemberRole()));
+                    bi.addRolesSid(stable.getIndex(i.getMemberRole(j)));
                 }
 
                 for (Tag t : i.getTags()) {
@@ -404,6 +443,60 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         }
     }
 
+    /**
+     * Hand the current batch to a worker thread to be built, or build it
+     * directly if no workers are configured.
+     */
+    @Override
+    public void processBatch() {
+        if (groups.size() == 0) {
+            return;
+        }
+        if (workers <= 0) {
+            try {
+                writeBlock(buildBlock(groups, batchStringTable));
+            } catch (IOException e) {
+                throw new OsmosisRuntimeException("Unable to write PBF block.", e);
+            } finally {
+                batch_size = 0;
+                groups.clear();
+            }
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(workers);
+        }
+
+        final List<PrimGroupWriterInterface> blockGroups = new ArrayList<PrimGroupWriterInterface>(groups);
+        final StringTable blockStringTable = batchStringTable;
+        pendingBlocks.add(executor.submit(() -> output.encode(buildBlock(blockGroups, blockStringTable))));
+
+        batch_size = 0;
+        groups.clear();
+        batchStringTable = new StringTable();
+
+        // Limit the number of blocks held in memory.
+        writePendingBlocks(workers * PENDING_BLOCKS_PER_WORKER - 1);
+    }
+
+    /**
+     * Write blocks built by the worker threads in order, waiting for them
+     * where necessary, until no more than the target number remain pending.
+     */
+    private void writePendingBlocks(int targetQueueSize) {
+        while (pendingBlocks.size() > targetQueueSize) {
+            try {
+                writeEncodedBlock(pendingBlocks.remove().get());
+            } catch (InterruptedException e) {
+                throw new OsmosisRuntimeException("Thread was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new OsmosisRuntimeException("Unable to build PBF block.", e.getCause());
+            } catch (IOException e) {
+                throw new OsmosisRuntimeException("Unable to write PBF block.", e);
+            }
+        }
+    }
+
     /**
      * At the end of this function, all of the lists of unprocessed 'things'
      * must be null
@@ -460,6 +553,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         headerblock.addRequiredFeatures("DenseNodes");
       }
       Osmformat.HeaderBlock message = headerblock.build();
+      writePendingBlocks(0);
       try {
           output.write(FileBlock.newInstance("OSMHeader", message
                   .toByteString(), null));
@@ -496,13 +590,33 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         }
     }
 
+    @Override
+    public void flush() throws IOException {
+        processBatch();
+        writePendingBlocks(0);
+        super.flush();
+    }
+
     @Override
     public void close() {
+        // The output must be released even if a worker thread failed to
+        // build a block.
         try {
-            super.close();
-        } catch (IOException e) {
-        	LOG.log(Level.WARNING, "Unable to release PBF file resources during release.", e);
-        }
+            flush();
+        } catch (IOException | RuntimeException e) {
+        	LOG.log(Level.WARNING, "Unable to write remaining PBF data during release.", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            pendingBlocks.clear();
 
+            try {
+                output.close();
+            } catch (IOException e) {
+            	LOG.log(Level.WARNING, "Unable to release PBF file resources during release.", e);
+            }
+        }
     }
 }
@@ -3,7 +3,9 @@ package crosby.binary.osmosis;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
 import org.openstreetmap.osmosis.testutil.AbstractDataTest;
@@ -49,4 +51,57 @@ public class OsmosisReaderAndSerializerTest extends AbstractDataTest {
         // Validate that the output file matches the input file.
         dataUtils.compareFiles(inputXmlFile, outputXmlFile);
 	}
+
+
+	/**
+	 * Tests that writing PBF files with worker threads produces exactly the
+	 * same file as writing without them.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testWriteWithWorkers() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File workersPbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Read the XML and write to PBF both with and without workers. Use a
+		// small batch size so that many blocks are written.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"batchlimit=10"
+				});
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + workersPbfFile.getPath(),
+				"batchlimit=10",
+				"workers=3"
+				});
+
+		// The files must be identical.
+		Assert.assertArrayEquals("Output with workers differs.", Files.readAllBytes(pbfFile.toPath()),
+				Files.readAllBytes(workersPbfFile.toPath()));
+
+		// Read the PBF and write to XML.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-pbf-0.6",
+				workersPbfFile.getPath(),
+				"--write-xml-0.6",
+				outputXmlFile.getPath()
+				});
+
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
 }
@@ -0,0 +1,59 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package crosby.binary.osmosis;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.osmbinary.StringTable;
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
+
+
+/**
+ * Tests the OsmosisSerializer class.
+ */
+public class OsmosisSerializerTest {
+
+	/**
+	 * Verifies that the output is released when a worker thread fails to build
+	 * a block that is still pending when the serializer is closed.
+	 */
+	@Test
+	public void testWorkerFailureReleasesOutput() {
+		final AtomicBoolean closed = new AtomicBoolean();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		};
+		OsmosisSerializer serializer = new OsmosisSerializer(new BlockOutputStream(outputStream)) {
+			@Override
+			protected FileBlock buildBlock(List<PrimGroupWriterInterface> blockGroups,
+					StringTable blockStringtable) {
+				throw new OsmosisRuntimeException("Simulated block failure.");
+			}
+		};
+
+		serializer.configWorkers(2);
+		serializer.configBatchLimit(1);
+		serializer.configOmit(true);
+
+		// The batch limit causes the node to be handed to a worker straight
+		// away. The pipeline then fails before complete is called.
+		serializer.process(new NodeContainer(
+				new Node(new CommonEntityData(1, 1, new Date(0), OsmUser.NONE, 1), 1, 1)));
+		serializer.close();
+
+		Assert.assertTrue("The output was not closed.", closed.get());
+	}
+}
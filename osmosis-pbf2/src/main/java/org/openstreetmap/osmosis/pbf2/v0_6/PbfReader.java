@@ -6,34 +6,56 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 import com.google.common.util.concurrent.MoreExecutors;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.HeaderBoundReader;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.HeaderMetadataReader;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.HeaderSeeker;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.IndexedBlobSplitter;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.MappedBlobSplitter;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.MappedPbfFile;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobIndex;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfDecoder;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.RawBlob;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.StreamSplitter;
 
 
 /**
  * An OSM data source reading from a PBF file. The entire contents of the file
- * are read.
+ * are read unless an area of interest is specified for a memory mapped file.
  * 
  * @author Brett Henderson
  */
 public class PbfReader implements RunnableSource {
+
+	private static final Logger LOG = Logger.getLogger(PbfReader.class.getName());
+
+	/**
+	 * The number of decoded entities each worker may buffer ahead of the sink.
+	 * Typical PBF blocks contain 8000 entities, this allows two blocks.
+	 */
+	private static final int MAX_PENDING_ENTITIES_PER_WORKER = 16000;
+
 	private final Supplier<InputStream> supplier;
+	private File file;
 	private Sink sink;
 	private int workers;
+	private boolean memoryMapped;
+	private Bound area;
+	private File indexFile;
 
 	/**
 	 * Creates a new instance.
@@ -57,6 +79,69 @@ public class PbfReader implements RunnableSource {
 		}, workers);
 	}
 
+	/**
+	 * Creates a new instance which may read the file through a memory mapping
+	 * rather than as a stream.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @param workers
+	 *            The number of worker threads for decoding PBF blocks.
+	 * @param memoryMapped
+	 *            If true, the file will be memory mapped.
+	 * @param area
+	 *            The area of interest for skipping blobs, or null to read all
+	 *            blobs. Only supported when memory mapped.
+	 */
+	public PbfReader(File file, int workers, boolean memoryMapped, Bound area) {
+		this(file, workers, memoryMapped, area, null);
+	}
+
+
+	/**
+	 * Creates a new instance which may read the file through a memory mapping
+	 * rather than as a stream. A memory mapped read may use an index of the
+	 * blobs in the file stored in an index file. The index allows blobs
+	 * containing only nodes outside an area of interest to be skipped without
+	 * being decoded. If the index file doesn't exist or is out of date, all
+	 * blobs are read and the index is built from the decoded blobs and written
+	 * for use by subsequent reads. Note that blobs are skipped as a whole, so
+	 * entities outside the area may still be produced and a downstream area
+	 * filter is still required. Nodes outside the area are skipped even if
+	 * they are referenced by ways or relations inside it, so an area must not
+	 * be specified when a downstream area filter uses the completeWays or
+	 * completeRelations options.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @param workers
+	 *            The number of worker threads for decoding PBF blocks.
+	 * @param memoryMapped
+	 *            If true, the file will be memory mapped.
+	 * @param area
+	 *            The area of interest for skipping blobs, or null to read all
+	 *            blobs. Only supported when memory mapped.
+	 * @param indexFile
+	 *            The file to read the blob index from and write it to, or null
+	 *            if no index is to be used. Only supported when memory mapped.
+	 */
+	public PbfReader(File file, int workers, boolean memoryMapped, Bound area, File indexFile) {
+		this(file, workers);
+
+		if (area != null && !memoryMapped) {
+			throw new OsmosisRuntimeException("Skipping PBF blocks by area requires a memory mapped file.");
+		}
+		if (indexFile != null && !memoryMapped) {
+			throw new OsmosisRuntimeException("A PBF blob index requires a memory mapped file.");
+		}
+
+		this.file = file;
+		this.memoryMapped = memoryMapped;
+		this.area = area;
+		this.indexFile = indexFile;
+	}
+
+
 	/**
 	 * Creates a new instance.
 	 * 
@@ -77,7 +162,9 @@ public class PbfReader implements RunnableSource {
 
 	@Override
 	public void run() {
-		StreamSplitter streamSplitter = null;
+		Iterator<RawBlob> streamSplitter = null;
+		Closeable streamCloser = null;
+		MappedBlobSplitter indexingBlobSplitter = null;
 
 		ExecutorService executorService;
 
@@ -88,10 +175,41 @@ public class PbfReader implements RunnableSource {
 		}
 
 		try {
-			InputStream inputStream = supplier.get();
-
-			// Create a stream splitter to break the PBF stream into blobs.
-			streamSplitter = new StreamSplitter(new DataInputStream(inputStream));
+			if (memoryMapped) {
+				// Map the file into memory and access blobs via the index if
+				// one is available.
+				MappedPbfFile mappedFile = new MappedPbfFile(file);
+				PbfBlobIndex index = null;
+				if (indexFile != null) {
+					index = PbfBlobIndex.load(file, indexFile);
+				}
+
+				if (index != null) {
+					IndexedBlobSplitter indexedBlobSplitter = new IndexedBlobSplitter(mappedFile, index, area);
+					streamSplitter = indexedBlobSplitter;
+					streamCloser = indexedBlobSplitter;
+				} else {
+					if (area != null) {
+						LOG.info("No PBF blob index is available for " + file + ", all blobs will be read.");
+					}
+
+					// Build the index from the blobs as they are decoded if
+					// it is to be saved.
+					MappedBlobSplitter mappedBlobSplitter = new MappedBlobSplitter(mappedFile, indexFile != null);
+					streamSplitter = mappedBlobSplitter;
+					streamCloser = mappedBlobSplitter;
+					if (indexFile != null) {
+						indexingBlobSplitter = mappedBlobSplitter;
+					}
+				}
+			} else {
+				InputStream inputStream = supplier.get();
+
+				// Create a stream splitter to break the PBF stream into blobs.
+				StreamSplitter inputStreamSplitter = new StreamSplitter(new DataInputStream(inputStream));
+				streamSplitter = inputStreamSplitter;
+				streamCloser = inputStreamSplitter;
+			}
 
 			// Obtain the header block.
 			Osmformat.HeaderBlock header = new HeaderSeeker().apply(streamSplitter);
@@ -110,18 +228,26 @@ public class PbfReader implements RunnableSource {
 			// than there are workers to ensure there is another blob
 			// immediately ready for processing when a worker thread completes.
 			// The main thread is responsible for splitting blobs from the
-			// request stream, and sending decoded entities to the sink.
-			PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
+			// request stream, and sending decoded entities to the sink. The
+			// decoded entities waiting for the sink are limited to bound memory
+			// usage when blocks are large.
+			PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1,
+					Math.max(1, workers) * MAX_PENDING_ENTITIES_PER_WORKER, sink);
 			pbfDecoder.run();
 
+			// All blobs have now been decoded so the index is complete.
+			if (indexingBlobSplitter != null) {
+				indexingBlobSplitter.buildIndex().save(file, indexFile);
+			}
+
 			sink.complete();
 		} finally {
 			sink.close();
 
 			executorService.shutdownNow();
 
-			if (streamSplitter != null) {
-				streamSplitter.close();
+			if (streamCloser != null) {
+				streamCloser.close();
 			}
 		}
 	}
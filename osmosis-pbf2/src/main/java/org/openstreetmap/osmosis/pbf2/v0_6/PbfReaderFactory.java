@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.pbf2.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -19,6 +20,17 @@ public class PbfReaderFactory extends TaskManagerFactory {
 	private static final String DEFAULT_FILE_NAME = "dump.osm.pbf";
 	private static final String ARG_WORKERS = "workers";
 	private static final int DEFAULT_WORKERS = 0;
+	private static final String ARG_MEMORY_MAPPED = "mmap";
+	private static final boolean DEFAULT_MEMORY_MAPPED = false;
+	private static final String ARG_INDEX_FILE_NAME = "indexFile";
+	private static final String ARG_LEFT = "left";
+	private static final String ARG_RIGHT = "right";
+	private static final String ARG_TOP = "top";
+	private static final String ARG_BOTTOM = "bottom";
+	private static final double DEFAULT_LEFT = -180;
+	private static final double DEFAULT_RIGHT = 180;
+	private static final double DEFAULT_TOP = 90;
+	private static final double DEFAULT_BOTTOM = -90;
 
 
 	/**
@@ -30,17 +42,47 @@ public class PbfReaderFactory extends TaskManagerFactory {
 		File file;
 		PbfReader task;
 		int workers;
+		boolean memoryMapped;
+		Bound area;
+		File indexFile;
 
 		// Get the task arguments.
 		fileName = getStringArgument(taskConfig, ARG_FILE_NAME,
 				getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME));
 		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		memoryMapped = getBooleanArgument(taskConfig, ARG_MEMORY_MAPPED, DEFAULT_MEMORY_MAPPED);
+
+		// An area of interest is only used if at least one side of it is
+		// specified. It requires the file to be memory mapped. Out of area
+		// nodes referenced by in area ways are skipped, so it cannot be
+		// combined with a downstream completeWays area filter.
+		if (doesArgumentExist(taskConfig, ARG_LEFT) || doesArgumentExist(taskConfig, ARG_RIGHT)
+				|| doesArgumentExist(taskConfig, ARG_TOP) || doesArgumentExist(taskConfig, ARG_BOTTOM)) {
+			area = new Bound(
+					getDoubleArgument(taskConfig, ARG_RIGHT, DEFAULT_RIGHT),
+					getDoubleArgument(taskConfig, ARG_LEFT, DEFAULT_LEFT),
+					getDoubleArgument(taskConfig, ARG_TOP, DEFAULT_TOP),
+					getDoubleArgument(taskConfig, ARG_BOTTOM, DEFAULT_BOTTOM),
+					"");
+			memoryMapped = true;
+		} else {
+			area = null;
+		}
+
+		// A blob index is only used if a location is specified for it. It
+		// requires the file to be memory mapped.
+		if (doesArgumentExist(taskConfig, ARG_INDEX_FILE_NAME)) {
+			indexFile = new File(getStringArgument(taskConfig, ARG_INDEX_FILE_NAME));
+			memoryMapped = true;
+		} else {
+			indexFile = null;
+		}
 
 		// Create a file object from the file name provided.
 		file = new File(fileName);
 
 		// Build the task object.
-		task = new PbfReader(file, workers);
+		task = new PbfReader(file, workers, memoryMapped, area, indexFile);
 
 		return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
@@ -6,6 +6,7 @@ import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
 
+import java.nio.ByteBuffer;
 import java.util.function.Function;
 
 /**
@@ -31,7 +32,7 @@ public class BlobToBlockMapper implements Function<RawBlob, PbfBlock> {
         }
     }
 
-    private Fileformat.Blob parseBlob(byte[] data) {
+    private Fileformat.Blob parseBlob(ByteBuffer data) {
         try {
             return Fileformat.Blob.parseFrom(data);
         } catch (InvalidProtocolBufferException e) {
@@ -4,18 +4,19 @@ package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
 
+import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.Function;
 
 /**
  * Finds the first header in the stream.  It validates that a header occurs first.  This function has side effects in
- * that it moves the stream splitter iterator forward.
+ * that it moves the blob iterator forward.
  */
-public class HeaderSeeker implements Function<StreamSplitter, Osmformat.HeaderBlock> {
+public class HeaderSeeker implements Function<Iterator<RawBlob>, Osmformat.HeaderBlock> {
     private BlobToBlockMapper blobToBlockMapper = new BlobToBlockMapper();
 
     @Override
-    public Osmformat.HeaderBlock apply(StreamSplitter streamSplitter) {
+    public Osmformat.HeaderBlock apply(Iterator<RawBlob> streamSplitter) {
         if (!streamSplitter.hasNext()) {
             throw new OsmosisRuntimeException("PBF stream ended before a header could be found.");
         }
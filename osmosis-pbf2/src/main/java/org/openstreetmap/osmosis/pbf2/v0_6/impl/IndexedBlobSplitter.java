@@ -0,0 +1,89 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+
+
+/**
+ * Provides the blobs of a memory mapped PBF file in sequence using a blob
+ * index. Blob data is not copied, each blob references a region of the mapped
+ * file. Blobs containing only nodes outside an optional area of interest are
+ * skipped without being decoded.
+ */
+public class IndexedBlobSplitter implements Iterator<RawBlob>, Closeable {
+
+	private static final Logger LOG = Logger.getLogger(IndexedBlobSplitter.class.getName());
+
+	private MappedPbfFile mappedFile;
+	private Iterator<PbfBlobIndexEntry> entries;
+	private Bound area;
+	private PbfBlobIndexEntry nextEntry;
+	private int skippedCount;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param mappedFile
+	 *            The mapped PBF file containing the blob data.
+	 * @param index
+	 *            The index of blobs within the file.
+	 * @param area
+	 *            The area of interest, or null if no blobs are to be skipped.
+	 */
+	public IndexedBlobSplitter(MappedPbfFile mappedFile, PbfBlobIndex index, Bound area) {
+		this.mappedFile = mappedFile;
+		this.entries = index.getEntries().iterator();
+		this.area = area;
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		while (nextEntry == null && entries.hasNext()) {
+			PbfBlobIndexEntry entry = entries.next();
+
+			if (area != null && entry.isOutside(area)) {
+				skippedCount++;
+			} else {
+				nextEntry = entry;
+			}
+		}
+
+		return nextEntry != null;
+	}
+
+
+	@Override
+	public RawBlob next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		PbfBlobIndexEntry entry = nextEntry;
+		nextEntry = null;
+
+		return new RawBlob(entry.getType(), mappedFile.getRegion(entry.getOffset(), entry.getLength()));
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void close() {
+		if (skippedCount > 0) {
+			LOG.fine("Skipped " + skippedCount + " PBF blobs outside the area of interest.");
+		}
+
+		mappedFile.close();
+	}
+}
@@ -0,0 +1,124 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+
+/**
+ * Provides the blobs of a memory mapped PBF file in sequence by walking the
+ * blob headers. Blob data is not copied, each blob references a region of the
+ * mapped file. The bounds of each blob may optionally be recorded as the blobs
+ * are decoded, allowing an index of the file to be built as a side effect of
+ * reading it.
+ */
+public class MappedBlobSplitter implements Iterator<RawBlob>, Closeable {
+
+	private MappedPbfFile mappedFile;
+	private long offset;
+	private List<PbfBlobBounds> blobBounds;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param mappedFile
+	 *            The mapped PBF file containing the blob data.
+	 * @param buildIndex
+	 *            If true, the bounds of each blob will be recorded as it is
+	 *            decoded so that an index can be built.
+	 */
+	public MappedBlobSplitter(MappedPbfFile mappedFile, boolean buildIndex) {
+		this.mappedFile = mappedFile;
+
+		offset = 0;
+		if (buildIndex) {
+			blobBounds = new ArrayList<>();
+		}
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		return offset < mappedFile.getLength();
+	}
+
+
+	@Override
+	public RawBlob next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		// Each blob is preceded by a 4 byte header length, and the header.
+		int headerLength = mappedFile.getRegion(offset, 4).getInt();
+		Fileformat.BlobHeader blobHeader;
+		try {
+			blobHeader = Fileformat.BlobHeader.parseFrom(mappedFile.getRegion(offset + 4, headerLength));
+		} catch (InvalidProtocolBufferException e) {
+			throw new OsmosisRuntimeException("Unable to parse PBF blob header at offset " + offset + ".", e);
+		}
+
+		String type = blobHeader.getType();
+		long dataOffset = offset + 4 + headerLength;
+		int dataLength = blobHeader.getDatasize();
+
+		offset = dataOffset + dataLength;
+
+		PbfBlobBounds bounds = null;
+		if (blobBounds != null) {
+			bounds = new PbfBlobBounds(type, dataOffset, dataLength);
+			blobBounds.add(bounds);
+		}
+
+		return new RawBlob(type, mappedFile.getRegion(dataOffset, dataLength), bounds);
+	}
+
+
+	/**
+	 * Builds an index of the file from the blobs decoded so far. This must
+	 * only be called once all blobs have been read and decoded.
+	 *
+	 * @return The index.
+	 */
+	public PbfBlobIndex buildIndex() {
+		if (blobBounds == null) {
+			throw new OsmosisRuntimeException("Blob bounds were not recorded for PBF file " + mappedFile.getFile()
+					+ ".");
+		}
+		if (hasNext()) {
+			throw new OsmosisRuntimeException("PBF file " + mappedFile.getFile() + " has not been fully read.");
+		}
+
+		List<PbfBlobIndexEntry> entries = new ArrayList<>(blobBounds.size());
+		for (PbfBlobBounds bounds : blobBounds) {
+			if (!bounds.isComplete()) {
+				throw new OsmosisRuntimeException("A blob at offset " + bounds.getOffset() + " of PBF file "
+						+ mappedFile.getFile() + " has not been decoded.");
+			}
+			entries.add(bounds.buildEntry());
+		}
+
+		return new PbfBlobIndex(entries);
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void close() {
+		mappedFile.close();
+	}
+}
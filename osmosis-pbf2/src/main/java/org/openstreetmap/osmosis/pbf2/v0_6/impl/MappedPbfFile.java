@@ -0,0 +1,140 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+
+
+/**
+ * Provides random access to the contents of a PBF file by mapping it into
+ * memory. A single mapping is limited to 2GB so the file is mapped in
+ * overlapping segments. Each segment extends past the start of the next by the
+ * maximum size of a PBF blob which guarantees that any blob can be accessed
+ * from the segment containing its starting offset.
+ */
+public class MappedPbfFile implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(MappedPbfFile.class.getName());
+
+	/**
+	 * The distance between the start of each mapped segment.
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	/**
+	 * The maximum size of a blob header and blob allowed by the PBF
+	 * specification (64kB + 32MB) rounded up.
+	 */
+	private static final long SEGMENT_OVERLAP = 64L << 20;
+
+	private File file;
+	private RandomAccessFile randomAccessFile;
+	private long length;
+	private MappedByteBuffer[] segments;
+
+
+	/**
+	 * Creates a new instance and maps the file into memory.
+	 *
+	 * @param file
+	 *            The PBF file to be mapped.
+	 */
+	public MappedPbfFile(File file) {
+		this.file = file;
+
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			FileChannel channel = randomAccessFile.getChannel();
+
+			length = channel.size();
+			segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long segmentOffset = i * SEGMENT_SIZE;
+				long segmentLength = Math.min(length - segmentOffset, SEGMENT_SIZE + SEGMENT_OVERLAP);
+
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentOffset, segmentLength);
+			}
+
+		} catch (IOException e) {
+			close();
+			throw new OsmosisRuntimeException("Unable to map PBF file " + file + " into memory.", e);
+		}
+	}
+
+
+	/**
+	 * Gets the file being accessed.
+	 *
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+
+	/**
+	 * Gets the length of the file.
+	 *
+	 * @return The number of bytes in the file.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+
+	/**
+	 * Gets a view of a region of the file. No data is copied.
+	 *
+	 * @param offset
+	 *            The offset of the region within the file.
+	 * @param regionLength
+	 *            The number of bytes in the region. This must not exceed the
+	 *            maximum blob size.
+	 * @return A buffer containing the region from position zero.
+	 */
+	public ByteBuffer getRegion(long offset, int regionLength) {
+		if (offset < 0 || regionLength < 0 || offset + regionLength > length
+				|| regionLength > SEGMENT_OVERLAP) {
+			throw new OsmosisRuntimeException("Region at offset " + offset + " with length " + regionLength
+					+ " is invalid for PBF file " + file + " of length " + length + ".");
+		}
+
+		int segmentIndex = (int) (offset / SEGMENT_SIZE);
+		int segmentOffset = (int) (offset - segmentIndex * SEGMENT_SIZE);
+
+		ByteBuffer region = segments[segmentIndex].duplicate();
+		region.position(segmentOffset);
+		region.limit(segmentOffset + regionLength);
+
+		return region.slice();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Mapped segments are released when garbage collected, there is no
+		// supported way of unmapping them explicitly.
+		segments = null;
+
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Unable to close PBF file " + file + ".", e);
+			}
+			randomAccessFile = null;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+
+/**
+ * Accumulates the area covered by the nodes of a single blob while the blob is
+ * decoded, allowing an index entry to be created for the blob without decoding
+ * it a second time.
+ * <p>
+ * The bounds are updated by the thread decoding the blob and must only be read
+ * once decoding has completed.
+ * </p>
+ */
+public class PbfBlobBounds {
+
+	private static final String PRIMITIVE_TYPE = "OSMData";
+
+	private String type;
+	private long offset;
+	private int length;
+	private boolean decoded;
+	private boolean nodesOnly;
+	private double left;
+	private double right;
+	private double top;
+	private double bottom;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param type
+	 *            The type of data in the blob as per the blob header.
+	 * @param offset
+	 *            The offset of the blob data within the file.
+	 * @param length
+	 *            The length of the blob data.
+	 */
+	public PbfBlobBounds(String type, long offset, int length) {
+		this.type = type;
+		this.offset = offset;
+		this.length = length;
+
+		decoded = false;
+		nodesOnly = true;
+
+		// Start with an inverted area which never intersects.
+		left = Double.POSITIVE_INFINITY;
+		right = Double.NEGATIVE_INFINITY;
+		top = Double.NEGATIVE_INFINITY;
+		bottom = Double.POSITIVE_INFINITY;
+	}
+
+
+	/**
+	 * Gets the offset of the blob data within the file.
+	 *
+	 * @return The offset.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Extends the bounds to include a node.
+	 *
+	 * @param latitude
+	 *            The latitude of the node.
+	 * @param longitude
+	 *            The longitude of the node.
+	 */
+	public void addNode(double latitude, double longitude) {
+		left = Math.min(left, longitude);
+		right = Math.max(right, longitude);
+		top = Math.max(top, latitude);
+		bottom = Math.min(bottom, latitude);
+	}
+
+
+	/**
+	 * Flags the blob as containing entities other than nodes. Such blobs can
+	 * never be skipped.
+	 */
+	public void addNonNodes() {
+		nodesOnly = false;
+	}
+
+
+	/**
+	 * Flags the blob as fully decoded.
+	 */
+	public void complete() {
+		decoded = true;
+	}
+
+
+	/**
+	 * Indicates if the bounds describe the whole blob. Only data blobs need to
+	 * be decoded, other blob types contain no entities.
+	 *
+	 * @return True if an index entry can be created.
+	 */
+	public boolean isComplete() {
+		return decoded || !PRIMITIVE_TYPE.equals(type);
+	}
+
+
+	/**
+	 * Creates the index entry for the blob.
+	 *
+	 * @return The index entry.
+	 */
+	public PbfBlobIndexEntry buildEntry() {
+		if (!PRIMITIVE_TYPE.equals(type)) {
+			return new PbfBlobIndexEntry(type, offset, length, false, 0, 0, 0, 0);
+		}
+
+		if (left > right) {
+			// There are no nodes so store an inverted area which never intersects.
+			return new PbfBlobIndexEntry(type, offset, length, nodesOnly, 1, -1, -1, 1);
+		}
+
+		return new PbfBlobIndexEntry(type, offset, length, nodesOnly, left, right, top, bottom);
+	}
+}
@@ -45,11 +45,18 @@ public class PbfBlobDecoder implements Runnable {
 	private static final Date EMPTY_TIMESTAMP = new Date(0);
 	private static final long EMPTY_CHANGESET = -1;
 
+	/**
+	 * The number of decoded entities to accumulate before passing them to the
+	 * listener.
+	 */
+	public static final int ENTITY_BATCH_SIZE = 1000;
+
 	private BlobToBlockMapper blobToBlockMapper;
 
 	private RawBlob rawBlob;
 	private PbfBlobDecoderListener listener;
 	private List<EntityContainer> decodedEntities;
+	private PbfBlobBounds bounds;
 
 	/**
 	 * Creates a new instance.
@@ -64,6 +71,24 @@ public class PbfBlobDecoder implements Runnable {
 
 		this.rawBlob = rawBlob;
 		this.listener = listener;
+		this.bounds = rawBlob.getBounds();
+	}
+
+
+	private void addEntity(EntityContainer entityContainer) {
+		decodedEntities.add(entityContainer);
+
+		if (decodedEntities.size() >= ENTITY_BATCH_SIZE) {
+			flushEntities();
+		}
+	}
+
+
+	private void flushEntities() {
+		if (!decodedEntities.isEmpty()) {
+			listener.process(decodedEntities);
+			decodedEntities = new ArrayList<>(ENTITY_BATCH_SIZE);
+		}
 	}
 
 
@@ -137,8 +162,12 @@ public class PbfBlobDecoder implements Runnable {
 			osmNode = new org.openstreetmap.osmosis.core.domain.v0_6.Node(entityData, fieldDecoder.decodeLatitude(node
 					.getLat()), fieldDecoder.decodeLongitude(node.getLon()));
 
+			if (bounds != null) {
+				bounds.addNode(osmNode.getLatitude(), osmNode.getLongitude());
+			}
+
 			// Add the bound object to the results.
-			decodedEntities.add(new NodeContainer(osmNode));
+			addEntity(new NodeContainer(osmNode));
 		}
 	}
 
@@ -223,8 +252,12 @@ public class PbfBlobDecoder implements Runnable {
 			node = new org.openstreetmap.osmosis.core.domain.v0_6.Node(entityData,
 					fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
 
+			if (bounds != null) {
+				bounds.addNode(node.getLatitude(), node.getLongitude());
+			}
+
 			// Add the bound object to the results.
-			decodedEntities.add(new NodeContainer(node));
+			addEntity(new NodeContainer(node));
 		}
 	}
 
@@ -268,7 +301,7 @@ public class PbfBlobDecoder implements Runnable {
 				}
 			}
 
-			decodedEntities.add(new WayContainer(osmWay));
+			addEntity(new WayContainer(osmWay));
 		}
 	}
 
@@ -335,7 +368,7 @@ public class PbfBlobDecoder implements Runnable {
 					relation.getTypesList(), fieldDecoder);
 
 			// Add the bound object to the results.
-			decodedEntities.add(new RelationContainer(osmRelation));
+			addEntity(new RelationContainer(osmRelation));
 		}
 	}
 
@@ -345,6 +378,14 @@ public class PbfBlobDecoder implements Runnable {
 
 		for (PrimitiveGroup primitiveGroup : block.getPrimitivegroupList()) {
 			log.finer("Processing OSM primitive group.");
+
+			// Ways and relations have no location of their own so their blob
+			// can never be skipped by area.
+			if (bounds != null && (primitiveGroup.getWaysCount() > 0 || primitiveGroup.getRelationsCount() > 0
+					|| primitiveGroup.getChangesetsCount() > 0)) {
+				bounds.addNonNodes();
+			}
+
 			processNodes(primitiveGroup.getDense(), fieldDecoder);
 			processNodes(primitiveGroup.getNodesList(), fieldDecoder);
 			processWays(primitiveGroup.getWaysList(), fieldDecoder);
@@ -354,7 +395,7 @@ public class PbfBlobDecoder implements Runnable {
 
 
 	private void runAndValidate() {
-		decodedEntities = new ArrayList<>();
+		decodedEntities = new ArrayList<>(ENTITY_BATCH_SIZE);
 
 		// Parse the blob.
 		PbfBlock pbfBlock = blobToBlockMapper.apply(rawBlob);
@@ -365,6 +406,13 @@ public class PbfBlobDecoder implements Runnable {
 		}
 
 		pbfBlock.getPrimitiveBlock().ifPresent(this::processOsmPrimitives);
+
+		// Pass on the final partial batch.
+		flushEntities();
+
+		if (bounds != null) {
+			bounds.complete();
+		}
 	}
 
 	@Override
@@ -372,10 +420,10 @@ public class PbfBlobDecoder implements Runnable {
 		try {
 			runAndValidate();
 
-			listener.complete(decodedEntities);
+			listener.complete();
 
 		} catch (RuntimeException e) {
-			listener.error();
+			listener.error(e);
 		}
 	}
 }
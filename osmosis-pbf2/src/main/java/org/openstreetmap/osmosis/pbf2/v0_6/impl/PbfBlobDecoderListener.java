@@ -8,21 +8,33 @@ import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 
 /**
  * Instances of this interface are used to receive results from PBFBlobDecoder.
+ * Entities are provided in batches as they are decoded so that a large blob
+ * doesn't need to be held in memory in its entirety.
  * 
  * @author Brett Henderson
  */
 public interface PbfBlobDecoderListener {
 	/**
-	 * Provides the listener with the list of decoded entities.
+	 * Provides the listener with the next batch of decoded entities. This may
+	 * block if the listener is unable to accept more data.
 	 * 
 	 * @param decodedEntities
 	 *            The decoded entities.
 	 */
-	void complete(List<EntityContainer> decodedEntities);
+	void process(List<EntityContainer> decodedEntities);
+
+
+	/**
+	 * Notifies the listener that all entities in the blob have been provided.
+	 */
+	void complete();
 
 
 	/**
 	 * Notifies the listener that an error occurred during processing.
+	 * 
+	 * @param cause
+	 *            The exception that caused the failure.
 	 */
-	void error();
+	void error(RuntimeException cause);
 }
@@ -0,0 +1,131 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Maintains the list of blobs within a PBF file along with the bounds of the
+ * nodes within each blob. The index is built while a memory mapped file is
+ * read, and may be saved to an index file so that subsequent reads can skip
+ * blobs outside an area of interest.
+ */
+public class PbfBlobIndex {
+
+	private static final Logger LOG = Logger.getLogger(PbfBlobIndex.class.getName());
+
+	private static final int FILE_MAGIC = 0x4f504249;
+	private static final int FILE_VERSION = 1;
+
+	private List<PbfBlobIndexEntry> entries;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param entries
+	 *            The blob entries in file order.
+	 */
+	public PbfBlobIndex(List<PbfBlobIndexEntry> entries) {
+		this.entries = entries;
+	}
+
+
+	/**
+	 * Gets the blob entries in file order.
+	 *
+	 * @return The blob entries.
+	 */
+	public List<PbfBlobIndexEntry> getEntries() {
+		return entries;
+	}
+
+
+	/**
+	 * Loads a previously saved index if one exists and is still valid for the
+	 * PBF file.
+	 *
+	 * @param pbfFile
+	 *            The PBF file that the index describes.
+	 * @param indexFile
+	 *            The file containing the index.
+	 * @return The index, or null if no valid index is available.
+	 */
+	public static PbfBlobIndex load(File pbfFile, File indexFile) {
+		if (!indexFile.exists()) {
+			return null;
+		}
+
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (dis.readInt() != FILE_MAGIC || dis.readInt() != FILE_VERSION) {
+				LOG.warning("Ignoring PBF index file " + indexFile + " with an unrecognised format.");
+				return null;
+			}
+			if (dis.readLong() != pbfFile.length() || dis.readLong() != pbfFile.lastModified()) {
+				LOG.info("Ignoring PBF index file " + indexFile + " because the PBF file has changed.");
+				return null;
+			}
+
+			int entryCount = dis.readInt();
+			List<PbfBlobIndexEntry> entries = new ArrayList<>(entryCount);
+			for (int i = 0; i < entryCount; i++) {
+				entries.add(new PbfBlobIndexEntry(dis.readUTF(), dis.readLong(), dis.readInt(), dis.readBoolean(),
+						dis.readDouble(), dis.readDouble(), dis.readDouble(), dis.readDouble()));
+			}
+
+			return new PbfBlobIndex(entries);
+
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Unable to read PBF index file " + indexFile + ", it will be rebuilt.", e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Saves the index to an index file. Failure to write the index is not
+	 * fatal because the index can be rebuilt.
+	 *
+	 * @param pbfFile
+	 *            The PBF file that the index describes.
+	 * @param indexFile
+	 *            The file to write the index to.
+	 */
+	public void save(File pbfFile, File indexFile) {
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			dos.writeInt(FILE_MAGIC);
+			dos.writeInt(FILE_VERSION);
+			dos.writeLong(pbfFile.length());
+			dos.writeLong(pbfFile.lastModified());
+
+			dos.writeInt(entries.size());
+			for (PbfBlobIndexEntry entry : entries) {
+				dos.writeUTF(entry.getType());
+				dos.writeLong(entry.getOffset());
+				dos.writeInt(entry.getLength());
+				dos.writeBoolean(entry.isNodesOnly());
+				dos.writeDouble(entry.getLeft());
+				dos.writeDouble(entry.getRight());
+				dos.writeDouble(entry.getTop());
+				dos.writeDouble(entry.getBottom());
+			}
+
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Unable to write PBF index file " + indexFile + ".", e);
+			if (indexFile.exists() && !indexFile.delete()) {
+				LOG.warning("Unable to delete incomplete PBF index file " + indexFile + ".");
+			}
+		}
+	}
+}
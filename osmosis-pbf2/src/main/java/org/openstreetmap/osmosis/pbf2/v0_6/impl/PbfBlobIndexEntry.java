@@ -0,0 +1,166 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+
+
+/**
+ * Describes the location of a single blob within a PBF file, and the area
+ * covered by the nodes it contains.
+ */
+public class PbfBlobIndexEntry {
+	private String type;
+	private long offset;
+	private int length;
+	private boolean nodesOnly;
+	private double left;
+	private double right;
+	private double top;
+	private double bottom;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param type
+	 *            The type of data in the blob as per the blob header.
+	 * @param offset
+	 *            The offset of the blob data within the file.
+	 * @param length
+	 *            The length of the blob data.
+	 * @param nodesOnly
+	 *            True if the blob contains nothing but nodes. The node bounds
+	 *            are only meaningful if this is true.
+	 * @param left
+	 *            The minimum longitude of nodes in the blob.
+	 * @param right
+	 *            The maximum longitude of nodes in the blob.
+	 * @param top
+	 *            The maximum latitude of nodes in the blob.
+	 * @param bottom
+	 *            The minimum latitude of nodes in the blob.
+	 */
+	public PbfBlobIndexEntry(String type, long offset, int length, boolean nodesOnly, double left, double right,
+			double top, double bottom) {
+		this.type = type;
+		this.offset = offset;
+		this.length = length;
+		this.nodesOnly = nodesOnly;
+		this.left = left;
+		this.right = right;
+		this.top = top;
+		this.bottom = bottom;
+	}
+
+
+	/**
+	 * Gets the type of data in the blob as per the blob header.
+	 *
+	 * @return The blob type.
+	 */
+	public String getType() {
+		return type;
+	}
+
+
+	/**
+	 * Gets the offset of the blob data within the file.
+	 *
+	 * @return The offset.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Gets the length of the blob data.
+	 *
+	 * @return The length.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+
+	/**
+	 * Indicates if the blob contains nothing but nodes.
+	 *
+	 * @return True if only nodes are present.
+	 */
+	public boolean isNodesOnly() {
+		return nodesOnly;
+	}
+
+
+	/**
+	 * Gets the minimum longitude of nodes in the blob.
+	 *
+	 * @return The left bound.
+	 */
+	public double getLeft() {
+		return left;
+	}
+
+
+	/**
+	 * Gets the maximum longitude of nodes in the blob.
+	 *
+	 * @return The right bound.
+	 */
+	public double getRight() {
+		return right;
+	}
+
+
+	/**
+	 * Gets the maximum latitude of nodes in the blob.
+	 *
+	 * @return The top bound.
+	 */
+	public double getTop() {
+		return top;
+	}
+
+
+	/**
+	 * Gets the minimum latitude of nodes in the blob.
+	 *
+	 * @return The bottom bound.
+	 */
+	public double getBottom() {
+		return bottom;
+	}
+
+
+	/**
+	 * Determines whether the blob can be skipped when only data within the
+	 * specified area is required. Only blobs containing nothing but nodes may
+	 * be skipped because ways and relations have no location of their own.
+	 *
+	 * @param area
+	 *            The area of interest.
+	 * @return True if no node in the blob lies within the area.
+	 */
+	public boolean isOutside(Bound area) {
+		if (!nodesOnly) {
+			return false;
+		}
+
+		// A blob with no nodes at all has an empty (inverted) bounds.
+		if (left > right || bottom > top) {
+			return true;
+		}
+
+		// The area may cross the anti-meridian in which case it is split into
+		// two simple areas.
+		for (Bound simpleArea : area.toSimpleBound()) {
+			if (left <= simpleArea.getRight() && right >= simpleArea.getLeft()
+					&& bottom <= simpleArea.getTop() && top >= simpleArea.getBottom()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
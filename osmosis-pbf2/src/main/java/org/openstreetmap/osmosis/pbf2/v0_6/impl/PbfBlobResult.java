@@ -1,80 +1,118 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 
 
 /**
- * Stores the results for a decoded Blob.
+ * Stores the results for a decoded Blob. Results are streamed through this
+ * object in batches from the decoding worker thread to the thread sending
+ * entities to the sink, so the two threads only contend with each other and
+ * not with other blobs.
  * 
  * @author Brett Henderson
  */
 public class PbfBlobResult {
-	private List<EntityContainer> entities;
+	private static final List<EntityContainer> SUCCESS_MARKER = new ArrayList<>(0);
+	private static final List<EntityContainer> FAILURE_MARKER = new ArrayList<>(0);
+
+	private long sequence;
+	private BlockingQueue<List<EntityContainer>> batches;
 	private boolean complete;
-	private boolean success;
+	private volatile RuntimeException failureCause;
 
 
 	/**
 	 * Creates a new instance.
+	 * 
+	 * @param sequence
+	 *            The position of the blob within the PBF stream.
 	 */
-	public PbfBlobResult() {
+	public PbfBlobResult(long sequence) {
+		this.sequence = sequence;
+
+		batches = new LinkedBlockingQueue<>();
 		complete = false;
-		success = false;
 	}
 
 
 	/**
-	 * Stores the results of a successful blob decoding operation.
+	 * Gets the position of the blob within the PBF stream.
 	 * 
-	 * @param decodedEntities
-	 *            The entities from the blob.
+	 * @return The blob sequence number.
 	 */
-	public void storeSuccessResult(List<EntityContainer> decodedEntities) {
-		entities = decodedEntities;
-		complete = true;
-		success = true;
+	public long getSequence() {
+		return sequence;
 	}
 
 
 	/**
-	 * Stores a failure result for a blob decoding operation.
+	 * Stores a batch of decoded entities.
+	 * 
+	 * @param decodedEntities
+	 *            The entities from the blob.
 	 */
-	public void storeFailureResult() {
-		complete = true;
-		success = false;
+	public void storeEntities(List<EntityContainer> decodedEntities) {
+		batches.add(decodedEntities);
 	}
 
 
 	/**
-	 * Gets the complete flag.
-	 * 
-	 * @return True if complete.
+	 * Stores the results of a successful blob decoding operation. No further
+	 * entities may be stored after this call.
 	 */
-	public boolean isComplete() {
-		return complete;
+	public void storeSuccessResult() {
+		batches.add(SUCCESS_MARKER);
 	}
 
 
 	/**
-	 * Gets the success flag. This is only valid after complete becomes true.
+	 * Stores a failure result for a blob decoding operation.
 	 * 
-	 * @return True if successful.
+	 * @param cause
+	 *            The exception that caused the failure.
 	 */
-	public boolean isSuccess() {
-		return success;
+	public void storeFailureResult(RuntimeException cause) {
+		failureCause = cause;
+		batches.add(FAILURE_MARKER);
 	}
 
 
 	/**
-	 * Gets the entities decoded from the blob. This is only valid after
-	 * complete becomes true, and if success is true.
+	 * Gets the next batch of decoded entities, waiting for the worker thread
+	 * if none are available yet.
 	 * 
-	 * @return The list of decoded entities.
+	 * @return The next batch of entities, or null if the blob has been fully
+	 *         consumed.
 	 */
-	public List<EntityContainer> getEntities() {
-		return entities;
+	public List<EntityContainer> takeEntities() {
+		List<EntityContainer> batch;
+
+		if (complete) {
+			return null;
+		}
+
+		try {
+			batch = batches.take();
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		}
+
+		if (batch == SUCCESS_MARKER) {
+			complete = true;
+			return null;
+		}
+		if (batch == FAILURE_MARKER) {
+			complete = true;
+			throw new OsmosisRuntimeException("A PBF decoding worker thread failed, aborting.", failureCause);
+		}
+
+		return batch;
 	}
 }
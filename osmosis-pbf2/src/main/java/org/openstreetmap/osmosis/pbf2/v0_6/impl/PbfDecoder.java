@@ -1,10 +1,13 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -17,102 +20,160 @@ import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 /**
  * Decodes all blocks from a PBF stream using worker threads, and passes the
  * results to the downstream sink.
- * 
+ * <p>
+ * Each blob in flight has its own {@link PbfBlobResult} slot which the worker
+ * streams decoded batches into, and the sink thread drains the slots in stream
+ * order. Memory is bounded both by the number of blobs in flight and by a
+ * shared budget of decoded entities. A worker must draw from the budget before
+ * storing a batch unless its blob is the one currently being drained by the
+ * sink thread, which guarantees that the oldest blob can always make progress.
+ * </p>
+ *
  * @author Brett Henderson
  */
 public class PbfDecoder implements Runnable {
-	private StreamSplitter streamSplitter;
+	private Iterator<RawBlob> streamSplitter;
 	private Executor executor;
 	private int maxPendingBlobs;
 	private Sink sink;
-	private Lock lock;
-	private Condition dataWaitCondition;
+	private Thread sinkThread;
 	private Queue<PbfBlobResult> blobResults;
+	private AtomicLong headSequence;
+	private AtomicLong entityBudget;
+	private AtomicInteger budgetWaiterCount;
+	private Lock budgetLock;
+	private Condition budgetCondition;
 
 
 	/**
 	 * Creates a new instance.
-	 * 
+	 *
 	 * @param streamSplitter
-	 *            The PBF stream splitter providing the source of blobs to be
-	 *            decoded.
+	 *            The PBF stream splitter (or other iterator) providing the
+	 *            source of blobs to be decoded.
 	 * @param executor
 	 *            The executor service managing the thread pool.
 	 * @param maxPendingBlobs
 	 *            The maximum number of blobs to have in progress at any point
 	 *            in time.
+	 * @param maxPendingEntities
+	 *            The maximum number of decoded entities to hold for blobs
+	 *            waiting to be sent to the sink.
 	 * @param sink
 	 *            The sink to send all decoded entities to.
 	 */
-	public PbfDecoder(StreamSplitter streamSplitter, Executor executor, int maxPendingBlobs,
+	public PbfDecoder(Iterator<RawBlob> streamSplitter, Executor executor, int maxPendingBlobs, int maxPendingEntities,
 					  Sink sink) {
 		this.streamSplitter = streamSplitter;
 		this.executor = executor;
 		this.maxPendingBlobs = maxPendingBlobs;
 		this.sink = sink;
 
-		// Create the thread synchronisation primitives.
-		lock = new ReentrantLock();
-		dataWaitCondition = lock.newCondition();
+		// Create the queue of blobs being decoded. This is only accessed by
+		// the sink thread.
+		blobResults = new ArrayDeque<>();
 
-		// Create the queue of blobs being decoded.
-		blobResults = new LinkedList<>();
+		// Create the entity budget shared by all worker threads.
+		headSequence = new AtomicLong(-1);
+		entityBudget = new AtomicLong(maxPendingEntities);
+		budgetWaiterCount = new AtomicInteger();
+		budgetLock = new ReentrantLock();
+		budgetCondition = budgetLock.newCondition();
 	}
 
 
 	/**
-	 * Any thread can call this method when they wish to wait until an update
-	 * has been performed by another thread.
+	 * Wakes any worker threads waiting on the entity budget. The lock is only
+	 * taken if a worker is actually waiting.
 	 */
-	private void waitForUpdate() {
-		try {
-			dataWaitCondition.await();
+	private void signalBudgetUpdate() {
+		if (budgetWaiterCount.get() > 0) {
+			budgetLock.lock();
+			try {
+				budgetCondition.signalAll();
+			} finally {
+				budgetLock.unlock();
+			}
+		}
+	}
 
-		} catch (InterruptedException e) {
-			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+
+	/**
+	 * Attempts to draw entities from the budget. The blob currently being
+	 * drained by the sink thread is allowed to overdraw the budget.
+	 */
+	private boolean tryAcquireBudget(long sequence, int entityCount) {
+		if (sequence == headSequence.get()) {
+			entityBudget.addAndGet(-entityCount);
+			return true;
+		}
+
+		long available = entityBudget.get();
+		return available >= entityCount && entityBudget.compareAndSet(available, available - entityCount);
+	}
+
+
+	/**
+	 * Called by worker threads to draw from the entity budget before storing a
+	 * batch of decoded entities. This blocks until enough budget is available
+	 * or the blob becomes the next to be sent to the sink.
+	 */
+	private void acquireBudget(long sequence, int entityCount) {
+		while (!tryAcquireBudget(sequence, entityCount)) {
+			budgetWaiterCount.incrementAndGet();
+			budgetLock.lock();
+			try {
+				// Check again after registering to avoid missing a signal.
+				if (!tryAcquireBudget(sequence, entityCount)) {
+					budgetCondition.await();
+				} else {
+					return;
+				}
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			} finally {
+				budgetLock.unlock();
+				budgetWaiterCount.decrementAndGet();
+			}
 		}
 	}
 
 
 	/**
-	 * Any thread can call this method when they wish to signal another thread
-	 * that an update has occurred.
+	 * Called by the sink thread to return entities to the budget after they
+	 * have been sent to the sink.
 	 */
-	private void signalUpdate() {
-		dataWaitCondition.signal();
+	private void releaseBudget(int entityCount) {
+		entityBudget.addAndGet(entityCount);
+		signalBudgetUpdate();
 	}
 
 
 	private void sendResultsToSink(int targetQueueSize) {
 		while (blobResults.size() > targetQueueSize) {
-			// Get the next result from the queue and wait for it to complete.
+			// Get the next result from the queue and flag it as the blob now
+			// being drained so that it can bypass the entity budget.
 			PbfBlobResult blobResult = blobResults.remove();
-			while (!blobResult.isComplete()) {
-				// The thread hasn't finished processing yet so wait for an
-				// update from another thread before checking again.
-				waitForUpdate();
-			}
-
-			if (!blobResult.isSuccess()) {
-				throw new OsmosisRuntimeException("A PBF decoding worker thread failed, aborting.");
-			}
-
-			// Send the processed entities to the sink. We can release the lock
-			// for the duration of processing to allow worker threads to post
-			// their results.
-			lock.unlock();
-			try {
-				for (EntityContainer entity : blobResult.getEntities()) {
+			headSequence.set(blobResult.getSequence());
+			signalBudgetUpdate();
+
+			// Send the processed entities to the sink as they become
+			// available. This will throw an exception if the worker failed.
+			List<EntityContainer> entities;
+			while ((entities = blobResult.takeEntities()) != null) {
+				for (EntityContainer entity : entities) {
 					sink.process(entity);
 				}
-			} finally {
-				lock.lock();
+
+				releaseBudget(entities.size());
 			}
 		}
 	}
 
 
 	private void processBlobs() {
+		long sequence = 0;
+
 		// Process until the PBF stream is exhausted.
 		while (streamSplitter.hasNext()) {
 			// Obtain the next raw blob from the PBF stream.
@@ -120,36 +181,39 @@ public class PbfDecoder implements Runnable {
 
 			// Create the result object to capture the results of the decoded
 			// blob and add it to the blob results queue.
-			final PbfBlobResult blobResult = new PbfBlobResult();
+			final long blobSequence = sequence++;
+			final PbfBlobResult blobResult = new PbfBlobResult(blobSequence);
 			blobResults.add(blobResult);
 
 			// Create the listener object that will update the blob results
-			// based on an event fired by the blob decoder.
+			// based on events fired by the blob decoder.
 			PbfBlobDecoderListener decoderListener = new PbfBlobDecoderListener() {
 
 				@Override
-				public void error() {
-					lock.lock();
-					try {
-						blobResult.storeFailureResult();
-						signalUpdate();
-
-					} finally {
-						lock.unlock();
+				public void process(List<EntityContainer> decodedEntities) {
+					// If the decoder is running on the sink thread (ie. no
+					// worker threads), there is no need to buffer the data.
+					if (Thread.currentThread() == sinkThread && blobResults.peek() == blobResult) {
+						for (EntityContainer entity : decodedEntities) {
+							sink.process(entity);
+						}
+						return;
 					}
+
+					acquireBudget(blobSequence, decodedEntities.size());
+					blobResult.storeEntities(decodedEntities);
 				}
 
 
 				@Override
-				public void complete(List<EntityContainer> decodedEntities) {
-					lock.lock();
-					try {
-						blobResult.storeSuccessResult(decodedEntities);
-						signalUpdate();
-
-					} finally {
-						lock.unlock();
-					}
+				public void complete() {
+					blobResult.storeSuccessResult();
+				}
+
+
+				@Override
+				public void error(RuntimeException cause) {
+					blobResult.storeFailureResult(cause);
 				}
 			};
 
@@ -170,12 +234,8 @@ public class PbfDecoder implements Runnable {
 
 	@Override
 	public void run() {
-		lock.lock();
-		try {
-			processBlobs();
+		sinkThread = Thread.currentThread();
 
-		} finally {
-			lock.unlock();
-		}
+		processBlobs();
 	}
 }
@@ -1,16 +1,21 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
+import java.nio.ByteBuffer;
+
+
 /**
  * Represents a single piece of raw blob data extracted from the PBF stream. It has not yet been decoded into a
  * {@link org.openstreetmap.osmosis.osmbinary.Fileformat.Blob} object. We delay this additional parsing until later when
- * we can spread the work across multiple threads.
+ * we can spread the work across multiple threads. The data may be backed by a heap array, or by a region of a memory
+ * mapped file in which case it is never copied onto the heap.
  * 
  * @author Brett Henderson
  */
 public class RawBlob {
 	private String type;
-	private byte[] data;
+	private ByteBuffer data;
+	private PbfBlobBounds bounds;
 
 
 	/**
@@ -23,8 +28,43 @@ public class RawBlob {
 	 *            The raw contents of the blob in binary undecoded form.
 	 */
 	public RawBlob(String type, byte[] data) {
+		this(type, ByteBuffer.wrap(data));
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param type
+	 *            The type of data represented by this blob. This corresponds to
+	 *            the type field in the blob header.
+	 * @param data
+	 *            The raw contents of the blob in binary undecoded form. The
+	 *            buffer contents between its position and limit are used.
+	 */
+	public RawBlob(String type, ByteBuffer data) {
+		this(type, data, null);
+	}
+
+
+	/**
+	 * Creates a new instance which records the bounds of its nodes when
+	 * decoded.
+	 * 
+	 * @param type
+	 *            The type of data represented by this blob. This corresponds to
+	 *            the type field in the blob header.
+	 * @param data
+	 *            The raw contents of the blob in binary undecoded form. The
+	 *            buffer contents between its position and limit are used.
+	 * @param bounds
+	 *            The bounds to be updated when the blob is decoded, or null if
+	 *            not required.
+	 */
+	public RawBlob(String type, ByteBuffer data, PbfBlobBounds bounds) {
 		this.type = type;
 		this.data = data;
+		this.bounds = bounds;
 	}
 
 
@@ -40,11 +80,22 @@ public class RawBlob {
 
 
 	/**
-	 * Gets the raw contents of the blob in binary undecoded form.
+	 * Gets the raw contents of the blob in binary undecoded form. Each call
+	 * returns a new buffer view so callers may move its position freely.
 	 * 
 	 * @return The raw blob data.
 	 */
-	public byte[] getData() {
-		return data;
+	public ByteBuffer getData() {
+		return data.duplicate();
+	}
+
+
+	/**
+	 * Gets the bounds to be updated when the blob is decoded.
+	 * 
+	 * @return The blob bounds, or null if not required.
+	 */
+	public PbfBlobBounds getBounds() {
+		return bounds;
 	}
 }
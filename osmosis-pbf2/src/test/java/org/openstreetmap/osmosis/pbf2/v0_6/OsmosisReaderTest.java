@@ -4,6 +4,7 @@ package org.openstreetmap.osmosis.pbf2.v0_6;
 import java.io.File;
 import java.io.IOException;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
 import org.openstreetmap.osmosis.testutil.AbstractDataTest;
@@ -49,4 +50,142 @@ public class OsmosisReaderTest extends AbstractDataTest {
         // Validate that the output file matches the input file.
         dataUtils.compareFiles(inputXmlFile, outputXmlFile);
 	}
+
+
+	/**
+	 * Tests reading from PBF files using multiple worker threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testWriteAndReadWithWorkers() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+        // Read the XML and write to PBF using the standard PBF writer.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-xml-0.6",
+        		inputXmlFile.getPath(),
+        		"--write-pbf-0.6",
+        		pbfFile.getPath(),
+        		"batchlimit=10"
+                });
+        
+        // Read the PBF using the PBF2 reader with multiple workers and write to XML.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-pbf-fast-0.6",
+        		pbfFile.getPath(),
+        		"workers=4",
+        		"--write-xml-0.6",
+        		outputXmlFile.getPath()
+                });
+
+        // Validate that the output file matches the input file.
+        dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
+
+
+	/**
+	 * Tests reading from memory mapped PBF files with an area of interest
+	 * covering all data.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testWriteAndReadMemoryMapped() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+		File indexFile = new File(dataUtils.newFolder(), "data.blobidx");
+
+        // Read the XML and write to PBF using the standard PBF writer.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-xml-0.6",
+        		inputXmlFile.getPath(),
+        		"--write-pbf-0.6",
+        		pbfFile.getPath(),
+        		"batchlimit=10"
+                });
+
+        // Read the PBF twice, the first builds the blob index and the second
+        // uses it. The index is only written when a location is specified.
+        for (int i = 0; i < 2; i++) {
+	        Osmosis.run(new String[] {
+	        		"-q",
+	        		"--read-pbf-fast-0.6",
+	        		pbfFile.getPath(),
+	        		"workers=2",
+	        		"indexFile=" + indexFile.getPath(),
+	        		"left=-180",
+	        		"right=180",
+	        		"--write-xml-0.6",
+	        		outputXmlFile.getPath()
+	                });
+
+	        Assert.assertTrue("The blob index was not created.", indexFile.exists());
+
+	        // Validate that the output file matches the input file.
+	        dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+        }
+	}
+
+
+	/**
+	 * Tests that a blob index allows blobs containing only nodes outside the
+	 * area of interest to be skipped when reading memory mapped PBF files.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testReadMemoryMappedArea() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File expectedXmlFile = dataUtils.createDataFile("v0_6/data-snapshot-area.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+		File indexFile = new File(dataUtils.newFolder(), "data.blobidx");
+
+        // Read the XML and write to PBF using the standard PBF writer. The small
+        // batch limit places each pair of nodes in its own blob.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-xml-0.6",
+        		inputXmlFile.getPath(),
+        		"--write-pbf-0.6",
+        		pbfFile.getPath(),
+        		"batchlimit=2"
+                });
+
+        String[] readArgs = new String[] {
+        		"-q",
+        		"--read-pbf-fast-0.6",
+        		pbfFile.getPath(),
+        		"indexFile=" + indexFile.getPath(),
+        		"left=-4.5",
+        		"right=-1.5",
+        		"top=-0.5",
+        		"bottom=-3.5",
+        		"--write-xml-0.6",
+        		outputXmlFile.getPath()
+                };
+
+        // No index exists yet so all blobs are read while the index is built.
+        Osmosis.run(readArgs);
+        Assert.assertTrue("The blob index was not created.", indexFile.exists());
+        dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+
+        // The index allows the blobs holding nodes 3 to 6 to be skipped. Ways
+        // and relations are always read.
+        Osmosis.run(readArgs);
+        dataUtils.compareFiles(expectedXmlFile, outputXmlFile);
+	}
 }
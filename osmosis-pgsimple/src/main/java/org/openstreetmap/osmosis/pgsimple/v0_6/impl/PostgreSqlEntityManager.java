@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsimple.v0_6.impl;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityManager;
@@ -104,6 +106,26 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 		return entityDao.getEntity(id);
 	}
 
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<T> getEntities(long[] ids) {
+		List<T> entities;
+		
+		entities = new ArrayList<T>(ids.length);
+		for (long id : ids) {
+			try {
+				entities.add(entityDao.getEntity(id));
+			} catch (NoSuchRecordException e) {
+				// Missing entities are ignored.
+			}
+		}
+		
+		return entities;
+	}
+
 	
 	/**
 	 * {@inheritDoc}
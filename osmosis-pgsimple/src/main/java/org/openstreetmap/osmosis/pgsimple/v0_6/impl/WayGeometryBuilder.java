@@ -7,7 +7,6 @@ import java.util.List;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.pgsimple.common.CompactPersistentNodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.InMemoryNodeLocationStore;
@@ -147,12 +146,12 @@ public class WayGeometryBuilder implements Closeable {
 		right = 0;
 		bottom = 0;
 		top = 0;
-		for (WayNode wayNode : way.getWayNodes()) {
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
 			NodeLocation nodeLocation;
 			double longitude;
 			double latitude;
 			
-			nodeLocation = locationStore.getNodeLocation(wayNode.getNodeId());
+			nodeLocation = locationStore.getNodeLocation(way.getWayNodeId(i));
 			longitude = nodeLocation.getLongitude();
 			latitude = nodeLocation.getLatitude();
 			
@@ -198,10 +197,10 @@ public class WayGeometryBuilder implements Closeable {
 		int numValidNodes = 0;
 		
 		linePoints = new ArrayList<Point>();
-		for (WayNode wayNode : way.getWayNodes()) {
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
 			NodeLocation nodeLocation;
 			
-			nodeLocation = locationStore.getNodeLocation(wayNode.getNodeId());
+			nodeLocation = locationStore.getNodeLocation(way.getWayNodeId(i));
 	
 			if (nodeLocation.isValid()) {
 				numValidNodes++;
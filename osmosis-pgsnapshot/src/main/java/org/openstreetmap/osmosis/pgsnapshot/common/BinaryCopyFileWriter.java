@@ -0,0 +1,345 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+import org.postgis.Geometry;
+import org.postgis.binary.BinaryWriter;
+
+
+/**
+ * Writes a file containing data for a database COPY statement using the
+ * PostgreSQL binary format. Values are written in the binary representation of
+ * their column types which avoids text formatting on the client and text
+ * parsing on the server.
+ */
+public class BinaryCopyFileWriter implements CopyRecordWriter {
+
+	private static final Logger LOG = Logger.getLogger(BinaryCopyFileWriter.class.getName());
+
+	private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+	/**
+	 * The offset of the PostgreSQL timestamp epoch (2000-01-01) from the Java
+	 * epoch.
+	 */
+	private static final long POSTGRES_EPOCH_MILLIS = 946684800000L;
+
+	private static final int INT8_OID = 20;
+
+
+	private File file;
+	private DataOutputStream output;
+	private ByteArrayOutputStream recordBuffer;
+	private DataOutputStream record;
+	private ByteArrayOutputStream valueBuffer;
+	private DataOutputStream value;
+	private short fieldCount;
+	private TimeZone timeZone;
+	private BinaryWriter postgisBinaryWriter;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param file
+	 *            The file to write.
+	 */
+	public BinaryCopyFileWriter(File file) {
+		this.file = file;
+
+		recordBuffer = new ByteArrayOutputStream();
+		record = new DataOutputStream(recordBuffer);
+		valueBuffer = new ByteArrayOutputStream();
+		value = new DataOutputStream(valueBuffer);
+
+		// Timestamps without time zone hold the local time in the same way as
+		// the text format and JDBC.
+		timeZone = TimeZone.getDefault();
+		postgisBinaryWriter = new BinaryWriter();
+	}
+
+
+	/**
+	 * Initialises the output file and writes the header if this hasn't already
+	 * occurred.
+	 */
+	private void initialize() {
+		if (output == null) {
+			try {
+				output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+
+				output.write(SIGNATURE);
+				// Flags and the header extension length.
+				output.writeInt(0);
+				output.writeInt(0);
+
+			} catch (IOException e) {
+				throw new OsmosisRuntimeException("Unable to open file for writing.", e);
+			}
+		}
+	}
+
+
+	private void writeBytes(byte[] data) throws IOException {
+		if (data == null) {
+			record.writeInt(-1);
+		} else {
+			record.writeInt(data.length);
+			record.write(data);
+		}
+
+		fieldCount++;
+	}
+
+
+	private void writeValueBuffer() throws IOException {
+		record.writeInt(valueBuffer.size());
+		valueBuffer.writeTo(record);
+		valueBuffer.reset();
+
+		fieldCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(boolean data) {
+		try {
+			record.writeInt(1);
+			record.writeBoolean(data);
+			fieldCount++;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(int data) {
+		try {
+			record.writeInt(4);
+			record.writeInt(data);
+			fieldCount++;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(long data) {
+		try {
+			record.writeInt(8);
+			record.writeLong(data);
+			fieldCount++;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(String data) {
+		try {
+			if (data == null) {
+				writeBytes(null);
+			} else {
+				writeBytes(data.getBytes(StandardCharsets.UTF_8));
+			}
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(Date data) {
+		try {
+			long localMillis;
+
+			localMillis = data.getTime() + timeZone.getOffset(data.getTime());
+
+			record.writeInt(8);
+			record.writeLong((localMillis - POSTGRES_EPOCH_MILLIS) * 1000);
+			fieldCount++;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(Geometry data) {
+		try {
+			if (data == null) {
+				writeBytes(null);
+			} else {
+				writeBytes(postgisBinaryWriter.writeBinary(data));
+			}
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(PGHStore data) {
+		try {
+			value.writeInt(data.size());
+			for (Map.Entry<String, String> entry : data.entrySet()) {
+				byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+
+				value.writeInt(keyBytes.length);
+				value.write(keyBytes);
+
+				if (entry.getValue() == null) {
+					value.writeInt(-1);
+				} else {
+					byte[] valueBytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+
+					value.writeInt(valueBytes.length);
+					value.write(valueBytes);
+				}
+			}
+
+			writeValueBuffer();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(List<Long> data) {
+		try {
+			// An empty array has no dimensions.
+			if (data.isEmpty()) {
+				value.writeInt(0);
+			} else {
+				value.writeInt(1);
+			}
+			// No null elements are present.
+			value.writeInt(0);
+			value.writeInt(INT8_OID);
+			if (!data.isEmpty()) {
+				value.writeInt(data.size());
+				// The lower bound of the dimension.
+				value.writeInt(1);
+			}
+			for (long element : data) {
+				value.writeInt(8);
+				value.writeLong(element);
+			}
+
+			writeValueBuffer();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write value (" + data + ")", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endRecord() {
+		initialize();
+
+		try {
+			output.writeShort(fieldCount);
+			recordBuffer.writeTo(output);
+
+			recordBuffer.reset();
+			fieldCount = 0;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to end record.", e);
+		}
+	}
+
+
+	/**
+	 * Writes the file trailer and flushes all changes to file.
+	 */
+	@Override
+	public void complete() {
+		initialize();
+
+		try {
+			if (fieldCount > 0) {
+				throw new OsmosisRuntimeException("The current record has not been ended.");
+			}
+
+			output.writeShort(-1);
+			output.close();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to complete writing to the data stream.", e);
+		} finally {
+			output = null;
+		}
+	}
+
+
+	/**
+	 * Cleans up any open file handles.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (output != null) {
+				output.close();
+			}
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, "Unable to close writer.", e);
+		} finally {
+			output = null;
+		}
+	}
+}
@@ -14,7 +14,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.openstreetmap.osmosis.hstore.PGHStore;
 import org.postgis.Geometry;
 import org.postgis.binary.BinaryWriter;
 import org.postgresql.util.PGobject;
@@ -22,11 +22,12 @@ import org.postgresql.util.PGobject;
 
 /**
  * This class provides the capability to write a file that contains data for a
- * database COPY statement for loading a single table into the database.
+ * database COPY statement for loading a single table into the database. The
+ * file uses the COPY text format.
  * 
  * @author Brett Henderson
  */
-public class CopyFileWriter implements Completable {
+public class CopyFileWriter implements CopyRecordWriter {
 	
 	private static Logger log = Logger.getLogger(CopyFileWriter.class.getName());
 	
@@ -273,6 +274,15 @@ public class CopyFileWriter implements Completable {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(PGHStore data) {
+		writeField((PGobject) data);
+	}
+	
+	
 	/**
 	 * Writes data to the output file.
 	 * 
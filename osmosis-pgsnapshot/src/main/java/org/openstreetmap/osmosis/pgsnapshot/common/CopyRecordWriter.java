@@ -0,0 +1,95 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.util.Date;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+import org.postgis.Geometry;
+
+
+/**
+ * Writes records for loading a single table with a database COPY statement.
+ * Fields must be written in table column order using the Java type matching
+ * the column type.
+ */
+public interface CopyRecordWriter extends Completable {
+
+	/**
+	 * Writes a boolean field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(boolean data);
+
+
+	/**
+	 * Writes an integer field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(int data);
+
+
+	/**
+	 * Writes a bigint field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(long data);
+
+
+	/**
+	 * Writes a text field.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(String data);
+
+
+	/**
+	 * Writes a timestamp without time zone field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(Date data);
+
+
+	/**
+	 * Writes a geometry field.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(Geometry data);
+
+
+	/**
+	 * Writes an hstore field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(PGHStore data);
+
+
+	/**
+	 * Writes a bigint array field.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(List<Long> data);
+
+
+	/**
+	 * Ends the current record.
+	 */
+	void endRecord();
+}
@@ -20,6 +20,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionCallback;
@@ -78,6 +79,30 @@ public class DatabaseContext implements AutoCloseable {
     	
     	transaction = txnManager.getTransaction(new DefaultTransactionDefinition());
     }
+
+    
+	/**
+	 * Begins a new repeatable read transaction which imports a snapshot
+	 * exported by another transaction. This allows multiple connections to
+	 * see exactly the same data.
+	 * 
+	 * @param snapshotId
+	 *            The snapshot identifier returned by pg_export_snapshot.
+	 */
+    public void beginTransaction(String snapshotId) {
+    	DefaultTransactionDefinition definition;
+    	
+    	if (transaction != null) {
+    		throw new OsmosisRuntimeException("A transaction is already active.");
+    	}
+    	
+    	definition = new DefaultTransactionDefinition();
+    	definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    	transaction = txnManager.getTransaction(definition);
+    	
+    	// This must be the first statement within the transaction.
+    	jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+    }
     
     
     /**
@@ -197,6 +222,23 @@ public class DatabaseContext implements AutoCloseable {
 	 *            The columns to be loaded (optional).
 	 */
     public void loadCopyFile(File copyFile, String tableName, String ... columns) {
+    	loadCopyFile(copyFile, tableName, false, columns);
+    }
+
+
+	/**
+	 * Loads a table from a COPY file.
+	 * 
+	 * @param copyFile
+	 *            The file to be loaded.
+	 * @param tableName
+	 *            The table to load the data into.
+	 * @param binary
+	 *            If true, the file uses the COPY binary format.
+	 * @param columns
+	 *            The columns to be loaded (optional).
+	 */
+    public void loadCopyFile(File copyFile, String tableName, boolean binary, String ... columns) {
     	CopyManager copyManager;
 
 		StringBuilder copyStatement = new StringBuilder();
@@ -213,6 +255,9 @@ public class DatabaseContext implements AutoCloseable {
 			copyStatement.append(')');
 		}
 		copyStatement.append(" FROM STDIN");
+		if (binary) {
+			copyStatement.append(" (FORMAT binary)");
+		}
 		
 		try (BufferedInputStream inStream = new BufferedInputStream(new FileInputStream(copyFile), 65536)) {
     		Connection conn = DataSourceUtils.getConnection(dataSource);
@@ -0,0 +1,220 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * A node location store implementation that memory maps a sparse temporary
+ * file indexed by node id. Each node occupies an aligned 8 byte slot so a
+ * lookup is a single read from the page cache without any system call or
+ * buffer copy. Regions of the file that are never written consume no disk
+ * space on file systems supporting sparse files.
+ * <p>
+ * Unlike the other file based stores, nodes may be added in any order and
+ * locations may be added by several threads at once. Locations added by one
+ * thread are visible to other threads once the adding threads have been
+ * synchronised with the reading threads, typically by joining them.
+ * </p>
+ */
+public class MappedNodeLocationStore implements NodeLocationStore {
+
+	private static final Logger LOG = Logger.getLogger(MappedNodeLocationStore.class.getName());
+	private static final int NODE_DATA_SIZE = 8;
+
+	/**
+	 * The number of bytes in each mapped segment of the file. A single mapping
+	 * is limited to 2GB.
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final long NODES_PER_SEGMENT = SEGMENT_SIZE / NODE_DATA_SIZE;
+
+	/**
+	 * Locations are stored with the sign bit flipped so that an unwritten
+	 * (zero) slot can be distinguished from a location at 0,0. A zero slot
+	 * decodes to a longitude outside the valid range.
+	 */
+	private static final long SLOT_MASK = Long.MIN_VALUE;
+
+	private File nodeStorageFile;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private volatile MappedByteBuffer[] segments;
+	private boolean released;
+	private NodeLocation invalidNodeLocation;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public MappedNodeLocationStore() {
+		segments = new MappedByteBuffer[0];
+		released = false;
+
+		invalidNodeLocation = new NodeLocation();
+	}
+
+
+	/**
+	 * Maps the requested segment, creating the backing file and extending it
+	 * as required. This is only called the first time a segment is accessed.
+	 *
+	 * @param segmentIndex
+	 *            The index of the segment.
+	 * @return The mapped segment.
+	 */
+	private synchronized MappedByteBuffer mapSegment(int segmentIndex) {
+		MappedByteBuffer[] currentSegments;
+		MappedByteBuffer segment;
+
+		if (released) {
+			throw new OsmosisRuntimeException("Cannot access node storage after it has been released.");
+		}
+
+		// Another thread may have mapped the segment while we were waiting.
+		currentSegments = segments;
+		if (segmentIndex < currentSegments.length && currentSegments[segmentIndex] != null) {
+			return currentSegments[segmentIndex];
+		}
+
+		try {
+			if (randomAccessFile == null) {
+				nodeStorageFile = File.createTempFile("nodelatlon", null);
+				randomAccessFile = new RandomAccessFile(nodeStorageFile, "rw");
+				channel = randomAccessFile.getChannel();
+			}
+
+			// Mapping beyond the end of the file extends it without writing
+			// any data.
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentIndex * SEGMENT_SIZE, SEGMENT_SIZE);
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to map segment " + segmentIndex + " of node storage file " + nodeStorageFile + ".", e);
+		}
+
+		// Publish a new array so that unsynchronised readers always see fully
+		// initialised segments.
+		if (segmentIndex >= currentSegments.length) {
+			currentSegments = Arrays.copyOf(currentSegments, segmentIndex + 1);
+		} else {
+			currentSegments = currentSegments.clone();
+		}
+		currentSegments[segmentIndex] = segment;
+		segments = currentSegments;
+
+		return segment;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addLocation(long nodeId, NodeLocation nodeLocation) {
+		MappedByteBuffer[] currentSegments;
+		MappedByteBuffer segment;
+		int segmentIndex;
+		long slot;
+
+		if (nodeId < 0) {
+			throw new OsmosisRuntimeException(
+					"The node id of " + nodeId + " is negative and cannot be stored in a mapped node location store.");
+		}
+
+		segmentIndex = (int) (nodeId / NODES_PER_SEGMENT);
+		currentSegments = segments;
+		if (segmentIndex < currentSegments.length && currentSegments[segmentIndex] != null) {
+			segment = currentSegments[segmentIndex];
+		} else {
+			segment = mapSegment(segmentIndex);
+		}
+
+		slot = ((long) FixedPrecisionCoordinateConvertor.convertToFixed(nodeLocation.getLongitude()) << 32)
+				| (FixedPrecisionCoordinateConvertor.convertToFixed(nodeLocation.getLatitude()) & 0xFFFFFFFFL);
+
+		// Absolute puts don't modify the buffer state so threads writing
+		// different nodes don't interfere with each other.
+		segment.putLong((int) (nodeId % NODES_PER_SEGMENT) * NODE_DATA_SIZE, slot ^ SLOT_MASK);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeLocation getNodeLocation(long nodeId) {
+		MappedByteBuffer[] currentSegments;
+		MappedByteBuffer segment;
+		long segmentIndex;
+		long slot;
+
+		if (nodeId < 0) {
+			return invalidNodeLocation;
+		}
+
+		// Segments that have never been mapped contain no nodes.
+		segmentIndex = nodeId / NODES_PER_SEGMENT;
+		currentSegments = segments;
+		if (segmentIndex >= currentSegments.length) {
+			return invalidNodeLocation;
+		}
+		segment = currentSegments[(int) segmentIndex];
+		if (segment == null) {
+			return invalidNodeLocation;
+		}
+
+		slot = segment.getLong((int) (nodeId % NODES_PER_SEGMENT) * NODE_DATA_SIZE);
+		if (slot == 0) {
+			return invalidNodeLocation;
+		}
+		slot ^= SLOT_MASK;
+
+		return new NodeLocation(
+			FixedPrecisionCoordinateConvertor.convertToDouble((int) (slot >> 32)),
+			FixedPrecisionCoordinateConvertor.convertToDouble((int) slot)
+		);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void close() {
+		released = true;
+
+		// Mapped segments are released when garbage collected, there is no
+		// supported way of unmapping them explicitly.
+		segments = new MappedByteBuffer[0];
+		channel = null;
+
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (Exception e) {
+				// We cannot throw an exception within a release method.
+				LOG.log(Level.WARNING, "Unable to close node storage file.", e);
+			}
+			randomAccessFile = null;
+		}
+
+		if (nodeStorageFile != null) {
+			if (!nodeStorageFile.delete()) {
+				// We cannot throw an exception within a release method.
+				LOG.warning("Unable to delete file " + nodeStorageFile);
+			}
+			nodeStorageFile = null;
+		}
+	}
+}
@@ -24,5 +24,13 @@ public enum NodeLocationStoreType {
 	 * temporary file on disk. This is optimised for small datasets, and is less
 	 * efficient for large datasets.
 	 */
-	CompactTempFile
+	CompactTempFile,
+	
+	/**
+	 * A memory mapped node location store holds all information in a sparse
+	 * temporary file on disk which is accessed through the page cache. Nodes
+	 * may be added in any order and the store is filled using several threads.
+	 * This is the most efficient option for large datasets on 64-bit systems.
+	 */
+	MappedTempFile
 }
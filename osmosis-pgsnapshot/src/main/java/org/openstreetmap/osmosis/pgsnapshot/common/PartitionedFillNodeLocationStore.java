@@ -0,0 +1,208 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Fills a node location store supporting concurrent writers using several
+ * threads. Node ids are divided into fixed size ranges which are assigned to
+ * partitions in rotation, and each partition is written by its own thread so
+ * threads write to different regions of the underlying store. Locations are
+ * passed to the partition threads in batches.
+ * <p>
+ * Locations must be added by a single thread. All pending locations are
+ * written before a location is read, so reads always see every location
+ * previously added.
+ * </p>
+ */
+public class PartitionedFillNodeLocationStore implements NodeLocationStore {
+
+	/**
+	 * The number of consecutive node ids assigned to a partition before moving
+	 * to the next partition.
+	 */
+	private static final long PARTITION_RANGE = 1 << 20;
+	private static final int BATCH_SIZE = 8192;
+
+	/**
+	 * The maximum number of batches waiting to be written by each partition.
+	 * The adding thread waits once this is exceeded to limit memory usage.
+	 */
+	private static final int MAX_PENDING_BATCHES = 4;
+
+	private NodeLocationStore store;
+	private Partition[] partitions;
+	private boolean pending;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param store
+	 *            The store to be filled. It must support concurrent calls to
+	 *            addLocation.
+	 * @param partitionCount
+	 *            The number of partitions, and therefore threads, to fill the
+	 *            store with.
+	 */
+	public PartitionedFillNodeLocationStore(NodeLocationStore store, int partitionCount) {
+		this.store = store;
+
+		partitions = new Partition[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = new Partition();
+		}
+		pending = false;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addLocation(long nodeId, NodeLocation nodeLocation) {
+		int partitionIndex = (int) Math.floorMod(Math.floorDiv(nodeId, PARTITION_RANGE), (long) partitions.length);
+
+		partitions[partitionIndex].add(nodeId, nodeLocation);
+		pending = true;
+	}
+
+
+	/**
+	 * Writes all locations added so far to the underlying store and waits for
+	 * the writes to complete.
+	 */
+	private void flush() {
+		if (pending) {
+			for (Partition partition : partitions) {
+				partition.submitBatch();
+			}
+			for (Partition partition : partitions) {
+				partition.awaitBatches(0);
+			}
+			pending = false;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeLocation getNodeLocation(long nodeId) {
+		flush();
+
+		return store.getNodeLocation(nodeId);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		for (Partition partition : partitions) {
+			partition.close();
+		}
+		store.close();
+	}
+
+
+	/**
+	 * Holds the locations waiting to be written by a single partition thread.
+	 */
+	private final class Partition {
+		private ExecutorService executor;
+		private Deque<Future<?>> batches;
+		private long[] nodeIds;
+		private NodeLocation[] nodeLocations;
+		private int count;
+
+
+		Partition() {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "node-location-fill");
+
+				// Don't prevent the JVM from exiting if the store isn't closed.
+				thread.setDaemon(true);
+
+				return thread;
+			});
+			batches = new ArrayDeque<Future<?>>();
+			createBatch();
+		}
+
+
+		private void createBatch() {
+			nodeIds = new long[BATCH_SIZE];
+			nodeLocations = new NodeLocation[BATCH_SIZE];
+			count = 0;
+		}
+
+
+		void add(long nodeId, NodeLocation nodeLocation) {
+			nodeIds[count] = nodeId;
+			nodeLocations[count] = nodeLocation;
+			count++;
+
+			if (count == BATCH_SIZE) {
+				submitBatch();
+				awaitBatches(MAX_PENDING_BATCHES);
+			}
+		}
+
+
+		void submitBatch() {
+			final long[] batchNodeIds = nodeIds;
+			final NodeLocation[] batchNodeLocations = nodeLocations;
+			final int batchCount = count;
+
+			if (batchCount == 0) {
+				return;
+			}
+
+			// Batches of a partition are written in order by a single thread so
+			// the last location added for a node is the one stored.
+			batches.add(executor.submit(() -> {
+				for (int i = 0; i < batchCount; i++) {
+					store.addLocation(batchNodeIds[i], batchNodeLocations[i]);
+				}
+			}));
+			createBatch();
+		}
+
+
+		/**
+		 * Waits until no more than the specified number of batches are
+		 * waiting to be written.
+		 */
+		void awaitBatches(int maximumPending) {
+			while (batches.size() > maximumPending) {
+				try {
+					batches.remove().get();
+				} catch (InterruptedException e) {
+					throw new OsmosisRuntimeException("Thread was interrupted.", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof OsmosisRuntimeException) {
+						throw (OsmosisRuntimeException) e.getCause();
+					}
+					throw new OsmosisRuntimeException("Unable to add node locations to the store.", e.getCause());
+				}
+			}
+		}
+
+
+		void close() {
+			executor.shutdownNow();
+			batches.clear();
+		}
+	}
+}
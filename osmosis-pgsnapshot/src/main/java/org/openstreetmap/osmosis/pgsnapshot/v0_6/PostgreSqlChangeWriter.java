@@ -46,8 +46,29 @@ public class PostgreSqlChangeWriter implements ChangeSink {
 	 */
 	public PostgreSqlChangeWriter(DatabaseLoginCredentials loginCredentials, 
 			DatabasePreferences preferences, boolean keepInvalidWays) {
+		this(loginCredentials, preferences, keepInvalidWays, ChangeWriter.DEFAULT_BATCH_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param preferences
+	 *            Contains preferences configuring database behaviour.
+	 * @param keepInvalidWays
+	 *            If true, zero and single node ways are kept. Otherwise they are
+	 *            silently dropped to avoid putting invalid geometries into the 
+	 *            database which can cause problems with postgis functions.
+	 * @param batchSize
+	 *            The maximum number of changes of a single entity type to apply
+	 *            to the database in one batch.
+	 */
+	public PostgreSqlChangeWriter(DatabaseLoginCredentials loginCredentials, 
+			DatabasePreferences preferences, boolean keepInvalidWays, int batchSize) {
 		dbCtx = new DatabaseContext(loginCredentials);
-		changeWriter = new ChangeWriter(dbCtx);
+		changeWriter = new ChangeWriter(dbCtx, batchSize);
 		actionWriterMap = new HashMap<ChangeAction, ActionChangeWriter>();
 		actionWriterMap.put(ChangeAction.Create, 
 				new ActionChangeWriter(changeWriter, ChangeAction.Create, keepInvalidWays));
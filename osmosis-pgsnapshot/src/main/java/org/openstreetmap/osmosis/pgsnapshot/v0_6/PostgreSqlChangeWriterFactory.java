@@ -1,12 +1,14 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.core.database.DatabasePreferences;
 import org.openstreetmap.osmosis.core.database.DatabaseTaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkManager;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.ChangeWriter;
 
 
 /**
@@ -18,6 +20,8 @@ public class PostgreSqlChangeWriterFactory extends DatabaseTaskManagerFactory {
 	
 	private static final String ARG_KEEP_INVALID_WAYS = "keepInvalidWays";
 	private static final boolean DEFAULT_KEEP_INVALID_WAYS = true;
+	private static final String ARG_BATCH_SIZE = "batchSize";
+	private static final int DEFAULT_BATCH_SIZE = ChangeWriter.DEFAULT_BATCH_SIZE;
 	
 	/**
 	 * {@inheritDoc}
@@ -32,13 +36,18 @@ public class PostgreSqlChangeWriterFactory extends DatabaseTaskManagerFactory {
 		preferences = getDatabasePreferences(taskConfig);
 		
 		boolean keepInvalidWays = getBooleanArgument(taskConfig, ARG_KEEP_INVALID_WAYS, DEFAULT_KEEP_INVALID_WAYS);
+		int batchSize = getIntegerArgument(taskConfig, ARG_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		if (batchSize < 1) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BATCH_SIZE + " must be at least 1.");
+		}
 		
 		return new ChangeSinkManager(
 			taskConfig.getId(),
 			new PostgreSqlChangeWriter(
 				loginCredentials,
 				preferences,
-				keepInvalidWays
+				keepInvalidWays,
+				batchSize
 			),
 			taskConfig.getPipeArgs()
 		);
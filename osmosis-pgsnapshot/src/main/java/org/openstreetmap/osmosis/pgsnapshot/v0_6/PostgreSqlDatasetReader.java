@@ -19,6 +19,7 @@ public class PostgreSqlDatasetReader implements RunnableDatasetSource, Dataset {
 	private DatasetSink datasetSink;
 	private DatabaseLoginCredentials loginCredentials;
 	private DatabasePreferences preferences;
+	private int bboxThreadCount;
 	
 	
 	/**
@@ -30,8 +31,25 @@ public class PostgreSqlDatasetReader implements RunnableDatasetSource, Dataset {
 	 *            Contains preferences configuring database behaviour.
 	 */
 	public PostgreSqlDatasetReader(DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences) {
+		this(loginCredentials, preferences, 1);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param preferences
+	 *            Contains preferences configuring database behaviour.
+	 * @param bboxThreadCount
+	 *            The number of connections to use for bounding box queries.
+	 */
+	public PostgreSqlDatasetReader(DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences,
+			int bboxThreadCount) {
 		this.loginCredentials = loginCredentials;
 		this.preferences = preferences;
+		this.bboxThreadCount = bboxThreadCount;
 	}
 	
 	
@@ -63,6 +81,6 @@ public class PostgreSqlDatasetReader implements RunnableDatasetSource, Dataset {
 	 */
 	@Override
 	public DatasetContext createReader() {
-		return new PostgreSqlDatasetContext(loginCredentials, preferences);
+		return new PostgreSqlDatasetContext(loginCredentials, preferences, bboxThreadCount);
 	}
 }
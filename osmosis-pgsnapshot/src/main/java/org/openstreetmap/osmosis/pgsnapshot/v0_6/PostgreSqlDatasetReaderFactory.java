@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.core.database.DatabasePreferences;
 import org.openstreetmap.osmosis.core.database.DatabaseTaskManagerFactory;
@@ -15,6 +16,8 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.RunnableDatasetSourceManager
  * @author Brett Henderson
  */
 public class PostgreSqlDatasetReaderFactory extends DatabaseTaskManagerFactory {
+	private static final String ARG_BBOX_THREADS = "bboxThreads";
+	private static final int DEFAULT_BBOX_THREADS = 1;
 	
 	/**
 	 * {@inheritDoc}
@@ -23,14 +26,19 @@ public class PostgreSqlDatasetReaderFactory extends DatabaseTaskManagerFactory {
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		DatabaseLoginCredentials loginCredentials;
 		DatabasePreferences preferences;
+		int bboxThreadCount;
 		
 		// Get the task arguments.
 		loginCredentials = getDatabaseLoginCredentials(taskConfig);
 		preferences = getDatabasePreferences(taskConfig);
+		bboxThreadCount = getIntegerArgument(taskConfig, ARG_BBOX_THREADS, DEFAULT_BBOX_THREADS);
+		if (bboxThreadCount < 1) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BBOX_THREADS + " must be at least 1.");
+		}
 		
 		return new RunnableDatasetSourceManager(
 			taskConfig.getId(),
-			new PostgreSqlDatasetReader(loginCredentials, preferences),
+			new PostgreSqlDatasetReader(loginCredentials, preferences, bboxThreadCount),
 			taskConfig.getPipeArgs()
 		);
 	}
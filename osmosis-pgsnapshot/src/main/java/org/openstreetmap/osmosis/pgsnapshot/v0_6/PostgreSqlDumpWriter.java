@@ -48,9 +48,43 @@ public class PostgreSqlDumpWriter implements Sink {
 			File filePrefix, boolean enableBboxBuilder,
 			boolean enableLinestringBuilder, NodeLocationStoreType storeType, 
 			boolean keepInvalidWays) {
+		this(filePrefix, enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param filePrefix
+	 *            The prefix to prepend to all generated file names.
+	 * @param enableBboxBuilder
+	 *            If true, the way bbox geometry is built during processing
+	 *            instead of relying on the database to build them after import.
+	 *            This increases processing but is faster than relying on the
+	 *            database.
+	 * @param enableLinestringBuilder
+	 *            If true, the way linestring geometry is built during
+	 *            processing instead of relying on the database to build them
+	 *            after import. This increases processing but is faster than
+	 *            relying on the database.
+	 * @param storeType
+	 *            The node location storage type used by the geometry builders.
+	 * @param keepInvalidWays
+	 *            If true, zero and single node ways are kept. Otherwise they are
+	 *            silently dropped to avoid putting invalid geometries into the 
+	 *            database which can cause problems with postgis functions.
+	 * @param binaryFormat
+	 *            If true, the files are written in the PostgreSQL binary COPY
+	 *            format which is faster to write and load but must be loaded
+	 *            with the binary format option.
+	 */
+	public PostgreSqlDumpWriter(
+			File filePrefix, boolean enableBboxBuilder,
+			boolean enableLinestringBuilder, NodeLocationStoreType storeType, 
+			boolean keepInvalidWays, boolean binaryFormat) {
 		DirectoryCopyFileset copyFileset;
 		
-		copyFileset = new DirectoryCopyFileset(filePrefix);
+		copyFileset = new DirectoryCopyFileset(filePrefix, binaryFormat);
 		
 		copyFilesetBuilder =
 			new CopyFilesetBuilder(copyFileset, enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays);
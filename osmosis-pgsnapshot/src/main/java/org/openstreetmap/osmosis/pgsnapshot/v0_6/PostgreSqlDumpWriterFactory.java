@@ -21,11 +21,13 @@ public class PostgreSqlDumpWriterFactory extends TaskManagerFactory {
 	private static final String ARG_KEEP_INVALID_WAYS = "keepInvalidWays";
 	private static final String ARG_FILE_NAME = "directory";
 	private static final String ARG_NODE_LOCATION_STORE_TYPE = "nodeLocationStoreType";
+	private static final String ARG_BINARY_FORMAT = "binaryFormat";
 	private static final boolean DEFAULT_ENABLE_BBOX_BUILDER = false;
 	private static final boolean DEFAULT_ENABLE_LINESTRING_BUILDER = false;
 	private static final boolean DEFAULT_KEEP_INVALID_WAYS = true;
 	private static final String DEFAULT_FILE_PREFIX = "pgimport";
 	private static final String DEFAULT_NODE_LOCATION_STORE_TYPE = "CompactTempFile";
+	private static final boolean DEFAULT_BINARY_FORMAT = false;
 	
 	
 	/**
@@ -38,6 +40,7 @@ public class PostgreSqlDumpWriterFactory extends TaskManagerFactory {
 		boolean enableBboxBuilder;
 		boolean enableLinestringBuilder;
 		boolean keepInvalidWays;
+		boolean binaryFormat;
 		NodeLocationStoreType storeType;
 		
 		// Get the task arguments.
@@ -51,6 +54,7 @@ public class PostgreSqlDumpWriterFactory extends TaskManagerFactory {
 		storeType = Enum.valueOf(
 				NodeLocationStoreType.class,
 				getStringArgument(taskConfig, ARG_NODE_LOCATION_STORE_TYPE, DEFAULT_NODE_LOCATION_STORE_TYPE));
+		binaryFormat = getBooleanArgument(taskConfig, ARG_BINARY_FORMAT, DEFAULT_BINARY_FORMAT);
 		
 		// Create a file object representing the directory from the file name provided.
 		filePrefix = new File(filePrefixString);
@@ -58,7 +62,7 @@ public class PostgreSqlDumpWriterFactory extends TaskManagerFactory {
 		return new SinkManager(
 			taskConfig.getId(),
 			new PostgreSqlDumpWriter(
-					filePrefix, enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays),
+					filePrefix, enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays, binaryFormat),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -1,6 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -12,6 +15,12 @@ import org.springframework.jdbc.core.JdbcTemplate;
  */
 public class ActionDao {
 	private static final String SQL_INSERT = "INSERT INTO actions(data_type, action, id) VALUES(?, ?, ?)";
+	private static final String SQL_INSERT_STAGED =
+		"INSERT INTO actions(data_type, action, id)"
+		+ " SELECT ?, CASE WHEN e.id IS NULL THEN ? ELSE ? END, s.id"
+		+ " FROM %1$s%2$ss s LEFT OUTER JOIN %2$ss e ON e.id = s.id";
+	private static final String SQL_INSERT_EXISTING =
+		"INSERT INTO actions(data_type, action, id) SELECT ?, ?, e.id FROM %ss e WHERE e.id = ANY(?)";
 	private static final String SQL_TRUNCATE = "TRUNCATE actions";
 	
 	private JdbcTemplate jdbcTemplate;
@@ -45,6 +54,67 @@ public class ActionDao {
 	}
 	
 	
+	/**
+	 * Adds an action for each entity in a staging table. Entities that don't
+	 * yet exist in the entity table are recorded as creates and all others as
+	 * modifies. This must be called before the staged entities are written to
+	 * the entity table.
+	 * 
+	 * @param dataType The type of data being represented by these actions.
+	 * @param stagingTablePrefix The prefix of the staging table name.
+	 * @param entityName The name of the entity as defined in the database schema.
+	 */
+	public void addStagedActions(ActionDataType dataType, String stagingTablePrefix, String entityName) {
+		if (capabilityChecker.isActionSupported()) {
+			jdbcTemplate.update(
+					String.format(SQL_INSERT_STAGED, stagingTablePrefix, entityName),
+					dataType.getDatabaseValue(),
+					ChangesetAction.CREATE.getDatabaseValue(),
+					ChangesetAction.MODIFY.getDatabaseValue());
+		}
+	}
+	
+	
+	/**
+	 * Adds the specified action for each of a group of entities that exist in
+	 * the entity table.
+	 * 
+	 * @param dataType The type of data being represented by these actions.
+	 * @param action The action being performed on the data.
+	 * @param entityName The name of the entity as defined in the database schema.
+	 * @param ids The identifiers of the data.
+	 */
+	public void addExistingActions(ActionDataType dataType, ChangesetAction action, String entityName, long[] ids) {
+		if (capabilityChecker.isActionSupported()) {
+			jdbcTemplate.update(
+					String.format(SQL_INSERT_EXISTING, entityName),
+					dataType.getDatabaseValue(), action.getDatabaseValue(), new WayNodesArray(ids));
+		}
+	}
+	
+	
+	/**
+	 * Adds the specified action for each of a group of data items using a
+	 * single JDBC batch.
+	 * 
+	 * @param dataType The type of data being represented by these actions.
+	 * @param action The action being performed on the data.
+	 * @param ids The identifiers of the data.
+	 */
+	public void addActions(ActionDataType dataType, ChangesetAction action, List<Long> ids) {
+		if (capabilityChecker.isActionSupported() && !ids.isEmpty()) {
+			List<Object[]> batchArgs;
+			
+			batchArgs = new ArrayList<Object[]>(ids.size());
+			for (long id : ids) {
+				batchArgs.add(new Object[] {dataType.getDatabaseValue(), action.getDatabaseValue(), id});
+			}
+			
+			jdbcTemplate.batchUpdate(SQL_INSERT, batchArgs);
+		}
+	}
+	
+	
 	/**
 	 * Removes all action records.
 	 */
@@ -6,6 +6,9 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
@@ -16,25 +19,36 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
-import org.openstreetmap.osmosis.pgsnapshot.common.NoSuchRecordException;
 import org.springframework.jdbc.core.CallableStatementCreator;
 import org.springframework.jdbc.core.SqlParameter;
 
 
 /**
- * Writes changes to a database.
+ * Writes changes to a database. Changes are buffered into batches of
+ * consecutive changes of the same entity type which are then applied using
+ * set-based statements. Only the last change to each entity within a batch is
+ * applied.
  * 
  * @author Brett Henderson
  */
 public class ChangeWriter {
 	
+	/**
+	 * The default maximum number of changes to apply in a single batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+	
+	
 	private DatabaseContext dbCtx;
+	private int batchSize;
 	private ActionDao actionDao;
 	private UserDao userDao;
-	private NodeDao nodeDao;
-	private WayDao wayDao;
-	private RelationDao relationDao;
+	private EntityBatch<Node> nodeBatch;
+	private EntityBatch<Way> wayBatch;
+	private EntityBatch<Relation> relationBatch;
+	private EntityBatch<?> currentBatch;
 	private Set<Integer> userSet;
+	private Map<Integer, OsmUser> pendingUsers;
 	
 	
 	/**
@@ -44,15 +58,30 @@ public class ChangeWriter {
 	 *            The database context to use for accessing the database.
 	 */
 	public ChangeWriter(DatabaseContext dbCtx) {
+		this(dbCtx, DEFAULT_BATCH_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param dbCtx
+	 *            The database context to use for accessing the database.
+	 * @param batchSize
+	 *            The maximum number of changes to apply in a single batch.
+	 */
+	public ChangeWriter(DatabaseContext dbCtx, int batchSize) {
 		this.dbCtx = dbCtx;
+		this.batchSize = batchSize;
 		
 		actionDao = new ActionDao(dbCtx);
 		userDao = new UserDao(dbCtx, actionDao);
-		nodeDao = new NodeDao(dbCtx, actionDao);
-		wayDao = new WayDao(dbCtx, actionDao);
-		relationDao = new RelationDao(dbCtx, actionDao);
+		nodeBatch = new EntityBatch<Node>(new NodeDao(dbCtx, actionDao));
+		wayBatch = new EntityBatch<Way>(new WayDao(dbCtx, actionDao));
+		relationBatch = new EntityBatch<Relation>(new RelationDao(dbCtx, actionDao));
 		
 		userSet = new HashSet<Integer>();
+		pendingUsers = new LinkedHashMap<Integer, OsmUser>();
 	}
 
 
@@ -67,27 +96,51 @@ public class ChangeWriter {
 		if (!OsmUser.NONE.equals(user)) {
 			// Users will only be updated in the database once per changeset
 			// run.
-			if (!userSet.contains(user.getId())) {
-				int userId;
-				OsmUser existingUser;
-
-				userId = user.getId();
-
-				try {
-					existingUser = userDao.getUser(userId);
-
-					if (!user.equals(existingUser)) {
-						userDao.updateUser(user);
-					}
-
-				} catch (NoSuchRecordException e) {
-					userDao.addUser(user);
-				}
-
-				userSet.add(user.getId());
+			if (userSet.add(user.getId())) {
+				pendingUsers.put(user.getId(), user);
 			}
 		}
 	}
+	
+	
+	/**
+	 * Writes all pending users and the current batch to the database.
+	 */
+	private void flush() {
+		userDao.writeUsers(pendingUsers.values());
+		pendingUsers.clear();
+		
+		if (currentBatch != null) {
+			currentBatch.flush();
+		}
+	}
+	
+	
+	/**
+	 * Makes the specified batch current, flushing the previous batch if it is
+	 * for a different entity type. Changes must be applied in the order they
+	 * are received across entity types because way geometries depend on the
+	 * current node locations.
+	 * 
+	 * @param batch
+	 *            The batch to receive the next change.
+	 */
+	private void selectBatch(EntityBatch<?> batch) {
+		if (currentBatch != batch) {
+			flush();
+			currentBatch = batch;
+		}
+	}
+	
+	
+	/**
+	 * Flushes the current batch if it has reached the batch size.
+	 */
+	private void checkBatchSize() {
+		if (currentBatch.size() >= batchSize) {
+			flush();
+		}
+	}
 
 
 	/**
@@ -115,23 +168,23 @@ public class ChangeWriter {
 	 */
 	public void write(Node node, ChangeAction action) {
 		processEntityPrerequisites(node);
+		
+		selectBatch(nodeBatch);
 
 		// If this is a create or modify, we must create or modify the records
 		// in the database. Note that we don't use the input source to
-		// distinguish between create and modify, we make this determination
-		// based on our current data set.
+		// distinguish between create and modify, the database makes this
+		// determination based on our current data set.
 		if (ChangeAction.Create.equals(action)
 				|| ChangeAction.Modify.equals(action)) {
-			if (nodeDao.exists(node.getId())) {
-				nodeDao.modifyEntity(node);
-			} else {
-				nodeDao.addEntity(node);
-			}
+			nodeBatch.modify(node);
 
 		} else {
 			// Remove the node from the database.
-			nodeDao.removeEntity(node.getId());
+			nodeBatch.remove(node.getId());
 		}
+		
+		checkBatchSize();
 	}
 
 
@@ -150,28 +203,26 @@ public class ChangeWriter {
 	public void write(Way way, ChangeAction action, boolean keepInvalidWays) {
 		processEntityPrerequisites(way);
 		
+		selectBatch(wayBatch);
+		
 		// If this is a create or modify, we must create or modify the records
 		// in the database. Note that we don't use the input source to
-		// distinguish between create and modify, we make this determination
-		// based on our current data set.
+		// distinguish between create and modify, the database makes this
+		// determination based on our current data set.
 		if (ChangeAction.Create.equals(action) || ChangeAction.Modify.equals(action)) {
-			if (wayDao.exists(way.getId())) {
-				if (way.getWayNodes().size() >= 2 || keepInvalidWays) {
-					wayDao.modifyEntity(way);
-				} else {
-					wayDao.removeEntity(way.getId());
-				}
-				
+			if (way.getWayNodes().size() >= 2 || keepInvalidWays) {
+				wayBatch.modify(way);
 			} else {
-				if (way.getWayNodes().size() >= 2 || keepInvalidWays) {
-					wayDao.addEntity(way);
-				}
+				// Invalid ways are removed if they already exist.
+				wayBatch.remove(way.getId());
 			}
 
 		} else {
 			// Remove the way from the database.
-			wayDao.removeEntity(way.getId());
+			wayBatch.remove(way.getId());
 		}
+		
+		checkBatchSize();
 	}
 
 
@@ -185,23 +236,23 @@ public class ChangeWriter {
 	 */
 	public void write(Relation relation, ChangeAction action) {
 		processEntityPrerequisites(relation);
+		
+		selectBatch(relationBatch);
 
 		// If this is a create or modify, we must create or modify the records
 		// in the database. Note that we don't use the input source to
-		// distinguish between create and modify, we make this determination
-		// based on our current data set.
+		// distinguish between create and modify, the database makes this
+		// determination based on our current data set.
 		if (ChangeAction.Create.equals(action)
 				|| ChangeAction.Modify.equals(action)) {
-			if (relationDao.exists(relation.getId())) {
-				relationDao.modifyEntity(relation);
-			} else {
-				relationDao.addEntity(relation);
-			}
+			relationBatch.modify(relation);
 
 		} else {
 			// Remove the relation from the database.
-			relationDao.removeEntity(relation.getId());
+			relationBatch.remove(relation.getId());
 		}
+		
+		checkBatchSize();
 	}
 
 
@@ -209,6 +260,8 @@ public class ChangeWriter {
 	 * Performs post-change database updates.
 	 */
 	public void complete() {
+		flush();
+		
 		dbCtx.getJdbcTemplate().call(
 				new CallableStatementCreator() {
 					@Override
@@ -228,4 +281,91 @@ public class ChangeWriter {
 	public void release() {
 		// Nothing to do.
 	}
+	
+	
+	/**
+	 * Buffers the changes to a single entity type until they are written.
+	 * 
+	 * @param <T>
+	 *            The entity type to be supported.
+	 */
+	private static class EntityBatch<T extends Entity> {
+		private EntityDao<T> entityDao;
+		private Map<Long, T> modifiedEntities;
+		private Set<Long> removedEntityIds;
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param entityDao
+		 *            The dao used to write the batch.
+		 */
+		EntityBatch(EntityDao<T> entityDao) {
+			this.entityDao = entityDao;
+			
+			modifiedEntities = new LinkedHashMap<Long, T>();
+			removedEntityIds = new LinkedHashSet<Long>();
+		}
+		
+		
+		/**
+		 * Adds an entity to be created or updated, replacing any previous
+		 * change to the same entity.
+		 * 
+		 * @param entity
+		 *            The entity to write.
+		 */
+		public void modify(T entity) {
+			removedEntityIds.remove(entity.getId());
+			modifiedEntities.put(entity.getId(), entity);
+		}
+		
+		
+		/**
+		 * Adds an entity to be removed, replacing any previous change to the
+		 * same entity.
+		 * 
+		 * @param entityId
+		 *            The id of the entity to remove.
+		 */
+		public void remove(long entityId) {
+			modifiedEntities.remove(entityId);
+			removedEntityIds.add(entityId);
+		}
+		
+		
+		/**
+		 * Returns the number of entities in the batch.
+		 * 
+		 * @return The entity count.
+		 */
+		public int size() {
+			return modifiedEntities.size() + removedEntityIds.size();
+		}
+		
+		
+		/**
+		 * Writes all changes to the database and empties the batch.
+		 */
+		public void flush() {
+			long[] entityIds;
+			int i;
+			
+			if (size() == 0) {
+				return;
+			}
+			
+			entityIds = new long[removedEntityIds.size()];
+			i = 0;
+			for (long entityId : removedEntityIds) {
+				entityIds[i++] = entityId;
+			}
+			
+			entityDao.writeChanges(modifiedEntities.values(), entityIds);
+			
+			modifiedEntities.clear();
+			removedEntityIds.clear();
+		}
+	}
 }
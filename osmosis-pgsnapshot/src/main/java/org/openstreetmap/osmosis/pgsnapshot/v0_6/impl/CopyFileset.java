@@ -57,4 +57,13 @@ public interface CopyFileset {
 	 * @return The relation member table file.
 	 */
 	File getRelationMemberFile();
+
+
+	/**
+	 * Indicates if the files use the COPY binary format instead of the text
+	 * format.
+	 * 
+	 * @return True if the files are in binary format.
+	 */
+	boolean isBinary();
 }
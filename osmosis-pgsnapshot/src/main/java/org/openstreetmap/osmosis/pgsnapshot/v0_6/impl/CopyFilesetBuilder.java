@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -22,7 +23,9 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.CompletableContainer;
+import org.openstreetmap.osmosis.pgsnapshot.common.BinaryCopyFileWriter;
 import org.openstreetmap.osmosis.pgsnapshot.common.CopyFileWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.CopyRecordWriter;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStoreType;
 import org.openstreetmap.osmosis.pgsnapshot.common.PointBuilder;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
@@ -43,12 +46,12 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 	private WayGeometryBuilder wayGeometryBuilder;
 	private CompletableContainer writerContainer;
 	private MemberTypeValueMapper memberTypeValueMapper;
-	private CopyFileWriter userWriter;
-	private CopyFileWriter nodeWriter;
-	private CopyFileWriter wayWriter;
-	private CopyFileWriter wayNodeWriter;
-	private CopyFileWriter relationWriter;
-	private CopyFileWriter relationMemberWriter;
+	private CopyRecordWriter userWriter;
+	private CopyRecordWriter nodeWriter;
+	private CopyRecordWriter wayWriter;
+	private CopyRecordWriter wayNodeWriter;
+	private CopyRecordWriter relationWriter;
+	private CopyRecordWriter relationMemberWriter;
 	private PointBuilder pointBuilder;
 	private Set<Integer> userSet;
 	
@@ -85,12 +88,12 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 		
 		writerContainer = new CompletableContainer();
 		
-		userWriter = writerContainer.add(new CopyFileWriter(copyFileset.getUserFile()));
-		nodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getNodeFile()));
-		wayWriter = writerContainer.add(new CopyFileWriter(copyFileset.getWayFile()));
-		wayNodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getWayNodeFile()));
-		relationWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationFile()));
-		relationMemberWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationMemberFile()));
+		userWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getUserFile()));
+		nodeWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getNodeFile()));
+		wayWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getWayFile()));
+		wayNodeWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getWayNodeFile()));
+		relationWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getRelationFile()));
+		relationMemberWriter = writerContainer.add(createWriter(copyFileset, copyFileset.getRelationMemberFile()));
 		
 		pointBuilder = new PointBuilder();
 		wayGeometryBuilder = new WayGeometryBuilder(storeType);
@@ -99,6 +102,15 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 		
 		userSet = new HashSet<Integer>();
 	}
+	
+	
+	private static CopyRecordWriter createWriter(CopyFileset copyFileset, File file) {
+		if (copyFileset.isBinary()) {
+			return new BinaryCopyFileWriter(file);
+		} else {
+			return new CopyFileWriter(file);
+		}
+	}
     
     
     /**
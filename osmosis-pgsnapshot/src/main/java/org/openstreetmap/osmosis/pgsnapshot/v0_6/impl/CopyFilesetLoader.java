@@ -1,8 +1,16 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.core.database.DatabasePreferences;
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
@@ -11,7 +19,9 @@ import org.openstreetmap.osmosis.pgsnapshot.v0_6.PostgreSqlVersionConstants;
 
 
 /**
- * Loads a COPY fileset into a database.
+ * Loads a COPY fileset into a database. Each table is loaded and then indexed
+ * concurrently on its own connection. Each table load commits independently so
+ * a failed load may leave some tables populated.
  * 
  * @author Brett Henderson
  */
@@ -36,6 +46,7 @@ public class CopyFilesetLoader implements Runnable {
 	private static final String[] NODE_COLUMNS = appendColumn(COMMON_COLUMNS, "geom");
 	private static final String[] WAY_COLUMNS = appendColumn(COMMON_COLUMNS, "nodes");
 	private static final String[] RELATION_COLUMNS = COMMON_COLUMNS;
+	private static final int TABLE_COUNT = 6;
 	
 	
 	private DatabaseLoginCredentials loginCredentials;
@@ -61,10 +72,49 @@ public class CopyFilesetLoader implements Runnable {
 	}
     
 
+    private void loadTablesConcurrently(ExecutorService executor, String[] wayColumns) {
+    	List<Future<?>> futures;
+    	
+    	futures = new ArrayList<Future<?>>();
+    	futures.add(loadTable(executor, copyFileset.getUserFile(), "users"));
+    	futures.add(loadTable(executor, copyFileset.getNodeFile(), "nodes", NODE_COLUMNS));
+    	futures.add(loadTable(executor, copyFileset.getWayFile(), "ways", wayColumns));
+    	futures.add(loadTable(executor, copyFileset.getWayNodeFile(), "way_nodes"));
+    	futures.add(loadTable(executor, copyFileset.getRelationFile(), "relations", RELATION_COLUMNS));
+    	futures.add(loadTable(executor, copyFileset.getRelationMemberFile(), "relation_members"));
+    	
+    	for (Future<?> future : futures) {
+    		try {
+    			future.get();
+    		} catch (InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    			throw new OsmosisRuntimeException("Interrupted while loading tables.", e);
+    		} catch (ExecutionException e) {
+    			throw new OsmosisRuntimeException("Unable to load a table.", e.getCause());
+    		}
+    	}
+    }
+    
+    
+    private Future<?> loadTable(ExecutorService executor, final File copyFile, final String tableName,
+    		final String ... columns) {
+    	return executor.submit(() -> {
+    		// Each table is loaded by a single COPY statement on its own connection.
+    		try (DatabaseContext tableCtx = new DatabaseContext(loginCredentials)) {
+    			LOG.finer("Loading " + tableName + ".");
+    			tableCtx.loadCopyFile(copyFile, tableName, copyFileset.isBinary(), columns);
+    			LOG.finer("Loaded " + tableName + ".");
+    		}
+    	});
+    }
+    
+
     /**
      * Reads all data from the database and send it to the sink.
      */
     public void run() {
+    	ExecutorService executor = Executors.newFixedThreadPool(TABLE_COUNT);
+    	
     	try (DatabaseContext dbCtx = new DatabaseContext(loginCredentials)) {
     		DatabaseCapabilityChecker capabilityChecker;
 			IndexManager indexManager;
@@ -86,29 +136,18 @@ public class CopyFilesetLoader implements Runnable {
     		
     		indexManager = new IndexManager(dbCtx, false, false);
     		
-			// Drop all constraints and indexes.
+			// Drop all constraints and indexes. This must be committed before
+			// other connections can load the tables.
 			indexManager.prepareForLoad();
+			dbCtx.commitTransaction();
     		
-    		LOG.finer("Loading users.");
-    		dbCtx.loadCopyFile(copyFileset.getUserFile(), "users");
-    		LOG.finer("Loading nodes.");
-    		dbCtx.loadCopyFile(copyFileset.getNodeFile(), "nodes", NODE_COLUMNS);
-    		LOG.finer("Loading ways.");
-    		dbCtx.loadCopyFile(copyFileset.getWayFile(), "ways", wayColumns);
-    		LOG.finer("Loading way nodes.");
-    		dbCtx.loadCopyFile(copyFileset.getWayNodeFile(), "way_nodes");
-    		LOG.finer("Loading relations.");
-    		dbCtx.loadCopyFile(copyFileset.getRelationFile(), "relations", RELATION_COLUMNS);
-    		LOG.finer("Loading relation members.");
-    		dbCtx.loadCopyFile(copyFileset.getRelationMemberFile(), "relation_members");
-    		LOG.finer("Committing changes.");
+    		LOG.fine("Loading all tables concurrently.");
+    		loadTablesConcurrently(executor, wayColumns);
     		
     		LOG.fine("Data load complete.");
     		
     		// Add all constraints and indexes.
-    		indexManager.completeAfterLoad();
-    		
-    		dbCtx.commitTransaction();
+    		indexManager.completeAfterLoad(executor, loginCredentials);
     		
     		LOG.fine("Clustering database.");
     		dbCtx.getJdbcTemplate().update("CLUSTER");
@@ -117,6 +156,9 @@ public class CopyFilesetLoader implements Runnable {
     		dbCtx.getJdbcTemplate().update("VACUUM ANALYZE");
     		
     		LOG.fine("Complete.");
+    		
+    	} finally {
+    		executor.shutdownNow();
     	}
     }
 }
@@ -21,16 +21,31 @@ public class DirectoryCopyFileset implements CopyFileset {
 	
 	
 	private File directory;
+	private boolean binary;
 	
 	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance using the COPY text format.
 	 * 
 	 * @param directory
 	 *            The directory to store all files in.
 	 */
 	public DirectoryCopyFileset(File directory) {
+		this(directory, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param directory
+	 *            The directory to store all files in.
+	 * @param binary
+	 *            If true, the files use the COPY binary format.
+	 */
+	public DirectoryCopyFileset(File directory, boolean binary) {
 		this.directory = directory;
+		this.binary = binary;
 	}
 	
 	
@@ -86,4 +101,13 @@ public class DirectoryCopyFileset implements CopyFileset {
 	public File getWayNodeFile() {
 		return new File(directory, WAY_NODE_SUFFIX);
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isBinary() {
+		return binary;
+	}
 }
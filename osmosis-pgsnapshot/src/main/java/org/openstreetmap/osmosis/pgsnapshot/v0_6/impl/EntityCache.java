@@ -0,0 +1,114 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+
+
+/**
+ * Holds a bounded number of recently used entities. Once the cache is full the
+ * least recently used entity is discarded to make room for a new one. Cached
+ * entities are made read-only so that they may be safely returned to multiple
+ * callers.
+ * @param <T>
+ *            The entity type to be cached.
+ */
+public class EntityCache<T extends Entity> {
+
+	private LruMap<T> entities;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param capacity
+	 *            The maximum number of entities to hold.
+	 */
+	public EntityCache(int capacity) {
+		entities = new LruMap<T>(capacity);
+	}
+
+
+	/**
+	 * Gets the entity with the specified id if it is held in the cache.
+	 *
+	 * @param entityId
+	 *            The unique identifier of the entity.
+	 * @return The entity, or null if it isn't cached.
+	 */
+	public T get(long entityId) {
+		return entities.get(entityId);
+	}
+
+
+	/**
+	 * Adds an entity to the cache, replacing any existing entity with the same
+	 * id. The entity will be made read-only.
+	 *
+	 * @param entity
+	 *            The entity to add.
+	 */
+	public void put(T entity) {
+		entity.makeReadOnly();
+		entities.put(entity.getId(), entity);
+	}
+
+
+	/**
+	 * Removes the entity with the specified id from the cache if it exists.
+	 *
+	 * @param entityId
+	 *            The unique identifier of the entity.
+	 */
+	public void remove(long entityId) {
+		entities.remove(entityId);
+	}
+
+
+	/**
+	 * Returns the number of entities currently held.
+	 *
+	 * @return The entity count.
+	 */
+	public int size() {
+		return entities.size();
+	}
+
+
+	/**
+	 * A map ordered by access which discards its eldest entry once the
+	 * capacity is exceeded.
+	 *
+	 * @param <T>
+	 *            The entity type to be cached.
+	 */
+	private static class LruMap<T> extends LinkedHashMap<Long, T> {
+		private static final long serialVersionUID = 1L;
+
+		private int capacity;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param capacity
+		 *            The maximum number of entries to hold.
+		 */
+		LruMap(int capacity) {
+			super(16, 0.75f, true);
+
+			this.capacity = capacity;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+			return size() > capacity;
+		}
+	}
+}
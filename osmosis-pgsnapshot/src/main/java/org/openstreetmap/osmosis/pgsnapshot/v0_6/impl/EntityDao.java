@@ -1,6 +1,8 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,7 +21,9 @@ import org.openstreetmap.osmosis.pgsnapshot.common.NoSuchRecordException;
 import org.openstreetmap.osmosis.pgsnapshot.common.RowMapperRowCallbackListener;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 
 /**
@@ -31,6 +35,16 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
  */
 public abstract class EntityDao<T extends Entity> {
 	
+	/**
+	 * The prefix of the temporary tables used to stage batches of changes.
+	 */
+	protected static final String STAGING_TABLE_PREFIX = "change_";
+	
+	private static final String SQL_CREATE_STAGING_TABLE =
+		"CREATE TEMPORARY TABLE IF NOT EXISTS %1$s%2$ss (LIKE %2$ss) ON COMMIT DROP";
+	private static final String SQL_DELETE_BY_IDS = "DELETE FROM %ss e USING unnest(?) AS r(id) WHERE e.id = r.id";
+	
+	
 	private JdbcTemplate jdbcTemplate;
 	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 	private ActionDao actionDao;
@@ -99,6 +113,20 @@ public abstract class EntityDao<T extends Entity> {
 	}
 	
 	
+	/**
+	 * Loads a group of entities from the database using a single query.
+	 * 
+	 * @param entityIds
+	 *            The unique identifiers of the entities. Entities that don't
+	 *            exist are ignored.
+	 * @return The loaded entities in no particular order.
+	 */
+	public List<T> getEntities(long[] entityIds) {
+		return jdbcTemplate.query(entityMapper.getSqlSelectByIds(), new Object[] {new WayNodesArray(entityIds)},
+				entityMapper.getRowMapper());
+	}
+	
+	
 	/**
 	 * Adds the specified entity to the database.
 	 * 
@@ -153,6 +181,96 @@ public abstract class EntityDao<T extends Entity> {
 	}
 	
 	
+	private void stageEntities(Collection<T> entities) {
+		String entityName;
+		SqlParameterSource[] batchArgs;
+		int i;
+		
+		entityName = entityMapper.getEntityName();
+		
+		// The staging table only lives until the end of the transaction and is
+		// emptied before each batch.
+		jdbcTemplate.update(String.format(SQL_CREATE_STAGING_TABLE, STAGING_TABLE_PREFIX, entityName));
+		jdbcTemplate.update("TRUNCATE " + STAGING_TABLE_PREFIX + entityName + "s");
+		
+		batchArgs = new SqlParameterSource[entities.size()];
+		i = 0;
+		for (T entity : entities) {
+			Map<String, Object> args;
+			
+			args = new HashMap<String, Object>();
+			entityMapper.populateEntityParameters(args, entity);
+			
+			batchArgs[i++] = new MapSqlParameterSource(args);
+		}
+		namedParameterJdbcTemplate.batchUpdate(entityMapper.getSqlInsert(STAGING_TABLE_PREFIX, 1), batchArgs);
+		
+		jdbcTemplate.update("ANALYZE " + STAGING_TABLE_PREFIX + entityName + "s");
+	}
+	
+	
+	/**
+	 * Applies a batch of changes to the database using set-based statements
+	 * instead of statements per entity. Entities to be written are staged in
+	 * a temporary table named with the {@link #STAGING_TABLE_PREFIX} prefix
+	 * which remains populated until the next batch so that sub-classes can
+	 * use it to update entity features. Deletes are only recorded as actions
+	 * for entities that exist.
+	 * 
+	 * @param modifiedEntities
+	 *            The entities to be created or updated. Each entity id must
+	 *            only appear once.
+	 * @param removedEntityIds
+	 *            The ids of the entities to be removed. These must not overlap
+	 *            the modified entities.
+	 */
+	public void writeChanges(Collection<T> modifiedEntities, long[] removedEntityIds) {
+		String entityName;
+		
+		entityName = entityMapper.getEntityName();
+		
+		if (removedEntityIds.length > 0) {
+			actionDao.addExistingActions(
+					entityMapper.getEntityType(), ChangesetAction.DELETE, entityName, removedEntityIds);
+			
+			jdbcTemplate.update(String.format(SQL_DELETE_BY_IDS, entityName), new WayNodesArray(removedEntityIds));
+		}
+		
+		if (!modifiedEntities.isEmpty()) {
+			stageEntities(modifiedEntities);
+			
+			// Actions must be recorded before writing so that creates can be
+			// distinguished from modifies.
+			actionDao.addStagedActions(entityMapper.getEntityType(), STAGING_TABLE_PREFIX, entityName);
+			
+			jdbcTemplate.update(entityMapper.getSqlUpsert(STAGING_TABLE_PREFIX));
+		}
+	}
+	
+	
+	/**
+	 * Combines the ids of a batch of modified and removed entities.
+	 * 
+	 * @param modifiedEntities
+	 *            The entities being created or updated.
+	 * @param removedEntityIds
+	 *            The ids of the entities being removed.
+	 * @return The ids of all entities in the batch.
+	 */
+	protected long[] getChangedIds(Collection<T> modifiedEntities, long[] removedEntityIds) {
+		long[] changedIds;
+		int i;
+		
+		changedIds = Arrays.copyOf(removedEntityIds, removedEntityIds.length + modifiedEntities.size());
+		i = removedEntityIds.length;
+		for (T entity : modifiedEntities) {
+			changedIds[i++] = entity.getId();
+		}
+		
+		return changedIds;
+	}
+	
+	
 	private ReleasableIterator<T> getFeaturelessEntity(String tablePrefix) {
 		FileBasedSort<T> sortingStore;
 		
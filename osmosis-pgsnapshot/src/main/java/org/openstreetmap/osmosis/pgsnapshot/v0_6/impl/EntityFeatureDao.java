@@ -9,7 +9,9 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.database.DbFeature;
 import org.openstreetmap.osmosis.core.store.Storeable;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 
 /**
@@ -56,6 +58,20 @@ public class EntityFeatureDao<Tef extends Storeable, Tdb extends DbFeature<Tef>>
 	}
 	
 	
+	/**
+	 * Loads all instances of this feature for a group of entities from the database using a
+	 * single query. The features are returned in the default order for the feature type.
+	 * 
+	 * @param entityIds
+	 *            The unique identifiers of the entities.
+	 * @return All instances of this feature type for the entities.
+	 */
+	public Collection<Tdb> getAll(long[] entityIds) {
+		return jdbcTemplate.query(entityFeatureMapper.getSqlSelectByEntityIds(),
+				new Object[] {new WayNodesArray(entityIds)}, entityFeatureMapper.getRowMapper());
+	}
+	
+	
 	/**
 	 * Loads all instances of this feature for the specified entity from the database.
 	 * 
@@ -84,16 +100,22 @@ public class EntityFeatureDao<Tef extends Storeable, Tdb extends DbFeature<Tef>>
 	 *            The features to add.
 	 */
 	public void addAll(Collection<Tdb> features) {
-		Map<String, Object> args;
-		
-		args = new HashMap<String, Object>();
+		SqlParameterSource[] batchArgs;
+		int i;
 		
+		batchArgs = new SqlParameterSource[features.size()];
+		i = 0;
 		for (Tdb feature : features) {
-			args.clear();
+			Map<String, Object> args;
+			
+			args = new HashMap<String, Object>();
 			entityFeatureMapper.populateParameters(args, feature);
 			
-			namedParameterJdbcTemplate.update(entityFeatureMapper.getSqlInsert(1), args);
+			batchArgs[i++] = new MapSqlParameterSource(args);
 		}
+		
+		// Send all rows to the server as a single JDBC batch.
+		namedParameterJdbcTemplate.batchUpdate(entityFeatureMapper.getSqlInsert(1), batchArgs);
 	}
 	
 	
@@ -106,4 +128,17 @@ public class EntityFeatureDao<Tef extends Storeable, Tdb extends DbFeature<Tef>>
 	public void removeList(long entityId) {
 		jdbcTemplate.update(entityFeatureMapper.getSqlDelete(true), entityId);
 	}
+
+	
+	
+	/**
+	 * Removes the feature lists of a group of entities from the database using
+	 * a single statement.
+	 * 
+	 * @param entityIds
+	 *            The ids of the entities to remove.
+	 */
+	public void removeLists(long[] entityIds) {
+		jdbcTemplate.update(entityFeatureMapper.getSqlDeleteByEntityIds(), new WayNodesArray(entityIds));
+	}
 }
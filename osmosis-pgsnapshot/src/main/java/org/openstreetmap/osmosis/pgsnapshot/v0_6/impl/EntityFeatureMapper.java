@@ -67,6 +67,19 @@ public abstract class EntityFeatureMapper<T> {
 	public abstract String getSqlSelect(String tablePrefix, boolean filterByEntityId, boolean orderBy);
 
 
+	/**
+	 * The SQL SELECT statement for retrieving the features of a group of
+	 * entities in the default order. The entity ids are supplied as a single
+	 * array parameter.
+	 * 
+	 * @return The SQL string.
+	 */
+	public String getSqlSelectByEntityIds() {
+		return getSqlSelect("", false, false) + " WHERE f." + getParentEntityName() + "_id = ANY(?)"
+				+ getSqlDefaultOrderBy();
+	}
+
+
 	/**
 	 * The SQL INSERT statement for adding features.
 	 * 
@@ -86,6 +99,17 @@ public abstract class EntityFeatureMapper<T> {
 	 * @return The SQL String.
 	 */
 	public abstract String getSqlDelete(boolean filterByEntityId);
+
+
+	/**
+	 * The SQL DELETE statement for deleting the features of a group of
+	 * entities. The entity ids are supplied as a single array parameter.
+	 * 
+	 * @return The SQL string.
+	 */
+	public String getSqlDeleteByEntityIds() {
+		return getSqlDelete(false) + " WHERE " + getParentEntityName() + "_id = ANY(?)";
+	}
 	
 	
 	/**
@@ -135,6 +135,18 @@ public abstract class EntityMapper<T extends Entity> {
 	}
 
 
+
+	/**
+	 * The SQL SELECT statement for retrieving the details of a group of
+	 * entities. The entity ids are supplied as a single array parameter.
+	 * 
+	 * @return The SQL string.
+	 */
+	public String getSqlSelectByIds() {
+		return getSqlSelect("", false, false) + " WHERE e.id = ANY(?)";
+	}
+
+
 	/**
 	 * The SQL INSERT statement for adding entities.
 	 * 
@@ -143,18 +155,29 @@ public abstract class EntityMapper<T extends Entity> {
 	 * @return The SQL string.
 	 */
 	public String getSqlInsert(int rowCount) {
+		return getSqlInsert("", rowCount);
+	}
+	
+	
+	/**
+	 * The SQL INSERT statement for adding entities.
+	 * 
+	 * @param tablePrefix
+	 *            The prefix for the entity table name. This allows another table to be populated if
+	 *            necessary such as a temporary staging table.
+	 * @param rowCount
+	 *            The number of rows to insert in a single statement.
+	 * @return The SQL string.
+	 */
+	public String getSqlInsert(String tablePrefix, int rowCount) {
 		String[] typeSpecificFieldNames;
 		StringBuilder resultSql;
 		
 		typeSpecificFieldNames = getTypeSpecificFieldNames();
 		
 		resultSql = new StringBuilder();
-		resultSql.append("INSERT INTO ").append(getEntityName()).append("s");
-		resultSql.append("(id, version, user_id, tstamp, changeset_id, tags");
-		for (String fieldName : Arrays.asList(typeSpecificFieldNames)) {
-			resultSql.append(", ").append(fieldName);
-		}
-		resultSql.append(") VALUES ");
+		resultSql.append("INSERT INTO ").append(tablePrefix).append(getEntityName()).append("s");
+		resultSql.append("(").append(getSqlColumnList()).append(") VALUES ");
 		for (int row = 0; row < rowCount; row++) {
 			if (row > 0) {
 				resultSql.append(", ");
@@ -170,6 +193,49 @@ public abstract class EntityMapper<T extends Entity> {
 	}
 	
 	
+	/**
+	 * The SQL INSERT statement for copying all entities from another table
+	 * into the entity table. Entities that already exist are updated instead.
+	 * 
+	 * @param sourceTablePrefix
+	 *            The prefix for the source table name such as a temporary
+	 *            staging table.
+	 * @return The SQL string.
+	 */
+	public String getSqlUpsert(String sourceTablePrefix) {
+		String columnList;
+		StringBuilder resultSql;
+		
+		columnList = getSqlColumnList();
+		
+		resultSql = new StringBuilder();
+		resultSql.append("INSERT INTO ").append(getEntityName()).append("s");
+		resultSql.append("(").append(columnList).append(")");
+		resultSql.append(" SELECT ").append(columnList);
+		resultSql.append(" FROM ").append(sourceTablePrefix).append(getEntityName()).append("s");
+		resultSql.append(" ON CONFLICT (id) DO UPDATE SET version = EXCLUDED.version, user_id = EXCLUDED.user_id,"
+				+ " tstamp = EXCLUDED.tstamp, changeset_id = EXCLUDED.changeset_id, tags = EXCLUDED.tags");
+		for (String fieldName : Arrays.asList(getTypeSpecificFieldNames())) {
+			resultSql.append(", ").append(fieldName).append(" = EXCLUDED.").append(fieldName);
+		}
+		
+		return resultSql.toString();
+	}
+	
+	
+	private String getSqlColumnList() {
+		StringBuilder resultSql;
+		
+		resultSql = new StringBuilder();
+		resultSql.append("id, version, user_id, tstamp, changeset_id, tags");
+		for (String fieldName : Arrays.asList(getTypeSpecificFieldNames())) {
+			resultSql.append(", ").append(fieldName);
+		}
+		
+		return resultSql.toString();
+	}
+	
+	
 	/**
 	 * The SQL UPDATE statement for updating entity details.
 	 * 
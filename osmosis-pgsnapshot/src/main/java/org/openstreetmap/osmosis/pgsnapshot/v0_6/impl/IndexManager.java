@@ -1,8 +1,19 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -65,6 +76,11 @@ public class IndexManager {
 		+ ") c"
 		+ ")";
 	
+	/**
+	 * Extracts the table name from a post-load statement.
+	 */
+	private static final Pattern TABLE_PATTERN = Pattern.compile("(?:TABLE ONLY|ON) (\\w+)");
+	
 	
 	private JdbcTemplate jdbcTemplate;
 	private DatabaseCapabilityChecker capabilityChecker;
@@ -152,4 +168,71 @@ public class IndexManager {
 			}
 		}
 	}
+	
+	
+	private static void addTableStatements(Map<String, List<String>> tableStatements, String[] statements) {
+		for (String sql : statements) {
+			Matcher matcher = TABLE_PATTERN.matcher(sql);
+			
+			if (!matcher.find()) {
+				throw new OsmosisRuntimeException("Unable to determine the table for statement: " + sql);
+			}
+			
+			tableStatements.computeIfAbsent(matcher.group(1), table -> new ArrayList<String>()).add(sql);
+		}
+	}
+	
+	
+	/**
+	 * Creates indexes in the database with each table indexed concurrently on
+	 * its own connection. Statements for a single table run in order. Derived
+	 * columns can't be populated by this method because they depend on other
+	 * tables being indexed.
+	 * 
+	 * @param executor
+	 *            Runs the statements for each table.
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 */
+	public void completeAfterLoad(ExecutorService executor, final DatabaseLoginCredentials loginCredentials) {
+		Map<String, List<String>> tableStatements;
+		List<Future<?>> futures;
+		
+		if (populateBbox || populateLinestring) {
+			throw new OsmosisRuntimeException("Way geometry columns can only be populated by a serial index build.");
+		}
+		
+		tableStatements = new LinkedHashMap<String, List<String>>();
+		addTableStatements(tableStatements, POST_LOAD_SQL);
+		if (capabilityChecker.isWayBboxSupported()) {
+			addTableStatements(tableStatements, POST_LOAD_SQL_WAY_BBOX);
+		}
+		if (capabilityChecker.isWayLinestringSupported()) {
+			addTableStatements(tableStatements, POST_LOAD_SQL_WAY_LINESTRING);
+		}
+		
+		LOG.fine("Running post-load SQL for " + tableStatements.size() + " tables concurrently.");
+		futures = new ArrayList<Future<?>>();
+		for (final List<String> statements : tableStatements.values()) {
+			futures.add(executor.submit(() -> {
+				try (DatabaseContext tableCtx = new DatabaseContext(loginCredentials)) {
+					for (String sql : statements) {
+						LOG.finer("SQL: " + sql);
+						tableCtx.getJdbcTemplate().update(sql);
+					}
+				}
+			}));
+		}
+		
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OsmosisRuntimeException("Interrupted while creating indexes.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("Unable to create indexes.", e.getCause());
+			}
+		}
+	}
 }
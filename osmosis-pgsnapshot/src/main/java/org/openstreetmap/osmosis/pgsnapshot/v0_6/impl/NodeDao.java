@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -35,6 +36,25 @@ public class NodeDao extends EntityDao<Node> {
 		+ " WHERE w.id IN ("
 		+ " SELECT w.id FROM ways w INNER JOIN way_nodes wn ON w.id = wn.way_id WHERE wn.node_id = ? GROUP BY w.id"
 		+ " )";
+	private static final String SQL_UPDATE_STAGED_WAY_BBOX =
+		"UPDATE ways w SET bbox = ("
+		+ " SELECT ST_Envelope(ST_Collect(n.geom))"
+		+ " FROM nodes n INNER JOIN way_nodes wn ON wn.node_id = n.id"
+		+ " WHERE wn.way_id = w.id"
+		+ " )"
+		+ " WHERE w.id IN ("
+		+ " SELECT wn.way_id FROM way_nodes wn INNER JOIN " + STAGING_TABLE_PREFIX + "nodes s ON wn.node_id = s.id"
+		+ " )";
+	private static final String SQL_UPDATE_STAGED_WAY_LINESTRING =
+		"UPDATE ways w SET linestring = ("
+		+ " SELECT ST_MakeLine(c.geom) AS way_line FROM ("
+		+ " SELECT n.geom AS geom FROM nodes n INNER JOIN way_nodes wn ON n.id = wn.node_id"
+		+ " WHERE (wn.way_id = w.id) ORDER BY wn.sequence_id"
+		+ " ) c"
+		+ " )"
+		+ " WHERE w.id IN ("
+		+ " SELECT wn.way_id FROM way_nodes wn INNER JOIN " + STAGING_TABLE_PREFIX + "nodes s ON wn.node_id = s.id"
+		+ " )";
 	
 	
 	private JdbcTemplate jdbcTemplate;
@@ -74,6 +94,26 @@ public class NodeDao extends EntityDao<Node> {
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeChanges(Collection<Node> modifiedEntities, long[] removedEntityIds) {
+		super.writeChanges(modifiedEntities, removedEntityIds);
+		
+		// Rebuild the geometries of all ways referencing the staged nodes.
+		if (!modifiedEntities.isEmpty()) {
+			if (capabilityChecker.isWayBboxSupported()) {
+				jdbcTemplate.update(SQL_UPDATE_STAGED_WAY_BBOX);
+			}
+			
+			if (capabilityChecker.isWayLinestringSupported()) {
+				jdbcTemplate.update(SQL_UPDATE_STAGED_WAY_LINESTRING);
+			}
+		}
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,7 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityManager;
@@ -13,7 +18,8 @@ import org.openstreetmap.osmosis.pgsnapshot.common.NoSuchRecordException;
 
 /**
  * Provides postgres entity manager support allowing entities to be manipulated via a common dataset
- * interface.
+ * interface. Recently retrieved entities are cached to avoid repeated queries so all entities
+ * returned by this class are read-only.
  * 
  * @author Brett Henderson
  * 
@@ -22,9 +28,12 @@ import org.openstreetmap.osmosis.pgsnapshot.common.NoSuchRecordException;
  */
 public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<T> {
 	
+	private static final int DEFAULT_CACHE_SIZE = 10000;
+	
 	private EntityDao<T> entityDao;
 	private UserDao userDao;
 	private Set<Integer> userSet;
+	private EntityCache<T> entityCache;
 	
 	
 	/**
@@ -36,10 +45,26 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	 *            The user dao allowing user entries to be updated or created.
 	 */
 	public PostgreSqlEntityManager(EntityDao<T> entityDao, UserDao userDao) {
+		this(entityDao, userDao, DEFAULT_CACHE_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param entityDao
+	 *            The dao allowing manipulation of a specific entity type.
+	 * @param userDao
+	 *            The user dao allowing user entries to be updated or created.
+	 * @param cacheSize
+	 *            The maximum number of retrieved entities to be cached.
+	 */
+	public PostgreSqlEntityManager(EntityDao<T> entityDao, UserDao userDao, int cacheSize) {
 		this.entityDao = entityDao;
 		this.userDao = userDao;
 		
 		userSet = new HashSet<Integer>();
+		entityCache = new EntityCache<T>(cacheSize);
 	}
 	
 	
@@ -83,6 +108,7 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	@Override
 	public void addEntity(T entity) {
 		writeUser(entity.getUser());
+		entityCache.remove(entity.getId());
 		entityDao.addEntity(entity);
 	}
 
@@ -92,7 +118,7 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	 */
 	@Override
 	public boolean exists(long id) {
-		return entityDao.exists(id);
+		return entityCache.get(id) != null || entityDao.exists(id);
 	}
 
 
@@ -101,7 +127,58 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	 */
 	@Override
 	public T getEntity(long id) {
-		return entityDao.getEntity(id);
+		T entity;
+		
+		entity = entityCache.get(id);
+		if (entity == null) {
+			entity = entityDao.getEntity(id);
+			entityCache.put(entity);
+		}
+		
+		return entity;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<T> getEntities(long[] ids) {
+		Map<Long, T> entityMap;
+		Set<Long> missingIds;
+		List<T> entities;
+		
+		// Take what we can from the cache and remember the rest.
+		entityMap = new HashMap<Long, T>();
+		missingIds = new LinkedHashSet<Long>();
+		for (long id : ids) {
+			T entity = entityCache.get(id);
+			
+			if (entity != null) {
+				entityMap.put(id, entity);
+			} else {
+				missingIds.add(id);
+			}
+		}
+		
+		// Load all remaining entities with a single query.
+		if (!missingIds.isEmpty()) {
+			for (T entity : entityDao.getEntities(missingIds.stream().mapToLong(Long::longValue).toArray())) {
+				entityCache.put(entity);
+				entityMap.put(entity.getId(), entity);
+			}
+		}
+		
+		entities = new ArrayList<T>(ids.length);
+		for (long id : ids) {
+			T entity = entityMap.get(id);
+			
+			if (entity != null) {
+				entities.add(entity);
+			}
+		}
+		
+		return entities;
 	}
 
 	
@@ -120,6 +197,7 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	@Override
 	public void modifyEntity(T entity) {
 		writeUser(entity.getUser());
+		entityCache.remove(entity.getId());
 		entityDao.modifyEntity(entity);
 	}
 
@@ -129,6 +207,7 @@ public class PostgreSqlEntityManager<T extends Entity> implements EntityManager<
 	 */
 	@Override
 	public void removeEntity(long entityId) {
+		entityCache.remove(entityId);
 		entityDao.removeEntity(entityId);
 	}
 }
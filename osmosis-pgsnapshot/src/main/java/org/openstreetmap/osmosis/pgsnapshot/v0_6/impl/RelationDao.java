@@ -2,7 +2,10 @@
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openstreetmap.osmosis.core.database.DbFeature;
 import org.openstreetmap.osmosis.core.database.DbOrderedFeature;
@@ -71,6 +74,37 @@ public class RelationDao extends EntityDao<Relation> {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Relation> getEntities(long[] entityIds) {
+		List<Relation> entities;
+		Map<Long, Relation> entityMap;
+		long[] loadedIds;
+		
+		entities = super.getEntities(entityIds);
+		if (entities.isEmpty()) {
+			return entities;
+		}
+		
+		// Load the members of all relations with a single query.
+		entityMap = new HashMap<Long, Relation>(entities.size());
+		loadedIds = new long[entities.size()];
+		for (int i = 0; i < loadedIds.length; i++) {
+			Relation entity = entities.get(i);
+			
+			entityMap.put(entity.getId(), entity);
+			loadedIds[i] = entity.getId();
+		}
+		for (DbOrderedFeature<RelationMember> member : relationMemberDao.getAll(loadedIds)) {
+			entityMap.get(member.getEntityId()).getMembers().add(member.getFeature());
+		}
+		
+		return entities;
+	}
+	
+	
 	/**
 	 * Adds the specified relation member list to the database.
 	 * 
@@ -118,6 +152,29 @@ public class RelationDao extends EntityDao<Relation> {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeChanges(Collection<Relation> modifiedEntities, long[] removedEntityIds) {
+		List<DbOrderedFeature<RelationMember>> dbList;
+		
+		super.writeChanges(modifiedEntities, removedEntityIds);
+		
+		relationMemberDao.removeLists(getChangedIds(modifiedEntities, removedEntityIds));
+		
+		dbList = new ArrayList<DbOrderedFeature<RelationMember>>();
+		for (Relation entity : modifiedEntities) {
+			List<RelationMember> memberList = entity.getMembers();
+			
+			for (int i = 0; i < memberList.size(); i++) {
+				dbList.add(new DbOrderedFeature<RelationMember>(entity.getId(), memberList.get(i), i));
+			}
+		}
+		relationMemberDao.addAll(dbList);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -11,7 +11,8 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 
 
 /**
- * A COPY fileset implementation that uses temporary files.
+ * A COPY fileset implementation that uses temporary files. The files are only
+ * used internally so they use the binary format.
  * 
  * @author Brett Henderson
  * 
@@ -151,4 +152,13 @@ public class TempCopyFileset implements CopyFileset, Closeable {
 		tmpFiles.clear();
 		initialized = false;
 	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isBinary() {
+		return true;
+	}
 }
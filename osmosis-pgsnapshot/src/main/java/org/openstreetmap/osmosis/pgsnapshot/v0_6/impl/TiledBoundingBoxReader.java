@@ -0,0 +1,253 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainerIterator;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainerIterator;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainerIterator;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableContainer;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.HeapMergingIterator;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntitySubClassComparator;
+import org.openstreetmap.osmosis.core.store.UpcastIterator;
+import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+/**
+ * Reads all data within a bounding box by splitting the box into a grid of
+ * tiles and selecting the data for each tile concurrently on its own database
+ * connection. All connections share the snapshot of the calling transaction so
+ * the tiles see consistent data. Entities overlapping multiple tiles are
+ * selected once per tile, the per-tile results are merged and duplicates
+ * discarded to produce the same output as a single selection of the whole box.
+ */
+public class TiledBoundingBoxReader {
+
+	private static final Logger LOG = Logger.getLogger(TiledBoundingBoxReader.class.getName());
+
+	/**
+	 * The number of tiles to create for each thread. Using more tiles than
+	 * threads keeps all threads busy when data density varies between tiles.
+	 */
+	private static final int TILES_PER_THREAD = 4;
+
+
+	private DatabaseLoginCredentials loginCredentials;
+	private int threadCount;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param threadCount
+	 *            The number of tiles to select concurrently.
+	 */
+	public TiledBoundingBoxReader(DatabaseLoginCredentials loginCredentials, int threadCount) {
+		this.loginCredentials = loginCredentials;
+		this.threadCount = threadCount;
+	}
+
+
+	private TileResult selectTile(String snapshotId, double left, double right, double top, double bottom,
+			boolean completeWays) {
+		try (DatabaseContext tileCtx = new DatabaseContext(loginCredentials)) {
+			ActionDao actionDao;
+			TileResult result;
+
+			tileCtx.beginTransaction(snapshotId);
+
+			new BoundingBoxSelector(tileCtx).select(left, right, top, bottom, completeWays);
+
+			// The dao iterators read all results into local stores so the
+			// connection can be released once they are created.
+			actionDao = new ActionDao(tileCtx);
+			result = new TileResult();
+			try {
+				result.nodes = new NodeDao(tileCtx, actionDao).iterate("bbox_");
+				result.ways = new WayDao(tileCtx, actionDao).iterate("bbox_");
+				result.relations = new RelationDao(tileCtx, actionDao).iterate("bbox_");
+
+			} catch (RuntimeException e) {
+				result.close();
+				throw e;
+			}
+
+			return result;
+		}
+	}
+
+
+	private void releaseTile(Future<TileResult> future) {
+		try {
+			future.get().close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOG.log(Level.FINE, "Ignoring a failed tile during release.", e);
+		}
+	}
+
+
+	private <T extends Entity> ReleasableIterator<T> merge(List<ReleasableIterator<T>> sources) {
+		return new UniqueEntityIterator<T>(new HeapMergingIterator<T>(
+				sources, new EntitySubClassComparator<T>(new EntityByTypeThenIdComparator())));
+	}
+
+
+	/**
+	 * Reads all data within the bounding box.
+	 *
+	 * @param jdbcTemplate
+	 *            Provides access to the calling transaction whose snapshot will
+	 *            be shared by all tiles. The transaction must remain open until
+	 *            this method returns.
+	 * @param left
+	 *            The longitude marking the left edge of the bounding box.
+	 * @param right
+	 *            The longitude marking the right edge of the bounding box.
+	 * @param top
+	 *            The latitude marking the top edge of the bounding box.
+	 * @param bottom
+	 *            The latitude marking the bottom edge of the bounding box.
+	 * @param completeWays
+	 *            If true, all nodes of selected ways are also returned.
+	 * @return Iterators over the nodes, ways and relations in that order.
+	 */
+	public List<ReleasableIterator<EntityContainer>> read(JdbcTemplate jdbcTemplate, double left, double right,
+			double top, double bottom, boolean completeWays) {
+		final String snapshotId;
+		int tilesPerAxis;
+		ExecutorService executor;
+		List<Future<TileResult>> futures;
+		int consumedCount;
+
+		snapshotId = jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+
+		tilesPerAxis = (int) Math.ceil(Math.sqrt(threadCount * TILES_PER_THREAD));
+		LOG.fine("Selecting bounding box as " + tilesPerAxis + "x" + tilesPerAxis + " tiles using "
+				+ threadCount + " threads.");
+
+		executor = Executors.newFixedThreadPool(threadCount);
+		futures = new ArrayList<Future<TileResult>>();
+		consumedCount = 0;
+		try (ReleasableContainer releasableContainer = new ReleasableContainer()) {
+			List<ReleasableIterator<Node>> nodeSources;
+			List<ReleasableIterator<Way>> waySources;
+			List<ReleasableIterator<Relation>> relationSources;
+			List<ReleasableIterator<EntityContainer>> results;
+
+			// Adjacent tiles share identical edge values so no gaps occur
+			// between them.
+			for (int x = 0; x < tilesPerAxis; x++) {
+				final double tileLeft = left + (right - left) * x / tilesPerAxis;
+				final double tileRight = left + (right - left) * (x + 1) / tilesPerAxis;
+
+				for (int y = 0; y < tilesPerAxis; y++) {
+					final double tileBottom = bottom + (top - bottom) * y / tilesPerAxis;
+					final double tileTop = bottom + (top - bottom) * (y + 1) / tilesPerAxis;
+
+					futures.add(executor.submit(
+							() -> selectTile(snapshotId, tileLeft, tileRight, tileTop, tileBottom, completeWays)));
+				}
+			}
+
+			// Wait for all tiles to be selected.
+			nodeSources = new ArrayList<ReleasableIterator<Node>>();
+			waySources = new ArrayList<ReleasableIterator<Way>>();
+			relationSources = new ArrayList<ReleasableIterator<Relation>>();
+			while (consumedCount < futures.size()) {
+				Future<TileResult> future = futures.get(consumedCount++);
+				TileResult tileResult;
+
+				try {
+					tileResult = releasableContainer.add(future.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OsmosisRuntimeException("Interrupted while waiting for a tile to be selected.", e);
+				} catch (ExecutionException e) {
+					throw new OsmosisRuntimeException("Unable to select a bounding box tile.", e.getCause());
+				}
+
+				nodeSources.add(tileResult.nodes);
+				waySources.add(tileResult.ways);
+				relationSources.add(tileResult.relations);
+			}
+
+			results = new ArrayList<ReleasableIterator<EntityContainer>>();
+			results.add(
+					new UpcastIterator<EntityContainer, NodeContainer>(
+							new NodeContainerIterator(merge(nodeSources))));
+			results.add(
+					new UpcastIterator<EntityContainer, WayContainer>(
+							new WayContainerIterator(merge(waySources))));
+			results.add(
+					new UpcastIterator<EntityContainer, RelationContainer>(
+							new RelationContainerIterator(merge(relationSources))));
+
+			// The tile results are now owned by the merged iterators.
+			releasableContainer.clear();
+
+			return results;
+
+		} finally {
+			// Tiles which haven't been consumed due to a failure must still be
+			// released because their results hold temporary files.
+			for (Future<TileResult> future : futures.subList(consumedCount, futures.size())) {
+				if (!future.cancel(false)) {
+					releaseTile(future);
+				}
+			}
+			executor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Holds the entities selected for a single tile.
+	 */
+	private static class TileResult implements Closeable {
+		private ReleasableIterator<Node> nodes;
+		private ReleasableIterator<Way> ways;
+		private ReleasableIterator<Relation> relations;
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			if (nodes != null) {
+				nodes.close();
+			}
+			if (ways != null) {
+				ways.close();
+			}
+			if (relations != null) {
+				relations.close();
+			}
+		}
+	}
+}
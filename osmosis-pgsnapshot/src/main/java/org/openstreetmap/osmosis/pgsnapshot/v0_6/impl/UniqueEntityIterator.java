@@ -0,0 +1,88 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+
+
+/**
+ * Removes duplicate entities from a source sorted by entity id. Only the first
+ * entity with each id is returned.
+ * @param <T>
+ *            The entity type to be supported.
+ */
+public class UniqueEntityIterator<T extends Entity> implements ReleasableIterator<T> {
+
+	private ReleasableIterator<T> source;
+	private T nextEntity;
+	private boolean lastIdAvailable;
+	private long lastId;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The input source sorted by entity id.
+	 */
+	public UniqueEntityIterator(ReleasableIterator<T> source) {
+		this.source = source;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		while (nextEntity == null && source.hasNext()) {
+			T entity = source.next();
+
+			if (!lastIdAvailable || entity.getId() != lastId) {
+				nextEntity = entity;
+				lastId = entity.getId();
+				lastIdAvailable = true;
+			}
+		}
+
+		return nextEntity != null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public T next() {
+		T result;
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		result = nextEntity;
+		nextEntity = null;
+
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		source.close();
+	}
+}
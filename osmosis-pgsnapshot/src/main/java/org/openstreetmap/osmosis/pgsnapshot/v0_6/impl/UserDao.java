@@ -1,6 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
 import org.openstreetmap.osmosis.pgsnapshot.common.NoSuchRecordException;
@@ -15,6 +21,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
  */
 public class UserDao {
 	private static final String SELECT_USER = "SELECT id, name FROM users WHERE id = ?";
+	private static final String SELECT_USERS = "SELECT id, name FROM users WHERE id = ANY(?)";
 	private static final String INSERT_USER = "INSERT INTO users(id, name) VALUES(?, ?)";
 	private static final String UPDATE_USER = "UPDATE users SET name = ? WHERE id = ?";
 	
@@ -84,4 +91,64 @@ public class UserDao {
 		
 		actionDao.addAction(ActionDataType.USER, ChangesetAction.MODIFY, user.getId());
 	}
+	
+	
+	/**
+	 * Adds or updates a group of users in the database. Existing users are
+	 * loaded with a single query and the changed users are written using JDBC
+	 * batches. Users that are unchanged are not written.
+	 * 
+	 * @param users
+	 *            The users to write. Each user id must only appear once.
+	 */
+	public void writeUsers(Collection<OsmUser> users) {
+		long[] userIds;
+		Map<Integer, OsmUser> existingUsers;
+		List<Object[]> insertArgs;
+		List<Object[]> updateArgs;
+		List<Long> insertIds;
+		List<Long> updateIds;
+		int i;
+		
+		if (users.isEmpty()) {
+			return;
+		}
+		
+		userIds = new long[users.size()];
+		i = 0;
+		for (OsmUser user : users) {
+			userIds[i++] = user.getId();
+		}
+		
+		existingUsers = new HashMap<Integer, OsmUser>();
+		for (OsmUser user : jdbcTemplate.query(SELECT_USERS, new Object[] {new WayNodesArray(userIds)}, rowMapper)) {
+			existingUsers.put(user.getId(), user);
+		}
+		
+		insertArgs = new ArrayList<Object[]>();
+		updateArgs = new ArrayList<Object[]>();
+		insertIds = new ArrayList<Long>();
+		updateIds = new ArrayList<Long>();
+		for (OsmUser user : users) {
+			OsmUser existingUser = existingUsers.get(user.getId());
+			
+			if (existingUser == null) {
+				insertArgs.add(new Object[] {user.getId(), user.getName()});
+				insertIds.add((long) user.getId());
+			} else if (!user.equals(existingUser)) {
+				updateArgs.add(new Object[] {user.getName(), user.getId()});
+				updateIds.add((long) user.getId());
+			}
+		}
+		
+		if (!insertArgs.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_USER, insertArgs);
+		}
+		if (!updateArgs.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPDATE_USER, updateArgs);
+		}
+		
+		actionDao.addActions(ActionDataType.USER, ChangesetAction.CREATE, insertIds);
+		actionDao.addActions(ActionDataType.USER, ChangesetAction.MODIFY, updateIds);
+	}
 }
@@ -2,6 +2,7 @@
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -35,6 +36,25 @@ public class WayDao extends EntityDao<Way> {
 		+ " ) c"
 		+ " )"
 		+ " WHERE w.id  = ?";
+	private static final String SQL_UPDATE_STAGED_WAY_BBOX =
+		"UPDATE ways SET bbox = ("
+		+ " SELECT ST_Envelope(ST_Collect(geom))"
+		+ " FROM nodes JOIN way_nodes ON way_nodes.node_id = nodes.id"
+		+ " WHERE way_nodes.way_id = ways.id"
+		+ " )"
+		+ " FROM " + STAGING_TABLE_PREFIX + "ways s WHERE ways.id = s.id";
+	private static final String SQL_UPDATE_STAGED_WAY_LINESTRING =
+		"UPDATE ways w SET linestring = ("
+		+ " SELECT ST_MakeLine(c.geom) AS way_line FROM ("
+		+ " SELECT n.geom AS geom FROM nodes n INNER JOIN way_nodes wn ON n.id = wn.node_id"
+		+ " WHERE (wn.way_id = w.id) ORDER BY wn.sequence_id"
+		+ " ) c"
+		+ " )"
+		+ " FROM " + STAGING_TABLE_PREFIX + "ways s WHERE w.id = s.id";
+	private static final String SQL_INSERT_STAGED_WAY_NODES =
+		"INSERT INTO way_nodes (way_id, node_id, sequence_id)"
+		+ " SELECT s.id, n.node_id, n.ordinality - 1"
+		+ " FROM " + STAGING_TABLE_PREFIX + "ways s, unnest(s.nodes) WITH ORDINALITY AS n(node_id, ordinality)";
 	
 	private JdbcTemplate jdbcTemplate;
 	private DatabaseCapabilityChecker capabilityChecker;
@@ -127,6 +147,29 @@ public class WayDao extends EntityDao<Way> {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeChanges(Collection<Way> modifiedEntities, long[] removedEntityIds) {
+		super.writeChanges(modifiedEntities, removedEntityIds);
+		
+		wayNodeDao.removeLists(getChangedIds(modifiedEntities, removedEntityIds));
+		
+		if (!modifiedEntities.isEmpty()) {
+			// Build the way nodes from the node arrays of the staged ways.
+			jdbcTemplate.update(SQL_INSERT_STAGED_WAY_NODES);
+			
+			if (capabilityChecker.isWayBboxSupported()) {
+				jdbcTemplate.update(SQL_UPDATE_STAGED_WAY_BBOX);
+			}
+			if (capabilityChecker.isWayLinestringSupported()) {
+				jdbcTemplate.update(SQL_UPDATE_STAGED_WAY_LINESTRING);
+			}
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -7,13 +7,14 @@ import java.util.List;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.pgsnapshot.common.CompactPersistentNodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.InMemoryNodeLocationStore;
+import org.openstreetmap.osmosis.pgsnapshot.common.MappedNodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocation;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStoreType;
+import org.openstreetmap.osmosis.pgsnapshot.common.PartitionedFillNodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.PersistentNodeLocationStore;
 import org.postgis.LineString;
 import org.postgis.LinearRing;
@@ -29,6 +30,12 @@ import org.postgis.Polygon;
  */
 public class WayGeometryBuilder implements Closeable {
 	
+	/**
+	 * The maximum number of threads used to fill node location stores
+	 * supporting concurrent writes.
+	 */
+	private static final int MAX_FILL_THREADS = 4;
+	
 	/**
 	 * Stores the locations of nodes so that they can be used to build the way
 	 * geometries.
@@ -49,6 +56,9 @@ public class WayGeometryBuilder implements Closeable {
 			locationStore = new PersistentNodeLocationStore();
 		} else if (NodeLocationStoreType.CompactTempFile.equals(storeType)) {
 			locationStore = new CompactPersistentNodeLocationStore();
+		} else if (NodeLocationStoreType.MappedTempFile.equals(storeType)) {
+			locationStore = new PartitionedFillNodeLocationStore(new MappedNodeLocationStore(),
+					Math.min(MAX_FILL_THREADS, Runtime.getRuntime().availableProcessors()));
 		} else {
 			throw new OsmosisRuntimeException("The store type " + storeType + " is not recognized.");
 		}
@@ -148,12 +158,12 @@ public class WayGeometryBuilder implements Closeable {
 		right = 0;
 		bottom = 0;
 		top = 0;
-		for (WayNode wayNode : way.getWayNodes()) {
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
 			NodeLocation nodeLocation;
 			double longitude;
 			double latitude;
 			
-			nodeLocation = locationStore.getNodeLocation(wayNode.getNodeId());
+			nodeLocation = locationStore.getNodeLocation(way.getWayNodeId(i));
 			longitude = nodeLocation.getLongitude();
 			latitude = nodeLocation.getLatitude();
 			
@@ -198,10 +208,10 @@ public class WayGeometryBuilder implements Closeable {
 		List<Point> linePoints;
 		
 		linePoints = new ArrayList<Point>();
-		for (WayNode wayNode : way.getWayNodes()) {
+		for (int i = 0; i < way.getWayNodeCount(); i++) {
 			NodeLocation nodeLocation;
 			
-			nodeLocation = locationStore.getNodeLocation(wayNode.getNodeId());
+			nodeLocation = locationStore.getNodeLocation(way.getWayNodeId(i));
 	
 			if (nodeLocation.isValid()) {
 				linePoints.add(new Point(nodeLocation.getLongitude(), nodeLocation.getLatitude()));
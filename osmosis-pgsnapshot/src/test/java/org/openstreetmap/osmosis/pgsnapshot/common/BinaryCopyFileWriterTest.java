@@ -0,0 +1,117 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+
+
+/**
+ * Tests the binary COPY file writer.
+ */
+public class BinaryCopyFileWriterTest {
+
+	/**
+	 * Provides the location of the file to write.
+	 */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+
+	private void assertText(DataInputStream input, String expected) throws IOException {
+		byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+		byte[] actualBytes;
+
+		Assert.assertEquals("Incorrect text length.", expectedBytes.length, input.readInt());
+		actualBytes = new byte[expectedBytes.length];
+		input.readFully(actualBytes);
+		Assert.assertArrayEquals("Incorrect text.", expectedBytes, actualBytes);
+	}
+
+
+	/**
+	 * Verifies that the header, a record and the trailer are written in the
+	 * PostgreSQL binary COPY format.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	@Test
+	public void testRecordEncoding() throws IOException {
+		File file = tempFolder.newFile();
+		BinaryCopyFileWriter writer = new BinaryCopyFileWriter(file);
+		PGHStore tags = new PGHStore();
+		byte[] signature = new byte[11];
+
+		tags.put("highway", "primary");
+
+		try {
+			writer.writeField(7);
+			writer.writeField(123456789012L);
+			writer.writeField("ab");
+			writer.writeField((String) null);
+			writer.writeField(Collections.<Long>emptyList());
+			writer.writeField(Arrays.asList(3L, 4L));
+			writer.writeField(tags);
+			writer.endRecord();
+			writer.complete();
+		} finally {
+			writer.close();
+		}
+
+		try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+			input.readFully(signature);
+			Assert.assertArrayEquals("Incorrect signature.", "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1),
+					signature);
+			Assert.assertEquals("Incorrect flags.", 0, input.readInt());
+			Assert.assertEquals("Incorrect header extension length.", 0, input.readInt());
+
+			Assert.assertEquals("Incorrect field count.", 7, input.readShort());
+
+			Assert.assertEquals("Incorrect int length.", 4, input.readInt());
+			Assert.assertEquals("Incorrect int.", 7, input.readInt());
+
+			Assert.assertEquals("Incorrect long length.", 8, input.readInt());
+			Assert.assertEquals("Incorrect long.", 123456789012L, input.readLong());
+
+			assertText(input, "ab");
+
+			Assert.assertEquals("Incorrect null length.", -1, input.readInt());
+
+			// An empty array has no dimensions.
+			Assert.assertEquals("Incorrect empty array length.", 12, input.readInt());
+			Assert.assertEquals("Incorrect empty array dimensions.", 0, input.readInt());
+			Assert.assertEquals("Incorrect empty array flags.", 0, input.readInt());
+			Assert.assertEquals("Incorrect empty array element type.", 20, input.readInt());
+
+			Assert.assertEquals("Incorrect array length.", 44, input.readInt());
+			Assert.assertEquals("Incorrect array dimensions.", 1, input.readInt());
+			Assert.assertEquals("Incorrect array flags.", 0, input.readInt());
+			Assert.assertEquals("Incorrect array element type.", 20, input.readInt());
+			Assert.assertEquals("Incorrect array size.", 2, input.readInt());
+			Assert.assertEquals("Incorrect array lower bound.", 1, input.readInt());
+			for (long expected = 3; expected <= 4; expected++) {
+				Assert.assertEquals("Incorrect element length.", 8, input.readInt());
+				Assert.assertEquals("Incorrect element.", expected, input.readLong());
+			}
+
+			Assert.assertEquals("Incorrect hstore length.", 26, input.readInt());
+			Assert.assertEquals("Incorrect hstore size.", 1, input.readInt());
+			assertText(input, "highway");
+			assertText(input, "primary");
+
+			Assert.assertEquals("Incorrect trailer.", -1, input.readShort());
+			Assert.assertEquals("Unexpected data after the trailer.", -1, input.read());
+		}
+	}
+}
@@ -5,6 +5,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
@@ -14,7 +15,10 @@ import org.openstreetmap.osmosis.core.container.v0_6.EntityManager;
 import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.task.v0_6.DatasetSink;
 
 
@@ -39,6 +43,40 @@ public class DatasetDriver implements DatasetSink {
 	}
 	
 	
+	private void verifyBatchRetrieval(DatasetContext dsCtx) {
+		Way way;
+		long[] nodeIds;
+		List<Node> nodes;
+		List<Relation> relations;
+		
+		// Retrieve the nodes of a way in a single batch including a node that doesn't exist.
+		way = dsCtx.getWayManager().getEntity(1);
+		nodeIds = new long[way.getWayNodes().size() + 1];
+		for (int i = 0; i < way.getWayNodes().size(); i++) {
+			nodeIds[i] = way.getWayNodes().get(i).getNodeId();
+		}
+		nodeIds[nodeIds.length - 1] = 999;
+		
+		nodes = dsCtx.getNodeManager().getEntities(nodeIds);
+		if (nodes.size() != way.getWayNodes().size()) {
+			throw new OsmosisRuntimeException("Retrieved " + nodes.size() + " nodes for way 1.");
+		}
+		for (int i = 0; i < nodes.size(); i++) {
+			WayNode wayNode = way.getWayNodes().get(i);
+			
+			if (nodes.get(i).getId() != wayNode.getNodeId()) {
+				throw new OsmosisRuntimeException("Node " + wayNode.getNodeId() + " was not retrieved in order.");
+			}
+		}
+		
+		// Relations must be retrieved along with their members.
+		relations = dsCtx.getRelationManager().getEntities(new long[] {1});
+		if (relations.size() != 1 || relations.get(0).getMembers().size() != 3) {
+			throw new OsmosisRuntimeException("Relation 1 was not retrieved with all of its members.");
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -49,6 +87,8 @@ public class DatasetDriver implements DatasetSink {
 			OsmUser user;
 			Node node;
 			
+			verifyBatchRetrieval(dsCtx);
+			
 			// Create the user for edits to be performed under. This is an existing user with an
 			// updated name.
 			user = new OsmUser(10, "user10b");
@@ -6,6 +6,7 @@ import java.io.IOException;
 
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.ChangeWriter;
 import org.openstreetmap.osmosis.testutil.AbstractDataTest;
 
 
@@ -86,6 +87,102 @@ public class PostgreSqlTest extends AbstractDataTest {
 	 */
 	@Test
 	public void testChangeset() throws IOException {
+		verifyChangeset(ChangeWriter.DEFAULT_BATCH_SIZE);
+	}
+	
+	
+	/**
+	 * A test applying a changeset using batches small enough that entities of
+	 * each type span several batches.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testChangesetSmallBatches() throws IOException {
+		verifyChangeset(2);
+	}
+	
+	
+	/**
+	 * A test applying a changeset that moves a node without modifying the ways
+	 * using it, then selecting a bounding box only containing the new node
+	 * location. The ways are only selected if their geometries were rebuilt
+	 * when the database holds way geometry columns.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testChangesetMovedNode() throws IOException {
+		File authFile;
+		File snapshotFile;
+		File changesetFile;
+		File expectedResultFile;
+		File actualResultFile;
+		
+		// Generate input files.
+		authFile = getAuthFile("v0_6/pgsql-authfile.txt");
+		snapshotFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+		changesetFile = dataUtils.createDataFile("v0_6/db-node-move.osc");
+		expectedResultFile = dataUtils.createDataFile("v0_6/db-node-move-expected.osm");
+		actualResultFile = dataUtils.newFile();
+		
+		// Remove all existing data from the database.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--truncate-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Load the database with the snapshot file.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				snapshotFile.getPath(),
+				"--write-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Apply the changeset file to the database.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-change-0.6",
+				changesetFile.getPath(),
+				"--write-pgsql-change-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Select the area around the new node location.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-pgsql-0.6",
+				"authFile=" + authFile.getPath(),
+				"--dataset-bounding-box-0.6",
+				"left=19",
+				"right=21",
+				"top=21",
+				"bottom=19",
+				"completeWays=true",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				actualResultFile.getPath()
+			}
+		);
+		
+		// Validate that the dumped file matches the expected result.
+		dataUtils.compareFiles(expectedResultFile, actualResultFile);
+	}
+	
+	
+	private void verifyChangeset(int batchSize) throws IOException {
 		File authFile;
 		File snapshotFile;
 		File changesetFile;
@@ -127,6 +224,7 @@ public class PostgreSqlTest extends AbstractDataTest {
 				changesetFile.getPath(),
 				"--write-pgsql-change-0.6",
 				"keepInvalidWays=false", 
+				"batchSize=" + batchSize,
 				"authFile=" + authFile.getPath()
 			}
 		);
@@ -276,6 +374,65 @@ public class PostgreSqlTest extends AbstractDataTest {
 		dataUtils.compareFiles(inputFile, outputFile);
 	}
 
+
+	/**
+	 * A test loading an osm file into a pgsql database, then reading it via a
+	 * dataset bounding box split into tiles selected concurrently and
+	 * verifying the output is as expected.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testDatasetBoundingBoxTiled() throws IOException {
+		File authFile;
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		authFile = getAuthFile("v0_6/pgsql-authfile.txt");
+		inputFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Remove all existing data from the database.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--truncate-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Load the database with a dataset.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--write-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Dump the database to an osm file using several tiles.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-pgsql-0.6",
+				"authFile=" + authFile.getPath(),
+				"bboxThreads=3",
+				"--dataset-bounding-box-0.6",
+				"completeWays=true",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+
 	/**
 	 * A test loading an osm file into a pgsql database with a schema, then dumping it
 	 * again and verifying that it is identical.
@@ -0,0 +1,59 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+
+
+/**
+ * Tests the entity cache.
+ */
+public class EntityCacheTest {
+
+	private Node buildNode(long id) {
+		return new Node(new CommonEntityData(id, 1, new Date(), OsmUser.NONE, 1), 0, 0);
+	}
+
+
+	/**
+	 * Verifies that the least recently used entity is discarded once the cache is full.
+	 */
+	@Test
+	public void testEviction() {
+		EntityCache<Node> cache = new EntityCache<Node>(2);
+
+		cache.put(buildNode(1));
+		cache.put(buildNode(2));
+
+		// Access node 1 so that node 2 becomes the least recently used.
+		Assert.assertNotNull("Node 1 should be cached.", cache.get(1));
+		cache.put(buildNode(3));
+
+		Assert.assertEquals("Incorrect cache size.", 2, cache.size());
+		Assert.assertNotNull("Node 1 should still be cached.", cache.get(1));
+		Assert.assertNull("Node 2 should have been discarded.", cache.get(2));
+		Assert.assertNotNull("Node 3 should be cached.", cache.get(3));
+	}
+
+
+	/**
+	 * Verifies that entities can be removed and that cached entities are read-only.
+	 */
+	@Test
+	public void testRemoveAndReadOnly() {
+		EntityCache<Node> cache = new EntityCache<Node>(10);
+		Node node = buildNode(1);
+
+		cache.put(node);
+		Assert.assertTrue("Cached entities should be read-only.", node.isReadOnly());
+
+		cache.remove(1);
+		Assert.assertNull("Node 1 should have been removed.", cache.get(1));
+		Assert.assertEquals("Incorrect cache size.", 0, cache.size());
+	}
+}
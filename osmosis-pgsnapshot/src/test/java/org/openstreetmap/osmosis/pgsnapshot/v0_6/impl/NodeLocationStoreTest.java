@@ -1,12 +1,17 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.openstreetmap.osmosis.pgsnapshot.common.InMemoryNodeLocationStore;
+import org.openstreetmap.osmosis.pgsnapshot.common.MappedNodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocation;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStore;
+import org.openstreetmap.osmosis.pgsnapshot.common.PartitionedFillNodeLocationStore;
 import org.openstreetmap.osmosis.pgsnapshot.common.PersistentNodeLocationStore;
 import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
 
@@ -76,4 +81,117 @@ public class NodeLocationStoreTest {
 	public void testInMemory() {
 		testStoreImplementation(new InMemoryNodeLocationStore());
 	}
+	
+	
+	/**
+	 * Tests the memory mapped implementation.
+	 */
+	@Test
+	public void testMappedTempFile() {
+		testStoreImplementation(new MappedNodeLocationStore());
+	}
+	
+	
+	/**
+	 * Tests filling the memory mapped implementation from multiple threads
+	 * with nodes out of order, in different segments, and at the origin.
+	 * 
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testMappedTempFileParallelFill() throws InterruptedException {
+		final MappedNodeLocationStore store = new MappedNodeLocationStore();
+		List<Thread> threads = new ArrayList<Thread>();
+		
+		try {
+			for (int t = 0; t < 4; t++) {
+				final int threadIndex = t;
+				
+				threads.add(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						// Each thread writes every fourth node in descending order.
+						for (int i = 9999 - threadIndex; i >= 0; i -= 4) {
+							store.addLocation(i * 3, new NodeLocation(i / 100.0 - 50, 50 - i / 100.0));
+						}
+					}
+				}));
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			
+			// A node in a later segment leaves the segments in between unmapped.
+			store.addLocation(1L << 29, new NodeLocation(0, 0));
+			
+			for (int i = 0; i < 10000; i++) {
+				NodeLocation location = store.getNodeLocation(i * 3);
+				
+				Assert.assertTrue("The node location should be valid.", location.isValid());
+				Assert.assertEquals("The longitude is incorrect.", i / 100.0 - 50, location.getLongitude(), 1E-7);
+				Assert.assertEquals("The latitude is incorrect.", 50 - i / 100.0, location.getLatitude(), 1E-7);
+				Assert.assertFalse("The node location should be invalid.", store.getNodeLocation(i * 3 + 1).isValid());
+			}
+			
+			Assert.assertTrue("The origin location should be valid.", store.getNodeLocation(1L << 29).isValid());
+			Assert.assertFalse("The node location should be invalid.", store.getNodeLocation(1L << 28).isValid());
+			Assert.assertFalse("The node location should be invalid.", store.getNodeLocation(1L << 40).isValid());
+			Assert.assertFalse("The node location should be invalid.", store.getNodeLocation(-1).isValid());
+			
+		} finally {
+			store.close();
+		}
+	}
+	
+	
+	private long getPartitionedNodeId(int index) {
+		return (index % 3) * (1L << 20) + index * 3L;
+	}
+	
+	
+	/**
+	 * Tests filling the memory mapped implementation using several partition
+	 * threads, with nodes spread across partitions, replaced nodes, and reads
+	 * interleaved with writes.
+	 */
+	@Test
+	public void testMappedTempFilePartitionedFill() {
+		NodeLocationStore store = new PartitionedFillNodeLocationStore(new MappedNodeLocationStore(), 3);
+		
+		try {
+			// Consecutive nodes belong to different partitions.
+			for (int i = 0; i < 30000; i++) {
+				store.addLocation(getPartitionedNodeId(i), new NodeLocation(i / 1000.0, -i / 1000.0));
+			}
+			store.addLocation(getPartitionedNodeId(7), new NodeLocation(1, 2));
+			
+			Assert.assertEquals("The replaced longitude is incorrect.", 1,
+					store.getNodeLocation(getPartitionedNodeId(7)).getLongitude(), 1E-7);
+			
+			// Locations added after a read must be visible to later reads.
+			store.addLocation(5, new NodeLocation(3, 4));
+			Assert.assertEquals("The latitude is incorrect.", 4, store.getNodeLocation(5).getLatitude(), 1E-7);
+			
+			for (int i = 0; i < 30000; i++) {
+				NodeLocation location;
+				
+				if (i == 7) {
+					continue;
+				}
+				location = store.getNodeLocation(getPartitionedNodeId(i));
+				Assert.assertTrue("The node location should be valid.", location.isValid());
+				Assert.assertEquals("The longitude is incorrect.", i / 1000.0, location.getLongitude(), 1E-7);
+				Assert.assertEquals("The latitude is incorrect.", -i / 1000.0, location.getLatitude(), 1E-7);
+				Assert.assertFalse("The node location should be invalid.",
+						store.getNodeLocation(getPartitionedNodeId(i) + 1).isValid());
+			}
+			
+		} finally {
+			store.close();
+		}
+	}
 }
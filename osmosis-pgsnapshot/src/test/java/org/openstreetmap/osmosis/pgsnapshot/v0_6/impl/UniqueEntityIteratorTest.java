@@ -0,0 +1,44 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.store.ReleasableAdaptorForIterator;
+
+
+/**
+ * Tests the unique entity iterator.
+ */
+public class UniqueEntityIteratorTest {
+
+	private Node buildNode(long id) {
+		return new Node(new CommonEntityData(id, 1, new Date(), OsmUser.NONE, 1), 0, 0);
+	}
+
+
+	/**
+	 * Verifies that repeated entities are only returned once.
+	 */
+	@Test
+	public void testDuplicatesRemoved() {
+		List<Node> nodes = Arrays.asList(
+				buildNode(1), buildNode(1), buildNode(2), buildNode(3), buildNode(3), buildNode(3));
+		UniqueEntityIterator<Node> iterator = new UniqueEntityIterator<Node>(
+				new ReleasableAdaptorForIterator<Node>(nodes.iterator()));
+
+		for (long expectedId = 1; expectedId <= 3; expectedId++) {
+			Assert.assertTrue("Missing node " + expectedId + ".", iterator.hasNext());
+			Assert.assertEquals("Incorrect node id.", expectedId, iterator.next().getId());
+		}
+		Assert.assertFalse("Unexpected extra nodes.", iterator.hasNext());
+
+		iterator.close();
+	}
+}
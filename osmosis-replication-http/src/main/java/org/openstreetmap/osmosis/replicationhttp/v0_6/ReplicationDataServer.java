@@ -9,6 +9,8 @@ import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.task.common.RunnableTask;
 import org.openstreetmap.osmosis.replication.common.ServerStateReader;
 import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.ReplicationDataServerChannelPipelineFactory;
+import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.ReplicationFileCache;
+import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.ReplicationStateIndex;
 import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.SequenceClient;
 import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.SequenceClientRestartManager;
 import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.SequenceNumberClientChannelPipelineFactory;
@@ -25,6 +27,9 @@ import org.openstreetmap.osmosis.replicationhttp.v0_6.impl.SequenceServer;
  */
 public class ReplicationDataServer implements RunnableTask {
 
+	private static final int CACHE_FILE_COUNT = 128;
+	private static final long CACHE_BYTE_COUNT = 128 * 1024 * 1024;
+
 	private int notificationPort;
 	private File dataDirectory;
 	private int port;
@@ -68,15 +73,26 @@ public class ReplicationDataServer implements RunnableTask {
 
 	@Override
 	public void run() {
+		// Create the index used to find sequence numbers by date. It is shared
+		// by all client connections.
+		final ReplicationStateIndex stateIndex = new ReplicationStateIndex(dataDirectory);
+
+		// Create the cache of recent replication files. Most clients are
+		// following the latest sequence so each file only needs to be read
+		// from disk once.
+		ReplicationFileCache fileCache = new ReplicationFileCache(CACHE_FILE_COUNT, CACHE_BYTE_COUNT);
+
 		// Instantiate the replication data server.
 		final SequenceServer server = new SequenceServer(port, new ReplicationDataServerChannelPipelineFactory(
-				dataDirectory));
+				dataDirectory, stateIndex, fileCache));
 
 		// Configure a listener to send sequence number events from the
 		// client to the server.
 		SequenceNumberClientListener numberListener = new SequenceNumberClientListener() {
 			@Override
 			public void notifySequenceNumber(long sequenceNumber) {
+				// Add the new state to the index before clients can request it.
+				stateIndex.getTimestamp(sequenceNumber);
 				server.update(sequenceNumber);
 			}
 		};
@@ -106,6 +122,7 @@ public class ReplicationDataServer implements RunnableTask {
 
 		} finally {
 			server.stop();
+			stateIndex.close();
 		}
 	}
 }
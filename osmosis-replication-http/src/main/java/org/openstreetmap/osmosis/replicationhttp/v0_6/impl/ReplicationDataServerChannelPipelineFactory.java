@@ -12,6 +12,8 @@ import java.io.File;
 public class ReplicationDataServerChannelPipelineFactory extends SequenceServerChannelPipelineFactory {
 	
 	private File dataDirectory;
+	private ReplicationStateIndex stateIndex;
+	private ReplicationFileCache fileCache;
 
 
 	/**
@@ -19,14 +21,23 @@ public class ReplicationDataServerChannelPipelineFactory extends SequenceServerC
 	 * 
 	 * @param dataDirectory
 	 *            The location of the replication data files.
+	 * @param stateIndex
+	 *            The index of replication state timestamps shared by all
+	 *            connections.
+	 * @param fileCache
+	 *            The cache of recently sent replication files shared by all
+	 *            connections.
 	 */
-	public ReplicationDataServerChannelPipelineFactory(File dataDirectory) {
+	public ReplicationDataServerChannelPipelineFactory(File dataDirectory, ReplicationStateIndex stateIndex,
+			ReplicationFileCache fileCache) {
 		this.dataDirectory = dataDirectory;
+		this.stateIndex = stateIndex;
+		this.fileCache = fileCache;
 	}
 
 
 	@Override
 	protected SequenceServerHandler createHandler(SequenceServerControl control) {
-		return new ReplicationDataServerHandler(control, dataDirectory);
+		return new ReplicationDataServerHandler(control, dataDirectory, stateIndex, fileCache);
 	}
 }
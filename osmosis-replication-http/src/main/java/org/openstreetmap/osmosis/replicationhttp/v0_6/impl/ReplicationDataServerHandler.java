@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -23,17 +22,15 @@ import java.util.logging.Logger;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.WriteCompletionEvent;
-import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.channel.FileRegion;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.util.CharsetUtil;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.util.PropertiesPersister;
 import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
-import org.openstreetmap.osmosis.replication.common.ReplicationState;
 
 
 /**
@@ -46,14 +43,15 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 
 	private static final Logger LOG = Logger.getLogger(ReplicationDataServerHandler.class.getName());
 	private static final String REQUEST_DATE_FORMAT = "yyyy-MM-dd-HH-mm-ss";
-	private static final int CHUNK_SIZE = 4096;
+	private static final int CACHED_SEQUENCE_COUNT = 60;
+	private static final ChannelBuffer CHUNK_TRAILER = ChannelBuffers.unmodifiableBuffer(
+			ChannelBuffers.copiedBuffer("\r\n", CharsetUtil.UTF_8));
 
 	private File dataDirectory;
+	private ReplicationStateIndex stateIndex;
+	private ReplicationFileCache fileCache;
 	private ReplicationSequenceFormatter sequenceFormatter;
-	private FileChannel chunkedFileChannel;
-	private boolean fileSizeSent;
 	private boolean includeData;
-	private ChannelFuture sequenceFuture;
 
 
 	/**
@@ -63,11 +61,19 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	 *            Provides the Netty handlers with access to the controller.
 	 * @param dataDirectory
 	 *            The directory containing the replication data files.
+	 * @param stateIndex
+	 *            The index of replication state timestamps in the data
+	 *            directory.
+	 * @param fileCache
+	 *            The cache of recently sent replication files.
 	 */
-	public ReplicationDataServerHandler(SequenceServerControl control, File dataDirectory) {
+	public ReplicationDataServerHandler(SequenceServerControl control, File dataDirectory,
+			ReplicationStateIndex stateIndex, ReplicationFileCache fileCache) {
 		super(control);
 
 		this.dataDirectory = dataDirectory;
+		this.stateIndex = stateIndex;
+		this.fileCache = fileCache;
 
 		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
 	}
@@ -92,21 +98,13 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	}
 
 
-	private ReplicationState getReplicationState(long sequenceNumber) {
-		PropertiesPersister persister = new PropertiesPersister(getStateFile(sequenceNumber));
-		ReplicationState state = new ReplicationState();
-		state.load(persister.loadMap());
-
-		return state;
-	}
-
-
 	/**
 	 * Search through the replication state records and find the nearest
 	 * replication number with a timestamp earlier or equal to the requested
 	 * date. It is not sufficient to find the minimum known sequence record with
 	 * a timestamp greater than the requested date because there may be missing
-	 * replication records in between.
+	 * replication records in between. Timestamps are obtained from the state
+	 * index so the state files are only read the first time they're used.
 	 * 
 	 * @param lastDate
 	 *            The last date known by the client.
@@ -115,12 +113,13 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	private long getNextSequenceNumberByDate(Date lastDate) {
 		long startBound = 0;
 		long endBound = getControl().getLatestSequenceNumber();
+		Date endTimestamp = stateIndex.getTimestamp(endBound);
 
 		// If the requested date is greater than or equal to the latest known
 		// timestamp we should return our latest sequence number so that the
 		// client will start receiving all new records as they arrive with
 		// possibly some duplicated change records.
-		if (lastDate.compareTo(getReplicationState(endBound).getTimestamp()) >= 0) {
+		if (endTimestamp != null && lastDate.compareTo(endTimestamp) >= 0) {
 			return endBound;
 		}
 
@@ -129,17 +128,18 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 		while ((endBound - startBound) > 1) {
 			// Calculate the current midpoint.
 			long midPoint = startBound + ((endBound - startBound) / 2);
+			Date midTimestamp = stateIndex.getTimestamp(midPoint);
 
 			// If the midpoint doesn't exist we need to reset the start bound to
 			// the midpoint and search again.
-			if (!getStateFile(midPoint).exists()) {
+			if (midTimestamp == null) {
 				startBound = midPoint;
 				continue;
 			}
 
 			// If the midpoint timestamp is greater we search in the lower half,
 			// otherwise the higher half.
-			int comparison = lastDate.compareTo(getReplicationState(midPoint).getTimestamp());
+			int comparison = lastDate.compareTo(midTimestamp);
 			if (comparison == 0) {
 				// We have an exact match so stop processing now.
 				return midPoint;
@@ -161,15 +161,20 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 		// We only have one possibility remaining which is the start bound. This
 		// is the requested record if it exists and has a timestamp less than or
 		// equal to that requested.
-		if (getStateFile(startBound).exists()
-				&& lastDate.compareTo(getReplicationState(startBound).getTimestamp()) >= 0) {
-			return startBound;
-		} else {
-			// We cannot find any replication records with an early enough date.
-			// This typically means that replication records for that time
-			// period either no longer exist or never existed.
-			throw new ResourceGoneException();
+		Date startTimestamp = stateIndex.getTimestamp(startBound);
+		if (startTimestamp != null && lastDate.compareTo(startTimestamp) >= 0) {
+			// Old replication records may have been removed since they were
+			// indexed.
+			if (getStateFile(startBound).exists()) {
+				return startBound;
+			}
+			stateIndex.remove(startBound);
 		}
+
+		// We cannot find any replication records with an early enough date.
+		// This typically means that replication records for that time
+		// period either no longer exist or never existed.
+		throw new ResourceGoneException();
 	}
 
 
@@ -182,89 +187,81 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	}
 
 
-	private ChannelBuffer readFromFile(FileChannel fileChannel, int bytesToRead) {
-		try {
-			// Allocate a buffer for the data to be read.
-			byte[] rawBuffer = new byte[bytesToRead];
-
-			// Copy data into the buffer using NIO.
-			ByteBuffer nioBuffer = ByteBuffer.wrap(rawBuffer);
-			for (int bytesRead = 0; bytesRead < bytesToRead;) {
-				int lastBytesRead = fileChannel.read(nioBuffer);
-
-				// We always expect to read data.
-				if (lastBytesRead < 0) {
-					throw new OsmosisRuntimeException("Unexpectedly reached the end of the replication data file");
-				}
-				if (lastBytesRead == 0) {
-					throw new OsmosisRuntimeException("Last read of the replication data file returned 0 bytes");
-				}
-
-				bytesRead += lastBytesRead;
-			}
-
-			// Create and return a Netty buffer.
-			return ChannelBuffers.wrappedBuffer(rawBuffer);
+	private ChannelBuffer buildChunkPrefix(long fileSize) {
+		// The chunk contains a header with the file size followed by the file
+		// contents. The HTTP chunk framing is written here rather than by the
+		// HTTP encoder so that file contents can be sent without copying.
+		String fileHeader = Long.toString(fileSize) + "\r\n";
+		String chunkHeader = Long.toHexString(fileHeader.length() + fileSize) + "\r\n";
 
-		} catch (IOException e) {
-			throw new OsmosisRuntimeException("Unable to read from the replication data file", e);
-		}
+		return ChannelBuffers.copiedBuffer(chunkHeader + fileHeader, CharsetUtil.UTF_8);
 	}
 
 
-	private ChannelBuffer loadFile(File file) {
-		try (FileChannel fileChannel = openFileChannel(file)) {
-			if (fileChannel.size() > Integer.MAX_VALUE) {
-				throw new OsmosisRuntimeException("Maximum file size supported is " + Integer.MAX_VALUE + " bytes");
-			}
-
-			// Determine the size of the file.
-			int fileSize = (int) fileChannel.size();
-
-			// Read the entire file.
-			ChannelBuffer buffer = readFromFile(fileChannel, fileSize);
+	/**
+	 * Writes a file to the channel as a single HTTP chunk. Recent files are
+	 * sent from the shared cache, all others are transferred directly from
+	 * disk to the socket.
+	 * 
+	 * @param ctx
+	 *            The channel handler context.
+	 * @param future
+	 *            The future to be notified when the write completes.
+	 * @param file
+	 *            The file to be written.
+	 * @param useCache
+	 *            If true, the file will be read via the cache.
+	 */
+	private void writeFile(ChannelHandlerContext ctx, ChannelFuture future, File file, boolean useCache) {
+		ChannelBuffer content = null;
 
-			// We no longer need access to the file.
-			fileChannel.close();
+		if (useCache) {
+			content = fileCache.getFile(file);
+		}
 
-			return buffer;
+		if (content != null) {
+			Channels.write(ctx, future,
+					ChannelBuffers.wrappedBuffer(true, buildChunkPrefix(content.readableBytes()), content,
+							CHUNK_TRAILER.duplicate()));
+			return;
+		}
 
+		FileChannel fileChannel = openFileChannel(file);
+		long fileSize;
+		try {
+			fileSize = fileChannel.size();
 		} catch (IOException e) {
+			closeFileChannel(fileChannel);
 			throw new OsmosisRuntimeException("Unable to read from file " + file, e);
 		}
+
+		Channels.write(ctx, Channels.future(ctx.getChannel()), buildChunkPrefix(fileSize));
+		if (fileSize > 0) {
+			// The file must be closed even if the channel is closed before the
+			// region is written.
+			final FileRegion region = new DefaultFileRegion(fileChannel, 0, fileSize);
+			ChannelFuture regionFuture = Channels.future(ctx.getChannel());
+			regionFuture.addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(ChannelFuture completedFuture) {
+					region.releaseExternalResources();
+				}
+			});
+			Channels.write(ctx, regionFuture, region);
+		} else {
+			closeFileChannel(fileChannel);
+		}
+		Channels.write(ctx, future, CHUNK_TRAILER.duplicate());
 	}
 
 
-	private ChannelBuffer getFileChunk() {
+	private void closeFileChannel(FileChannel fileChannel) {
 		try {
-			// Determine how many bytes are left in the file.
-			long remaining = chunkedFileChannel.size() - chunkedFileChannel.position();
-
-			// We will only send up to our maximum chunk size.
-			if (remaining > CHUNK_SIZE) {
-				remaining = CHUNK_SIZE;
-			}
-
-			// Read the next data for the next chunk.
-			ChannelBuffer buffer = readFromFile(chunkedFileChannel, (int) remaining);
-
-			// Close the file if we've reached the end.
-			if (chunkedFileChannel.position() >= chunkedFileChannel.size()) {
-				chunkedFileChannel.close();
-				chunkedFileChannel = null;
-			}
-
-			return buffer;
-
+			fileChannel.close();
 		} catch (IOException e) {
-			throw new OsmosisRuntimeException("Unable to read from the replication data file", e);
+			LOG.log(Level.WARNING, "Unable to close the replication data file.", e);
 		}
 	}
-	
-	
-	private ChannelBuffer buildChunkHeader(long chunkSize) {
-		return ChannelBuffers.copiedBuffer(Long.toString(chunkSize) + "\r\n", CharsetUtil.UTF_8);
-	}
 
 
 	@Override
@@ -361,100 +358,24 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 
 	@Override
 	protected void writeSequence(ChannelHandlerContext ctx, ChannelFuture future, long sequenceNumber) {
-		// We do not support sending new replication data until the previous
-		// send has completed.
-		if (chunkedFileChannel != null) {
-			throw new OsmosisRuntimeException(
-					"We cannot send new replication data until the previous write has completed");
-		}
-		
 		if (LOG.isLoggable(Level.FINEST)) {
 			LOG.finest("Sequence being written, includeData=" + includeData + ", sequenceNumber="
 					+ sequenceNumber);
 		}
-		
-		// We must save the future to attach to the final write.
-		sequenceFuture = future;
 
-		// Get the name of the replication data file.
-		File stateFile = getStateFile(sequenceNumber);
-		File dataFile = getDataFile(sequenceNumber);
-
-		// Load the contents of the state file.
-		ChannelBuffer stateFileBuffer = loadFile(stateFile);
-		
-		// Add a chunk length header.
-		stateFileBuffer = ChannelBuffers.wrappedBuffer(buildChunkHeader(stateFileBuffer.readableBytes()),
-				stateFileBuffer);
+		// Only recent sequences are cached, clients catching up on old data
+		// would otherwise displace the sequences that most clients need.
+		boolean useCache = getControl().getLatestSequenceNumber() - sequenceNumber < CACHED_SEQUENCE_COUNT;
 
 		// Only include replication data if initially requested by the client
-		// and if this is not sequence 0.
+		// and if this is not sequence 0. Netty performs writes in order so the
+		// data can be queued immediately after the state, the future is
+		// attached to the final write.
 		if (includeData && sequenceNumber > 0) {
-			// Open the data file read for sending.
-			chunkedFileChannel = openFileChannel(dataFile);
-			fileSizeSent = false;
-		}
-
-		/*
-		 * Send the state file to the client. If replication data is to be sent
-		 * we will continue when we receive completion information via the
-		 * writeComplete method. We must create a new future now if we have more
-		 * data coming because we don't want the future of the current event to
-		 * fire until we're completely finished processing.
-		 */
-		ChannelFuture writeFuture;
-		if (chunkedFileChannel != null) {
-			writeFuture = Channels.future(ctx.getChannel());
+			writeFile(ctx, Channels.future(ctx.getChannel()), getStateFile(sequenceNumber), useCache);
+			writeFile(ctx, future, getDataFile(sequenceNumber), useCache);
 		} else {
-			writeFuture = sequenceFuture;
-		}
-		Channels.write(ctx, writeFuture, new DefaultHttpChunk(stateFileBuffer));
-	}
-
-
-	@Override
-	public void writeComplete(ChannelHandlerContext ctx, WriteCompletionEvent e) throws Exception {
-		if (chunkedFileChannel != null) {
-			// We have an open file channel so we are still sending replication
-			// data.
-			ChannelBuffer buffer;
-			ChannelFuture future;
-			if (!fileSizeSent) {
-				// Send a chunk header containing the size of the file.
-				ChannelBuffer fileSizeBuffer = buildChunkHeader(chunkedFileChannel.size());
-				fileSizeSent = true;
-				future = Channels.future(ctx.getChannel());
-				buffer = fileSizeBuffer;
-			} else {
-				// Send the next chunk to the client.
-				buffer = getFileChunk();
-				if (chunkedFileChannel != null) {
-					future = Channels.future(ctx.getChannel());
-				} else {
-					// This is the last write for this sequence so attach the original future.
-					future = sequenceFuture;
-				}
-			}
-			
-			// Write the data to the channel.
-			Channels.write(ctx, future, new DefaultHttpChunk(buffer));
-		} else {
-			super.writeComplete(ctx, e);
-		}
-	}
-
-
-	@Override
-	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-		// Close the in-progress chunk file channel if it exists.
-		if (chunkedFileChannel != null) {
-			try {
-				chunkedFileChannel.close();
-			} catch (IOException ex) {
-				LOG.log(Level.WARNING, "Unable to close the replication data file.", ex);
-			}
-			chunkedFileChannel = null;
+			writeFile(ctx, future, getStateFile(sequenceNumber), useCache);
 		}
-		super.channelClosed(ctx, e);
 	}
 }
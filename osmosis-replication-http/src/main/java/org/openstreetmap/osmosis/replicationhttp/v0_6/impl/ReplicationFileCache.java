@@ -0,0 +1,140 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Holds the contents of recently requested replication files in memory so
+ * that they can be sent to many clients without reading them from disk for
+ * each client. Replication files never change once written which allows them
+ * to be cached without checking for modifications. The least recently used
+ * files are discarded when the cache reaches its size limits.
+ * <p>
+ * Files are held in direct buffers which allows Netty to write them to a
+ * socket without copying them first. This class is thread safe.
+ * </p>
+ */
+public class ReplicationFileCache {
+
+	private int maxFileCount;
+	private long maxByteCount;
+	private long maxFileSize;
+	private Map<File, ChannelBuffer> files;
+	private long byteCount;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param maxFileCount
+	 *            The maximum number of files to hold in memory.
+	 * @param maxByteCount
+	 *            The maximum total size of the files held in memory. Files
+	 *            larger than a quarter of this size are never cached.
+	 */
+	public ReplicationFileCache(int maxFileCount, long maxByteCount) {
+		this.maxFileCount = maxFileCount;
+		this.maxByteCount = maxByteCount;
+
+		maxFileSize = maxByteCount / 4;
+		files = new LinkedHashMap<File, ChannelBuffer>(16, 0.75f, true);
+	}
+
+
+	private ChannelBuffer loadFile(File file) {
+		try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+			long fileSize = fileChannel.size();
+			ByteBuffer buffer;
+
+			// Leave large files to be streamed from disk.
+			if (fileSize > maxFileSize) {
+				return null;
+			}
+
+			buffer = ByteBuffer.allocateDirect((int) fileSize);
+			while (buffer.hasRemaining()) {
+				if (fileChannel.read(buffer) < 0) {
+					throw new OsmosisRuntimeException("Unexpectedly reached the end of file " + file);
+				}
+			}
+			buffer.flip();
+
+			return ChannelBuffers.wrappedBuffer(buffer);
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read from file " + file, e);
+		}
+	}
+
+
+	private synchronized ChannelBuffer getCachedFile(File file) {
+		return files.get(file);
+	}
+
+
+	private synchronized void addFile(File file, ChannelBuffer buffer) {
+		// Another thread may have loaded the same file in the meantime.
+		if (files.containsKey(file)) {
+			return;
+		}
+
+		files.put(file, buffer);
+		byteCount += buffer.readableBytes();
+
+		// Remove the least recently used files until we are within limits.
+		Iterator<ChannelBuffer> iterator = files.values().iterator();
+		while (files.size() > maxFileCount || byteCount > maxByteCount) {
+			byteCount -= iterator.next().readableBytes();
+			iterator.remove();
+		}
+	}
+
+
+	/**
+	 * Returns the contents of the specified file, loading it into the cache if
+	 * it isn't already available. The returned buffer shares its content with
+	 * the cache but has its own indexes so it may be consumed by the caller.
+	 *
+	 * @param file
+	 *            The file to be returned.
+	 * @return The file contents, or null if the file is too large to be
+	 *         cached.
+	 */
+	public ChannelBuffer getFile(File file) {
+		ChannelBuffer buffer = getCachedFile(file);
+
+		// Load the file outside the lock so that other clients are not held up
+		// by disk access.
+		if (buffer == null) {
+			buffer = loadFile(file);
+			if (buffer == null) {
+				return null;
+			}
+			addFile(file, buffer);
+		}
+
+		return buffer.duplicate();
+	}
+
+
+	/**
+	 * Returns the number of files currently held in memory.
+	 *
+	 * @return The number of files.
+	 */
+	public synchronized int getFileCount() {
+		return files.size();
+	}
+}
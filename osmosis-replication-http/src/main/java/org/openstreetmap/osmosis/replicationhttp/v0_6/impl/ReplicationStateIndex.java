@@ -0,0 +1,281 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+
+
+/**
+ * Maintains an in-memory index of the timestamps of the replication states in
+ * a replication data directory. Each state file is only parsed the first time
+ * its timestamp is requested, after which the timestamp is held in memory and
+ * written to an index file so that it is available after a restart. The index
+ * file may be deleted at any time and will be rebuilt as states are requested.
+ * <p>
+ * States that don't exist are only remembered in memory for a short period
+ * because a state may be requested before it has been published.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class ReplicationStateIndex implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(ReplicationStateIndex.class.getName());
+
+	/**
+	 * The name of the index file within the replication data directory.
+	 */
+	public static final String INDEX_FILE_NAME = "replicationStateIndex.bin";
+
+	/**
+	 * Identifies the index file format, it is written in the header of the
+	 * file.
+	 */
+	private static final int INDEX_FORMAT = 0x4F534902;
+	private static final int HEADER_SIZE = 4;
+	private static final int ENTRY_SIZE = 4;
+
+	/**
+	 * The entry value for a state that hasn't been loaded yet.
+	 */
+	private static final int UNKNOWN = 0;
+
+	/**
+	 * The default number of milliseconds to remember that a state doesn't
+	 * exist before checking the data directory again.
+	 */
+	private static final long DEFAULT_MISSING_RETRY_INTERVAL = 60000;
+
+	/**
+	 * Larger sequence numbers are read from the data directory every time.
+	 */
+	private static final long MAX_INDEXED_SEQUENCE = Integer.MAX_VALUE - HEADER_SIZE;
+
+	private File dataDirectory;
+	private ReplicationSequenceFormatter sequenceFormatter;
+	private File indexFile;
+	private FileChannel indexChannel;
+	private ByteBuffer entryBuffer;
+	/**
+	 * The timestamp of each state in seconds since the epoch, stored as an
+	 * unsigned integer, or UNKNOWN.
+	 */
+	private int[] entries;
+	/**
+	 * The time each state was last found not to exist, keyed by sequence
+	 * number.
+	 */
+	private Map<Long, Long> missingTimes;
+	private long missingRetryInterval;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param dataDirectory
+	 *            The directory containing the replication state files. The
+	 *            index file is stored in this directory.
+	 */
+	public ReplicationStateIndex(File dataDirectory) {
+		this(dataDirectory, DEFAULT_MISSING_RETRY_INTERVAL);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param dataDirectory
+	 *            The directory containing the replication state files. The
+	 *            index file is stored in this directory.
+	 * @param missingRetryInterval
+	 *            The number of milliseconds to remember that a state doesn't
+	 *            exist before checking the data directory again.
+	 */
+	public ReplicationStateIndex(File dataDirectory, long missingRetryInterval) {
+		this.dataDirectory = dataDirectory;
+		this.missingRetryInterval = missingRetryInterval;
+
+		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
+		indexFile = new File(dataDirectory, INDEX_FILE_NAME);
+		entryBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+		entries = new int[1024];
+		missingTimes = new HashMap<Long, Long>();
+
+		openIndexFile();
+	}
+
+
+	private void openIndexFile() {
+		try {
+			RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+			int entryCount;
+			ByteBuffer buffer;
+
+			indexChannel = file.getChannel();
+
+			// Discard the existing index if it isn't recognised.
+			if (indexChannel.size() < HEADER_SIZE || file.readInt() != INDEX_FORMAT) {
+				indexChannel.truncate(0);
+				file.seek(0);
+				file.writeInt(INDEX_FORMAT);
+				return;
+			}
+
+			entryCount = (int) Math.min((indexChannel.size() - HEADER_SIZE) / ENTRY_SIZE, MAX_INDEXED_SEQUENCE);
+			buffer = ByteBuffer.allocate(entryCount * ENTRY_SIZE);
+			while (buffer.hasRemaining()) {
+				if (indexChannel.read(buffer, HEADER_SIZE + buffer.position()) < 0) {
+					break;
+				}
+			}
+			buffer.flip();
+
+			ensureCapacity(entryCount);
+			buffer.asIntBuffer().get(entries, 0, buffer.remaining() / ENTRY_SIZE);
+
+		} catch (IOException e) {
+			// The index is an optimisation so we continue without persistence.
+			LOG.log(Level.WARNING, "Unable to open the replication state index file " + indexFile
+					+ ", the index will be held in memory only.", e);
+			closeIndexFile();
+		}
+	}
+
+
+	private void closeIndexFile() {
+		if (indexChannel != null) {
+			try {
+				indexChannel.close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Unable to close the replication state index file " + indexFile + ".", e);
+			}
+			indexChannel = null;
+		}
+	}
+
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(capacity, entries.length * 2));
+		}
+	}
+
+
+	private void writeEntry(int sequenceNumber, int entry) {
+		if (indexChannel != null) {
+			try {
+				entryBuffer.clear();
+				entryBuffer.putInt(entry);
+				entryBuffer.flip();
+				indexChannel.write(entryBuffer, HEADER_SIZE + (long) sequenceNumber * ENTRY_SIZE);
+
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Unable to write to the replication state index file " + indexFile
+						+ ", the index will be held in memory only.", e);
+				closeIndexFile();
+			}
+		}
+	}
+
+
+	private Date loadTimestamp(long sequenceNumber) {
+		File stateFile = new File(dataDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".state.txt"));
+		Long missingTime;
+		long now;
+
+		// Avoid checking the data directory repeatedly for a state recently
+		// found not to exist.
+		now = System.currentTimeMillis();
+		missingTime = missingTimes.get(sequenceNumber);
+		if (missingTime != null && now - missingTime < missingRetryInterval) {
+			return null;
+		}
+
+		if (!stateFile.exists()) {
+			missingTimes.put(sequenceNumber, now);
+			return null;
+		}
+		missingTimes.remove(sequenceNumber);
+
+		return new ReplicationState(new PropertiesPersister(stateFile).loadMap()).getTimestamp();
+	}
+
+
+	/**
+	 * Returns the timestamp of the specified replication state. The state file
+	 * is only read if the timestamp isn't already indexed.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 * @return The timestamp, or null if the state doesn't exist.
+	 */
+	public synchronized Date getTimestamp(long sequenceNumber) {
+		int index;
+		int entry;
+		Date timestamp;
+
+		if (sequenceNumber < 0 || sequenceNumber > MAX_INDEXED_SEQUENCE) {
+			return loadTimestamp(sequenceNumber);
+		}
+
+		index = (int) sequenceNumber;
+		ensureCapacity(index + 1);
+
+		entry = entries[index];
+		if (entry != UNKNOWN) {
+			return new Date(Integer.toUnsignedLong(entry) * 1000);
+		}
+
+		// Only states that exist are indexed, a missing state may be published
+		// later.
+		timestamp = loadTimestamp(sequenceNumber);
+		if (timestamp != null) {
+			// Replication timestamps have a precision of one second.
+			entry = (int) (timestamp.getTime() / 1000);
+			entries[index] = entry;
+			writeEntry(index, entry);
+		}
+
+		return timestamp;
+	}
+
+
+	/**
+	 * Flags the specified replication state as no longer existing. This is
+	 * used when a state file has been removed after being indexed.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 */
+	public synchronized void remove(long sequenceNumber) {
+		if (sequenceNumber >= 0 && sequenceNumber < entries.length) {
+			entries[(int) sequenceNumber] = UNKNOWN;
+			writeEntry((int) sequenceNumber, UNKNOWN);
+		}
+		missingTimes.put(sequenceNumber, System.currentTimeMillis());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void close() {
+		closeIndexFile();
+	}
+}
@@ -238,8 +238,8 @@ public class SequenceServer implements SequenceServerControl {
 	 * Sends the specified sequence to the channel. If follow is specified, the
 	 * channel will be held open and follow up calls will be made to
 	 * determineNextChannelAction with this channel and sequence number when the
-	 * operation completes. If follow is not specified, the channel will be
-	 * closed when the operation completes.
+	 * operation completes. If follow is not specified, the response will be
+	 * completed and the channel closed unless the client requested keep-alive.
 	 * 
 	 * @param channel
 	 *            The channel.
@@ -267,11 +267,15 @@ public class SequenceServer implements SequenceServerControl {
 				}
 			});
 		} else {
-			// Upon completion of this write, close the channel.
+			// The handler completes the response and closes the channel unless
+			// the client has requested that it be kept alive. We only need to
+			// close the channel if the write fails.
 			future.addListener(new ChannelFutureListener() {
 				@Override
 				public void operationComplete(ChannelFuture future) throws Exception {
-					channel.close();
+					if (!future.isSuccess()) {
+						channel.close();
+					}
 				}
 			});
 		}
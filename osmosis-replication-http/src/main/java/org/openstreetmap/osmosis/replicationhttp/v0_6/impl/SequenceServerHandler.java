@@ -17,6 +17,7 @@ import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -35,6 +36,8 @@ public abstract class SequenceServerHandler extends SimpleChannelHandler {
 
 	private SequenceServerControl control;
 	private long currentSequenceNumber;
+	private boolean followRequested;
+	private boolean keepAlive;
 
 
 	/**
@@ -225,6 +228,8 @@ public abstract class SequenceServerHandler extends SimpleChannelHandler {
 	 */
 	protected void initiateSequenceWriting(final ChannelHandlerContext ctx,
 			String contentType, final long requestedSequenceNumber, final boolean follow) {
+		followRequested = follow;
+
 		// Create the HTTP header to send to the client.
 		DefaultHttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
 		response.headers().add("Content-Type", contentType);
@@ -265,7 +270,11 @@ public abstract class SequenceServerHandler extends SimpleChannelHandler {
 	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
 		// We have received a message from the client which is a HTTP request.
 		HttpRequest request = (HttpRequest) e.getMessage();
-		
+
+		// Clients may send further requests on the same connection if
+		// continuous updates are not requested.
+		keepAlive = HttpHeaders.isKeepAlive(request);
+
 		InetSocketAddress remoteAddress = (InetSocketAddress) ctx.getChannel().getRemoteAddress();
 		if (LOG.isLoggable(Level.FINE)) {
 			LOG.fine("Received new request from " + remoteAddress.getAddress().getHostAddress() + ":"
@@ -306,13 +315,36 @@ public abstract class SequenceServerHandler extends SimpleChannelHandler {
 
 
 	@Override
-	public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+	public void writeRequested(final ChannelHandlerContext ctx, MessageEvent e) throws Exception {
 		// The message event is a Long containing the sequence number.
 		currentSequenceNumber = (Long) e.getMessage();
 
 		// Call the concrete implementation to convert the sequence to writable
 		// data.
-		writeSequence(ctx, e.getFuture(), currentSequenceNumber);
+		if (followRequested) {
+			writeSequence(ctx, e.getFuture(), currentSequenceNumber);
+			return;
+		}
+
+		// If this is the only sequence being sent, the response must be
+		// terminated once the sequence has been written. The connection is
+		// left open for subsequent requests if the client supports it.
+		final ChannelFuture responseFuture = e.getFuture();
+		ChannelFuture sequenceFuture = Channels.future(ctx.getChannel());
+		writeSequence(ctx, sequenceFuture, currentSequenceNumber);
+		sequenceFuture.addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture future) {
+				if (future.isSuccess()) {
+					Channels.write(ctx, responseFuture, HttpChunk.LAST_CHUNK);
+				} else {
+					responseFuture.setFailure(future.getCause());
+				}
+			}
+		});
+		if (!keepAlive) {
+			responseFuture.addListener(ChannelFutureListener.CLOSE);
+		}
 	}
 
 
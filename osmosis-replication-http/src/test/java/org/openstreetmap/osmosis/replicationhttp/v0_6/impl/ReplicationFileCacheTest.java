@@ -0,0 +1,88 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the replication file cache.
+ */
+public class ReplicationFileCacheTest extends AbstractDataTest {
+
+	private File createFile(File directory, String name, int size) throws IOException {
+		File file = new File(directory, name);
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			for (int i = 0; i < size; i++) {
+				out.write(i);
+			}
+		}
+
+		return file;
+	}
+
+
+	private void checkContent(ChannelBuffer buffer, int size) {
+		Assert.assertEquals("Incorrect file size.", size, buffer.readableBytes());
+		for (int i = 0; i < size; i++) {
+			Assert.assertEquals("Incorrect file content.", (byte) i, buffer.readByte());
+		}
+	}
+
+
+	/**
+	 * Verifies that cached files can be consumed by several callers and that
+	 * the least recently used files are discarded when the cache is full.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testCache() throws IOException {
+		File directory = dataUtils.newFolder();
+		File file1 = createFile(directory, "1.osc.gz", 100);
+		File file2 = createFile(directory, "2.osc.gz", 200);
+		File file3 = createFile(directory, "3.osc.gz", 300);
+		ReplicationFileCache cache = new ReplicationFileCache(2, 4000);
+
+		checkContent(cache.getFile(file1), 100);
+		checkContent(cache.getFile(file1), 100);
+		checkContent(cache.getFile(file2), 200);
+		Assert.assertEquals("Incorrect file count.", 2, cache.getFileCount());
+
+		// The first file is still held after it has been deleted.
+		Assert.assertTrue("Unable to delete the file.", file1.delete());
+		checkContent(cache.getFile(file1), 100);
+
+		// The second file is the least recently used and will be discarded.
+		checkContent(cache.getFile(file3), 300);
+		Assert.assertEquals("Incorrect file count.", 2, cache.getFileCount());
+		Assert.assertTrue("Unable to delete the file.", file2.delete());
+		checkContent(cache.getFile(file1), 100);
+	}
+
+
+	/**
+	 * Verifies that files too large to be cached are not loaded.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testLargeFile() throws IOException {
+		File directory = dataUtils.newFolder();
+		ReplicationFileCache cache = new ReplicationFileCache(10, 400);
+
+		checkContent(cache.getFile(createFile(directory, "1.osc.gz", 100)), 100);
+		Assert.assertNull("Large file should not be cached.", cache.getFile(createFile(directory, "2.osc.gz", 101)));
+		Assert.assertEquals("Incorrect file count.", 1, cache.getFileCount());
+	}
+}
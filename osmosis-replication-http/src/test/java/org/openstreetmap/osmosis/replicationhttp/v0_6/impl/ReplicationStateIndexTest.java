@@ -0,0 +1,135 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the replication state index.
+ */
+public class ReplicationStateIndexTest extends AbstractDataTest {
+
+	private static final long BASE_TIME = 1300000000000L;
+
+
+	private static File getStateFile(File dataDirectory, long sequenceNumber) {
+		return new File(dataDirectory,
+				new ReplicationSequenceFormatter(9, 3).getFormattedName(sequenceNumber, ".state.txt"));
+	}
+
+
+	private static void writeState(File dataDirectory, long sequenceNumber) {
+		File stateFile = getStateFile(dataDirectory, sequenceNumber);
+
+		stateFile.getParentFile().mkdirs();
+		new PropertiesPersister(stateFile).store(
+				new ReplicationState(new Date(BASE_TIME + sequenceNumber * 60000), sequenceNumber).store());
+	}
+
+
+	/**
+	 * Verifies that timestamps are read from the state files, and are
+	 * available from the index file once the state files have been removed.
+	 * 
+	 * @throws IOException
+	 *             if a temporary directory cannot be created.
+	 */
+	@Test
+	public void testPersistedTimestamps() throws IOException {
+		File dataDirectory = dataUtils.newFolder();
+
+		for (long sequenceNumber = 0; sequenceNumber < 2000; sequenceNumber++) {
+			if (sequenceNumber != 7) {
+				writeState(dataDirectory, sequenceNumber);
+			}
+		}
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory)) {
+			for (long sequenceNumber = 0; sequenceNumber < 2000; sequenceNumber += 3) {
+				Assert.assertEquals("Incorrect timestamp.", new Date(BASE_TIME + sequenceNumber * 60000),
+						index.getTimestamp(sequenceNumber));
+			}
+			Assert.assertNull("State should not exist.", index.getTimestamp(7));
+		}
+
+		// Remove the state files, the indexed timestamps must still be
+		// available.
+		for (long sequenceNumber = 0; sequenceNumber < 2000; sequenceNumber++) {
+			getStateFile(dataDirectory, sequenceNumber).delete();
+		}
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory)) {
+			for (long sequenceNumber = 0; sequenceNumber < 2000; sequenceNumber++) {
+				if (sequenceNumber % 3 == 0) {
+					Assert.assertEquals("Incorrect timestamp.", new Date(BASE_TIME + sequenceNumber * 60000),
+							index.getTimestamp(sequenceNumber));
+				} else {
+					Assert.assertNull("State should not exist.", index.getTimestamp(sequenceNumber));
+				}
+			}
+
+			index.remove(3);
+			Assert.assertNull("State should have been removed.", index.getTimestamp(3));
+		}
+	}
+
+
+	/**
+	 * Verifies that a state that doesn't exist yet is found once it has been
+	 * published, and that its absence isn't persisted in the index file.
+	 * 
+	 * @throws IOException
+	 *             if a temporary directory cannot be created.
+	 */
+	@Test
+	public void testLatePublishedState() throws IOException {
+		File dataDirectory = dataUtils.newFolder();
+
+		writeState(dataDirectory, 0);
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory)) {
+			Assert.assertNull("State should not exist.", index.getTimestamp(1));
+			writeState(dataDirectory, 1);
+			Assert.assertNull("Missing state should be remembered.", index.getTimestamp(1));
+		}
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory)) {
+			Assert.assertEquals("Incorrect timestamp.", new Date(BASE_TIME + 60000), index.getTimestamp(1));
+		}
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory, 0)) {
+			Assert.assertNull("State should not exist.", index.getTimestamp(2));
+			writeState(dataDirectory, 2);
+			Assert.assertEquals("Incorrect timestamp.", new Date(BASE_TIME + 120000), index.getTimestamp(2));
+		}
+	}
+
+
+	/**
+	 * Verifies that an unrecognised index file is discarded.
+	 * 
+	 * @throws IOException
+	 *             if a temporary directory cannot be created.
+	 */
+	@Test
+	public void testInvalidIndexFile() throws IOException {
+		File dataDirectory = dataUtils.newFolder();
+
+		writeState(dataDirectory, 0);
+		new PropertiesPersister(new File(dataDirectory, ReplicationStateIndex.INDEX_FILE_NAME)).store(
+				new ReplicationState(new Date(0), 0).store());
+
+		try (ReplicationStateIndex index = new ReplicationStateIndex(dataDirectory)) {
+			Assert.assertEquals("Incorrect timestamp.", new Date(BASE_TIME), index.getTimestamp(0));
+		}
+	}
+}
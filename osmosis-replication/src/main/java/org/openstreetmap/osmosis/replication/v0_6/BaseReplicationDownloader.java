@@ -1,28 +1,20 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.replication.v0_6;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.OsmosisConstants;
 import org.openstreetmap.osmosis.core.task.common.RunnableTask;
 import org.openstreetmap.osmosis.core.util.FileBasedLock;
 import org.openstreetmap.osmosis.core.util.PropertiesPersister;
-import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
 import org.openstreetmap.osmosis.replication.common.ReplicationState;
 import org.openstreetmap.osmosis.replication.common.ServerStateReader;
 import org.openstreetmap.osmosis.replication.v0_6.impl.ReplicationDownloaderConfiguration;
+import org.openstreetmap.osmosis.replication.v0_6.impl.ReplicationFilePrefetcher;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
 import org.openstreetmap.osmosis.xml.v0_6.XmlChangeReader;
 
@@ -40,10 +32,10 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 	private static final String LOCK_FILE = "download.lock";
 	private static final String CONFIG_FILE = "configuration.txt";
 	private static final String LOCAL_STATE_FILE = "state.txt";
+	private static final String CACHE_DIRECTORY = "cache";
 	
 	
 	private File workingDirectory;
-	private ReplicationSequenceFormatter sequenceFormatter;
 	private ServerStateReader serverStateReader;
 	
 	
@@ -56,7 +48,6 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 	public BaseReplicationDownloader(File workingDirectory) {
 		this.workingDirectory = workingDirectory;
 		
-		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
 		serverStateReader = new ServerStateReader();
 	}
 	
@@ -71,72 +62,15 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 	}
 	
 	
-	/**
-	 * Downloads the file from the server with the specified name and writes it
-	 * to a local temporary file.
-	 * 
-	 * @param fileName
-	 *            The name of the file to download.
-	 * @param baseUrl
-	 *            The url of the directory containing change files.
-	 * @return The temporary file containing the downloaded data.
-	 */
-	private File downloadReplicationFile(String fileName, URL baseUrl) {
-		URL changesetUrl;
+	private void processReplicationFile(File replicationFile, ReplicationState replicationState) {
+		XmlChangeReader xmlReader;
 		
-		try {
-			changesetUrl = new URL(baseUrl, fileName);
-		} catch (MalformedURLException e) {
-			throw new OsmosisRuntimeException("The server file URL could not be created.", e);
-		}
+		// Send the contents of the replication file to the sink but suppress the complete
+		// and release methods.
+		xmlReader = new XmlChangeReader(replicationFile, true, CompressionMethod.GZip);
 		
-		try {
-			File outputFile;
-			
-			// Open an input stream for the changeset file on the server.
-			URLConnection connection = changesetUrl.openConnection();
-			connection.setReadTimeout(15 * 60 * 1000); // timeout 15 minutes
-			connection.setConnectTimeout(15 * 60 * 1000); // timeout 15 minutes
-			connection.setRequestProperty("User-Agent", "Osmosis/" + OsmosisConstants.VERSION);
-			
-			try (BufferedInputStream source = new BufferedInputStream(connection.getInputStream(), 65536)) {
-				// Create a temporary file to write the data to.
-				outputFile = File.createTempFile("change", null);
-
-				// Open a output stream for the destination file.
-				try (BufferedOutputStream sink = new BufferedOutputStream(new FileOutputStream(outputFile), 65536)) {
-					// Download the file.
-					byte[] buffer = new byte[65536];
-					for (int bytesRead = source.read(buffer); bytesRead > 0; bytesRead = source.read(buffer)) {
-						sink.write(buffer, 0, bytesRead);
-					}
-				}
-			}
-			
-			return outputFile;
-			
-		} catch (IOException e) {
-			throw new OsmosisRuntimeException("Unable to read the changeset file " + fileName + " from the server.", e);
-		}
-	}
-	
-	
-	private void processReplicationFile(File replicationFile, ReplicationState replicationState) {
-		try {
-			XmlChangeReader xmlReader;
-			
-			// Send the contents of the replication file to the sink but suppress the complete
-			// and release methods.
-			xmlReader = new XmlChangeReader(replicationFile, true, CompressionMethod.GZip);
-			
-			// Delegate to the sub-class to process the xml.
-			processChangeset(xmlReader, replicationState);
-			
-		} finally {
-			if (!replicationFile.delete()) {
-				LOG.warning("Unable to delete file " + replicationFile.getName());
-			}
-		}
+		// Delegate to the sub-class to process the xml.
+		processChangeset(xmlReader, replicationState);
 	}
 
 
@@ -179,6 +113,7 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 		URL baseUrl;
 		ReplicationState localState;
 		Date maximumDownloadTimestamp;
+		ReplicationFilePrefetcher prefetcher;
 		
 		localState = initialLocalState;
 		
@@ -190,6 +125,30 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 			calculateMaximumTimestamp(configuration, serverState.getTimestamp(), localState.getTimestamp());
 		LOG.fine("The maximum timestamp to be downloaded is " + maximumDownloadTimestamp + ".");
 		
+		// Files are downloaded into a cache ahead of processing. Files that
+		// are downloaded but not processed during this invocation will be
+		// used by the next invocation.
+		prefetcher = new ReplicationFilePrefetcher(
+				baseUrl, new File(workingDirectory, CACHE_DIRECTORY), configuration.getPrefetchCount());
+		try {
+			prefetcher.start(localState.getSequenceNumber() + 1, serverState.getSequenceNumber());
+			
+			localState = download(prefetcher, serverState, initialLocalState, maximumDownloadTimestamp);
+			
+		} finally {
+			prefetcher.close();
+		}
+		
+		return localState;
+	}
+	
+	
+	private ReplicationState download(ReplicationFilePrefetcher prefetcher, ReplicationState serverState,
+			ReplicationState initialLocalState, Date maximumDownloadTimestamp) {
+		ReplicationState localState;
+		
+		localState = initialLocalState;
+		
 		// Download all files and send their contents to the sink.
 		while (localState.getSequenceNumber() < serverState.getSequenceNumber()) {
 			File replicationFile;
@@ -210,7 +169,7 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 			LOG.finer("Processing replication sequence " + sequenceNumber + ".");
 			
 			// Get the state associated with the next file.
-			fileReplicationState = serverStateReader.getServerState(baseUrl, sequenceNumber);
+			fileReplicationState = prefetcher.getState(sequenceNumber);
 			
 			// Ensure that the next state is within the allowable timestamp
 			// range. We must stop if the next data takes us beyond the maximum
@@ -227,12 +186,12 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 				}
 			}
 			
-			// Download the next replication file to a temporary file.
-			replicationFile =
-				downloadReplicationFile(sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"), baseUrl);
+			// Wait for the next replication file to be downloaded.
+			replicationFile = prefetcher.getDataFile(sequenceNumber);
 			
 			// Process the file and send its contents to the sink.
 			processReplicationFile(replicationFile, fileReplicationState);
+			prefetcher.release(sequenceNumber);
 			
 			// Update the local state to reflect the file state just processed.
 			localState = fileReplicationState;
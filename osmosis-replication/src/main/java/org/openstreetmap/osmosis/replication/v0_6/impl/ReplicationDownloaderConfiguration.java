@@ -18,6 +18,7 @@ import org.openstreetmap.osmosis.core.util.PropertiesPersister;
 public class ReplicationDownloaderConfiguration {
 	private static final String KEY_BASE_URL = "baseUrl";
 	private static final String KEY_MAX_INTERVAL = "maxInterval";
+	private static final String KEY_PREFETCH_COUNT = "prefetchCount";
 	
 	
 	private Properties properties;
@@ -65,4 +66,22 @@ public class ReplicationDownloaderConfiguration {
 	public int getMaxInterval() {
 		return Integer.parseInt(properties.getProperty(KEY_MAX_INTERVAL)) * 1000;
 	}
+	
+	
+	/**
+	 * Returns the number of replication sequences to download ahead of the
+	 * sequence being processed. This is optional and defaults to 0 which
+	 * downloads one sequence at a time.
+	 * 
+	 * @return The number of sequences to prefetch.
+	 */
+	public int getPrefetchCount() {
+		String prefetchCount = properties.getProperty(KEY_PREFETCH_COUNT);
+		
+		if (prefetchCount == null) {
+			return 0;
+		}
+		
+		return Integer.parseInt(prefetchCount.trim());
+	}
 }
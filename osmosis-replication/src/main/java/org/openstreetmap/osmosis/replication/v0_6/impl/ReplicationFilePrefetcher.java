@@ -0,0 +1,394 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replication.v0_6.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisConstants;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+
+
+/**
+ * Downloads replication state and data files into a local cache directory,
+ * fetching the files for upcoming sequences in the background while earlier
+ * sequences are being processed. Files are requested in sequence order and
+ * remain in the cache until they are released by the caller, which allows
+ * files fetched ahead of time to be reused by a later invocation if
+ * processing stops early. The cache is discarded if the files were downloaded
+ * from a different server url because sequence numbers of different
+ * replication feeds are unrelated.
+ * <p>
+ * Files are only added to the cache once they have been completely
+ * downloaded. Background downloads run on daemon threads and are aborted when
+ * the prefetcher is closed.
+ * </p>
+ */
+public class ReplicationFilePrefetcher implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(ReplicationFilePrefetcher.class.getName());
+	private static final String STATE_FILE_SUFFIX = ".state.txt";
+	private static final String DATA_FILE_SUFFIX = ".osc.gz";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final String SOURCE_FILE_NAME = "source.txt";
+	private static final String KEY_BASE_URL = "baseUrl";
+
+	private URL baseUrl;
+	private File cacheDirectory;
+	private int prefetchCount;
+	private ReplicationSequenceFormatter sequenceFormatter;
+	private ExecutorService executor;
+	private Map<Long, Future<?>> downloads;
+	private Set<URLConnection> openConnections;
+	private long nextSequenceNumber;
+	private long lastSequenceNumber;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param baseUrl
+	 *            The url of the directory containing change files.
+	 * @param cacheDirectory
+	 *            The directory to download files into. It will be created if
+	 *            it doesn't exist.
+	 * @param prefetchCount
+	 *            The number of sequences to download ahead of the sequence
+	 *            being processed. If 0, files are downloaded when requested.
+	 */
+	public ReplicationFilePrefetcher(URL baseUrl, File cacheDirectory, int prefetchCount) {
+		this.baseUrl = baseUrl;
+		this.cacheDirectory = cacheDirectory;
+		this.prefetchCount = prefetchCount;
+
+		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
+		downloads = new HashMap<Long, Future<?>>();
+		openConnections = ConcurrentHashMap.newKeySet();
+
+		if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+			throw new OsmosisRuntimeException("Unable to create cache directory " + cacheDirectory + ".");
+		}
+	}
+
+
+	/**
+	 * Begins downloading the files for the specified range of sequences.
+	 * Cached files for sequences outside the range are no longer needed and
+	 * are removed.
+	 *
+	 * @param firstSequenceNumber
+	 *            The first sequence that will be requested.
+	 * @param maximumSequenceNumber
+	 *            The last sequence that may be requested.
+	 */
+	public void start(long firstSequenceNumber, long maximumSequenceNumber) {
+		nextSequenceNumber = firstSequenceNumber;
+		lastSequenceNumber = maximumSequenceNumber;
+
+		removeStaleFiles(!isCacheFromSource());
+
+		if (prefetchCount > 0) {
+			executor = Executors.newFixedThreadPool(prefetchCount, runnable -> {
+				Thread thread = new Thread(runnable, "replication-prefetch");
+
+				// Don't prevent the JVM from exiting if the prefetcher isn't closed.
+				thread.setDaemon(true);
+
+				return thread;
+			});
+			scheduleDownloads(firstSequenceNumber);
+		}
+	}
+
+
+	/**
+	 * Checks if the cached files were downloaded from the current server url,
+	 * and records the url for subsequent invocations if not.
+	 */
+	private boolean isCacheFromSource() {
+		PropertiesPersister sourcePersister = new PropertiesPersister(new File(cacheDirectory, SOURCE_FILE_NAME));
+		String cachedBaseUrl = null;
+
+		if (sourcePersister.exists()) {
+			cachedBaseUrl = sourcePersister.loadMap().get(KEY_BASE_URL);
+		}
+		if (baseUrl.toString().equals(cachedBaseUrl)) {
+			return true;
+		}
+
+		sourcePersister.store(Collections.singletonMap(KEY_BASE_URL, baseUrl.toString()));
+
+		return false;
+	}
+
+
+	private void removeStaleFiles(boolean removeAll) {
+		File[] files = cacheDirectory.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String name = file.getName();
+			int separatorIndex = name.indexOf('.');
+			long sequenceNumber;
+
+			try {
+				sequenceNumber = Long.parseLong(name.substring(0, Math.max(separatorIndex, 0)));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+
+			if (removeAll || sequenceNumber < nextSequenceNumber || sequenceNumber > lastSequenceNumber
+					|| name.endsWith(TEMP_FILE_SUFFIX)) {
+				deleteFile(file);
+			}
+		}
+	}
+
+
+	private void deleteFile(File file) {
+		if (file.exists() && !file.delete()) {
+			LOG.warning("Unable to delete file " + file + ".");
+		}
+	}
+
+
+	private void scheduleDownloads(long currentSequenceNumber) {
+		while (nextSequenceNumber <= lastSequenceNumber
+				&& nextSequenceNumber <= currentSequenceNumber + prefetchCount) {
+			final long sequenceNumber = nextSequenceNumber++;
+
+			downloads.put(sequenceNumber, executor.submit(() -> downloadFiles(sequenceNumber)));
+		}
+	}
+
+
+	private File getCachedStateFile(long sequenceNumber) {
+		return new File(cacheDirectory, sequenceNumber + STATE_FILE_SUFFIX);
+	}
+
+
+	private File getCachedDataFile(long sequenceNumber) {
+		return new File(cacheDirectory, sequenceNumber + DATA_FILE_SUFFIX);
+	}
+
+
+	private void downloadStateFile(long sequenceNumber) {
+		downloadFile(sequenceFormatter.getFormattedName(sequenceNumber, STATE_FILE_SUFFIX),
+				getCachedStateFile(sequenceNumber));
+	}
+
+
+	private void downloadDataFile(long sequenceNumber) {
+		downloadFile(sequenceFormatter.getFormattedName(sequenceNumber, DATA_FILE_SUFFIX),
+				getCachedDataFile(sequenceNumber));
+	}
+
+
+	private void downloadFiles(long sequenceNumber) {
+		downloadStateFile(sequenceNumber);
+		downloadDataFile(sequenceNumber);
+	}
+
+
+	private void downloadContent(URLConnection connection, File outputFile) throws IOException {
+		try (BufferedInputStream source = new BufferedInputStream(connection.getInputStream(), 65536);
+				BufferedOutputStream sink = new BufferedOutputStream(new FileOutputStream(outputFile), 65536)) {
+			// Download the file.
+			byte[] buffer = new byte[65536];
+			for (int bytesRead = source.read(buffer); bytesRead > 0; bytesRead = source.read(buffer)) {
+				sink.write(buffer, 0, bytesRead);
+			}
+		}
+	}
+
+
+	/**
+	 * Downloads the file from the server with the specified name into the
+	 * cache unless it has already been downloaded.
+	 *
+	 * @param fileName
+	 *            The name of the file on the server.
+	 * @param outputFile
+	 *            The cache file to write to.
+	 */
+	private void downloadFile(String fileName, File outputFile) {
+		URL fileUrl;
+		File tempFile;
+
+		if (outputFile.exists()) {
+			return;
+		}
+
+		try {
+			fileUrl = new URL(baseUrl, fileName);
+		} catch (MalformedURLException e) {
+			throw new OsmosisRuntimeException("The server file URL could not be created.", e);
+		}
+
+		tempFile = new File(outputFile.getPath() + TEMP_FILE_SUFFIX);
+		try {
+			// Open an input stream for the file on the server.
+			URLConnection connection = fileUrl.openConnection();
+			connection.setReadTimeout(15 * 60 * 1000); // timeout 15 minutes
+			connection.setConnectTimeout(15 * 60 * 1000); // timeout 15 minutes
+			connection.setRequestProperty("User-Agent", "Osmosis/" + OsmosisConstants.VERSION);
+
+			// Interrupting the thread doesn't abort a blocked read, so the
+			// connection is tracked to allow close to abort it. The interrupt
+			// is checked afterwards in case close has already been called.
+			openConnections.add(connection);
+			try {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new IOException("The download was aborted.");
+				}
+				downloadContent(connection, tempFile);
+			} finally {
+				openConnections.remove(connection);
+			}
+
+		} catch (IOException e) {
+			deleteFile(tempFile);
+			throw new OsmosisRuntimeException("Unable to read the replication file " + fileName + " from the server.",
+					e);
+		}
+
+		// Only make the file visible in the cache once it is complete.
+		if (!tempFile.renameTo(outputFile)) {
+			deleteFile(tempFile);
+			throw new OsmosisRuntimeException("Unable to rename " + tempFile + " to " + outputFile + ".");
+		}
+	}
+
+
+	/**
+	 * Waits for the background download of the files of the specified
+	 * sequence to complete.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 * @return False if the files are not being downloaded in the background.
+	 */
+	private boolean awaitFiles(long sequenceNumber) {
+		Future<?> download;
+
+		if (executor == null) {
+			return false;
+		}
+
+		scheduleDownloads(sequenceNumber);
+
+		download = downloads.get(sequenceNumber);
+		if (download == null) {
+			return false;
+		}
+
+		try {
+			download.get();
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (ExecutionException e) {
+			// Allow the download to be retried if it is requested again.
+			downloads.remove(sequenceNumber);
+			if (e.getCause() instanceof OsmosisRuntimeException) {
+				throw (OsmosisRuntimeException) e.getCause();
+			}
+			throw new OsmosisRuntimeException("Unable to download replication sequence " + sequenceNumber + ".",
+					e.getCause());
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Returns the state of the specified sequence, waiting for it to be
+	 * downloaded if necessary.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 * @return The replication state.
+	 */
+	public ReplicationState getState(long sequenceNumber) {
+		if (!awaitFiles(sequenceNumber)) {
+			downloadStateFile(sequenceNumber);
+		}
+
+		return new ReplicationState(new PropertiesPersister(getCachedStateFile(sequenceNumber)).loadMap());
+	}
+
+
+	/**
+	 * Returns the cached data file of the specified sequence, waiting for it to
+	 * be downloaded if necessary.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 * @return The replication data file.
+	 */
+	public File getDataFile(long sequenceNumber) {
+		// The data file is only downloaded once it has been requested so that
+		// it isn't downloaded for a sequence that won't be processed.
+		if (!awaitFiles(sequenceNumber)) {
+			downloadDataFile(sequenceNumber);
+		}
+
+		return getCachedDataFile(sequenceNumber);
+	}
+
+
+	/**
+	 * Removes the files of a sequence from the cache after it has been
+	 * processed.
+	 *
+	 * @param sequenceNumber
+	 *            The replication sequence number.
+	 */
+	public void release(long sequenceNumber) {
+		downloads.remove(sequenceNumber);
+		deleteFile(getCachedDataFile(sequenceNumber));
+		deleteFile(getCachedStateFile(sequenceNumber));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (executor != null) {
+			// Interrupt outstanding downloads, incomplete files are discarded.
+			executor.shutdownNow();
+			executor = null;
+
+			for (URLConnection connection : openConnections) {
+				if (connection instanceof HttpURLConnection) {
+					((HttpURLConnection) connection).disconnect();
+				}
+			}
+		}
+		downloads.clear();
+	}
+}
@@ -0,0 +1,218 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replication.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the replication file prefetcher using a local directory in place of a
+ * replication server.
+ */
+public class ReplicationFilePrefetcherTest extends AbstractDataTest {
+
+	private ReplicationSequenceFormatter sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
+
+
+	private void createSequence(File serverDirectory, long sequenceNumber) throws IOException {
+		File stateFile = new File(serverDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".state.txt"));
+		File dataFile = new File(serverDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"));
+
+		stateFile.getParentFile().mkdirs();
+		new PropertiesPersister(stateFile).store(
+				new ReplicationState(new Date(1300000000000L + sequenceNumber * 60000), sequenceNumber).store());
+		Files.write(dataFile.toPath(), ("data " + sequenceNumber).getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	private String readFile(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Verifies that sequences are returned in order for a range of prefetch
+	 * counts, and that released sequences are removed from the cache.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testSequences() throws IOException {
+		File serverDirectory = dataUtils.newFolder();
+		URL baseUrl = serverDirectory.toURI().toURL();
+
+		for (long sequenceNumber = 1; sequenceNumber <= 20; sequenceNumber++) {
+			createSequence(serverDirectory, sequenceNumber);
+		}
+
+		for (int prefetchCount : new int[] {0, 1, 4}) {
+			File cacheDirectory = new File(dataUtils.newFolder(), "cache");
+			ReplicationFilePrefetcher prefetcher;
+
+			prefetcher = new ReplicationFilePrefetcher(baseUrl, cacheDirectory, prefetchCount);
+
+			try {
+				prefetcher.start(3, 20);
+
+				for (long sequenceNumber = 3; sequenceNumber <= 20; sequenceNumber++) {
+					ReplicationState state = prefetcher.getState(sequenceNumber);
+					File dataFile = prefetcher.getDataFile(sequenceNumber);
+
+					Assert.assertEquals("Incorrect sequence number.", sequenceNumber, state.getSequenceNumber());
+					Assert.assertEquals("Incorrect data.", "data " + sequenceNumber, readFile(dataFile));
+
+					prefetcher.release(sequenceNumber);
+					Assert.assertFalse("Data file was not released.", dataFile.exists());
+				}
+			} finally {
+				prefetcher.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that files left in the cache by a previous invocation are reused
+	 * and that files outside the requested range are removed.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testCacheReuse() throws IOException {
+		File serverDirectory = dataUtils.newFolder();
+		File cacheDirectory = dataUtils.newFolder();
+		File staleFile = new File(cacheDirectory, "1.osc.gz");
+		ReplicationFilePrefetcher prefetcher;
+
+		createSequence(serverDirectory, 2);
+		createSequence(serverDirectory, 3);
+		Files.write(staleFile.toPath(), new byte[0]);
+
+		prefetcher = new ReplicationFilePrefetcher(serverDirectory.toURI().toURL(), cacheDirectory, 2);
+		try {
+			prefetcher.start(2, 3);
+			Assert.assertEquals("Incorrect data.", "data 2", readFile(prefetcher.getDataFile(2)));
+			Assert.assertFalse("Stale file was not removed.", staleFile.exists());
+		} finally {
+			prefetcher.close();
+		}
+
+		// Remove the sequence from the server, the cached copy must be used.
+		Assert.assertTrue("Unable to delete the file.",
+				new File(serverDirectory, sequenceFormatter.getFormattedName(2, ".osc.gz")).delete());
+
+		prefetcher = new ReplicationFilePrefetcher(serverDirectory.toURI().toURL(), cacheDirectory, 0);
+		try {
+			prefetcher.start(2, 3);
+			Assert.assertEquals("Incorrect data.", "data 2", readFile(prefetcher.getDataFile(2)));
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+
+	/**
+	 * Verifies that files cached from a different server are not reused.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testSourceChange() throws IOException {
+		File oldServerDirectory = dataUtils.newFolder();
+		File newServerDirectory = dataUtils.newFolder();
+		File cacheDirectory = dataUtils.newFolder();
+		ReplicationFilePrefetcher prefetcher;
+
+		createSequence(oldServerDirectory, 2);
+		createSequence(newServerDirectory, 2);
+		Files.write(new File(newServerDirectory, sequenceFormatter.getFormattedName(2, ".osc.gz")).toPath(),
+				"new data 2".getBytes(StandardCharsets.UTF_8));
+
+		// Leave the sequence from the old server in the cache.
+		prefetcher = new ReplicationFilePrefetcher(oldServerDirectory.toURI().toURL(), cacheDirectory, 0);
+		try {
+			prefetcher.start(2, 2);
+			Assert.assertEquals("Incorrect data.", "data 2", readFile(prefetcher.getDataFile(2)));
+		} finally {
+			prefetcher.close();
+		}
+
+		prefetcher = new ReplicationFilePrefetcher(newServerDirectory.toURI().toURL(), cacheDirectory, 0);
+		try {
+			prefetcher.start(2, 2);
+			Assert.assertEquals("Incorrect data.", "new data 2", readFile(prefetcher.getDataFile(2)));
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+
+	/**
+	 * Verifies that without prefetching the data file of a sequence is only
+	 * downloaded once it is requested.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test
+	public void testSerialStateOnly() throws IOException {
+		File serverDirectory = dataUtils.newFolder();
+		File cacheDirectory = dataUtils.newFolder();
+		ReplicationFilePrefetcher prefetcher;
+
+		createSequence(serverDirectory, 2);
+		Assert.assertTrue("Unable to delete the file.",
+				new File(serverDirectory, sequenceFormatter.getFormattedName(2, ".osc.gz")).delete());
+
+		prefetcher = new ReplicationFilePrefetcher(serverDirectory.toURI().toURL(), cacheDirectory, 0);
+		try {
+			prefetcher.start(2, 2);
+			Assert.assertEquals("Incorrect sequence.", 2, prefetcher.getState(2).getSequenceNumber());
+			Assert.assertFalse("The data file should not have been downloaded.",
+					new File(cacheDirectory, "2.osc.gz").exists());
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+
+	/**
+	 * Verifies that a failed download is reported when its sequence is
+	 * requested.
+	 *
+	 * @throws IOException
+	 *             if a test file cannot be created.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testMissingSequence() throws IOException {
+		File serverDirectory = dataUtils.newFolder();
+		ReplicationFilePrefetcher prefetcher;
+
+		createSequence(serverDirectory, 1);
+
+		prefetcher = new ReplicationFilePrefetcher(serverDirectory.toURI().toURL(), dataUtils.newFolder(), 4);
+		try {
+			prefetcher.start(1, 3);
+			prefetcher.getState(1);
+			prefetcher.release(1);
+			prefetcher.getState(2);
+		} finally {
+			prefetcher.close();
+		}
+	}
+}
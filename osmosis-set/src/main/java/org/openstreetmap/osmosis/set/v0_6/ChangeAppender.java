@@ -8,6 +8,8 @@ import java.util.Map;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
@@ -19,7 +21,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.MultiChangeSinkRunnableChangeSou
  * 
  * @author Brett Henderson
  */
-public class ChangeAppender implements MultiChangeSinkRunnableChangeSource {
+public class ChangeAppender implements MultiChangeSinkRunnableChangeSource, QueueMetricsSource {
 	
 	private List<DataPostbox<ChangeContainer>> sources;
 	private ChangeSink changeSink;
@@ -113,4 +115,13 @@ public class ChangeAppender implements MultiChangeSinkRunnableChangeSource {
 			}
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return new ArrayList<QueueMetrics>(sources);
+	}
 }
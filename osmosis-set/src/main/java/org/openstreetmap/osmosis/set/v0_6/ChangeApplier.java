@@ -1,12 +1,16 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedDeltaChangePipeValidator;
@@ -25,7 +29,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
+public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource, QueueMetricsSource {
 	
 	private Sink sink;
 	private DataPostbox<EntityContainer> basePostbox;
@@ -241,4 +245,13 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 			changePostbox.outputRelease();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return Arrays.<QueueMetrics>asList(basePostbox, changePostbox);
+	}
 }
@@ -1,12 +1,16 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.change.v0_6.impl.TimestampSetter;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
@@ -22,7 +26,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeDeriver implements MultiSinkRunnableChangeSource {
+public class ChangeDeriver implements MultiSinkRunnableChangeSource, QueueMetricsSource {
 
 	private ChangeSink changeSink;
 	private DataPostbox<EntityContainer> fromPostbox;
@@ -181,4 +185,13 @@ public class ChangeDeriver implements MultiSinkRunnableChangeSource {
 			toPostbox.outputRelease();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return Arrays.<QueueMetrics>asList(fromPostbox, toPostbox);
+	}
 }
@@ -1,11 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.merge.common.ConflictResolutionMethod;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetrics;
+import org.openstreetmap.osmosis.core.metrics.common.QueueMetricsSource;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdThenVersionComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedHistoryChangePipeValidator;
@@ -22,7 +26,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeMerger implements MultiChangeSinkRunnableChangeSource {
+public class ChangeMerger implements MultiChangeSinkRunnableChangeSource, QueueMetricsSource {
 	
 	private ChangeSink changeSink;
 	private DataPostbox<ChangeContainer> postbox0;
@@ -205,4 +209,13 @@ public class ChangeMerger implements MultiChangeSinkRunnableChangeSource {
 			postbox1.outputRelease();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<QueueMetrics> getQueueMetrics() {
+		return Arrays.<QueueMetrics>asList(postbox0, postbox1);
+	}
 }
@@ -5,7 +5,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Pattern;
 
 import org.openstreetmap.osmosis.tagtransform.Match;
 import org.openstreetmap.osmosis.tagtransform.Matcher;
@@ -14,26 +13,33 @@ import org.openstreetmap.osmosis.tagtransform.TTEntityType;
 
 public class NoTagMatcher implements Matcher {
 
-	private Pattern keyPattern;
-	private Pattern valuePattern;
+	private TagPattern keyPattern;
+	private TagPattern valuePattern;
 	private long matchHits;
 
 
 	public NoTagMatcher(String keyPattern, String valuePattern) {
-		this.keyPattern = Pattern.compile(keyPattern);
-		this.valuePattern = Pattern.compile(valuePattern);
+		this.keyPattern = new TagPattern(keyPattern, true);
+		this.valuePattern = new TagPattern(valuePattern, false);
 	}
 
 
 	@Override
 	public Collection<Match> match(Map<String, String> tags, TTEntityType type, String uname, int uid) {
-		// loop through the tags to find matches
-		for (Entry<String, String> tag : tags.entrySet()) {
-			java.util.regex.Matcher keyMatch = keyPattern.matcher(tag.getKey());
-			java.util.regex.Matcher valueMatch = valuePattern.matcher(tag.getValue());
-			if (keyMatch.matches() && valueMatch.matches()) {
+		// a plain key can only match a single tag so we look it up directly
+		String literalKey = keyPattern.getLiteral();
+		if (literalKey != null) {
+			String value = tags.get(literalKey);
+			if (value != null && valuePattern.match(value) != null) {
 				return null;
 			}
+		} else {
+			// loop through the tags to find matches
+			for (Entry<String, String> tag : tags.entrySet()) {
+				if (keyPattern.match(tag.getKey()) != null && valuePattern.match(tag.getValue()) != null) {
+					return null;
+				}
+			}
 		}
 
 		matchHits += 1;
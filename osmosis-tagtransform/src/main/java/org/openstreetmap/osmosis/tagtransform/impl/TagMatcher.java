@@ -3,11 +3,11 @@ package org.openstreetmap.osmosis.tagtransform.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.MatchResult;
-import java.util.regex.Pattern;
 
 import org.openstreetmap.osmosis.tagtransform.Match;
 import org.openstreetmap.osmosis.tagtransform.Matcher;
@@ -17,30 +17,55 @@ import org.openstreetmap.osmosis.tagtransform.TTEntityType;
 public class TagMatcher implements Matcher {
 
 	private String matchID;
-	private Pattern keyPattern;
-	private Pattern valuePattern;
+	private TagPattern keyPattern;
+	private TagPattern valuePattern;
 	private long matchHits = 0;
 
 
 	public TagMatcher(String matchID, String keyPattern, String valuePattern) {
 		this.matchID = matchID;
-		this.keyPattern = Pattern.compile(keyPattern);
-		this.valuePattern = Pattern.compile(valuePattern);
+		this.keyPattern = new TagPattern(keyPattern, true);
+		this.valuePattern = new TagPattern(valuePattern, false);
+	}
+
+
+	private Match matchTag(String key, String value) {
+		MatchResult keyRes = keyPattern.match(key);
+		if (keyRes == null) {
+			return null;
+		}
+		MatchResult valueRes = valuePattern.match(value);
+		if (valueRes == null) {
+			return null;
+		}
+		return new MatchResultMatch(matchID, keyRes, valueRes);
 	}
 
 
 	@Override
 	public Collection<Match> match(Map<String, String> tags, TTEntityType type, String uname, int uid) {
+		// a plain key can only match a single tag so we look it up directly
+		String literalKey = keyPattern.getLiteral();
+		if (literalKey != null) {
+			String value = tags.get(literalKey);
+			Match match = null;
+			if (value != null) {
+				match = matchTag(literalKey, value);
+			}
+			if (match == null) {
+				return Collections.emptyList();
+			}
+			matchHits++;
+			return Collections.singletonList(match);
+		}
+
 		List<Match> matches = new ArrayList<Match>();
 
 		// loop through the tags to find matches
 		for (Entry<String, String> tag : tags.entrySet()) {
-			java.util.regex.Matcher keyMatch = keyPattern.matcher(tag.getKey());
-			java.util.regex.Matcher valueMatch = valuePattern.matcher(tag.getValue());
-			if (keyMatch.matches() && valueMatch.matches()) {
-				MatchResult keyRes = keyMatch.toMatchResult();
-				MatchResult valueRes = valueMatch.toMatchResult();
-				matches.add(new MatchResultMatch(matchID, keyRes, valueRes));
+			Match match = matchTag(tag.getKey(), tag.getValue());
+			if (match != null) {
+				matches.add(match);
 			}
 		}
 
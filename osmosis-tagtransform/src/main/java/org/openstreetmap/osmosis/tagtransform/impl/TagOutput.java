@@ -14,6 +14,8 @@ public class TagOutput implements Output {
 	private MessageFormat keyFormat;
 	private MessageFormat valueFormat;
 	private String fromMatch;
+	private String fixedKey;
+	private String fixedValue;
         private String keyDataSource;
         private String valueDataSource;
 
@@ -23,6 +25,11 @@ public class TagOutput implements Output {
 		valueFormat = new MessageFormat(santitise(value));
 		if (fromMatch != null && fromMatch.length() > 0) {
 			this.fromMatch = fromMatch;
+		} else {
+			// the tag doesn't depend on any matches so it only needs
+			// formatting once
+			fixedKey = keyFormat.format(null);
+			fixedValue = valueFormat.format(null);
 		}
                 
                 if (keyDataSource != null && keyDataSource.length() > 0) {
@@ -77,7 +84,7 @@ public class TagOutput implements Output {
 			}
 		} else {
 			// simple case
-			tags.put(keyFormat.format(null), valueFormat.format(null));
+			tags.put(fixedKey, fixedValue);
 		}
 	}
 
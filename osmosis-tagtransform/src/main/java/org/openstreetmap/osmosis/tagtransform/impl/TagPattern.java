@@ -0,0 +1,221 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.tagtransform.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+
+/**
+ * A regular expression matched against tag keys or values. Most patterns in
+ * transform files are plain strings or match everything, these are detected
+ * when the pattern is compiled and matched without running the regular
+ * expression engine. Key patterns may also remember their results because
+ * the number of distinct keys is small.
+ */
+public class TagPattern {
+
+	private static final String SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}";
+	private static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+	private static final String MATCH_ALL = ".*";
+	private static final int MAX_CACHE_SIZE = 10000;
+	private static final MatchResult NO_MATCH = new StringMatchResult("");
+
+	private Pattern pattern;
+	private String literal;
+	private boolean matchAll;
+	private Map<String, MatchResult> cache;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param pattern
+	 *            The regular expression.
+	 * @param cacheResults
+	 *            If true, the results for each distinct string are remembered.
+	 *            This should only be used where few distinct strings are
+	 *            expected such as tag keys.
+	 */
+	public TagPattern(String pattern, boolean cacheResults) {
+		this.pattern = Pattern.compile(pattern);
+
+		if (isLiteral(pattern)) {
+			literal = pattern;
+		} else if (MATCH_ALL.equals(pattern)) {
+			matchAll = true;
+		} else if (cacheResults) {
+			cache = new HashMap<String, MatchResult>();
+		}
+	}
+
+
+	private static boolean isLiteral(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if (SPECIAL_CHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	private static boolean containsLineTerminator(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if (LINE_TERMINATORS.indexOf(input.charAt(i)) >= 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Returns the string matched by this pattern if it only matches a single
+	 * string.
+	 *
+	 * @return The matching string, or null if the pattern is not a plain
+	 *         string.
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+
+	/**
+	 * Matches the pattern against the entire input string.
+	 *
+	 * @param input
+	 *            The string to be matched.
+	 * @return The match result, or null if the string does not match.
+	 */
+	public MatchResult match(String input) {
+		MatchResult result;
+
+		if (literal != null) {
+			if (literal.equals(input)) {
+				return new StringMatchResult(input);
+			}
+			return null;
+		}
+		// A dot doesn't match line terminators so these are left to the
+		// regular expression.
+		if (matchAll && !containsLineTerminator(input)) {
+			return new StringMatchResult(input);
+		}
+
+		if (cache != null) {
+			result = cache.get(input);
+			if (result == NO_MATCH) {
+				return null;
+			} else if (result != null) {
+				return result;
+			}
+		}
+
+		java.util.regex.Matcher matcher = pattern.matcher(input);
+		if (matcher.matches()) {
+			result = matcher.toMatchResult();
+		} else {
+			result = null;
+		}
+
+		if (cache != null) {
+			if (cache.size() >= MAX_CACHE_SIZE) {
+				cache.clear();
+			}
+			if (result == null) {
+				cache.put(input, NO_MATCH);
+			} else {
+				cache.put(input, result);
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Returns the regular expression.
+	 *
+	 * @return The regular expression.
+	 */
+	public String pattern() {
+		return pattern.pattern();
+	}
+
+
+	/**
+	 * A match result for a pattern without groups that matched an entire
+	 * string.
+	 */
+	private static class StringMatchResult implements MatchResult {
+		private String input;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param input
+		 *            The matched string.
+		 */
+		StringMatchResult(String input) {
+			this.input = input;
+		}
+
+
+		private void checkGroup(int group) {
+			if (group != 0) {
+				throw new IndexOutOfBoundsException("No group " + group);
+			}
+		}
+
+
+		@Override
+		public int start() {
+			return 0;
+		}
+
+
+		@Override
+		public int start(int group) {
+			checkGroup(group);
+			return 0;
+		}
+
+
+		@Override
+		public int end() {
+			return input.length();
+		}
+
+
+		@Override
+		public int end(int group) {
+			checkGroup(group);
+			return input.length();
+		}
+
+
+		@Override
+		public String group() {
+			return input;
+		}
+
+
+		@Override
+		public String group(int group) {
+			checkGroup(group);
+			return input;
+		}
+
+
+		@Override
+		public int groupCount() {
+			return 0;
+		}
+	}
+}
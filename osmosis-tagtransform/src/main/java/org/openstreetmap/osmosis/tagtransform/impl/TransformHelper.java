@@ -124,6 +124,7 @@ public abstract class TransformHelper<T extends Task & Initializable> implements
 		}
 
 		// Apply tag transformations.
+		boolean tagsChanged = false;
 		for (Translation translation : translations) {
 			Collection<Match> matches = translation.match(tagMap, TTEntityType.fromEntityType06(entityType), entity
 					.getUser().getName(), entity.getUser().getId());
@@ -139,6 +140,13 @@ public abstract class TransformHelper<T extends Task & Initializable> implements
 				output.apply(tagMap, newTags, matches, translation.getDataSources());
 			}
 			tagMap = newTags;
+			tagsChanged = true;
+		}
+
+		// Most entities aren't matched by any translation and can be passed
+		// through unchanged.
+		if (!tagsChanged) {
+			return writeableEntityContainer;
 		}
 
 		// Replace the entity tags with the transformed values.
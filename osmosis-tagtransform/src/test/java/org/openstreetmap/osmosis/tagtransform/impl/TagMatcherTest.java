@@ -0,0 +1,102 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.tagtransform.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.tagtransform.Match;
+import org.openstreetmap.osmosis.tagtransform.TTEntityType;
+
+
+/**
+ * Tests the tag matcher for each of the pattern types it handles specially.
+ */
+public class TagMatcherTest {
+
+	private Map<String, String> createTags() {
+		Map<String, String> tags = new HashMap<String, String>();
+
+		tags.put("highway", "residential");
+		tags.put("name", "Main Street");
+		tags.put("name:en", "Main Street");
+		tags.put("note", "line1\nline2");
+
+		return tags;
+	}
+
+
+	private Collection<Match> match(String keyPattern, String valuePattern) {
+		TagMatcher matcher = new TagMatcher("m", keyPattern, valuePattern);
+
+		// Match twice to exercise any cached results.
+		matcher.match(createTags(), TTEntityType.WAY, "user", 1);
+		return matcher.match(createTags(), TTEntityType.WAY, "user", 1);
+	}
+
+
+	/**
+	 * Verifies that plain keys and values are matched.
+	 */
+	@Test
+	public void testLiteral() {
+		Collection<Match> matches = match("highway", "residential");
+
+		Assert.assertEquals("Incorrect match count.", 1, matches.size());
+		Match match = matches.iterator().next();
+		Assert.assertEquals("Incorrect key.", "highway", match.getKey(0));
+		Assert.assertEquals("Incorrect value.", "residential", match.getValue(0));
+		Assert.assertEquals("Incorrect key group count.", 1, match.getKeyGroupCount());
+
+		Assert.assertTrue("Unexpected match.", match("highway", "primary").isEmpty());
+		Assert.assertTrue("Unexpected match.", match("railway", "residential").isEmpty());
+	}
+
+
+	/**
+	 * Verifies that regular expressions with groups are matched.
+	 */
+	@Test
+	public void testRegularExpression() {
+		Collection<Match> matches = match("name(:(.*))?", ".*");
+
+		Assert.assertEquals("Incorrect match count.", 2, matches.size());
+		for (Match match : matches) {
+			Assert.assertEquals("Incorrect key group count.", 3, match.getKeyGroupCount());
+			if (match.getKey(0).equals("name:en")) {
+				Assert.assertEquals("Incorrect key group.", "en", match.getKey(2));
+			} else {
+				Assert.assertNull("Incorrect key group.", match.getKey(2));
+			}
+		}
+
+		Assert.assertEquals("Incorrect match count.", 1, match("high.*", "res[a-z]+").size());
+	}
+
+
+	/**
+	 * Verifies that a pattern matching everything does not match line
+	 * terminators, consistent with the regular expression.
+	 */
+	@Test
+	public void testMatchAll() {
+		Assert.assertEquals("Incorrect match count.", 3, match(".*", ".*").size());
+		Assert.assertEquals("Incorrect match count.", 1, match("note", "(?s).*").size());
+	}
+
+
+	/**
+	 * Verifies that the no tag matcher only matches entities without the tag.
+	 */
+	@Test
+	public void testNoTag() {
+		Assert.assertNull("Unexpected match.",
+				new NoTagMatcher("highway", ".*").match(createTags(), TTEntityType.WAY, "user", 1));
+		Assert.assertNull("Unexpected match.",
+				new NoTagMatcher("name:.*", "Main.*").match(createTags(), TTEntityType.WAY, "user", 1));
+		Assert.assertEquals("Incorrect match count.", 1,
+				new NoTagMatcher("railway", ".*").match(createTags(), TTEntityType.WAY, "user", 1).size());
+	}
+}
@@ -151,6 +151,14 @@ public abstract class BaseXmlWriter {
 					outStream =
 						new CompressionActivator(compressionMethod).createCompressionOutputStream(outStream);
 					
+					// Compress on a separate thread so that compression and xml
+					// generation are performed concurrently. Stdout may be
+					// re-used for multiple streams and is never closed so the
+					// thread would never exit.
+					if (closeRequired && !CompressionMethod.None.equals(compressionMethod)) {
+						outStream = new WriteBehindOutputStream(outStream);
+					}
+					
 					outStreamWriter = new OutputStreamWriter(outStream, "UTF-8");
 					
 					writer = new BufferedWriter(outStreamWriter);
@@ -89,7 +89,7 @@ public class CompressionActivator {
 			}
 			
 			if (CompressionMethod.BZip2.equals(compressionMethod)) {
-				return new BZip2CompressorInputStream(sourceStream);
+				return new BZip2CompressorInputStream(sourceStream, true);
 			}
 			
 			throw new OsmosisRuntimeException("Compression method " + compressionMethod + " is not recognized.");
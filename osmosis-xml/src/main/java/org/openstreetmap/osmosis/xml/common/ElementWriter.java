@@ -3,14 +3,22 @@ package org.openstreetmap.osmosis.xml.common;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Locale;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.domain.common.TimestampFormat;
 
 /**
  * Provides common functionality for all classes writing elements to xml.
+ * <p>
+ * Attribute values are written directly to the output writer. Numbers are
+ * formatted into a reusable buffer and text is escaped using a lookup table,
+ * so no intermediate strings are created for each attribute.
+ * </p>
  *
  * @author Brett Henderson
  */
@@ -23,31 +31,54 @@ public class ElementWriter {
 
     /**
      * Defines the characters that must be replaced by
-     * an encoded string when writing to XML.
+     * an encoded string when writing to XML, indexed by
+     * character. Characters without an entry, including
+     * all characters beyond the end of the table, are
+     * written unchanged.
      */
-    private static final Map<Character, String> XML_ENCODING;
+    private static final String[] XML_ENCODING;
+
+    /**
+     * The number of decimal places written for coordinates.
+     */
+    private static final double COORDINATE_SCALE = 1E7;
+
+    /**
+     * Coordinates beyond this magnitude are formatted using
+     * the slower general purpose formatter. It ensures the
+     * scaled coordinate is accurate to well within a
+     * millionth.
+     */
+    private static final double MAX_FAST_COORDINATE = 256;
+
+    /**
+     * Scaled coordinates this close to a rounding boundary
+     * are formatted using the general purpose formatter to
+     * guarantee identical rounding.
+     */
+    private static final double ROUNDING_TOLERANCE = 1E-6;
 
     static {
         // Define all the characters and their encodings.
-        XML_ENCODING = new HashMap<Character, String>();
+        XML_ENCODING = new String[0x80];
         
         // Non-xml compatible control characters will not be written
         // with the exception of tab, carriage return and line feed.
         for (int i = 0; i <= 0x1F; i++) {
         	if (i != 0x9 && i != 0xA && i != 0xD) {
-        		XML_ENCODING.put(new Character((char) i), "");
+        		XML_ENCODING[i] = "";
         	}
         }
-        XML_ENCODING.put(new Character((char) 0x7F), "");
+        XML_ENCODING[0x7F] = "";
         
-        XML_ENCODING.put(new Character('<'), "&lt;");
-        XML_ENCODING.put(new Character('>'), "&gt;");
-        XML_ENCODING.put(new Character('"'), "&quot;");
-        XML_ENCODING.put(new Character('\''), "&apos;");
-        XML_ENCODING.put(new Character('&'), "&amp;");
-        XML_ENCODING.put(new Character('\n'), "&#xA;");
-        XML_ENCODING.put(new Character('\r'), "&#xD;");
-        XML_ENCODING.put(new Character('\t'), "&#x9;");
+        XML_ENCODING['<'] = "&lt;";
+        XML_ENCODING['>'] = "&gt;";
+        XML_ENCODING['"'] = "&quot;";
+        XML_ENCODING['\''] = "&apos;";
+        XML_ENCODING['&'] = "&amp;";
+        XML_ENCODING['\n'] = "&#xA;";
+        XML_ENCODING['\r'] = "&#xD;";
+        XML_ENCODING['\t'] = "&#x9;";
     }
 
     /**
@@ -60,11 +91,6 @@ public class ElementWriter {
      */
     private final String myElementName;
 
-    /**
-     * The indent level of the element.
-     */
-    private final int myIndentLevel;
-
     private final TimestampFormat myTimestampFormat;
 
     /**
@@ -73,6 +99,22 @@ public class ElementWriter {
      */
     private String myLineSeparator;
 
+    /**
+     * The spaces written before the element on each line.
+     */
+    private final char[] myIndent;
+
+    /**
+     * Holds the digits of numbers being written.
+     */
+    private final char[] myNumberBuffer;
+
+    /**
+     * Formats coordinates that can't be handled by the
+     * fixed point formatting. Created when first required.
+     */
+    private NumberFormat myCoordinateFormat;
+
     /**
      * Creates a new instance.
      *
@@ -82,10 +124,13 @@ public class ElementWriter {
     protected ElementWriter(final String anElementName,
                             final int anIndentionLevel) {
         this.myElementName = anElementName;
-        this.myIndentLevel = anIndentionLevel;
 
         myTimestampFormat = new XmlTimestampFormat();
         this.myLineSeparator = System.getProperty("line.separator");
+
+        myIndent = new char[anIndentionLevel * INDENT_SPACES_PER_LEVEL];
+        Arrays.fill(myIndent, ' ');
+        myNumberBuffer = new char[20];
     }
 
     /**
@@ -106,46 +151,147 @@ public class ElementWriter {
      * @throws IOException if an error occurs.
      */
     private void writeIndent() throws IOException {
-        int indentSpaceCount;
+        myWriter.write(myIndent);
+    }
 
-        indentSpaceCount = myIndentLevel * INDENT_SPACES_PER_LEVEL;
+    /**
+     * Writes data encoded in XML format. Runs of characters
+     * not requiring encoding are written in a single call.
+     *
+     * @param data The data to be written.
+     * @throws IOException if an error occurs.
+     */
+    private void writeEscapedData(final String data) throws IOException {
+        int length = data.length();
+        int runStart = 0;
+
+        for (int i = 0; i < length; ++i) {
+            char currentChar = data.charAt(i);
+
+            if (currentChar < XML_ENCODING.length) {
+                String replacement = XML_ENCODING[currentChar];
+
+                if (replacement != null) {
+                    if (i > runStart) {
+                        myWriter.write(data, runStart, i - runStart);
+                    }
+                    myWriter.write(replacement);
+                    runStart = i + 1;
+                }
+            }
+        }
 
-        for (int i = 0; i < indentSpaceCount; i++) {
-            myWriter.append(' ');
+        if (runStart < length) {
+            myWriter.write(data, runStart, length - runStart);
         }
     }
 
     /**
-     * A utility method for encoding data in XML format.
+     * Writes the decimal digits of a non-negative number into the end of
+     * the number buffer.
      *
-     * @param data The data to be formatted.
-     * @return The formatted data. This may be the input
-     *         string if no changes are required.
+     * @param value The value to be written.
+     * @param minimumDigits The minimum number of digits, leading zeros are
+     *        added as required.
+     * @return The index of the first digit in the buffer.
      */
-    private String escapeData(final String data) {
-        StringBuilder buffer = null;
+    private int formatDigits(long value, int minimumDigits) {
+        int position = myNumberBuffer.length;
+        long remaining = value;
 
-        for (int i = 0; i < data.length(); ++i) {
-            char currentChar = data.charAt(i);
+        do {
+            myNumberBuffer[--position] = (char) ('0' + (remaining % 10));
+            remaining /= 10;
+        } while (remaining > 0 || myNumberBuffer.length - position < minimumDigits);
 
-            String replacement = XML_ENCODING.get(new Character(currentChar));
+        return position;
+    }
 
-            if (replacement != null) {
-                if (buffer == null) {
-                    buffer = new StringBuilder(data.substring(0, i));
-                }
-                buffer.append(replacement);
+    /**
+     * Writes a number in decimal format.
+     *
+     * @param value The value to be written.
+     * @throws IOException if an error occurs.
+     */
+    private void writeLong(long value) throws IOException {
+        int position;
+
+        if (value == Long.MIN_VALUE) {
+            myWriter.write(Long.toString(value));
+            return;
+        }
 
-            } else if (buffer != null) {
-                buffer.append(currentChar);
+        if (value < 0) {
+            myWriter.write('-');
+        }
+        position = formatDigits(Math.abs(value), 1);
+        myWriter.write(myNumberBuffer, position, myNumberBuffer.length - position);
+    }
+
+    /**
+     * Writes a coordinate with up to seven decimal places,
+     * omitting trailing zeros. Rounding is performed in
+     * the same way as {@link DecimalFormat}.
+     *
+     * @param value The value to be written.
+     * @throws IOException if an error occurs.
+     */
+    private void writeCoordinate(double value) throws IOException {
+        double scaled = value * COORDINATE_SCALE;
+        long scaledLong = Math.round(scaled);
+        double fraction = scaled - Math.floor(scaled);
+        int position;
+        int end;
+        long integerPart;
+        long decimalPart;
+
+        // Values rounding to zero are also passed to the general formatter
+        // because it writes a sign for negative values.
+        if (!(Math.abs(value) < MAX_FAST_COORDINATE) || scaledLong == 0
+                || Math.abs(fraction - 0.5) < ROUNDING_TOLERANCE) {
+            if (myCoordinateFormat == null) {
+                // Only write the first 7 decimal places.
+                // Write in US locale so that a '.' is used as the decimal separator.
+                myCoordinateFormat = new DecimalFormat(
+                        "0.#######;-0.#######",
+                        new DecimalFormatSymbols(Locale.US));
             }
+            myWriter.write(myCoordinateFormat.format(value));
+            return;
         }
 
-        if (buffer == null) {
-            return data;
-        } else {
-            return buffer.toString();
+        if (scaledLong < 0) {
+            myWriter.write('-');
+            scaledLong = -scaledLong;
         }
+        integerPart = scaledLong / (long) COORDINATE_SCALE;
+        decimalPart = scaledLong % (long) COORDINATE_SCALE;
+
+        position = formatDigits(integerPart, 1);
+        myWriter.write(myNumberBuffer, position, myNumberBuffer.length - position);
+
+        if (decimalPart != 0) {
+            position = formatDigits(decimalPart, 7);
+            end = myNumberBuffer.length;
+            while (myNumberBuffer[end - 1] == '0') {
+                end--;
+            }
+            myWriter.write('.');
+            myWriter.write(myNumberBuffer, position, end - position);
+        }
+    }
+
+    /**
+     * Writes the start of an attribute up to the opening quote of the
+     * value.
+     *
+     * @param name The name of the attribute.
+     * @throws IOException if an error occurs.
+     */
+    private void writeAttributeName(final String name) throws IOException {
+        myWriter.write(' ');
+        myWriter.write(name);
+        myWriter.write("=\"");
     }
 
     /**
@@ -202,13 +348,50 @@ public class ElementWriter {
      */
     protected void addAttribute(final String name, final String value) {
         try {
-            myWriter.append(' ');
-            myWriter.append(name);
-            myWriter.append("=\"");
+            writeAttributeName(name);
+
+            writeEscapedData(value);
+
+            myWriter.write('"');
+
+        } catch (IOException e) {
+            throw new OsmosisRuntimeException("Unable to write data.", e);
+        }
+    }
+
+    /**
+     * Adds a numeric attribute to the element.
+     *
+     * @param name The name of the attribute.
+     * @param value The value of the attribute.
+     */
+    protected void addAttribute(final String name, final long value) {
+        try {
+            writeAttributeName(name);
+
+            writeLong(value);
+
+            myWriter.write('"');
+
+        } catch (IOException e) {
+            throw new OsmosisRuntimeException("Unable to write data.", e);
+        }
+    }
+
+    /**
+     * Adds a coordinate attribute to the element. The
+     * coordinate is written with up to seven decimal places.
+     *
+     * @param name The name of the attribute.
+     * @param value The value of the attribute.
+     */
+    protected void addCoordinateAttribute(final String name, final double value) {
+        try {
+            writeAttributeName(name);
 
-            myWriter.append(escapeData(value));
+            writeCoordinate(value);
 
-            myWriter.append('"');
+            myWriter.write('"');
 
         } catch (IOException e) {
             throw new OsmosisRuntimeException("Unable to write data.", e);
@@ -0,0 +1,336 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+
+/**
+ * Decompresses a bzip2 file consisting of multiple concatenated bzip2 streams
+ * using worker threads. Files created by parallel compressors such as pbzip2
+ * and lbzip2 have this layout. Each stream begins on a byte boundary with a
+ * ten byte signature which is very unlikely to occur by chance within
+ * compressed data, so the compressed data is divided into segments of whole
+ * streams which are decompressed concurrently and returned in order.
+ * <p>
+ * A file consisting of a single stream cannot be divided in this way. If no
+ * stream boundary is found within a limited distance the remainder of the
+ * file is decompressed sequentially by the reading thread.
+ * </p>
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+	private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+
+	/**
+	 * The number of segment sizes to search for a stream boundary before
+	 * falling back to sequential decompression.
+	 */
+	private static final int MAX_SEGMENT_SIZE_MULTIPLE = 16;
+
+	private static final int READ_SIZE = 64 * 1024;
+
+	/**
+	 * The stream header "BZh" followed by a block size digit and the magic
+	 * number beginning the first block of the stream.
+	 */
+	private static final int SIGNATURE_LENGTH = 10;
+	private static final byte[] BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+
+	private InputStream source;
+	private ExecutorService executor;
+	private int maxPendingSegments;
+	private int segmentSize;
+	private Deque<Future<byte[]>> pendingSegments;
+	private byte[] buffer;
+	private int bufferLength;
+	private boolean sourceExhausted;
+	private InputStream sequentialStream;
+	private byte[] currentSegment;
+	private int currentOffset;
+
+
+	/**
+	 * Creates a new instance with a default segment size.
+	 *
+	 * @param source
+	 *            The stream providing compressed data. It will be closed when
+	 *            this stream is closed.
+	 * @param executor
+	 *            The executor to decompress segments with.
+	 * @param maxPendingSegments
+	 *            The maximum number of segments to decompress ahead of the
+	 *            reading thread.
+	 */
+	public ParallelBZip2InputStream(InputStream source, ExecutorService executor, int maxPendingSegments) {
+		this(source, executor, maxPendingSegments, DEFAULT_SEGMENT_SIZE);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The stream providing compressed data. It will be closed when
+	 *            this stream is closed.
+	 * @param executor
+	 *            The executor to decompress segments with.
+	 * @param maxPendingSegments
+	 *            The maximum number of segments to decompress ahead of the
+	 *            reading thread.
+	 * @param segmentSize
+	 *            The minimum amount of compressed data in each segment. A
+	 *            segment is extended to the start of the next stream.
+	 */
+	public ParallelBZip2InputStream(InputStream source, ExecutorService executor, int maxPendingSegments,
+			int segmentSize) {
+		this.source = source;
+		this.executor = executor;
+		this.maxPendingSegments = Math.max(1, maxPendingSegments);
+		this.segmentSize = segmentSize;
+
+		pendingSegments = new ArrayDeque<Future<byte[]>>();
+		buffer = new byte[segmentSize + READ_SIZE];
+		bufferLength = 0;
+		sourceExhausted = false;
+		currentSegment = new byte[0];
+		currentOffset = 0;
+	}
+
+
+	/**
+	 * Reads more compressed data into the buffer.
+	 *
+	 * @return False if the end of the source has been reached.
+	 */
+	private boolean fillBuffer() throws IOException {
+		int bytesRead;
+
+		if (sourceExhausted) {
+			return false;
+		}
+
+		if (bufferLength + READ_SIZE > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + READ_SIZE));
+		}
+
+		bytesRead = source.read(buffer, bufferLength, READ_SIZE);
+		if (bytesRead < 0) {
+			sourceExhausted = true;
+			return false;
+		}
+		bufferLength += bytesRead;
+
+		return true;
+	}
+
+
+	private boolean isStreamSignature(int offset) {
+		if (buffer[offset] != 'B' || buffer[offset + 1] != 'Z' || buffer[offset + 2] != 'h') {
+			return false;
+		}
+		if (buffer[offset + 3] < '1' || buffer[offset + 3] > '9') {
+			return false;
+		}
+		for (int i = 0; i < BLOCK_MAGIC.length; i++) {
+			if (buffer[offset + 4 + i] != BLOCK_MAGIC[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Finds the start of the first stream at or beyond the minimum segment
+	 * size, reading more data as required.
+	 *
+	 * @return The offset of the next stream, the buffer length if the source is
+	 *         exhausted, or -1 if the maximum segment size is exceeded.
+	 */
+	private int findSegmentEnd() throws IOException {
+		int searchOffset = segmentSize;
+		int maxSegmentLength = segmentSize * MAX_SEGMENT_SIZE_MULTIPLE;
+
+		for (;;) {
+			for (; searchOffset + SIGNATURE_LENGTH <= bufferLength; searchOffset++) {
+				if (isStreamSignature(searchOffset)) {
+					return searchOffset;
+				}
+			}
+
+			if (bufferLength > maxSegmentLength) {
+				return -1;
+			}
+			if (!fillBuffer()) {
+				return bufferLength;
+			}
+		}
+	}
+
+
+	/**
+	 * Submits segments for decompression until the maximum number of pending
+	 * segments is reached or all data has been read from the source.
+	 */
+	private void submitSegments() throws IOException {
+		while (sequentialStream == null && pendingSegments.size() < maxPendingSegments) {
+			int segmentEnd;
+			boolean moreData;
+			final byte[] segment;
+
+			// Read until a full segment is available or the source is exhausted.
+			moreData = true;
+			while (bufferLength < segmentSize && moreData) {
+				moreData = fillBuffer();
+			}
+			if (bufferLength == 0) {
+				return;
+			}
+
+			segmentEnd = findSegmentEnd();
+			if (segmentEnd < 0) {
+				// The stream boundaries are too far apart to decompress in
+				// parallel so decompress the remaining data sequentially once
+				// all pending segments have been consumed.
+				sequentialStream = new BZip2CompressorInputStream(
+						new SequenceInputStream(new ByteArrayInputStream(buffer, 0, bufferLength), source), true);
+				buffer = null;
+				bufferLength = 0;
+				return;
+			}
+
+			segment = Arrays.copyOf(buffer, segmentEnd);
+			System.arraycopy(buffer, segmentEnd, buffer, 0, bufferLength - segmentEnd);
+			bufferLength -= segmentEnd;
+
+			pendingSegments.add(executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws IOException {
+					return decompress(segment);
+				}
+			}));
+		}
+	}
+
+
+	private static byte[] decompress(byte[] segment) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(segment.length * 8);
+		byte[] readBuffer = new byte[READ_SIZE];
+		int bytesRead;
+
+		try (InputStream input = new BZip2CompressorInputStream(new ByteArrayInputStream(segment), true)) {
+			while ((bytesRead = input.read(readBuffer)) >= 0) {
+				output.write(readBuffer, 0, bytesRead);
+			}
+		}
+
+		return output.toByteArray();
+	}
+
+
+	/**
+	 * Makes the next decompressed segment current, blocking until it is
+	 * available.
+	 *
+	 * @return False if there are no more segments.
+	 */
+	private boolean nextSegment() throws IOException {
+		Future<byte[]> future;
+
+		submitSegments();
+
+		future = pendingSegments.poll();
+		if (future == null) {
+			return false;
+		}
+
+		try {
+			currentSegment = future.get();
+			currentOffset = 0;
+		} catch (InterruptedException e) {
+			throw new IOException("Thread was interrupted while waiting for decompressed data.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to decompress bzip2 data.", e.getCause());
+		} catch (CancellationException e) {
+			throw new IOException("Decompression was cancelled.", e);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		byte[] singleByte = new byte[1];
+
+		if (read(singleByte, 0, 1) < 0) {
+			return -1;
+		}
+
+		return singleByte[0] & 0xFF;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int length;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		while (currentOffset >= currentSegment.length) {
+			if (!nextSegment()) {
+				if (sequentialStream != null) {
+					return sequentialStream.read(b, off, len);
+				}
+				return -1;
+			}
+		}
+
+		length = Math.min(len, currentSegment.length - currentOffset);
+		System.arraycopy(currentSegment, currentOffset, b, off, length);
+		currentOffset += length;
+
+		return length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Future<byte[]> future : pendingSegments) {
+			future.cancel(true);
+		}
+		pendingSegments.clear();
+
+		if (sequentialStream != null) {
+			sequentialStream.close();
+		} else {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Reads an underlying stream on a dedicated thread so that the work performed
+ * by the underlying stream, typically decompression, overlaps with the
+ * processing of the data by the consuming thread. Data is passed between the
+ * threads in blocks, and the number of blocks held in memory is bounded.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	private static final int DEFAULT_MAX_PENDING_BLOCKS = 16;
+
+	/**
+	 * Marks the end of the stream in the block queue.
+	 */
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	private InputStream source;
+	private int blockSize;
+	private BlockingQueue<byte[]> blocks;
+	private Thread readerThread;
+	private volatile Exception readerException;
+	private volatile boolean closed;
+	private byte[] currentBlock;
+	private int currentOffset;
+
+
+	/**
+	 * Creates a new instance with a default block size and block count.
+	 *
+	 * @param source
+	 *            The stream to be read. It will be closed when this stream is
+	 *            closed.
+	 */
+	public ReadAheadInputStream(InputStream source) {
+		this(source, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_PENDING_BLOCKS);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The stream to be read. It will be closed when this stream is
+	 *            closed.
+	 * @param blockSize
+	 *            The size of the blocks to read from the source stream.
+	 * @param maxPendingBlocks
+	 *            The maximum number of blocks to read ahead of the consuming
+	 *            thread.
+	 */
+	public ReadAheadInputStream(InputStream source, int blockSize, int maxPendingBlocks) {
+		this.source = source;
+		this.blockSize = blockSize;
+
+		blocks = new ArrayBlockingQueue<byte[]>(maxPendingBlocks);
+		currentBlock = null;
+		currentOffset = 0;
+
+		readerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readSource();
+			}
+		}, "XML-ReadAhead");
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+
+	/**
+	 * Runs on the reader thread and fills the block queue until the source is
+	 * exhausted or this stream is closed.
+	 */
+	private void readSource() {
+		try {
+			try {
+				while (!closed) {
+					byte[] buffer = new byte[blockSize];
+					int length = 0;
+					int bytesRead = 0;
+
+					// Fill the block to minimise the number of hand-offs.
+					while (length < blockSize && bytesRead >= 0) {
+						bytesRead = source.read(buffer, length, blockSize - length);
+						if (bytesRead > 0) {
+							length += bytesRead;
+						}
+					}
+
+					if (length > 0) {
+						if (length < blockSize) {
+							byte[] block = new byte[length];
+							System.arraycopy(buffer, 0, block, 0, length);
+							buffer = block;
+						}
+						blocks.put(buffer);
+					}
+					if (bytesRead < 0) {
+						break;
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				readerException = e;
+			}
+
+			blocks.put(END_OF_STREAM);
+
+		} catch (InterruptedException e) {
+			// The stream has been closed by the consuming thread.
+		}
+	}
+
+
+	/**
+	 * Makes the next block current, blocking until it is available.
+	 *
+	 * @return False if the end of the stream has been reached.
+	 */
+	private boolean nextBlock() throws IOException {
+		if (currentBlock == END_OF_STREAM) {
+			return false;
+		}
+
+		try {
+			currentBlock = blocks.take();
+			currentOffset = 0;
+		} catch (InterruptedException e) {
+			throw new IOException("Thread was interrupted while waiting for data.", e);
+		}
+
+		if (currentBlock == END_OF_STREAM) {
+			Exception cause = readerException;
+
+			if (cause != null) {
+				throw new IOException("Unable to read from the source stream.", cause);
+			}
+
+			return false;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		while (currentBlock == null || currentOffset >= currentBlock.length) {
+			if (!nextBlock()) {
+				return -1;
+			}
+		}
+
+		return currentBlock[currentOffset++] & 0xFF;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int length;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		while (currentBlock == null || currentOffset >= currentBlock.length) {
+			if (!nextBlock()) {
+				return -1;
+			}
+		}
+
+		length = Math.min(len, currentBlock.length - currentOffset);
+		System.arraycopy(currentBlock, currentOffset, b, off, length);
+		currentOffset += length;
+
+		return length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		// Wake the reader thread if it is waiting for queue space. The thread
+		// isn't waited for because a read of the source may block
+		// indefinitely, any error it raises after this point is discarded.
+		readerThread.interrupt();
+		blocks.clear();
+
+		source.close();
+	}
+}
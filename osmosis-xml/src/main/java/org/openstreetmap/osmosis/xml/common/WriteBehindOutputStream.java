@@ -0,0 +1,258 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+
+
+/**
+ * Writes to an underlying stream on a dedicated thread so that the work
+ * performed by the underlying stream, typically compression, overlaps with the
+ * production of the data by the writing thread. Data is passed between the
+ * threads in blocks, and the number of blocks held in memory is bounded.
+ * <p>
+ * Errors raised by the underlying stream are reported by the next write, flush
+ * or close call on this stream.
+ * </p>
+ */
+public class WriteBehindOutputStream extends OutputStream {
+
+	private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	private static final int DEFAULT_MAX_PENDING_BLOCKS = 16;
+
+	/**
+	 * Requests the writer thread to flush the underlying stream.
+	 */
+	private static final byte[] FLUSH = new byte[0];
+
+	/**
+	 * Marks the end of the stream in the block queue.
+	 */
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	private OutputStream destination;
+	private BlockingQueue<byte[]> blocks;
+	private BlockingQueue<Boolean> flushAcknowledgements;
+	private Thread writerThread;
+	private volatile Exception writerException;
+	private byte[] currentBlock;
+	private int currentLength;
+	private boolean closed;
+
+
+	/**
+	 * Creates a new instance with a default block size and block count.
+	 *
+	 * @param destination
+	 *            The stream to be written. It will be closed when this stream
+	 *            is closed.
+	 */
+	public WriteBehindOutputStream(OutputStream destination) {
+		this(destination, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_PENDING_BLOCKS);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param destination
+	 *            The stream to be written. It will be closed when this stream
+	 *            is closed.
+	 * @param blockSize
+	 *            The size of the blocks passed to the writer thread.
+	 * @param maxPendingBlocks
+	 *            The maximum number of blocks waiting to be written to the
+	 *            destination stream.
+	 */
+	public WriteBehindOutputStream(OutputStream destination, int blockSize, int maxPendingBlocks) {
+		this.destination = destination;
+
+		blocks = new ArrayBlockingQueue<byte[]>(maxPendingBlocks);
+		flushAcknowledgements = new SynchronousQueue<Boolean>();
+		currentBlock = new byte[blockSize];
+		currentLength = 0;
+
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeDestination();
+			}
+		}, "XML-WriteBehind");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+
+	/**
+	 * Runs on the writer thread and writes blocks to the destination until the
+	 * end of the stream is reached. After an error all remaining blocks are
+	 * discarded so that the writing thread never blocks indefinitely.
+	 */
+	private void writeDestination() {
+		try {
+			for (;;) {
+				byte[] block = blocks.take();
+
+				if (block == END_OF_STREAM) {
+					break;
+				}
+
+				try {
+					if (writerException == null) {
+						if (block == FLUSH) {
+							destination.flush();
+						} else {
+							destination.write(block);
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					writerException = e;
+				}
+
+				if (block == FLUSH) {
+					flushAcknowledgements.put(Boolean.TRUE);
+				}
+			}
+		} catch (InterruptedException e) {
+			// The writing thread has abandoned the stream.
+		}
+	}
+
+
+	private void checkForWriterErrors() throws IOException {
+		Exception cause = writerException;
+
+		if (cause != null) {
+			throw new IOException("Unable to write to the destination stream.", cause);
+		}
+	}
+
+
+	private void enqueue(byte[] block) throws IOException {
+		checkForWriterErrors();
+
+		try {
+			blocks.put(block);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Thread was interrupted while waiting for queue space.");
+		}
+	}
+
+
+	/**
+	 * Passes the current block to the writer thread if it contains data.
+	 */
+	private void sendCurrentBlock() throws IOException {
+		if (currentLength > 0) {
+			byte[] block;
+
+			if (currentLength == currentBlock.length) {
+				block = currentBlock;
+				currentBlock = new byte[currentBlock.length];
+			} else {
+				block = new byte[currentLength];
+				System.arraycopy(currentBlock, 0, block, 0, currentLength);
+			}
+			currentLength = 0;
+
+			enqueue(block);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if (currentLength == currentBlock.length) {
+			sendCurrentBlock();
+		}
+
+		currentBlock[currentLength++] = (byte) b;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+
+		while (remaining > 0) {
+			int length;
+
+			if (currentLength == currentBlock.length) {
+				sendCurrentBlock();
+			}
+
+			length = Math.min(remaining, currentBlock.length - currentLength);
+			System.arraycopy(b, offset, currentBlock, currentLength, length);
+			currentLength += length;
+			offset += length;
+			remaining -= length;
+		}
+	}
+
+
+	/**
+	 * Passes all data to the writer thread and waits for the destination stream
+	 * to be flushed.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		sendCurrentBlock();
+		enqueue(FLUSH);
+
+		try {
+			flushAcknowledgements.take();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Thread was interrupted while waiting for data to be flushed.");
+		}
+
+		checkForWriterErrors();
+	}
+
+
+	/**
+	 * Passes all data to the writer thread, waits for it to be written, and
+	 * closes the destination stream.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			try {
+				sendCurrentBlock();
+			} finally {
+				// The writer thread discards blocks after an error so there
+				// is always space for the end marker eventually.
+				blocks.put(END_OF_STREAM);
+				writerThread.join();
+			}
+		} catch (InterruptedException e) {
+			writerThread.interrupt();
+			throw new InterruptedIOException("Thread was interrupted while waiting for data to be written.");
+		} finally {
+			destination.close();
+		}
+
+		checkForWriterErrors();
+	}
+}
@@ -6,6 +6,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,12 +19,21 @@ import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.xml.common.CompressionActivator;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.common.ParallelBZip2InputStream;
+import org.openstreetmap.osmosis.xml.common.ReadAheadInputStream;
 import org.openstreetmap.osmosis.xml.v0_6.impl.FastXmlParser;
+import org.openstreetmap.osmosis.xml.v0_6.impl.OsmElementSplitter;
+import org.openstreetmap.osmosis.xml.v0_6.impl.ParallelXmlDecoder;
 
 
 /**
  * An OSM data source reading from an xml file. The entire contents of the file
  * are read.
+ * <p>
+ * If worker threads are requested, decompression runs on its own thread and the
+ * file is split into chunks of elements that are parsed by the workers. Multi
+ * stream bzip2 files are also decompressed by the workers.
+ * </p>
  * 
  * @author Jiri Clement
  * @author Brett Henderson
@@ -31,10 +42,13 @@ public class FastXmlReader implements RunnableSource {
 		
 		private static Logger log = Logger.getLogger(FastXmlReader.class.getName());
 		
+		private static final int CHUNK_SIZE = 1024 * 1024;
+		
 		private Sink sink;
 		private final File file;
 		private final boolean enableDateParsing;
 		private final CompressionMethod compressionMethod;
+		private final int workers;
 		
 		
 		/**
@@ -49,9 +63,30 @@ public class FastXmlReader implements RunnableSource {
 		 *            Specifies the compression method to employ.
 		 */
 		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod) {
+			this(file, enableDateParsing, compressionMethod, 0);
+		}
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param file
+		 *            The file to read.
+		 * @param enableDateParsing
+		 *            If true, dates will be parsed from xml data, else the current
+		 *            date will be used thus saving parsing time.
+		 * @param compressionMethod
+		 *            Specifies the compression method to employ.
+		 * @param workers
+		 *            The number of worker threads to parse the file with. If 0,
+		 *            the file is read and parsed on the current thread.
+		 */
+		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod,
+				int workers) {
 			this.file = file;
 			this.enableDateParsing = enableDateParsing;
 			this.compressionMethod = compressionMethod;
+			this.workers = workers;
 		}
 		
 		
@@ -70,6 +105,7 @@ public class FastXmlReader implements RunnableSource {
 		public void run() {
 			InputStream inputStream = null;
 			FastXmlParser parser = null;
+			ExecutorService executorService = null;
 			
 			try {
 				sink.initialize(Collections.<String, Object>emptyMap());
@@ -81,20 +117,41 @@ public class FastXmlReader implements RunnableSource {
 					inputStream = new FileInputStream(file);
 				}
 				
-				
-				inputStream =
-					new CompressionActivator(compressionMethod).
-						createCompressionInputStream(inputStream);
-				
-		        XMLInputFactory factory = XMLInputFactory.newInstance();
-		        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
-		        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
-		        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
-		        XMLStreamReader xpp = factory.createXMLStreamReader(inputStream);
-				
-				parser = new FastXmlParser(sink, xpp, enableDateParsing);
-				
-				parser.readOsm();
+				if (workers > 0) {
+					executorService = Executors.newFixedThreadPool(workers);
+					
+					if (CompressionMethod.BZip2.equals(compressionMethod)) {
+						inputStream = new ParallelBZip2InputStream(inputStream, executorService, workers * 2);
+					} else {
+						inputStream =
+							new CompressionActivator(compressionMethod).
+								createCompressionInputStream(inputStream);
+					}
+					inputStream = new ReadAheadInputStream(inputStream);
+					
+					new ParallelXmlDecoder(
+						new OsmElementSplitter(inputStream, CHUNK_SIZE),
+						executorService,
+						workers * 2,
+						enableDateParsing,
+						sink
+					).run();
+					
+				} else {
+					inputStream =
+						new CompressionActivator(compressionMethod).
+							createCompressionInputStream(inputStream);
+					
+			        XMLInputFactory factory = XMLInputFactory.newInstance();
+			        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+			        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+			        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+			        XMLStreamReader xpp = factory.createXMLStreamReader(inputStream);
+					
+					parser = new FastXmlParser(sink, xpp, enableDateParsing);
+					
+					parser.readOsm();
+				}
 				
 				sink.complete();
 				
@@ -103,6 +160,10 @@ public class FastXmlReader implements RunnableSource {
 			} finally {
 				sink.close();
 				
+				if (executorService != null) {
+					executorService.shutdownNow();
+				}
+				
 				if (inputStream != null) {
 					try {
 						inputStream.close();
@@ -21,6 +21,8 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 		private static final String DEFAULT_FILE_NAME = "dump.osm";
 		private static final String ARG_ENABLE_DATE_PARSING = "enableDateParsing";
 		private static final boolean DEFAULT_ENABLE_DATE_PARSING = true;
+		private static final String ARG_WORKERS = "workers";
+		private static final int DEFAULT_WORKERS = 0;
 		
 		
 		/**
@@ -32,6 +34,7 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 			File file;
 			boolean enableDateParsing;
 			CompressionMethod compressionMethod;
+			int workers;
 			FastXmlReader task;
 			
 			// Get the task arguments.
@@ -42,12 +45,13 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 			);
 			enableDateParsing = getBooleanArgument(taskConfig, ARG_ENABLE_DATE_PARSING, DEFAULT_ENABLE_DATE_PARSING);
 			compressionMethod = getCompressionMethodArgument(taskConfig, fileName);
+			workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
 			
 			// Create a file object from the file name provided.
 			file = new File(fileName);
 			
 			// Build the task object.
-			task = new FastXmlReader(file, enableDateParsing, compressionMethod);
+			task = new FastXmlReader(file, enableDateParsing, compressionMethod, workers);
 			
 			return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 		}
@@ -268,7 +268,6 @@ public class FastXmlParser {
 		id = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_ID));
 		version = Integer.parseInt(reader.getAttributeValue(null, ATTRIBUTE_NAME_VERSION));
 		timestamp = parseTimestamp(reader.getAttributeValue(null, ATTRIBUTE_NAME_TIMESTAMP));
-		changesetId = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_CHANGESET_ID));
 		user = readUser();
 		changesetId = readChangesetId();
 		latitude = Double.parseDouble(reader.getAttributeValue(null, ATTRIBUTE_NAME_LATITUDE));
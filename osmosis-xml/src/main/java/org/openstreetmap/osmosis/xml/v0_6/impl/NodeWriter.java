@@ -2,11 +2,7 @@
 package org.openstreetmap.osmosis.xml.v0_6.impl;
 
 import java.io.Writer;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
 import java.util.Collection;
-import java.util.Locale;
 
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
@@ -22,7 +18,6 @@ public class NodeWriter extends EntityWriter {
      * Write the tags of a node.
      */
    private TagWriter tagWriter;
-   private NumberFormat numberFormat;
 
 	/**
 	 * Creates a new instance.
@@ -36,13 +31,6 @@ public class NodeWriter extends EntityWriter {
 		super(elementName, indentLevel);
 		
 		tagWriter = new TagWriter("tag", indentLevel + 1);
-		
-		// Only write the first 7 decimal places.
-		// Write in US locale so that a '.' is used as the decimal separator.
-		numberFormat = new DecimalFormat(
-			"0.#######;-0.#######",
-			new DecimalFormatSymbols(Locale.US)
-		);
 	}
 	
 	
@@ -59,11 +47,11 @@ public class NodeWriter extends EntityWriter {
 		addCommonAttributes(node);
 		
 		if (!Double.isNaN(node.getLatitude())) {
-			addAttribute("lat", numberFormat.format(node.getLatitude()));
+			addCoordinateAttribute("lat", node.getLatitude());
 		}
 		
 		if (!Double.isNaN(node.getLongitude())) {
-			addAttribute("lon", numberFormat.format(node.getLongitude()));
+			addCoordinateAttribute("lon", node.getLongitude());
 		}
 
 		addMetatags(node);
@@ -0,0 +1,396 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Splits an osm xml stream into chunks that can be parsed independently. The
+ * stream is cut immediately before top-level node, way and relation elements
+ * once a chunk has reached a target size. Each chunk is returned as a complete
+ * osm document consisting of the original prolog and osm start tag, the
+ * elements of the chunk, and an osm end tag, which allows it to be parsed by
+ * {@link FastXmlParser}.
+ * <p>
+ * The stream is scanned at the byte level without decoding characters, so it
+ * must use an ASCII compatible encoding such as UTF-8. Only markup delimiters
+ * are examined, comments, CDATA sections, processing instructions and quoted
+ * attribute values are skipped so that delimiters within them are ignored.
+ * </p>
+ */
+public class OsmElementSplitter implements Iterator<byte[]> {
+
+	private static final int READ_SIZE = 64 * 1024;
+	private static final byte[] OSM_END_TAG = "</osm>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[][] SPLIT_ELEMENT_NAMES = {
+		"node".getBytes(StandardCharsets.US_ASCII),
+		"way".getBytes(StandardCharsets.US_ASCII),
+		"relation".getBytes(StandardCharsets.US_ASCII)
+	};
+
+	private InputStream input;
+	private int targetChunkSize;
+	private byte[] buffer;
+	private int bufferLength;
+	private boolean inputExhausted;
+	private byte[] header;
+	private boolean bodyComplete;
+	private int chunkStart;
+	private int scanOffset;
+	private int depth;
+	private byte[] nextChunk;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param input
+	 *            The stream providing the osm xml data. It is not closed by
+	 *            this class.
+	 * @param targetChunkSize
+	 *            The size in bytes that a chunk must reach before it is ended.
+	 *            Chunks are ended at the next element boundary so will usually
+	 *            be slightly larger.
+	 */
+	public OsmElementSplitter(InputStream input, int targetChunkSize) {
+		this.input = input;
+		this.targetChunkSize = targetChunkSize;
+
+		buffer = new byte[targetChunkSize + READ_SIZE];
+		bufferLength = 0;
+		inputExhausted = false;
+		header = null;
+		bodyComplete = false;
+	}
+
+
+	/**
+	 * Reads more data into the buffer.
+	 *
+	 * @return False if the end of the stream has been reached.
+	 */
+	private boolean fillBuffer() {
+		int bytesRead;
+
+		if (inputExhausted) {
+			return false;
+		}
+
+		if (bufferLength + READ_SIZE > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + READ_SIZE));
+		}
+
+		try {
+			bytesRead = input.read(buffer, bufferLength, READ_SIZE);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read xml data.", e);
+		}
+		if (bytesRead < 0) {
+			inputExhausted = true;
+			return false;
+		}
+		bufferLength += bytesRead;
+
+		return true;
+	}
+
+
+	/**
+	 * Reads data until the buffer contains the specified number of bytes.
+	 *
+	 * @return False if the end of the stream was reached first.
+	 */
+	private boolean isAvailable(int length) {
+		while (bufferLength < length) {
+			if (!fillBuffer()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Ensures that the buffer contains the specified number of bytes.
+	 */
+	private void require(int length) {
+		if (!isAvailable(length)) {
+			throw new OsmosisRuntimeException("Unexpected end of xml data.");
+		}
+	}
+
+
+	private boolean matches(int offset, String text) {
+		if (!isAvailable(offset + text.length())) {
+			return false;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			if (buffer[offset + i] != text.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Finds the end of a construct such as a comment.
+	 *
+	 * @return The offset immediately after the terminator.
+	 */
+	private int skipPast(int offset, String terminator) {
+		for (int i = offset;; i++) {
+			require(i + terminator.length());
+			if (matches(i, terminator)) {
+				return i + terminator.length();
+			}
+		}
+	}
+
+
+	/**
+	 * Finds the end of a tag, ignoring any '&gt;' characters within quoted
+	 * attribute values.
+	 *
+	 * @return The offset of the closing '&gt;' character.
+	 */
+	private int findTagEnd(int markupOffset) {
+		byte quote = 0;
+
+		for (int i = markupOffset + 1;; i++) {
+			byte b;
+
+			require(i + 1);
+			b = buffer[i];
+
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return i;
+			}
+		}
+	}
+
+
+	private boolean isNameEnd(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+	}
+
+
+	private boolean isSplitElement(int markupOffset) {
+		for (byte[] name : SPLIT_ELEMENT_NAMES) {
+			boolean match;
+
+			if (!isAvailable(markupOffset + name.length + 2)) {
+				continue;
+			}
+			match = isNameEnd(buffer[markupOffset + name.length + 1]);
+			for (int i = 0; match && i < name.length; i++) {
+				match = buffer[markupOffset + 1 + i] == name[i];
+			}
+			if (match) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Skips the markup construct beginning at the specified offset.
+	 *
+	 * @return The offset immediately after the construct.
+	 */
+	private int skipMarkup(int markupOffset) {
+		int tagEnd;
+
+		if (matches(markupOffset, "<!--")) {
+			return skipPast(markupOffset + 4, "-->");
+		}
+		if (matches(markupOffset, "<![CDATA[")) {
+			return skipPast(markupOffset + 9, "]]>");
+		}
+		if (matches(markupOffset, "<?")) {
+			return skipPast(markupOffset + 2, "?>");
+		}
+
+		tagEnd = findTagEnd(markupOffset);
+		if (buffer[markupOffset + 1] == '/') {
+			depth--;
+		} else if (buffer[markupOffset + 1] != '!' && buffer[tagEnd - 1] != '/') {
+			depth++;
+		}
+
+		return tagEnd + 1;
+	}
+
+
+	/**
+	 * Reads the prolog and osm start tag which form the header of every chunk.
+	 */
+	private void readHeader() {
+		int offset = 0;
+
+		require(2);
+		if (buffer[0] == 0 || buffer[1] == 0 || (buffer[0] & 0xFF) == 0xFE || (buffer[0] & 0xFF) == 0xFF) {
+			throw new OsmosisRuntimeException("Only ASCII compatible encodings such as UTF-8 may be split.");
+		}
+
+		depth = 0;
+		while (depth == 0) {
+			require(offset + 1);
+			if (buffer[offset] != '<') {
+				offset++;
+				continue;
+			}
+			offset = skipMarkup(offset);
+
+			// An empty osm element has no body to split.
+			if (depth == 0 && buffer[offset - 2] == '/') {
+				// Read the remainder of the document.
+				isAvailable(Integer.MAX_VALUE);
+				header = Arrays.copyOf(buffer, bufferLength);
+				bodyComplete = true;
+				bufferLength = 0;
+				return;
+			}
+		}
+
+		if (depth != 1) {
+			throw new OsmosisRuntimeException("Unexpected end tag before the osm start tag.");
+		}
+
+		header = Arrays.copyOf(buffer, offset);
+		chunkStart = offset;
+		scanOffset = offset;
+	}
+
+
+	/**
+	 * Creates a chunk document from the specified range of the buffer, and
+	 * discards the range from the buffer.
+	 */
+	private byte[] createChunk(int end) {
+		byte[] chunk;
+		int bodyLength = end - chunkStart;
+
+		chunk = new byte[header.length + bodyLength + OSM_END_TAG.length];
+		System.arraycopy(header, 0, chunk, 0, header.length);
+		System.arraycopy(buffer, chunkStart, chunk, header.length, bodyLength);
+		System.arraycopy(OSM_END_TAG, 0, chunk, header.length + bodyLength, OSM_END_TAG.length);
+
+		System.arraycopy(buffer, end, buffer, 0, bufferLength - end);
+		bufferLength -= end;
+		scanOffset -= end;
+		chunkStart = 0;
+
+		return chunk;
+	}
+
+
+	/**
+	 * Scans forward to the end of the next chunk.
+	 *
+	 * @return The next chunk, or null if the osm element has ended.
+	 */
+	private byte[] readChunk() {
+		for (;;) {
+			int markupOffset;
+
+			// Find the start of the next markup construct.
+			while (scanOffset < bufferLength && buffer[scanOffset] != '<') {
+				scanOffset++;
+			}
+			if (scanOffset >= bufferLength) {
+				if (!fillBuffer()) {
+					throw new OsmosisRuntimeException("Unexpected end of xml data, the osm element is not closed.");
+				}
+				continue;
+			}
+			markupOffset = scanOffset;
+
+			if (depth == 1 && markupOffset - chunkStart >= targetChunkSize && isSplitElement(markupOffset)) {
+				return createChunk(markupOffset);
+			}
+
+			scanOffset = skipMarkup(markupOffset);
+
+			if (depth == 0) {
+				// The osm end tag has been reached, anything after it is ignored.
+				bodyComplete = true;
+				if (markupOffset > chunkStart) {
+					return createChunk(markupOffset);
+				}
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		if (nextChunk != null) {
+			return true;
+		}
+
+		if (header == null) {
+			readHeader();
+			if (bodyComplete) {
+				// Return the whole document as a single chunk.
+				nextChunk = header;
+				return true;
+			}
+		}
+
+		if (!bodyComplete) {
+			nextChunk = readChunk();
+		}
+
+		return nextChunk != null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] next() {
+		byte[] result;
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		result = nextChunk;
+		nextChunk = null;
+
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,176 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Parses osm xml chunks produced by {@link OsmElementSplitter} using worker
+ * threads, and passes the results to the downstream sink in the original
+ * order.
+ */
+public class ParallelXmlDecoder implements Runnable {
+	private Iterator<byte[]> chunkSplitter;
+	private ExecutorService executor;
+	private int maxPendingChunks;
+	private boolean enableDateParsing;
+	private Sink sink;
+	private Queue<Future<List<EntityContainer>>> chunkResults;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param chunkSplitter
+	 *            The splitter (or other iterator) providing the chunks to be
+	 *            parsed.
+	 * @param executor
+	 *            The executor service managing the thread pool.
+	 * @param maxPendingChunks
+	 *            The maximum number of chunks to have in progress at any point
+	 *            in time.
+	 * @param enableDateParsing
+	 *            If true, parsing of dates in the xml will be enabled,
+	 *            otherwise the current system time will be used.
+	 * @param sink
+	 *            The sink to send all parsed entities to.
+	 */
+	public ParallelXmlDecoder(Iterator<byte[]> chunkSplitter, ExecutorService executor, int maxPendingChunks,
+			boolean enableDateParsing, Sink sink) {
+		this.chunkSplitter = chunkSplitter;
+		this.executor = executor;
+		this.maxPendingChunks = maxPendingChunks;
+		this.enableDateParsing = enableDateParsing;
+		this.sink = sink;
+
+		chunkResults = new ArrayDeque<Future<List<EntityContainer>>>();
+	}
+
+
+	/**
+	 * Parses a single chunk. This is invoked on a worker thread.
+	 */
+	private List<EntityContainer> parseChunk(byte[] chunk) throws XMLStreamException {
+		XMLInputFactory factory;
+		XMLStreamReader reader;
+		final List<EntityContainer> entities;
+
+		// Factories aren't guaranteed to be thread safe so one is created per
+		// chunk, the cost is small relative to parsing the chunk.
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+		reader = factory.createXMLStreamReader(new ByteArrayInputStream(chunk));
+
+		entities = new ArrayList<EntityContainer>();
+		try {
+			new FastXmlParser(new Sink() {
+				@Override
+				public void initialize(Map<String, Object> metaData) {
+					// Nothing to do here.
+				}
+
+
+				@Override
+				public void process(EntityContainer entityContainer) {
+					entities.add(entityContainer);
+				}
+
+
+				@Override
+				public void complete() {
+					// Nothing to do here.
+				}
+
+
+				@Override
+				public void close() {
+					// Nothing to do here.
+				}
+			}, reader, enableDateParsing).readOsm();
+		} finally {
+			reader.close();
+		}
+
+		return entities;
+	}
+
+
+	private void sendResultsToSink(int targetQueueSize) {
+		while (chunkResults.size() > targetQueueSize) {
+			List<EntityContainer> entities;
+
+			try {
+				entities = chunkResults.remove().get();
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("Unable to parse xml chunk.", e.getCause());
+			}
+
+			for (EntityContainer entity : entities) {
+				sink.process(entity);
+			}
+		}
+	}
+
+
+	private void cancelPendingChunks() {
+		for (Future<List<EntityContainer>> chunkResult : chunkResults) {
+			chunkResult.cancel(true);
+		}
+		chunkResults.clear();
+	}
+
+
+	private void processChunks() {
+		// Process until the xml stream is exhausted.
+		while (chunkSplitter.hasNext()) {
+			final byte[] chunk = chunkSplitter.next();
+
+			chunkResults.add(executor.submit(new Callable<List<EntityContainer>>() {
+				@Override
+				public List<EntityContainer> call() throws XMLStreamException {
+					return parseChunk(chunk);
+				}
+			}));
+
+			// If the number of pending chunks has reached capacity we must
+			// begin sending results to the sink. This method will block until
+			// chunk parsing is complete.
+			sendResultsToSink(maxPendingChunks - 1);
+		}
+
+		// There are no more chunks available in the xml stream, so send all remaining data to the sink.
+		sendResultsToSink(0);
+	}
+
+
+	@Override
+	public void run() {
+		try {
+			processChunks();
+		} finally {
+			cancelPendingChunks();
+		}
+	}
+}
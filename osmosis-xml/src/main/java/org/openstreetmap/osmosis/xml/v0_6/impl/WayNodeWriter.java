@@ -33,7 +33,7 @@ public class WayNodeWriter extends ElementWriter {
 	 */
 	public void processWayNode(WayNode wayNode) {
 		beginOpenElement();
-		addAttribute("ref", Long.toString(wayNode.getNodeId()));
+		addAttribute("ref", wayNode.getNodeId());
 		endOpenElement(true);
 	}
 }
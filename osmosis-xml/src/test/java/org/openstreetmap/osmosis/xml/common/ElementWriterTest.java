@@ -4,6 +4,11 @@ package org.openstreetmap.osmosis.xml.common;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -44,6 +49,91 @@ public class ElementWriterTest {
 	}
 	
 	
+	/**
+	 * Tests the escaping of special characters and the writing of numbers.
+	 */
+	@Test
+	public void testAttributeTypes() {
+		MyElementWriter elementWriter;
+		StringWriter stringWriter;
+		
+		stringWriter = new StringWriter();
+		elementWriter = new MyElementWriter();
+		elementWriter.setWriter(stringWriter);
+		
+		elementWriter.beginOpenElement();
+		elementWriter.addAttribute("text", "<a&b>\"c'\t\u00e9\u4e2d");
+		elementWriter.addAttribute("zero", 0);
+		elementWriter.addAttribute("negative", -1234567890123L);
+		elementWriter.addAttribute("max", Long.MAX_VALUE);
+		elementWriter.addAttribute("min", Long.MIN_VALUE);
+		elementWriter.addCoordinateAttribute("lat", -12.5);
+		elementWriter.addCoordinateAttribute("lon", 179.0000001);
+		elementWriter.endOpenElement(true);
+		
+		Assert.assertEquals(
+				"Generated xml is incorrect.",
+				"  <testElement text=\"&lt;a&amp;b&gt;&quot;c&apos;&#x9;\u00e9\u4e2d\" zero=\"0\""
+				+ " negative=\"-1234567890123\" max=\"9223372036854775807\" min=\"-9223372036854775808\""
+				+ " lat=\"-12.5\" lon=\"179.0000001\"/>"
+				+ System.getProperty("line.separator"),
+				stringWriter.toString());
+	}
+	
+	
+	/**
+	 * Verifies that coordinates are formatted identically to the decimal
+	 * format used previously, including values close to rounding boundaries.
+	 */
+	@Test
+	public void testCoordinateFormat() {
+		NumberFormat referenceFormat;
+		Random random;
+		
+		referenceFormat = new DecimalFormat("0.#######;-0.#######", new DecimalFormatSymbols(Locale.US));
+		random = new Random(1);
+		
+		for (int i = 0; i < 100000; i++) {
+			double value;
+			
+			switch (i % 4) {
+			case 0:
+				// Values with seven decimal places as produced by fixed point sources.
+				value = (random.nextInt(1800000001) - 900000000) / 1E7;
+				break;
+			case 1:
+				// Values exactly half way between seven decimal places.
+				value = (random.nextInt(1800000000) - 900000000 + 0.5) / 1E7;
+				break;
+			case 2:
+				value = random.nextDouble() * 360 - 180;
+				break;
+			default:
+				value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 8);
+				break;
+			}
+			
+			Assert.assertEquals("Incorrect coordinate for " + value + ".",
+					referenceFormat.format(value), formatCoordinate(value));
+		}
+	}
+	
+	
+	private static String formatCoordinate(double value) {
+		MyElementWriter elementWriter;
+		StringWriter stringWriter;
+		String result;
+		
+		stringWriter = new StringWriter();
+		elementWriter = new MyElementWriter();
+		elementWriter.setWriter(stringWriter);
+		elementWriter.addCoordinateAttribute("c", value);
+		result = stringWriter.toString();
+		
+		return result.substring(" c=\"".length(), result.length() - 1);
+	}
+	
+	
 	private static class MyElementWriter extends ElementWriter {
 		MyElementWriter() {
 			super("testElement", 1);
@@ -0,0 +1,168 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the parallel bzip2 decompression stream.
+ */
+public class ParallelBZip2InputStreamTest {
+
+	private ExecutorService executor;
+
+
+	/**
+	 * Creates the worker threads.
+	 */
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+
+	/**
+	 * Stops the worker threads.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+
+	private static byte[] createData(int length) {
+		Random random = new Random(42);
+		byte[] data = new byte[length];
+
+		// Use a small alphabet so the data compresses like text.
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+
+		return data;
+	}
+
+
+	/**
+	 * Compresses the data as a series of independent bzip2 streams in the
+	 * same way as parallel bzip2 compressors.
+	 */
+	private static byte[] compress(byte[] data, int streamLength) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		for (int offset = 0; offset < data.length; offset += streamLength) {
+			try (OutputStream output = new BZip2CompressorOutputStream(new UnclosableOutputStream(compressed))) {
+				output.write(data, offset, Math.min(streamLength, data.length - offset));
+			}
+		}
+
+		return compressed.toByteArray();
+	}
+
+
+	private static byte[] readFully(InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int bytesRead;
+
+		try {
+			while ((bytesRead = input.read(buffer)) >= 0) {
+				output.write(buffer, 0, bytesRead);
+			}
+		} finally {
+			input.close();
+		}
+
+		return output.toByteArray();
+	}
+
+
+	/**
+	 * Verifies that all streams of a multi-stream file are decompressed in
+	 * order.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be decompressed.
+	 */
+	@Test
+	public void testMultipleStreams() throws IOException {
+		byte[] data = createData(100000);
+		byte[] compressed = compress(data, 7000);
+
+		for (int segmentSize : new int[] {1, 5000, 20000, compressed.length}) {
+			InputStream input = new ParallelBZip2InputStream(
+					new ByteArrayInputStream(compressed), executor, 3, segmentSize);
+
+			Assert.assertArrayEquals("Incorrect data for segment size " + segmentSize + ".", data,
+					readFully(input));
+		}
+	}
+
+
+	/**
+	 * Verifies that a single stream file too large to be held in a segment is
+	 * decompressed sequentially.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be decompressed.
+	 */
+	@Test
+	public void testSingleLargeStream() throws IOException {
+		byte[] data = createData(100000);
+		byte[] compressed = compress(data, data.length);
+		InputStream input = new ParallelBZip2InputStream(new ByteArrayInputStream(compressed), executor, 3, 100);
+
+		Assert.assertArrayEquals("Incorrect data.", data, readFully(input));
+	}
+
+
+	/**
+	 * Verifies that invalid data is reported.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be decompressed.
+	 */
+	@Test(expected = IOException.class)
+	public void testInvalidData() throws IOException {
+		readFully(new ParallelBZip2InputStream(new ByteArrayInputStream(createData(1000)), executor, 3, 100));
+	}
+
+
+	/**
+	 * Allows a compression stream to be closed without closing the underlying
+	 * stream.
+	 */
+	private static class UnclosableOutputStream extends OutputStream {
+		private OutputStream output;
+
+
+		UnclosableOutputStream(OutputStream output) {
+			this.output = output;
+		}
+
+
+		@Override
+		public void write(int b) throws IOException {
+			output.write(b);
+		}
+
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			output.write(b, off, len);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the write behind output stream.
+ */
+public class WriteBehindOutputStreamTest {
+
+	/**
+	 * Verifies that all data is written in order across many blocks.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	@Test
+	public void testWrite() throws IOException {
+		ByteArrayOutputStream destination;
+		ByteArrayOutputStream expected;
+		OutputStream output;
+
+		destination = new ByteArrayOutputStream();
+		expected = new ByteArrayOutputStream();
+		output = new WriteBehindOutputStream(destination, 100, 2);
+
+		for (int i = 0; i < 10000; i++) {
+			byte[] data = Integer.toString(i).getBytes("UTF-8");
+
+			output.write(data, 0, data.length);
+			output.write(',');
+			expected.write(data, 0, data.length);
+			expected.write(',');
+
+			if (i % 1000 == 0) {
+				output.flush();
+				Assert.assertEquals("Flushed data is incomplete.", expected.size(), destination.size());
+			}
+		}
+		output.close();
+
+		Assert.assertArrayEquals("Incorrect data written.", expected.toByteArray(), destination.toByteArray());
+	}
+
+
+	/**
+	 * Verifies that errors raised by the destination are reported to the
+	 * writing thread.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	@Test(expected = IOException.class)
+	public void testDestinationError() throws IOException {
+		OutputStream output;
+
+		output = new WriteBehindOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Test failure.");
+			}
+		}, 10, 2);
+
+		for (int i = 0; i < 1000; i++) {
+			output.write(i);
+		}
+		output.close();
+	}
+}
@@ -83,4 +83,41 @@ public class XmlReaderWriterTest extends AbstractDataTest {
 		// Validate that the output file matches the input file.
 		dataUtils.compareFiles(inputFile, outputFile);
 	}
+	
+	
+	/**
+	 * Tests reading a compressed osm file using worker threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testFastReaderWorkers() throws IOException {
+		File uncompressedFile;
+		File workingFolder;
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		uncompressedFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		workingFolder = dataUtils.newFolder();
+		inputFile = new File(workingFolder, "testin.osm.gz");
+		outputFile = new File(workingFolder, "testout.osm");
+		dataUtils.compressFile(uncompressedFile, inputFile);
+		
+		// Run the pipeline.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--fast-read-xml-0.6",
+				inputFile.getPath(),
+				"workers=2",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(uncompressedFile, outputFile);
+	}
 }
@@ -0,0 +1,184 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+
+
+/**
+ * Tests the splitting of osm xml into chunks and the parallel parsing of those
+ * chunks.
+ */
+public class OsmElementSplitterTest {
+
+	private static final String OSM_DOCUMENT =
+			"<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<!-- <node id=\"100\"> within a comment -->\n"
+			+ "<osm version=\"0.6\" generator=\"Test > Generator\">\n"
+			+ "  <bounds minlat=\"-1\" minlon=\"-2\" maxlat=\"3\" maxlon=\"4\"/>\n"
+			+ "  <node id=\"1\" version=\"1\" timestamp=\"2008-01-02T03:04:05Z\" lat=\"1\" lon=\"2\"/>\n"
+			+ "  <node id=\"2\" version=\"1\" timestamp=\"2008-01-02T03:04:05Z\" lat=\"1\" lon=\"2\">\n"
+			+ "    <tag k=\"note\" v=\"a &lt;node&gt; > b\"/>\n"
+			+ "    <!-- <way id=\"100\"> within a comment -->\n"
+			+ "  </node>\n"
+			+ "  <way id=\"1\" version=\"1\" timestamp=\"2008-01-02T03:04:05Z\">\n"
+			+ "    <nd ref=\"1\"/>\n"
+			+ "    <nd ref=\"2\"/>\n"
+			+ "    <tag k='quote' v='\"/>'/>\n"
+			+ "  </way>\n"
+			+ "  <relation id=\"1\" version=\"1\" timestamp=\"2008-01-02T03:04:05Z\">\n"
+			+ "    <member type=\"way\" ref=\"1\" role=\"outer\"/>\n"
+			+ "  </relation>\n"
+			+ "</osm>\n";
+
+
+	private static List<byte[]> split(String document, int targetChunkSize) {
+		OsmElementSplitter splitter;
+		List<byte[]> chunks;
+
+		splitter = new OsmElementSplitter(
+				new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), targetChunkSize);
+		chunks = new ArrayList<byte[]>();
+		while (splitter.hasNext()) {
+			chunks.add(splitter.next());
+		}
+
+		return chunks;
+	}
+
+
+	private static List<EntityContainer> toList(SinkEntityInspector inspector) {
+		List<EntityContainer> entities = new ArrayList<EntityContainer>();
+
+		for (EntityContainer entity : inspector.getProcessedEntities()) {
+			entities.add(entity);
+		}
+
+		return entities;
+	}
+
+
+	private static List<EntityContainer> parseSerial(String document) throws XMLStreamException {
+		SinkEntityInspector inspector = new SinkEntityInspector();
+
+		new FastXmlParser(
+				inspector,
+				XMLInputFactory.newInstance().createXMLStreamReader(
+						new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8))),
+				true).readOsm();
+
+		return toList(inspector);
+	}
+
+
+	private static List<EntityContainer> parseParallel(String document, int targetChunkSize) {
+		SinkEntityInspector inspector = new SinkEntityInspector();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			new ParallelXmlDecoder(
+					new OsmElementSplitter(
+							new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), targetChunkSize),
+					executor, 3, true, inspector).run();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return toList(inspector);
+	}
+
+
+	private static void assertEntitiesEqual(List<EntityContainer> expected, List<EntityContainer> actual) {
+		Assert.assertEquals("Incorrect number of entities.", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("Incorrect entity.", expected.get(i).getEntity(), actual.get(i).getEntity());
+		}
+	}
+
+
+	/**
+	 * Verifies that a document is split before each top-level entity when the
+	 * smallest chunk size is used, and that markup within comments and
+	 * attribute values is ignored.
+	 */
+	@Test
+	public void testSplitEachElement() {
+		List<byte[]> chunks;
+		String firstChunk;
+
+		chunks = split(OSM_DOCUMENT, 1);
+
+		// The bounds, two nodes, a way and a relation.
+		Assert.assertEquals("Incorrect number of chunks.", 5, chunks.size());
+
+		firstChunk = new String(chunks.get(0), StandardCharsets.UTF_8);
+		Assert.assertTrue("Chunk doesn't begin with the header.", firstChunk.startsWith("<?xml"));
+		Assert.assertTrue("Chunk doesn't contain the bounds.", firstChunk.contains("<bounds"));
+		Assert.assertTrue("Chunk doesn't end with the osm end tag.", firstChunk.endsWith("</osm>"));
+	}
+
+
+	/**
+	 * Verifies that a document is returned as a single chunk when it is smaller
+	 * than the chunk size.
+	 */
+	@Test
+	public void testSingleChunk() {
+		Assert.assertEquals("Incorrect number of chunks.", 1, split(OSM_DOCUMENT, 1024 * 1024).size());
+	}
+
+
+	/**
+	 * Verifies that parsing the chunks in parallel produces the same entities
+	 * in the same order as parsing the whole document.
+	 *
+	 * @throws XMLStreamException
+	 *             if the document cannot be parsed.
+	 */
+	@Test
+	public void testParallelMatchesSerial() throws XMLStreamException {
+		List<EntityContainer> expected = parseSerial(OSM_DOCUMENT);
+
+		Assert.assertEquals("Incorrect number of entities.", 5, expected.size());
+		for (int chunkSize = 1; chunkSize < OSM_DOCUMENT.length(); chunkSize += 37) {
+			assertEntitiesEqual(expected, parseParallel(OSM_DOCUMENT, chunkSize));
+		}
+	}
+
+
+	/**
+	 * Verifies that an empty osm element produces a single chunk.
+	 */
+	@Test
+	public void testEmptyOsmElement() {
+		List<byte[]> chunks;
+
+		chunks = split("<?xml version='1.0' encoding='UTF-8'?>\n<osm version=\"0.6\"/>\n", 1);
+
+		Assert.assertEquals("Incorrect number of chunks.", 1, chunks.size());
+		Assert.assertEquals("Chunk should contain no entities.", 0,
+				parseParallel("<osm version=\"0.6\"/>", 1).size());
+	}
+
+
+	/**
+	 * Verifies that a truncated document is detected.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testTruncatedDocument() {
+		split(OSM_DOCUMENT.substring(0, OSM_DOCUMENT.indexOf("<relation")), 1);
+	}
+}
@@ -22,6 +22,8 @@ DROP INDEX idx_ways_linestring;
 SELECT DropGeometryColumn('ways', 'linestring');*/
 
 -- Import the table data from the data files using the fast COPY method.
+-- If the files were written with the binaryFormat option of --write-pgsql-dump,
+-- append WITH (FORMAT binary) to each of the following commands.
 \copy users FROM 'users.txt'
 \copy nodes FROM 'nodes.txt'
 \copy ways FROM 'ways.txt'